@@ -1,5 +1,7 @@
 package com.sciome.bmdexpressweb;
 
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.scheduling.annotation.EnableAsync;
@@ -9,10 +11,14 @@ import org.springframework.scheduling.annotation.EnableAsync;
  *
  * Spring Boot application providing web-based access to BMDExpress
  * dose-response analysis functionality.
+ *
+ * Server push is enabled for all views, so updates made outside a request
+ * (see UiUpdateDispatcher) reach the browser without polling.
  */
 @SpringBootApplication
 @EnableAsync
-public class Application {
+@Push
+public class Application implements AppShellConfigurator {
 
     public static void main(String[] args) {
         // Initialize BMDExpress properties for console/server mode
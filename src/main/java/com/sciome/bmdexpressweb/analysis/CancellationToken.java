@@ -0,0 +1,109 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Cooperative cancellation signal for long-running analyses.
+ *
+ * Engines call {@link #throwIfCancelled()} between units of work (categories,
+ * genes), so a cancelled or timed-out job stops within one unit and releases its
+ * worker thread and intermediate state. A token is cancelled either explicitly
+ * or once its deadline, started with {@link #startDeadline(long)}, has passed.
+ *
+ * Loops over a known number of units call {@link #checkpoint(int, int)} instead,
+ * which also records how far the work has got for progress reporting.
+ */
+public final class CancellationToken {
+
+    /**
+     * A token that is never cancelled, for callers without a job to cancel.
+     */
+    public static final CancellationToken NONE = new CancellationToken();
+
+    private volatile String reason;
+    private volatile long deadlineNanos;
+    private volatile long timeoutMillis;
+    private volatile boolean timedOut;
+    private volatile double progress;
+
+    /**
+     * Start the timeout clock. Has no effect on {@link #NONE} or if the timeout is not positive.
+     *
+     * @param timeoutMillis time allowed from now, in milliseconds
+     */
+    public void startDeadline(long timeoutMillis) {
+        if (this == NONE || timeoutMillis <= 0) {
+            return;
+        }
+        this.deadlineNanos = System.nanoTime() + timeoutMillis * 1_000_000;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Cancel the work this token guards. The first reason wins; has no effect on {@link #NONE}.
+     */
+    public synchronized void cancel(String reason) {
+        if (this != NONE && this.reason == null) {
+            this.reason = reason;
+        }
+    }
+
+    public boolean isCancelled() {
+        if (reason != null) {
+            return true;
+        }
+        if (timeoutMillis > 0 && System.nanoTime() - deadlineNanos >= 0) {
+            synchronized (this) {
+                if (reason == null) {
+                    timedOut = true;
+                    reason = "Timed out after " + timeoutMillis + " ms";
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the token was cancelled by its deadline rather than explicitly.
+     */
+    public boolean isTimedOut() {
+        return isCancelled() && timedOut;
+    }
+
+    /**
+     * Why the token was cancelled, or null if it is still active.
+     */
+    public String getReason() {
+        return isCancelled() ? reason : null;
+    }
+
+    /**
+     * @throws CancellationException if the token has been cancelled or its deadline has passed
+     */
+    public void throwIfCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException(reason);
+        }
+    }
+
+    /**
+     * Record that {@code done} of {@code total} units of work are finished, then
+     * check for cancellation. Has no effect on the progress of {@link #NONE}.
+     *
+     * @throws CancellationException if the token has been cancelled or its deadline has passed
+     */
+    public void checkpoint(int done, int total) {
+        if (this != NONE && total > 0) {
+            progress = (double) done / total;
+        }
+        throwIfCancelled();
+    }
+
+    /**
+     * Fraction of the current unit loop that is finished, from 0 to 1
+     */
+    public double getProgress() {
+        return progress;
+    }
+}
@@ -0,0 +1,581 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+/**
+ * Server-side category analysis over a ProbeStatTable and CategoryMapping.
+ *
+ * Designed for parameter sweeps: one engine instance is shared by every
+ * variant run against the same BMD result and category definition.
+ * <ul>
+ *   <li>probe filters are compiled once per BMD result into a ProbeFilterIndex,
+ *       so a variant's probe mask is a handful of bitmap operations;</li>
+ *   <li>per-category statistics are computed once per distinct probe mask, so
+ *       variants that differ only in category-level settings (min/max genes in
+ *       set) share them completely;</li>
+ *   <li>a completed variant can be re-run with changed thresholds by updating
+ *       only the categories touched by probes whose filter outcome changed.</li>
+ * </ul>
+ *
+ * Supported probe filters: BMD fit p-value, R-squared, BMD/BMDL/BMDU ratios,
+ * BMD above the highest dose, BMD n-fold below the lowest dose, max fold
+ * change, prefilter (adjusted) p-value, promiscuous probes, adverse
+ * direction and step-function best models. Filters whose column is missing
+ * from the BMD result are skipped. When expression data is available, genes
+ * whose passing probes are anti-correlated can also be reported
+ * (identifyConflictingProbeSets).
+ *
+ * Every computation can be given a CancellationToken, checked once per
+ * category (and per gene for correlations). A cancelled computation throws
+ * CancellationException and leaves no partial statistics in the cache.
+ */
+public class CategoryAnalysisEngine {
+
+    public static final List<String> COLUMN_HEADER = List.of(
+            "Category ID",
+            "Category Description",
+            "All Genes",
+            "Genes That Passed All Filters",
+            "Percentage",
+            "Fisher's Exact Right P-Value",
+            "BMD Mean",
+            "BMD Median",
+            "BMD Minimum",
+            "BMD SD",
+            "BMDL Mean",
+            "BMDL Median",
+            "BMDU Mean",
+            "BMDU Median",
+            "Genes",
+            "Genes With Conflicting Probe Sets");
+
+    private static final double DEFAULT_CONFLICT_CORRELATION_CUTOFF = 0.5;
+
+    private static final int MAX_CACHED_MASKS = 32;
+
+    private final ProbeStatTable table;
+    private final ProbeFilterIndex filters;
+    private final CategoryMapping mapping;
+    private final double[] logFactorials;
+    private final RoaringBitmap unmappedProbes;
+    private final RoaringBitmap promiscuousProbes;
+    private final Supplier<ExpressionMatrix> expressionMatrix;
+    private ProbeSetCorrelations correlations;
+
+    // Inverse CSR indexes for incremental updates
+    private final int[] probeGeneOffsets;
+    private final int[] probeGenes;
+    private final int[] geneCategoryOffsets;
+    private final int[] geneCategories;
+
+    // Shared across variants; least recently used masks are evicted first
+    private final Map<RoaringBitmap, CategoryStats> statsByMask =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<RoaringBitmap, CategoryStats> eldest) {
+                    return size() > MAX_CACHED_MASKS;
+                }
+            };
+    private int computedStatsCount;
+    private int lastUpdatedCategoryCount;
+
+    public CategoryAnalysisEngine(ProbeStatTable table, CategoryMapping mapping) {
+        this(new ProbeFilterIndex(table), mapping);
+    }
+
+    /**
+     * @param filters the compiled probe filters of the BMD result, usually shared
+     * @param mapping the category mapping built from the same table
+     */
+    public CategoryAnalysisEngine(ProbeFilterIndex filters, CategoryMapping mapping) {
+        this(filters, mapping, null);
+    }
+
+    /**
+     * @param filters the compiled probe filters of the BMD result, usually shared
+     * @param mapping the category mapping built from the same table
+     * @param expressionMatrix supplies the expression data of the BMD result's experiment
+     *        the first time conflicting probe sets are requested; may be null
+     */
+    public CategoryAnalysisEngine(ProbeFilterIndex filters, CategoryMapping mapping,
+                                  Supplier<ExpressionMatrix> expressionMatrix) {
+        this.table = filters.getTable();
+        this.expressionMatrix = expressionMatrix;
+        this.filters = filters;
+        this.mapping = mapping;
+        this.logFactorials = Statistics.logFactorials(mapping.getGeneCount());
+
+        // Gene counts come from the mapping, which may use its own probe file
+        this.unmappedProbes = new RoaringBitmap();
+        this.promiscuousProbes = new RoaringBitmap();
+        for (int p = 0; p < table.getProbeCount(); p++) {
+            int genes = mapping.getProbeGeneCount(p);
+            if (genes == 0) {
+                unmappedProbes.add(p);
+            } else if (genes > 1) {
+                promiscuousProbes.add(p);
+            }
+        }
+        unmappedProbes.runOptimize();
+        promiscuousProbes.runOptimize();
+
+        int[][] probeToGenes = invert(mapping.geneProbeOffsets(), mapping.geneProbes(), table.getProbeCount());
+        this.probeGeneOffsets = probeToGenes[0];
+        this.probeGenes = probeToGenes[1];
+        int[][] geneToCategories = invert(mapping.categoryGeneOffsets(), mapping.categoryGenes(), mapping.getGeneCount());
+        this.geneCategoryOffsets = geneToCategories[0];
+        this.geneCategories = geneToCategories[1];
+    }
+
+    /**
+     * Run one analysis variant.
+     *
+     * @param name name of the resulting table
+     * @param parameters the variant's filter parameters
+     * @return category rows in the same {"row": [...]} shape as stored category results
+     */
+    public CategoryAnalysisTableView analyze(String name, CategoryAnalysisParametersDto parameters) {
+        return analyze(name, parameters, CancellationToken.NONE);
+    }
+
+    /**
+     * Run one analysis variant, stopping early if the token is cancelled.
+     *
+     * @param name name of the resulting table
+     * @param parameters the variant's filter parameters
+     * @param cancellation checked, and progress recorded, once per category
+     * @return category rows in the same {"row": [...]} shape as stored category results
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     */
+    public synchronized CategoryAnalysisTableView analyze(String name, CategoryAnalysisParametersDto parameters,
+                                                          CancellationToken cancellation) {
+        cancellation.throwIfCancelled();
+        RoaringBitmap mask = probeMask(parameters);
+        CategoryStats stats = statsByMask.get(mask);
+        if (stats == null) {
+            stats = computeStats(mask, cancellation);
+            statsByMask.put(mask, stats);
+        }
+        return toTableView(name, stats, parameters, cancellation);
+    }
+
+    /**
+     * Re-run a completed variant with changed parameters.
+     *
+     * Starting from the statistics of the previous parameters, only the probes
+     * whose filter outcome changed are applied: categories containing one of
+     * their genes get their BMD summaries recomputed, and Fisher p-values are
+     * recomputed for those categories, or for all of them if the total number
+     * of passing genes changed. Falls back to a full computation if the previous
+     * statistics have been evicted.
+     *
+     * @param name name of the resulting table
+     * @param previous the parameters the variant was last run with
+     * @param parameters the new parameters
+     * @return category rows in the same {"row": [...]} shape as stored category results
+     */
+    public CategoryAnalysisTableView reanalyze(String name, CategoryAnalysisParametersDto previous,
+                                               CategoryAnalysisParametersDto parameters) {
+        return reanalyze(name, previous, parameters, CancellationToken.NONE);
+    }
+
+    /**
+     * Re-run a completed variant with changed parameters, stopping early if the
+     * token is cancelled.
+     *
+     * @see #reanalyze(String, CategoryAnalysisParametersDto, CategoryAnalysisParametersDto)
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     */
+    public synchronized CategoryAnalysisTableView reanalyze(String name, CategoryAnalysisParametersDto previous,
+                                                            CategoryAnalysisParametersDto parameters,
+                                                            CancellationToken cancellation) {
+        cancellation.throwIfCancelled();
+        RoaringBitmap mask = probeMask(parameters);
+        CategoryStats stats = statsByMask.get(mask);
+        if (stats == null) {
+            RoaringBitmap previousMask = probeMask(previous);
+            CategoryStats base = statsByMask.get(previousMask);
+            stats = base != null
+                    ? updateStats(base, RoaringBitmap.xor(previousMask, mask), cancellation)
+                    : computeStats(mask, cancellation);
+            statsByMask.put(mask, stats);
+        } else {
+            lastUpdatedCategoryCount = 0;
+        }
+        return toTableView(name, stats, parameters, cancellation);
+    }
+
+    /**
+     * Probes passing all probe-level filters of a variant.
+     */
+    public RoaringBitmap probeMask(CategoryAnalysisParametersDto parameters) {
+        return filters.filter(parameters, unmappedProbes, promiscuousProbes);
+    }
+
+    /**
+     * Number of distinct probe masks whose category statistics have been computed.
+     */
+    public synchronized int getComputedStatsCount() {
+        return computedStatsCount;
+    }
+
+    /**
+     * Number of categories whose statistics were recomputed by the last
+     * computation (all categories for a full computation).
+     */
+    public synchronized int getLastUpdatedCategoryCount() {
+        return lastUpdatedCategoryCount;
+    }
+
+    private CategoryStats computeStats(RoaringBitmap mask, CancellationToken cancellation) {
+        CategoryStats stats = new CategoryStats(table.getProbeCount(), mapping.getGeneCount(), mapping.getCategoryCount());
+        for (int p : mask.toArray()) {
+            togglePasses(stats, p);
+        }
+        double[][] buffers = new double[3][16];
+        int[] stamp = new int[table.getProbeCount()];
+        for (int c = 0; c < mapping.getCategoryCount(); c++) {
+            cancellation.checkpoint(c, mapping.getCategoryCount());
+            computeCategory(stats, c, buffers, stamp);
+            computeFisher(stats, c);
+        }
+        computedStatsCount++;
+        lastUpdatedCategoryCount = mapping.getCategoryCount();
+        return stats;
+    }
+
+    private CategoryStats updateStats(CategoryStats base, RoaringBitmap changedProbes,
+                                      CancellationToken cancellation) {
+        CategoryStats stats = base.copy();
+        boolean[] affected = new boolean[mapping.getCategoryCount()];
+        for (int p : changedProbes.toArray()) {
+            togglePasses(stats, p);
+            for (int i = probeGeneOffsets[p]; i < probeGeneOffsets[p + 1]; i++) {
+                int g = probeGenes[i];
+                for (int j = geneCategoryOffsets[g]; j < geneCategoryOffsets[g + 1]; j++) {
+                    affected[geneCategories[j]] = true;
+                }
+            }
+        }
+
+        boolean totalChanged = stats.totalPassedGenes != base.totalPassedGenes;
+        double[][] buffers = new double[3][16];
+        int[] stamp = new int[table.getProbeCount()];
+        int updated = 0;
+        for (int c = 0; c < mapping.getCategoryCount(); c++) {
+            if (affected[c]) {
+                cancellation.checkpoint(c, mapping.getCategoryCount());
+                computeCategory(stats, c, buffers, stamp);
+                updated++;
+            }
+            if (affected[c] || totalChanged) {
+                computeFisher(stats, c);
+            }
+        }
+        computedStatsCount++;
+        lastUpdatedCategoryCount = updated;
+        return stats;
+    }
+
+    /**
+     * Flip a probe's pass state and keep the per-gene passing probe counts in step.
+     */
+    private void togglePasses(CategoryStats stats, int probe) {
+        boolean passes = !stats.probePassed[probe];
+        stats.probePassed[probe] = passes;
+        for (int i = probeGeneOffsets[probe]; i < probeGeneOffsets[probe + 1]; i++) {
+            int g = probeGenes[i];
+            if (passes) {
+                if (stats.genePassedProbes[g]++ == 0) {
+                    stats.totalPassedGenes++;
+                }
+            } else if (--stats.genePassedProbes[g] == 0) {
+                stats.totalPassedGenes--;
+            }
+        }
+    }
+
+    /**
+     * Passed genes, gene list and BMD summaries of one category.
+     *
+     * @param buffers reusable BMD, BMDL and BMDU value buffers (grown as needed)
+     * @param stamp reusable per-probe marker for de-duplicating probes within a
+     *        category (a probe may map to several member genes)
+     */
+    private void computeCategory(CategoryStats stats, int c, double[][] buffers, int[] stamp) {
+        int[] geneOffsets = mapping.geneProbeOffsets();
+        int[] geneProbes = mapping.geneProbes();
+        int[] categoryOffsets = mapping.categoryGeneOffsets();
+        int[] categoryGenes = mapping.categoryGenes();
+
+        int passed = 0;
+        int values = 0;
+        StringBuilder genes = new StringBuilder();
+        for (int i = categoryOffsets[c]; i < categoryOffsets[c + 1]; i++) {
+            int g = categoryGenes[i];
+            if (stats.genePassedProbes[g] == 0) {
+                continue;
+            }
+            passed++;
+            if (genes.length() > 0) {
+                genes.append(';');
+            }
+            genes.append(mapping.getGeneSymbol(g));
+            for (int j = geneOffsets[g]; j < geneOffsets[g + 1]; j++) {
+                int p = geneProbes[j];
+                if (!stats.probePassed[p] || stamp[p] == c + 1) {
+                    continue;
+                }
+                stamp[p] = c + 1;
+                if (values == buffers[0].length) {
+                    for (int k = 0; k < buffers.length; k++) {
+                        buffers[k] = Arrays.copyOf(buffers[k], values * 2);
+                    }
+                }
+                buffers[0][values] = table.get(ProbeStatTable.Column.BEST_BMD, p);
+                buffers[1][values] = table.get(ProbeStatTable.Column.BEST_BMDL, p);
+                buffers[2][values] = table.get(ProbeStatTable.Column.BEST_BMDU, p);
+                values++;
+            }
+        }
+
+        double[] bmd = buffers[0];
+        double[] bmdl = buffers[1];
+        double[] bmdu = buffers[2];
+        stats.passedGenes[c] = passed;
+        stats.bmdMean[c] = mean(bmd, values);
+        stats.bmdMedian[c] = median(bmd, values);
+        stats.bmdMinimum[c] = minimum(bmd, values);
+        stats.bmdSd[c] = standardDeviation(bmd, values, stats.bmdMean[c]);
+        stats.bmdlMean[c] = mean(bmdl, values);
+        stats.bmdlMedian[c] = median(bmdl, values);
+        stats.bmduMean[c] = mean(bmdu, values);
+        stats.bmduMedian[c] = median(bmdu, values);
+        stats.genes[c] = passed == 0 ? null : genes.toString();
+    }
+
+    private void computeFisher(CategoryStats stats, int c) {
+        stats.fisherPValue[c] = stats.passedGenes[c] == 0 ? Double.NaN
+                : Statistics.fisherExactRightTail(stats.passedGenes[c], mapping.getCategorySize(c),
+                        stats.totalPassedGenes, mapping.getGeneCount(), logFactorials);
+    }
+
+    /**
+     * Transpose a CSR relation: rows -> columns becomes columns -> rows.
+     *
+     * @return {offsets, members} of the inverse relation
+     */
+    private static int[][] invert(int[] offsets, int[] members, int columnCount) {
+        int[] inverseOffsets = new int[columnCount + 1];
+        for (int member : members) {
+            inverseOffsets[member + 1]++;
+        }
+        for (int i = 0; i < columnCount; i++) {
+            inverseOffsets[i + 1] += inverseOffsets[i];
+        }
+        int[] inverse = new int[members.length];
+        int[] next = Arrays.copyOf(inverseOffsets, columnCount);
+        for (int row = 0; row + 1 < offsets.length; row++) {
+            for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+                inverse[next[members[i]]++] = row;
+            }
+        }
+        return new int[][] {inverseOffsets, inverse};
+    }
+
+    private CategoryAnalysisTableView toTableView(String name, CategoryStats stats,
+                                                  CategoryAnalysisParametersDto parameters,
+                                                  CancellationToken cancellation) {
+        int minGenes = parameters.getMinGenesInSet() != null ? parameters.getMinGenesInSet() : 0;
+        int maxGenes = parameters.getMaxGenesInSet() != null ? parameters.getMaxGenesInSet() : Integer.MAX_VALUE;
+
+        byte[] conflicting = null;
+        if (Boolean.TRUE.equals(parameters.getIdentifyConflictingProbeSets()) && expressionMatrix != null) {
+            if (correlations == null) {
+                correlations = ProbeSetCorrelations.compute(mapping, table, expressionMatrix.get(),
+                        ForkJoinPool.commonPool(), cancellation);
+            }
+            conflicting = new byte[mapping.getGeneCount()];
+        }
+        double conflictCutoff = parameters.getCorrelationCutoffConflictingProbeSets() != null
+                ? parameters.getCorrelationCutoffConflictingProbeSets() : DEFAULT_CONFLICT_CORRELATION_CUTOFF;
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int c = 0; c < mapping.getCategoryCount(); c++) {
+            int size = mapping.getCategorySize(c);
+            if (stats.passedGenes[c] == 0 || size < minGenes || size > maxGenes) {
+                continue;
+            }
+            List<Object> row = new ArrayList<>(COLUMN_HEADER.size());
+            row.add(mapping.getCategoryId(c));
+            row.add(mapping.getCategoryName(c));
+            row.add(size);
+            row.add(stats.passedGenes[c]);
+            row.add(100.0 * stats.passedGenes[c] / size);
+            row.add(stats.fisherPValue[c]);
+            row.add(stats.bmdMean[c]);
+            row.add(stats.bmdMedian[c]);
+            row.add(stats.bmdMinimum[c]);
+            row.add(stats.bmdSd[c]);
+            row.add(stats.bmdlMean[c]);
+            row.add(stats.bmdlMedian[c]);
+            row.add(stats.bmduMean[c]);
+            row.add(stats.bmduMedian[c]);
+            row.add(stats.genes[c]);
+            if (conflicting != null) {
+                cancellation.throwIfCancelled();
+            }
+            row.add(conflicting != null ? conflictingGenes(c, stats, conflicting, conflictCutoff) : null);
+
+            Map<String, Object> rowMap = new HashMap<>();
+            rowMap.put("row", row);
+            rows.add(rowMap);
+        }
+        return new CategoryAnalysisTableView(name, COLUMN_HEADER, rows);
+    }
+
+    /**
+     * Symbols of a category's passing genes with conflicting probe sets.
+     *
+     * @param conflicting per-gene memo shared by one output: 0 = not yet checked, 1 = no, 2 = yes
+     * @param cutoff probes correlated at or below -cutoff conflict
+     */
+    private String conflictingGenes(int c, CategoryStats stats, byte[] conflicting, double cutoff) {
+        StringBuilder genes = new StringBuilder();
+        int[] categoryOffsets = mapping.categoryGeneOffsets();
+        int[] categoryGenes = mapping.categoryGenes();
+        for (int i = categoryOffsets[c]; i < categoryOffsets[c + 1]; i++) {
+            int g = categoryGenes[i];
+            if (stats.genePassedProbes[g] < 2) {
+                continue;
+            }
+            if (conflicting[g] == 0) {
+                conflicting[g] = correlations.isConflicting(g, stats.probePassed, cutoff) ? (byte) 2 : (byte) 1;
+            }
+            if (conflicting[g] == 2) {
+                if (genes.length() > 0) {
+                    genes.append(';');
+                }
+                genes.append(mapping.getGeneSymbol(g));
+            }
+        }
+        return genes.toString();
+    }
+
+    private static double mean(double[] values, int n) {
+        double sum = 0.0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += values[i];
+                count++;
+            }
+        }
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    private static double median(double[] values, int n) {
+        double[] sorted = new double[n];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(values[i])) {
+                sorted[count++] = values[i];
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(sorted, 0, count);
+        return count % 2 == 1 ? sorted[count / 2] : (sorted[count / 2 - 1] + sorted[count / 2]) / 2.0;
+    }
+
+    private static double minimum(double[] values, int n) {
+        double min = Double.NaN;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(values[i]) && (Double.isNaN(min) || values[i] < min)) {
+                min = values[i];
+            }
+        }
+        return min;
+    }
+
+    private static double standardDeviation(double[] values, int n, double mean) {
+        double sum = 0.0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!Double.isNaN(values[i])) {
+                sum += (values[i] - mean) * (values[i] - mean);
+                count++;
+            }
+        }
+        return count < 2 ? Double.NaN : Math.sqrt(sum / (count - 1));
+    }
+
+    /**
+     * Probe/gene pass state and per-category statistics for one probe mask
+     */
+    private static final class CategoryStats {
+        final boolean[] probePassed;
+        final int[] genePassedProbes;
+        int totalPassedGenes;
+        final int[] passedGenes;
+        final double[] fisherPValue;
+        final double[] bmdMean;
+        final double[] bmdMedian;
+        final double[] bmdMinimum;
+        final double[] bmdSd;
+        final double[] bmdlMean;
+        final double[] bmdlMedian;
+        final double[] bmduMean;
+        final double[] bmduMedian;
+        final String[] genes;
+
+        CategoryStats(int probeCount, int geneCount, int categoryCount) {
+            probePassed = new boolean[probeCount];
+            genePassedProbes = new int[geneCount];
+            passedGenes = new int[categoryCount];
+            fisherPValue = new double[categoryCount];
+            bmdMean = new double[categoryCount];
+            bmdMedian = new double[categoryCount];
+            bmdMinimum = new double[categoryCount];
+            bmdSd = new double[categoryCount];
+            bmdlMean = new double[categoryCount];
+            bmdlMedian = new double[categoryCount];
+            bmduMean = new double[categoryCount];
+            bmduMedian = new double[categoryCount];
+            genes = new String[categoryCount];
+        }
+
+        private CategoryStats(CategoryStats other) {
+            probePassed = other.probePassed.clone();
+            genePassedProbes = other.genePassedProbes.clone();
+            totalPassedGenes = other.totalPassedGenes;
+            passedGenes = other.passedGenes.clone();
+            fisherPValue = other.fisherPValue.clone();
+            bmdMean = other.bmdMean.clone();
+            bmdMedian = other.bmdMedian.clone();
+            bmdMinimum = other.bmdMinimum.clone();
+            bmdSd = other.bmdSd.clone();
+            bmdlMean = other.bmdlMean.clone();
+            bmdlMedian = other.bmdlMedian.clone();
+            bmduMean = other.bmduMean.clone();
+            bmduMedian = other.bmduMedian.clone();
+            genes = other.genes.clone();
+        }
+
+        CategoryStats copy() {
+            return new CategoryStats(this);
+        }
+    }
+}
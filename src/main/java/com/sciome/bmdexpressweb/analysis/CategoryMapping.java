@@ -0,0 +1,285 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Probe -> gene -> category mapping for one ProbeStatTable, in compressed
+ * sparse row form.
+ *
+ * Genes are numbered 0..geneCount-1 and only genes with at least one probe in
+ * the table are included (the analysis "universe"). Categories list their
+ * member genes; categories with no gene in the universe are dropped.
+ *
+ * Built once per BMD result and category definition and shared by every
+ * category analysis variant that uses it.
+ */
+public final class CategoryMapping {
+
+    private final String[] categoryIds;
+    private final String[] categoryNames;
+    private final int[] categoryGeneOffsets;
+    private final int[] categoryGenes;
+    private final String[] geneIds;
+    private final String[] geneSymbols;
+    private final int[] geneProbeOffsets;
+    private final int[] geneProbes;
+    private final int[] probeGeneCounts;
+
+    private CategoryMapping(String[] categoryIds, String[] categoryNames, int[] categoryGeneOffsets,
+                            int[] categoryGenes, String[] geneIds, String[] geneSymbols,
+                            int[] geneProbeOffsets, int[] geneProbes, int[] probeGeneCounts) {
+        this.categoryIds = categoryIds;
+        this.categoryNames = categoryNames;
+        this.categoryGeneOffsets = categoryGeneOffsets;
+        this.categoryGenes = categoryGenes;
+        this.geneIds = geneIds;
+        this.geneSymbols = geneSymbols;
+        this.geneProbeOffsets = geneProbeOffsets;
+        this.geneProbes = geneProbes;
+        this.probeGeneCounts = probeGeneCounts;
+    }
+
+    /**
+     * Gene-level mapping: every gene in the table is its own category.
+     */
+    public static CategoryMapping geneLevel(ProbeStatTable table) {
+        GeneIndex genes = GeneIndex.fromTable(table);
+        int geneCount = genes.ids.size();
+        String[] categoryIds = genes.ids.toArray(new String[0]);
+        String[] categoryNames = genes.symbols.toArray(new String[0]);
+        int[] offsets = new int[geneCount + 1];
+        int[] members = new int[geneCount];
+        for (int g = 0; g < geneCount; g++) {
+            offsets[g + 1] = g + 1;
+            members[g] = g;
+        }
+        return genes.build(categoryIds, categoryNames, offsets, members);
+    }
+
+    /**
+     * Defined-category mapping read from tab-separated files.
+     *
+     * @param table the probe statistics
+     * @param probeFile optional probe map, lines of {@code probeId<TAB>geneId[;geneId...]};
+     *        when null the table's own gene annotations are used
+     * @param categoryFile category definitions, lines of
+     *        {@code categoryId<TAB>categoryName<TAB>geneId[;geneId...]}; a category may span several lines
+     * @throws IOException if a file cannot be read
+     */
+    public static CategoryMapping defined(ProbeStatTable table, Path probeFile, Path categoryFile) throws IOException {
+        GeneIndex genes;
+        if (probeFile != null) {
+            Map<String, String[]> probeGenes = new HashMap<>();
+            for (String[] fields : readTabular(probeFile, 2)) {
+                probeGenes.put(fields[0], fields[1].split("[;,]"));
+            }
+            genes = GeneIndex.fromProbeMap(table, probeGenes);
+        } else {
+            genes = GeneIndex.fromTable(table);
+        }
+
+        Map<String, String> names = new LinkedHashMap<>();
+        Map<String, Set<Integer>> members = new LinkedHashMap<>();
+        for (String[] fields : readTabular(categoryFile, 3)) {
+            names.putIfAbsent(fields[0], fields[1]);
+            Set<Integer> categoryMembers = members.computeIfAbsent(fields[0], id -> new LinkedHashSet<>());
+            for (String gene : fields[2].split("[;,]")) {
+                Integer index = genes.index.get(gene.trim());
+                if (index != null) {
+                    categoryMembers.add(index);
+                }
+            }
+        }
+
+        List<String> categoryIds = new ArrayList<>();
+        List<String> categoryNames = new ArrayList<>();
+        List<Integer> offsets = new ArrayList<>(List.of(0));
+        List<Integer> flat = new ArrayList<>();
+        for (Map.Entry<String, Set<Integer>> entry : members.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            categoryIds.add(entry.getKey());
+            categoryNames.add(names.get(entry.getKey()));
+            flat.addAll(entry.getValue());
+            offsets.add(flat.size());
+        }
+        return genes.build(categoryIds.toArray(new String[0]), categoryNames.toArray(new String[0]),
+                toIntArray(offsets), toIntArray(flat));
+    }
+
+    public int getCategoryCount() {
+        return categoryIds.length;
+    }
+
+    public String getCategoryId(int category) {
+        return categoryIds[category];
+    }
+
+    public String getCategoryName(int category) {
+        return categoryNames[category];
+    }
+
+    /**
+     * Number of universe genes in a category.
+     */
+    public int getCategorySize(int category) {
+        return categoryGeneOffsets[category + 1] - categoryGeneOffsets[category];
+    }
+
+    public int getGeneCount() {
+        return geneIds.length;
+    }
+
+    public String getGeneId(int gene) {
+        return geneIds[gene];
+    }
+
+    public String getGeneSymbol(int gene) {
+        return geneSymbols[gene];
+    }
+
+    /**
+     * Number of genes a probe maps to (used by the promiscuous probe filter).
+     */
+    public int getProbeGeneCount(int probe) {
+        return probeGeneCounts[probe];
+    }
+
+    /**
+     * CSR offsets into {@link #categoryGenes()}; category c spans [offsets[c], offsets[c + 1]).
+     */
+    public int[] categoryGeneOffsets() {
+        return categoryGeneOffsets;
+    }
+
+    public int[] categoryGenes() {
+        return categoryGenes;
+    }
+
+    /**
+     * CSR offsets into {@link #geneProbes()}; gene g spans [offsets[g], offsets[g + 1]).
+     */
+    public int[] geneProbeOffsets() {
+        return geneProbeOffsets;
+    }
+
+    public int[] geneProbes() {
+        return geneProbes;
+    }
+
+    private static List<String[]> readTabular(Path file, int minFields) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length >= minFields) {
+                    for (int i = 0; i < fields.length; i++) {
+                        fields[i] = fields[i].trim();
+                    }
+                    rows.add(fields);
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static int[] toIntArray(List<Integer> values) {
+        int[] array = new int[values.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * Gene numbering plus the gene -> probe CSR arrays for a table
+     */
+    private static final class GeneIndex {
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> ids = new ArrayList<>();
+        private final List<String> symbols = new ArrayList<>();
+        private final List<List<Integer>> probes = new ArrayList<>();
+        private final int[] probeGeneCounts;
+
+        private GeneIndex(int probeCount) {
+            this.probeGeneCounts = new int[probeCount];
+        }
+
+        static GeneIndex fromTable(ProbeStatTable table) {
+            GeneIndex genes = new GeneIndex(table.getProbeCount());
+            for (int p = 0; p < table.getProbeCount(); p++) {
+                String[] ids = table.getGeneIds(p);
+                String[] symbols = table.getGeneSymbols(p);
+                for (int i = 0; i < ids.length; i++) {
+                    genes.add(p, ids[i], i < symbols.length ? symbols[i] : ids[i]);
+                }
+            }
+            return genes;
+        }
+
+        static GeneIndex fromProbeMap(ProbeStatTable table, Map<String, String[]> probeGenes) {
+            GeneIndex genes = new GeneIndex(table.getProbeCount());
+            for (int p = 0; p < table.getProbeCount(); p++) {
+                String[] ids = probeGenes.get(table.getProbeId(p));
+                if (ids == null) {
+                    continue;
+                }
+                for (String id : ids) {
+                    String trimmed = id.trim();
+                    if (!trimmed.isEmpty()) {
+                        genes.add(p, trimmed, trimmed);
+                    }
+                }
+            }
+            return genes;
+        }
+
+        private void add(int probe, String geneId, String symbol) {
+            Integer gene = index.get(geneId);
+            if (gene == null) {
+                gene = ids.size();
+                index.put(geneId, gene);
+                ids.add(geneId);
+                symbols.add(symbol);
+                probes.add(new ArrayList<>(1));
+            }
+            List<Integer> geneProbes = probes.get(gene);
+            if (geneProbes.isEmpty() || geneProbes.get(geneProbes.size() - 1) != probe) {
+                geneProbes.add(probe);
+                probeGeneCounts[probe]++;
+            }
+        }
+
+        CategoryMapping build(String[] categoryIds, String[] categoryNames, int[] categoryOffsets, int[] categoryGenes) {
+            int[] offsets = new int[probes.size() + 1];
+            for (int g = 0; g < probes.size(); g++) {
+                offsets[g + 1] = offsets[g] + probes.get(g).size();
+            }
+            int[] flat = new int[offsets[probes.size()]];
+            for (int g = 0; g < probes.size(); g++) {
+                List<Integer> geneProbes = probes.get(g);
+                for (int i = 0; i < geneProbes.size(); i++) {
+                    flat[offsets[g] + i] = geneProbes.get(i);
+                }
+            }
+            return new CategoryMapping(categoryIds, categoryNames, categoryOffsets, categoryGenes,
+                    ids.toArray(new String[0]), symbols.toArray(new String[0]), offsets, flat, probeGeneCounts);
+        }
+    }
+}
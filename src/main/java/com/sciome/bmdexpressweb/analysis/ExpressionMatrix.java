@@ -0,0 +1,244 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import com.sciome.bmdexpress2.mvp.model.probe.ProbeResponse;
+import com.sciome.bmdexpress2.mvp.model.probe.Treatment;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense, row-major view of a DoseResponseExperiment expression matrix.
+ *
+ * Each ProbeResponse in the desktop model holds its own List&lt;Float&gt;, which
+ * scatters the matrix across the heap. This view copies the responses once into
+ * a single float[] so that engines can scan all probes sequentially.
+ *
+ * Probes and samples are int-addressed: the responses of probe {@code p} occupy
+ * {@code values[p * sampleCount .. (p + 1) * sampleCount)}. Missing responses are
+ * stored as {@link Float#NaN}. Instances are immutable and safe to share between
+ * threads; obtain them through ExpressionMatrixService so each experiment is
+ * converted only once.
+ */
+public final class ExpressionMatrix {
+
+    private final String[] probeIds;
+    private final float[] doses;
+    private final float[] values;
+    private final int probeCount;
+    private final int sampleCount;
+    private final Map<String, Integer> probeIndex;
+
+    private volatile DoseGroups doseGroups;
+
+    /**
+     * Create a matrix from already-dense data.
+     *
+     * @param probeIds probe identifiers, one per row
+     * @param doses dose of each sample, one per column
+     * @param values row-major responses, probeIds.length * doses.length entries
+     * @throws IllegalArgumentException if the dimensions do not agree
+     */
+    public ExpressionMatrix(String[] probeIds, float[] doses, float[] values) {
+        if ((long) probeIds.length * doses.length != values.length) {
+            throw new IllegalArgumentException("Matrix size mismatch: " + probeIds.length + " probes x "
+                    + doses.length + " samples != " + values.length + " values");
+        }
+        this.probeIds = probeIds;
+        this.doses = doses;
+        this.values = values;
+        this.probeCount = probeIds.length;
+        this.sampleCount = doses.length;
+
+        this.probeIndex = new HashMap<>(probeCount * 4 / 3 + 1);
+        for (int p = 0; p < probeCount; p++) {
+            probeIndex.putIfAbsent(probeIds[p], p);
+        }
+    }
+
+    /**
+     * Build the dense view of an experiment.
+     *
+     * Treatments define the sample columns; any probe with fewer responses than
+     * treatments is padded with NaN.
+     *
+     * @param experiment the experiment to convert
+     * @return the dense matrix
+     * @throws IllegalArgumentException if the matrix has more cells than an array can hold
+     */
+    public static ExpressionMatrix fromExperiment(DoseResponseExperiment experiment) {
+        List<Treatment> treatments = experiment.getTreatments();
+        List<ProbeResponse> responses = experiment.getProbeResponses();
+
+        int sampleCount = treatments != null ? treatments.size() : 0;
+        int probeCount = responses != null ? responses.size() : 0;
+
+        float[] doses = new float[sampleCount];
+        for (int s = 0; s < sampleCount; s++) {
+            Float dose = treatments.get(s).getDose();
+            doses[s] = dose != null ? dose : Float.NaN;
+        }
+
+        int cellCount;
+        try {
+            cellCount = Math.multiplyExact(probeCount, sampleCount);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Matrix too large: " + probeCount + " probes x "
+                    + sampleCount + " samples exceeds " + Integer.MAX_VALUE + " values");
+        }
+
+        String[] probeIds = new String[probeCount];
+        float[] values = new float[cellCount];
+        Arrays.fill(values, Float.NaN);
+
+        for (int p = 0; p < probeCount; p++) {
+            ProbeResponse probeResponse = responses.get(p);
+            probeIds[p] = probeResponse.getProbe() != null ? probeResponse.getProbe().getId() : null;
+
+            List<Float> row = probeResponse.getResponses();
+            if (row == null) {
+                continue;
+            }
+            int n = Math.min(row.size(), sampleCount);
+            int offset = p * sampleCount;
+            for (int s = 0; s < n; s++) {
+                Float v = row.get(s);
+                if (v != null) {
+                    values[offset + s] = v;
+                }
+            }
+        }
+
+        return new ExpressionMatrix(probeIds, doses, values);
+    }
+
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public String getProbeId(int probe) {
+        return probeIds[probe];
+    }
+
+    /**
+     * @return the row index of a probe, or -1 if the probe is not in the matrix
+     */
+    public int indexOfProbe(String probeId) {
+        Integer index = probeIndex.get(probeId);
+        return index != null ? index : -1;
+    }
+
+    public float getDose(int sample) {
+        return doses[sample];
+    }
+
+    public float[] getDoses() {
+        return doses.clone();
+    }
+
+    public float get(int probe, int sample) {
+        return values[probe * sampleCount + sample];
+    }
+
+    /**
+     * @return offset of the first response of a probe in {@link #values()}
+     */
+    public int rowOffset(int probe) {
+        return probe * sampleCount;
+    }
+
+    /**
+     * Direct access to the row-major backing array for tight loops.
+     * Callers must treat the array as read-only.
+     */
+    public float[] values() {
+        return values;
+    }
+
+    /**
+     * Copy the responses of one probe into a caller-supplied buffer.
+     */
+    public void copyRow(int probe, double[] dst) {
+        int offset = probe * sampleCount;
+        for (int s = 0; s < sampleCount; s++) {
+            dst[s] = values[offset + s];
+        }
+    }
+
+    /**
+     * Distinct doses and the dose group of each sample, computed once on first use.
+     */
+    public DoseGroups getDoseGroups() {
+        DoseGroups groups = doseGroups;
+        if (groups == null) {
+            groups = DoseGroups.of(doses);
+            doseGroups = groups;
+        }
+        return groups;
+    }
+
+    /**
+     * @return approximate heap footprint of the dense arrays in bytes
+     */
+    public long estimatedBytes() {
+        return 4L * values.length + 4L * doses.length + 8L * probeIds.length;
+    }
+
+    /**
+     * Samples grouped by dose. Group indices follow ascending dose order.
+     */
+    public static final class DoseGroups {
+        private final float[] distinctDoses;
+        private final int[] sampleGroup;
+        private final int[] groupSize;
+
+        private DoseGroups(float[] distinctDoses, int[] sampleGroup, int[] groupSize) {
+            this.distinctDoses = distinctDoses;
+            this.sampleGroup = sampleGroup;
+            this.groupSize = groupSize;
+        }
+
+        static DoseGroups of(float[] doses) {
+            float[] sorted = doses.clone();
+            Arrays.sort(sorted);
+            int distinct = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (i == 0 || Float.compare(sorted[i], sorted[i - 1]) != 0) {
+                    sorted[distinct++] = sorted[i];
+                }
+            }
+            float[] distinctDoses = Arrays.copyOf(sorted, distinct);
+
+            int[] sampleGroup = new int[doses.length];
+            int[] groupSize = new int[distinct];
+            for (int s = 0; s < doses.length; s++) {
+                int g = Arrays.binarySearch(distinctDoses, doses[s]);
+                sampleGroup[s] = g;
+                groupSize[g]++;
+            }
+            return new DoseGroups(distinctDoses, sampleGroup, groupSize);
+        }
+
+        public int getGroupCount() {
+            return distinctDoses.length;
+        }
+
+        public float getDose(int group) {
+            return distinctDoses[group];
+        }
+
+        public int groupOf(int sample) {
+            return sampleGroup[sample];
+        }
+
+        public int getGroupSize(int group) {
+            return groupSize[group];
+        }
+    }
+}
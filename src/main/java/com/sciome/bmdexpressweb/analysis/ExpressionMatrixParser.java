@@ -0,0 +1,522 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Parallel parser for tab- or comma-separated expression matrices.
+ *
+ * Expected layout (same as the desktop import):
+ * <pre>
+ * Probe ID   sample_1  sample_2  ...
+ * Doses      0         0.5       ...
+ * probe_1    7.81      7.93      ...
+ * </pre>
+ *
+ * The file is memory-mapped and the data rows are split into chunks on line
+ * boundaries. A first parallel pass counts the rows of each chunk, which gives
+ * every chunk its starting row; a second parallel pass parses the numbers
+ * straight from the mapped bytes into the final row-major array. No per-row
+ * objects or number strings are created; only probe IDs become Strings.
+ *
+ * Rows shorter than the header are padded with NaN. Rows with more values than
+ * the header has samples are rejected with their line number; empty trailing
+ * cells (a trailing delimiter) are not counted.
+ */
+public class ExpressionMatrixParser {
+
+    private static final int MIN_CHUNK_BYTES = 256 * 1024;
+
+    // Data rows start after the header and dose rows
+    private static final int FIRST_DATA_LINE = 3;
+
+    // Significant digits of a mantissa that are exact in a double (10^15 < 2^53)
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Result of parsing an expression file: the dense matrix plus the header labels.
+     */
+    public static class ParsedExpressionData {
+        private final ExpressionMatrix matrix;
+        private final String[] sampleNames;
+
+        public ParsedExpressionData(ExpressionMatrix matrix, String[] sampleNames) {
+            this.matrix = matrix;
+            this.sampleNames = sampleNames;
+        }
+
+        public ExpressionMatrix getMatrix() {
+            return matrix;
+        }
+
+        public String[] getSampleNames() {
+            return sampleNames;
+        }
+    }
+
+    /**
+     * Parse an expression file from disk using a read-only memory mapping.
+     *
+     * @param file the TSV/CSV file
+     * @return the parsed matrix and sample names
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the content is malformed
+     */
+    public ParsedExpressionData parse(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Expression file too large: " + size + " bytes");
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return parse(buffer);
+        }
+    }
+
+    /**
+     * Parse an expression matrix held in a buffer. Only absolute reads are used,
+     * so the buffer is shared by all worker threads without copying.
+     */
+    public ParsedExpressionData parse(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int pos = skipBom(buffer, 0, limit);
+
+        // Header row: probe column label followed by sample names
+        int headerEnd = lineEnd(buffer, pos, limit);
+        byte delimiter = detectDelimiter(buffer, pos, headerEnd);
+        List<String> headerCells = splitCells(buffer, pos, headerEnd, delimiter);
+        if (headerCells.size() < 2) {
+            throw new IllegalArgumentException("Header row must contain a probe column and at least one sample");
+        }
+        String[] sampleNames = headerCells.subList(1, headerCells.size()).toArray(new String[0]);
+        int sampleCount = sampleNames.length;
+        pos = nextLine(buffer, headerEnd, limit);
+
+        // Dose row: label followed by one dose per sample
+        if (pos >= limit) {
+            throw new IllegalArgumentException("Missing dose row after header");
+        }
+        int doseEnd = lineEnd(buffer, pos, limit);
+        float[] doses = new float[sampleCount];
+        int dosesStart = cellEnd(buffer, pos, doseEnd, delimiter) + 1;
+        int doseCells = parseRow(buffer, dosesStart, doseEnd, delimiter, doses, 0, sampleCount);
+        if (doseCells != sampleCount) {
+            throw new IllegalArgumentException("Line 2: dose row has " + doseCells + " values but header has "
+                    + sampleCount + " samples");
+        }
+        for (int s = 0; s < sampleCount; s++) {
+            if (Float.isNaN(doses[s])) {
+                throw new IllegalArgumentException("Missing dose for sample " + sampleNames[s]);
+            }
+        }
+        pos = nextLine(buffer, doseEnd, limit);
+
+        // Data rows: split into chunks on line boundaries
+        int[] bounds = chunkBounds(buffer, pos, limit);
+        int chunkCount = bounds.length - 1;
+
+        int[] rowsPerChunk = new int[chunkCount];
+        int[] linesPerChunk = new int[chunkCount];
+        IntStream.range(0, chunkCount).parallel()
+                .forEach(c -> countRows(buffer, bounds[c], bounds[c + 1], c, rowsPerChunk, linesPerChunk));
+
+        int[] firstRow = new int[chunkCount];
+        int[] firstLine = new int[chunkCount];
+        int probeCount = 0;
+        int line = FIRST_DATA_LINE;
+        for (int c = 0; c < chunkCount; c++) {
+            firstRow[c] = probeCount;
+            firstLine[c] = line;
+            probeCount += rowsPerChunk[c];
+            line += linesPerChunk[c];
+        }
+        if ((long) probeCount * sampleCount > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Expression matrix too large: " + probeCount + " x " + sampleCount);
+        }
+
+        String[] probeIds = new String[probeCount];
+        float[] values = new float[probeCount * sampleCount];
+        IntStream.range(0, chunkCount).parallel()
+                .forEach(c -> parseChunk(buffer, bounds[c], bounds[c + 1], delimiter,
+                        firstRow[c], firstLine[c], sampleCount, probeIds, values));
+
+        return new ParsedExpressionData(new ExpressionMatrix(probeIds, doses, values), sampleNames);
+    }
+
+    /*
+     * Chunking
+     */
+
+    private int[] chunkBounds(ByteBuffer buffer, int start, int limit) {
+        int length = limit - start;
+        int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, length / MIN_CHUNK_BYTES));
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = start;
+        int count = 1;
+        for (int c = 1; c < chunks; c++) {
+            int b = Math.max(bounds[count - 1], start + (int) ((long) length * c / chunks));
+            while (b < limit && buffer.get(b - 1) != '\n') {
+                b++;
+            }
+            if (b > bounds[count - 1] && b < limit) {
+                bounds[count++] = b;
+            }
+        }
+        bounds[count++] = limit;
+        int[] result = new int[count];
+        System.arraycopy(bounds, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Count the non-blank rows and the lines of a chunk into rows[c] and lines[c]
+     */
+    private void countRows(ByteBuffer buffer, int from, int to, int c, int[] rows, int[] lines) {
+        int nonBlank = 0;
+        int newlines = 0;
+        boolean blank = true;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                if (!blank) {
+                    nonBlank++;
+                }
+                newlines++;
+                blank = true;
+            } else if (blank && !isWhitespace(b)) {
+                blank = false;
+            }
+        }
+        rows[c] = blank ? nonBlank : nonBlank + 1;
+        lines[c] = newlines;
+    }
+
+    private void parseChunk(ByteBuffer buffer, int from, int to, byte delimiter,
+                            int row, int line, int sampleCount, String[] probeIds, float[] values) {
+        byte[] scratch = new byte[256];
+        int pos = from;
+        while (pos < to) {
+            int end = lineEnd(buffer, pos, to);
+            if (!isBlank(buffer, pos, end)) {
+                int idEnd = cellEnd(buffer, pos, end, delimiter);
+                String probeId = decodeCell(buffer, pos, idEnd, scratch);
+                probeIds[row] = probeId;
+
+                int offset = row * sampleCount;
+                int parsed;
+                try {
+                    parsed = idEnd < end
+                            ? parseRow(buffer, idEnd + 1, end, delimiter, values, offset, sampleCount)
+                            : 0;
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + line + ": " + e.getMessage(), e);
+                }
+                if (parsed > sampleCount) {
+                    throw new IllegalArgumentException("Line " + line + ": probe " + probeId + " has " + parsed
+                            + " values but header has " + sampleCount + " samples");
+                }
+                for (int s = parsed; s < sampleCount; s++) {
+                    values[offset + s] = Float.NaN;
+                }
+                row++;
+            }
+            line++;
+            pos = nextLine(buffer, end, to);
+        }
+    }
+
+    /**
+     * Parse up to {@code max} numeric cells starting at {@code from} into {@code dst}.
+     * Cells beyond {@code max} are not parsed, only counted.
+     *
+     * @return number of cells, up to the last non-empty one if there are more than max
+     */
+    private int parseRow(ByteBuffer buffer, int from, int to, byte delimiter, float[] dst, int offset, int max) {
+        int pos = from;
+        int n = 0;
+        int cells = 0;
+        while (pos <= to) {
+            int end = cellEnd(buffer, pos, to, delimiter);
+            if (n < max) {
+                dst[offset + n] = parseFloat(buffer, pos, end);
+                cells = ++n;
+            } else if (!isBlank(buffer, pos, end)) {
+                cells = ++n;
+            } else {
+                n++;
+            }
+            pos = end + 1;
+        }
+        return cells;
+    }
+
+    /*
+     * Number parsing
+     */
+
+    /**
+     * Parse a decimal number directly from bytes. Empty cells and NA/NaN/null
+     * markers parse as NaN.
+     *
+     * Numbers of up to {@value #MAX_FAST_DIGITS} significant digits with small
+     * exponents are converted with a single correctly rounded double operation
+     * and give the same float as Float.parseFloat. Longer mantissas, extreme
+     * exponents and doubles exactly halfway between two floats are left to the JDK.
+     *
+     * @throws IllegalArgumentException if the cell is not a number
+     */
+    static float parseFloat(ByteBuffer buffer, int from, int to) {
+        while (from < to && isTrimmable(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isTrimmable(buffer.get(to - 1))) {
+            to--;
+        }
+        if (from == to) {
+            return Float.NaN;
+        }
+
+        int i = from;
+        boolean negative = false;
+        byte b = buffer.get(i);
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigit = false;
+        while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+            anyDigit = true;
+            if (digits < MAX_FAST_DIGITS) {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                digits++;
+                exponent++;
+            }
+            i++;
+        }
+        if (i < to && buffer.get(i) == '.') {
+            i++;
+            while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+                anyDigit = true;
+                if (digits < MAX_FAST_DIGITS) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                    exponent--;
+                } else {
+                    digits++;
+                }
+                i++;
+            }
+        }
+        if (!anyDigit) {
+            return parseSpecial(buffer, i, to, negative, from);
+        }
+        if (i < to && ((b = buffer.get(i)) == 'e' || b == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && ((b = buffer.get(i)) == '-' || b == '+')) {
+                negativeExponent = b == '-';
+                i++;
+            }
+            int e = 0;
+            boolean anyExponentDigit = false;
+            while (i < to && (b = buffer.get(i)) >= '0' && b <= '9') {
+                if (e < 10000) {
+                    e = e * 10 + (b - '0');
+                }
+                anyExponentDigit = true;
+                i++;
+            }
+            if (!anyExponentDigit) {
+                throw invalidNumber(buffer, from, to);
+            }
+            exponent += negativeExponent ? -e : e;
+        }
+        if (i != to) {
+            throw invalidNumber(buffer, from, to);
+        }
+        if (digits > MAX_FAST_DIGITS) {
+            // The mantissa was cut short; rounding it would not give the nearest float
+            return parseSlow(buffer, from, to);
+        }
+
+        double value;
+        if (mantissa == 0) {
+            return negative ? -0.0f : 0.0f;
+        } else if (exponent >= 0 && exponent <= 22) {
+            value = mantissa * POW10[exponent];
+        } else if (exponent < 0 && exponent >= -22) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            // Rare: fall back to the JDK for exact rounding of extreme exponents
+            return parseSlow(buffer, from, to);
+        }
+        // The mantissa and the power of ten are exact doubles, so value is the correctly
+        // rounded double. Rounding it to a float is then exact unless it landed on a
+        // float midpoint, where the true value may lie on either side.
+        float rounded = (float) value;
+        if (rounded != value && isFloatMidpoint(value, rounded)) {
+            return parseSlow(buffer, from, to);
+        }
+        return negative ? -rounded : rounded;
+    }
+
+    private static boolean isFloatMidpoint(double value, float rounded) {
+        float other = Math.nextAfter(rounded, value > rounded ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY);
+        return (double) rounded + other == 2 * value;
+    }
+
+    /**
+     * Parse an already validated cell with the JDK
+     */
+    private static float parseSlow(ByteBuffer buffer, int from, int to) {
+        return Float.parseFloat(new String(copy(buffer, from, to), StandardCharsets.US_ASCII));
+    }
+
+    private static float parseSpecial(ByteBuffer buffer, int from, int to, boolean negative, int cellStart) {
+        if (matchesIgnoreCase(buffer, from, to, "inf") || matchesIgnoreCase(buffer, from, to, "infinity")) {
+            return negative ? Float.NEGATIVE_INFINITY : Float.POSITIVE_INFINITY;
+        }
+        if (matchesIgnoreCase(buffer, from, to, "na") || matchesIgnoreCase(buffer, from, to, "nan")
+                || matchesIgnoreCase(buffer, from, to, "n/a") || matchesIgnoreCase(buffer, from, to, "null")) {
+            return Float.NaN;
+        }
+        throw invalidNumber(buffer, cellStart, to);
+    }
+
+    private static boolean matchesIgnoreCase(ByteBuffer buffer, int from, int to, String token) {
+        if (to - from != token.length()) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            if (Character.toLowerCase((char) buffer.get(from + i)) != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException invalidNumber(ByteBuffer buffer, int from, int to) {
+        String text = new String(copy(buffer, from, Math.min(to, from + 64)), StandardCharsets.UTF_8);
+        return new IllegalArgumentException("Invalid numeric value: '" + text + "'");
+    }
+
+    /*
+     * Byte-level helpers
+     */
+
+    private static int skipBom(ByteBuffer buffer, int pos, int limit) {
+        if (limit - pos >= 3 && buffer.get(pos) == (byte) 0xEF && buffer.get(pos + 1) == (byte) 0xBB
+                && buffer.get(pos + 2) == (byte) 0xBF) {
+            return pos + 3;
+        }
+        return pos;
+    }
+
+    private static byte detectDelimiter(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == '\t') {
+                return '\t';
+            }
+        }
+        return ',';
+    }
+
+    /** End of the line starting at pos, excluding any trailing '\r'. */
+    private static int lineEnd(ByteBuffer buffer, int pos, int limit) {
+        int i = pos;
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+        return i > pos && buffer.get(i - 1) == '\r' ? i - 1 : i;
+    }
+
+    private static int nextLine(ByteBuffer buffer, int lineEnd, int limit) {
+        int i = lineEnd;
+        while (i < limit && buffer.get(i) != '\n') {
+            i++;
+        }
+        return Math.min(i + 1, limit);
+    }
+
+    private static int cellEnd(ByteBuffer buffer, int pos, int to, byte delimiter) {
+        int i = pos;
+        while (i < to && buffer.get(i) != delimiter) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isWhitespace(buffer.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private static boolean isTrimmable(byte b) {
+        return b == ' ' || b == '"' || b == '\r';
+    }
+
+    private static List<String> splitCells(ByteBuffer buffer, int from, int to, byte delimiter) {
+        List<String> cells = new ArrayList<>();
+        byte[] scratch = new byte[256];
+        int pos = from;
+        while (pos <= to) {
+            int end = cellEnd(buffer, pos, to, delimiter);
+            cells.add(decodeCell(buffer, pos, end, scratch));
+            pos = end + 1;
+        }
+        return cells;
+    }
+
+    private static String decodeCell(ByteBuffer buffer, int from, int to, byte[] scratch) {
+        while (from < to && isTrimmable(buffer.get(from))) {
+            from++;
+        }
+        while (to > from && isTrimmable(buffer.get(to - 1))) {
+            to--;
+        }
+        int length = to - from;
+        byte[] bytes = length <= scratch.length ? scratch : new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] copy(ByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        return bytes;
+    }
+}
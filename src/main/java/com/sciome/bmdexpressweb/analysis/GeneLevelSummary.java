@@ -0,0 +1,263 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-gene BMD summaries of a ProbeStatTable: probe count and the median and
+ * minimum BMD, BMDL and BMDU over every probe with a BMD that maps to the gene.
+ *
+ * Probes are grouped by gene in one pass over the table. Numeric gene IDs (the
+ * usual Entrez IDs) go through a primitive int-keyed hash index and only other
+ * IDs fall back to a string map. Each gene's probes are chained through flat
+ * int arrays, so no per-gene collections are allocated, and the medians are
+ * taken from one shared scratch buffer.
+ *
+ * Built once per BMD result; instances are immutable.
+ */
+public final class GeneLevelSummary {
+
+    public static final List<String> COLUMN_HEADER = List.of(
+            "Gene ID",
+            "Gene Symbol",
+            "Probe Count",
+            "BMD Median",
+            "BMD Minimum",
+            "BMDL Median",
+            "BMDL Minimum",
+            "BMDU Median",
+            "BMDU Minimum",
+            "Probes");
+
+    private final String[] geneIds;
+    private final String[] geneSymbols;
+    private final int[] probeCounts;
+    private final double[] bmdMedian;
+    private final double[] bmdMinimum;
+    private final double[] bmdlMedian;
+    private final double[] bmdlMinimum;
+    private final double[] bmduMedian;
+    private final double[] bmduMinimum;
+    private final String[] probes;
+
+    private GeneLevelSummary(int geneCount) {
+        geneIds = new String[geneCount];
+        geneSymbols = new String[geneCount];
+        probeCounts = new int[geneCount];
+        bmdMedian = new double[geneCount];
+        bmdMinimum = new double[geneCount];
+        bmdlMedian = new double[geneCount];
+        bmdlMinimum = new double[geneCount];
+        bmduMedian = new double[geneCount];
+        bmduMinimum = new double[geneCount];
+        probes = new String[geneCount];
+    }
+
+    /**
+     * Summarize a table by gene. Probes without a BMD and genes without such a
+     * probe are left out; genes appear in order of first occurrence.
+     */
+    public static GeneLevelSummary aggregate(ProbeStatTable table) {
+        int probeCount = table.getProbeCount();
+        IntIndexMap numericIds = new IntIndexMap(probeCount);
+        Map<String, Integer> otherIds = new HashMap<>();
+        List<String> ids = new ArrayList<>();
+        List<String> symbols = new ArrayList<>();
+
+        // Per gene: first and last chain entry; per entry: probe and next entry
+        int[] head = new int[Math.max(16, probeCount)];
+        int[] tail = new int[head.length];
+        int[] entryProbe = new int[Math.max(16, probeCount)];
+        int[] entryNext = new int[entryProbe.length];
+        int[] counts = new int[head.length];
+        int entries = 0;
+
+        for (int p = 0; p < probeCount; p++) {
+            if (Double.isNaN(table.get(ProbeStatTable.Column.BEST_BMD, p))) {
+                continue;
+            }
+            String[] probeGenes = table.getGeneIds(p);
+            String[] probeSymbols = table.getGeneSymbols(p);
+            for (int i = 0; i < probeGenes.length; i++) {
+                String id = probeGenes[i].trim();
+                if (id.isEmpty()) {
+                    continue;
+                }
+                int g = ids.size();
+                int key = IntIndexMap.parseKey(id);
+                int existing = key >= 0 ? numericIds.putIfAbsent(key, g) : otherIds.getOrDefault(id, -1);
+                if (existing >= 0) {
+                    g = existing;
+                    if (entryProbe[tail[g]] == p) {
+                        continue; // gene listed twice on one probe
+                    }
+                } else {
+                    if (key < 0) {
+                        otherIds.put(id, g);
+                    }
+                    ids.add(id);
+                    symbols.add(i < probeSymbols.length ? probeSymbols[i].trim() : id);
+                    if (g == head.length) {
+                        head = Arrays.copyOf(head, g * 2);
+                        tail = Arrays.copyOf(tail, g * 2);
+                        counts = Arrays.copyOf(counts, g * 2);
+                    }
+                    head[g] = -1;
+                }
+
+                if (entries == entryProbe.length) {
+                    entryProbe = Arrays.copyOf(entryProbe, entries * 2);
+                    entryNext = Arrays.copyOf(entryNext, entries * 2);
+                }
+                entryProbe[entries] = p;
+                entryNext[entries] = -1;
+                if (head[g] < 0) {
+                    head[g] = entries;
+                } else {
+                    entryNext[tail[g]] = entries;
+                }
+                tail[g] = entries;
+                counts[g]++;
+                entries++;
+            }
+        }
+
+        int geneCount = ids.size();
+        GeneLevelSummary summary = new GeneLevelSummary(geneCount);
+        double[] bmd = table.column(ProbeStatTable.Column.BEST_BMD);
+        double[] bmdl = table.column(ProbeStatTable.Column.BEST_BMDL);
+        double[] bmdu = table.column(ProbeStatTable.Column.BEST_BMDU);
+        double[] scratch = new double[16];
+        StringBuilder probeList = new StringBuilder();
+        for (int g = 0; g < geneCount; g++) {
+            if (counts[g] > scratch.length) {
+                scratch = new double[Math.max(counts[g], scratch.length * 2)];
+            }
+            probeList.setLength(0);
+            for (int e = head[g]; e >= 0; e = entryNext[e]) {
+                if (probeList.length() > 0) {
+                    probeList.append(';');
+                }
+                probeList.append(table.getProbeId(entryProbe[e]));
+            }
+            summary.geneIds[g] = ids.get(g);
+            summary.geneSymbols[g] = symbols.get(g);
+            summary.probeCounts[g] = counts[g];
+            summary.probes[g] = probeList.toString();
+            summary.bmdMedian[g] = medianOf(bmd, head[g], entryProbe, entryNext, scratch);
+            summary.bmdMinimum[g] = minimumOf(bmd, head[g], entryProbe, entryNext);
+            summary.bmdlMedian[g] = medianOf(bmdl, head[g], entryProbe, entryNext, scratch);
+            summary.bmdlMinimum[g] = minimumOf(bmdl, head[g], entryProbe, entryNext);
+            summary.bmduMedian[g] = medianOf(bmdu, head[g], entryProbe, entryNext, scratch);
+            summary.bmduMinimum[g] = minimumOf(bmdu, head[g], entryProbe, entryNext);
+        }
+        return summary;
+    }
+
+    public int getGeneCount() {
+        return geneIds.length;
+    }
+
+    public String getGeneId(int gene) {
+        return geneIds[gene];
+    }
+
+    public String getGeneSymbol(int gene) {
+        return geneSymbols[gene];
+    }
+
+    public int getProbeCount(int gene) {
+        return probeCounts[gene];
+    }
+
+    public double getBmdMedian(int gene) {
+        return bmdMedian[gene];
+    }
+
+    public double getBmdMinimum(int gene) {
+        return bmdMinimum[gene];
+    }
+
+    public double getBmdlMedian(int gene) {
+        return bmdlMedian[gene];
+    }
+
+    public double getBmdlMinimum(int gene) {
+        return bmdlMinimum[gene];
+    }
+
+    public double getBmduMedian(int gene) {
+        return bmduMedian[gene];
+    }
+
+    public double getBmduMinimum(int gene) {
+        return bmduMinimum[gene];
+    }
+
+    /**
+     * Gene rows in the same {"row": [...]} shape as category analysis results.
+     */
+    public CategoryAnalysisTableView toTableView(String name) {
+        List<Map<String, Object>> rows = new ArrayList<>(geneIds.length);
+        for (int g = 0; g < geneIds.length; g++) {
+            List<Object> row = new ArrayList<>(COLUMN_HEADER.size());
+            row.add(geneIds[g]);
+            row.add(geneSymbols[g]);
+            row.add(probeCounts[g]);
+            row.add(bmdMedian[g]);
+            row.add(bmdMinimum[g]);
+            row.add(bmdlMedian[g]);
+            row.add(bmdlMinimum[g]);
+            row.add(bmduMedian[g]);
+            row.add(bmduMinimum[g]);
+            row.add(probes[g]);
+
+            Map<String, Object> rowMap = new HashMap<>();
+            rowMap.put("row", row);
+            rows.add(rowMap);
+        }
+        return new CategoryAnalysisTableView(name, COLUMN_HEADER, rows);
+    }
+
+    /**
+     * Median of a column over a gene's probe chain, ignoring NaN; NaN if the
+     * column is absent or has no values.
+     */
+    private static double medianOf(double[] column, int first, int[] entryProbe, int[] entryNext,
+                                   double[] scratch) {
+        if (column == null) {
+            return Double.NaN;
+        }
+        int count = 0;
+        for (int e = first; e >= 0; e = entryNext[e]) {
+            double value = column[entryProbe[e]];
+            if (!Double.isNaN(value)) {
+                scratch[count++] = value;
+            }
+        }
+        if (count == 0) {
+            return Double.NaN;
+        }
+        Arrays.sort(scratch, 0, count);
+        return count % 2 == 1 ? scratch[count / 2] : (scratch[count / 2 - 1] + scratch[count / 2]) / 2.0;
+    }
+
+    private static double minimumOf(double[] column, int first, int[] entryProbe, int[] entryNext) {
+        if (column == null) {
+            return Double.NaN;
+        }
+        double min = Double.NaN;
+        for (int e = first; e >= 0; e = entryNext[e]) {
+            double value = column[entryProbe[e]];
+            if (!Double.isNaN(value) && (Double.isNaN(min) || value < min)) {
+                min = value;
+            }
+        }
+        return min;
+    }
+}
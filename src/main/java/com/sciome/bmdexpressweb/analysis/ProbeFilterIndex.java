@@ -0,0 +1,427 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleFunction;
+
+/**
+ * Category analysis probe filters of one ProbeStatTable, compiled into
+ * compressed (Roaring) bitmaps.
+ *
+ * Each thresholded metric keeps its probes sorted by value together with a
+ * cumulative bitmap every {@code blockSize} ranks. The probes passing any
+ * threshold are then one of those checkpoint bitmaps plus at most one partial
+ * block, so changing a threshold costs a binary search and a few hundred bitmap
+ * inserts instead of a scan over every probe. Yes/no properties (adverse
+ * direction, step function, promiscuous annotation) are stored as plain bitmaps.
+ * A parameter set is evaluated by AND-ing the threshold bitmaps and removing
+ * the OR of the excluded flags.
+ *
+ * Built once per BMD result and shared by every analysis on it. Instances are
+ * immutable; every query returns a new bitmap that the caller may modify.
+ */
+public final class ProbeFilterIndex {
+
+    /**
+     * Thresholded per-probe values. NaN values never pass a threshold.
+     */
+    public enum Metric {
+        BMD,
+        FIT_P_VALUE,
+        R_SQUARED,
+        BMDU_BMDL_RATIO,
+        BMD_BMDL_RATIO,
+        BMDU_BMD_RATIO,
+        ABS_MAX_FOLD_CHANGE,
+        PREFILTER_P_VALUE,
+        PREFILTER_ADJUSTED_P_VALUE
+    }
+
+    /**
+     * Yes/no per-probe properties
+     */
+    public enum Flag {
+        ADVERSE_UP,
+        ADVERSE_DOWN,
+        STEP_FUNCTION,
+        STEP_FUNCTION_BMDL_LOWER,
+        UNANNOTATED,
+        PROMISCUOUS
+    }
+
+    private static final int CHECKPOINTS = 64;
+    private static final int MIN_BLOCK_SIZE = 256;
+
+    private final ProbeStatTable table;
+    private final Map<Metric, SortedMetric> metrics = new EnumMap<>(Metric.class);
+    private final Map<Flag, RoaringBitmap> flags = new EnumMap<>(Flag.class);
+
+    public ProbeFilterIndex(ProbeStatTable table) {
+        this.table = table;
+
+        addMetric(Metric.BMD, table.column(ProbeStatTable.Column.BEST_BMD));
+        addMetric(Metric.FIT_P_VALUE, table.column(ProbeStatTable.Column.FIT_P_VALUE));
+        addMetric(Metric.R_SQUARED, table.column(ProbeStatTable.Column.R_SQUARED));
+        addMetric(Metric.BMDU_BMDL_RATIO, ratio(ProbeStatTable.Column.BEST_BMDU, ProbeStatTable.Column.BEST_BMDL));
+        addMetric(Metric.BMD_BMDL_RATIO, ratio(ProbeStatTable.Column.BEST_BMD, ProbeStatTable.Column.BEST_BMDL));
+        addMetric(Metric.BMDU_BMD_RATIO, ratio(ProbeStatTable.Column.BEST_BMDU, ProbeStatTable.Column.BEST_BMD));
+        double[] foldChange = table.column(ProbeStatTable.Column.MAX_FOLD_CHANGE);
+        if (foldChange != null) {
+            double[] absolute = new double[foldChange.length];
+            for (int p = 0; p < absolute.length; p++) {
+                absolute[p] = Math.abs(foldChange[p]);
+            }
+            addMetric(Metric.ABS_MAX_FOLD_CHANGE, absolute);
+        }
+        addMetric(Metric.PREFILTER_P_VALUE, table.column(ProbeStatTable.Column.PREFILTER_P_VALUE));
+        addMetric(Metric.PREFILTER_ADJUSTED_P_VALUE, table.column(ProbeStatTable.Column.PREFILTER_ADJUSTED_P_VALUE));
+
+        double[] adverse = table.column(ProbeStatTable.Column.ADVERSE_DIRECTION);
+        if (adverse != null) {
+            flags.put(Flag.ADVERSE_UP, flagged(adverse, 1.0));
+            flags.put(Flag.ADVERSE_DOWN, flagged(adverse, -1.0));
+        }
+        double[] stepFunction = table.column(ProbeStatTable.Column.STEP_FUNCTION);
+        if (stepFunction != null) {
+            flags.put(Flag.STEP_FUNCTION, flagged(stepFunction, 1.0));
+        }
+        double[] stepFunctionBmdlLower = table.column(ProbeStatTable.Column.STEP_FUNCTION_BMDL_LOWER);
+        if (stepFunctionBmdlLower != null) {
+            flags.put(Flag.STEP_FUNCTION_BMDL_LOWER, flagged(stepFunctionBmdlLower, 1.0));
+        }
+
+        RoaringBitmap unannotated = new RoaringBitmap();
+        RoaringBitmap promiscuous = new RoaringBitmap();
+        for (int p = 0; p < table.getProbeCount(); p++) {
+            int genes = table.getGeneIds(p).length;
+            if (genes == 0) {
+                unannotated.add(p);
+            } else if (genes > 1) {
+                promiscuous.add(p);
+            }
+        }
+        unannotated.runOptimize();
+        promiscuous.runOptimize();
+        flags.put(Flag.UNANNOTATED, unannotated);
+        flags.put(Flag.PROMISCUOUS, promiscuous);
+    }
+
+    public ProbeStatTable getTable() {
+        return table;
+    }
+
+    public int getProbeCount() {
+        return table.getProbeCount();
+    }
+
+    public boolean hasMetric(Metric metric) {
+        return metrics.containsKey(metric);
+    }
+
+    public boolean hasFlag(Flag flag) {
+        return flags.containsKey(flag);
+    }
+
+    /**
+     * Probes whose value is &lt;= threshold, or null if the metric is absent.
+     */
+    public RoaringBitmap atMost(Metric metric, double threshold) {
+        SortedMetric sorted = metrics.get(metric);
+        return sorted == null ? null : sorted.prefix(sorted.countAtMost(threshold));
+    }
+
+    /**
+     * Probes whose value is &gt;= threshold, or null if the metric is absent.
+     */
+    public RoaringBitmap atLeast(Metric metric, double threshold) {
+        SortedMetric sorted = metrics.get(metric);
+        return sorted == null ? null : RoaringBitmap.andNot(sorted.defined, sorted.prefix(sorted.countBelow(threshold)));
+    }
+
+    /**
+     * Probes with a (non-NaN) value, or null if the metric is absent.
+     */
+    public RoaringBitmap defined(Metric metric) {
+        SortedMetric sorted = metrics.get(metric);
+        return sorted == null ? null : sorted.defined.clone();
+    }
+
+    /**
+     * Probes with the flag set, or null if the BMD result does not provide it.
+     */
+    public RoaringBitmap flagged(Flag flag) {
+        RoaringBitmap bits = flags.get(flag);
+        return bits == null ? null : bits.clone();
+    }
+
+    /**
+     * Probes passing every probe-level filter of a parameter set, using the
+     * table's own gene annotations for eligibility and the promiscuous filter.
+     */
+    public RoaringBitmap filter(CategoryAnalysisParametersDto parameters) {
+        return filter(parameters, flags.get(Flag.UNANNOTATED), flags.get(Flag.PROMISCUOUS));
+    }
+
+    /**
+     * Probes passing every probe-level filter of a parameter set.
+     *
+     * A probe is eligible if it maps to a gene and has a BMD.
+     *
+     * @param unmapped probes that map to no gene under the category mapping in use
+     * @param promiscuous probes that map to more than one gene under that mapping
+     * @throws IllegalArgumentException if a filter is set whose column is missing from the BMD result
+     */
+    public RoaringBitmap filter(CategoryAnalysisParametersDto parameters, RoaringBitmap unmapped,
+                                RoaringBitmap promiscuous) {
+        checkAvailable(parameters);
+        RoaringBitmap mask = defined(Metric.BMD);
+        if (mask == null) {
+            mask = new RoaringBitmap();
+            mask.add(0L, (long) table.getProbeCount());
+        }
+
+        retain(mask, parameters.getBmdPValueCutoff(), t -> atLeast(Metric.FIT_P_VALUE, t));
+        retain(mask, parameters.getBmdRSquaredCutoff(), t -> atLeast(Metric.R_SQUARED, t));
+        if (Boolean.TRUE.equals(parameters.getRemoveBMDGreaterHighDose()) && !Double.isNaN(table.getMaxDose())) {
+            retain(mask, table.getMaxDose(), t -> atMost(Metric.BMD, t));
+        }
+        Double nFold = parameters.getnFoldBelowLowestDose();
+        if (nFold != null && nFold > 0 && !Double.isNaN(table.getMinPositiveDose())) {
+            retain(mask, table.getMinPositiveDose() / nFold, t -> atLeast(Metric.BMD, t));
+        }
+        retain(mask, parameters.getBmduBmdlRatioMin(), t -> atMost(Metric.BMDU_BMDL_RATIO, t));
+        retain(mask, parameters.getBmdBmdlRatioMin(), t -> atMost(Metric.BMD_BMDL_RATIO, t));
+        retain(mask, parameters.getBmduBmdRatioMin(), t -> atMost(Metric.BMDU_BMD_RATIO, t));
+        retain(mask, parameters.getMaxFoldChange(), t -> atLeast(Metric.ABS_MAX_FOLD_CHANGE, t));
+        retain(mask, parameters.getPrefilterPValueMin(), t -> atMost(Metric.PREFILTER_P_VALUE, t));
+        retain(mask, parameters.getPrefilterAdjustedPValueMin(), t -> atMost(Metric.PREFILTER_ADJUSTED_P_VALUE, t));
+
+        RoaringBitmap removed = unmapped != null ? unmapped.clone() : new RoaringBitmap();
+        if (Boolean.TRUE.equals(parameters.getRemovePromiscuousProbes()) && promiscuous != null) {
+            removed.or(promiscuous);
+        }
+        if ("UP".equalsIgnoreCase(parameters.getRemoveAdverseDirection())) {
+            exclude(removed, Flag.ADVERSE_UP);
+        } else if ("DOWN".equalsIgnoreCase(parameters.getRemoveAdverseDirection())) {
+            exclude(removed, Flag.ADVERSE_DOWN);
+        }
+        if (Boolean.TRUE.equals(parameters.getRemoveStepFunction())) {
+            exclude(removed, Flag.STEP_FUNCTION);
+        }
+        if (Boolean.TRUE.equals(parameters.getRemoveStepFunctionWithBMDLower())) {
+            exclude(removed, Flag.STEP_FUNCTION_BMDL_LOWER);
+        }
+        mask.andNot(removed);
+        return mask;
+    }
+
+    /**
+     * Filters of a parameter set that cannot be applied, because the BMD result
+     * lacks the column (or the doses) they need
+     *
+     * @return parameter names of the unavailable filters, empty if all set filters apply
+     */
+    public List<String> unavailableFilters(CategoryAnalysisParametersDto parameters) {
+        List<String> unavailable = new ArrayList<>();
+        if (parameters.getBmdPValueCutoff() != null && !hasMetric(Metric.FIT_P_VALUE)) {
+            unavailable.add("bmdPValueCutoff");
+        }
+        if (parameters.getBmdRSquaredCutoff() != null && !hasMetric(Metric.R_SQUARED)) {
+            unavailable.add("bmdRSquaredCutoff");
+        }
+        if (Boolean.TRUE.equals(parameters.getRemoveBMDGreaterHighDose())
+                && (!hasMetric(Metric.BMD) || Double.isNaN(table.getMaxDose()))) {
+            unavailable.add("removeBMDGreaterHighDose");
+        }
+        Double nFold = parameters.getnFoldBelowLowestDose();
+        if (nFold != null && nFold > 0 && (!hasMetric(Metric.BMD) || Double.isNaN(table.getMinPositiveDose()))) {
+            unavailable.add("nFoldBelowLowestDose");
+        }
+        if (parameters.getBmduBmdlRatioMin() != null && !hasMetric(Metric.BMDU_BMDL_RATIO)) {
+            unavailable.add("bmduBmdlRatioMin");
+        }
+        if (parameters.getBmdBmdlRatioMin() != null && !hasMetric(Metric.BMD_BMDL_RATIO)) {
+            unavailable.add("bmdBmdlRatioMin");
+        }
+        if (parameters.getBmduBmdRatioMin() != null && !hasMetric(Metric.BMDU_BMD_RATIO)) {
+            unavailable.add("bmduBmdRatioMin");
+        }
+        if (parameters.getMaxFoldChange() != null && !hasMetric(Metric.ABS_MAX_FOLD_CHANGE)) {
+            unavailable.add("maxFoldChange");
+        }
+        if (parameters.getPrefilterPValueMin() != null && !hasMetric(Metric.PREFILTER_P_VALUE)) {
+            unavailable.add("prefilterPValueMin");
+        }
+        if (parameters.getPrefilterAdjustedPValueMin() != null && !hasMetric(Metric.PREFILTER_ADJUSTED_P_VALUE)) {
+            unavailable.add("prefilterAdjustedPValueMin");
+        }
+        String adverse = parameters.getRemoveAdverseDirection();
+        if (("UP".equalsIgnoreCase(adverse) && !hasFlag(Flag.ADVERSE_UP))
+                || ("DOWN".equalsIgnoreCase(adverse) && !hasFlag(Flag.ADVERSE_DOWN))) {
+            unavailable.add("removeAdverseDirection");
+        }
+        if (Boolean.TRUE.equals(parameters.getRemoveStepFunction()) && !hasFlag(Flag.STEP_FUNCTION)) {
+            unavailable.add("removeStepFunction");
+        }
+        if (Boolean.TRUE.equals(parameters.getRemoveStepFunctionWithBMDLower())
+                && !hasFlag(Flag.STEP_FUNCTION_BMDL_LOWER)) {
+            unavailable.add("removeStepFunctionWithBMDLower");
+        }
+        return unavailable;
+    }
+
+    /**
+     * @throws IllegalArgumentException if a filter of the parameter set cannot be applied
+     */
+    public void checkAvailable(CategoryAnalysisParametersDto parameters) {
+        List<String> unavailable = unavailableFilters(parameters);
+        if (!unavailable.isEmpty()) {
+            throw new IllegalArgumentException("Filters unavailable for this BMD result, which lacks the "
+                    + "probe statistics they need: " + String.join(", ", unavailable));
+        }
+    }
+
+    private static void retain(RoaringBitmap mask, Double threshold,
+                               DoubleFunction<RoaringBitmap> passing) {
+        if (threshold == null) {
+            return;
+        }
+        RoaringBitmap bits = passing.apply(threshold);
+        if (bits != null) {
+            mask.and(bits);
+        }
+    }
+
+    private void exclude(RoaringBitmap removed, Flag flag) {
+        RoaringBitmap bits = flags.get(flag);
+        if (bits != null) {
+            removed.or(bits);
+        }
+    }
+
+    private double[] ratio(ProbeStatTable.Column numerator, ProbeStatTable.Column denominator) {
+        double[] top = table.column(numerator);
+        double[] bottom = table.column(denominator);
+        if (top == null || bottom == null) {
+            return null;
+        }
+        double[] ratios = new double[top.length];
+        for (int p = 0; p < ratios.length; p++) {
+            ratios[p] = top[p] / bottom[p];
+        }
+        return ratios;
+    }
+
+    private void addMetric(Metric metric, double[] values) {
+        if (values != null) {
+            metrics.put(metric, new SortedMetric(values));
+        }
+    }
+
+    private static RoaringBitmap flagged(double[] values, double sign) {
+        RoaringBitmap bits = new RoaringBitmap();
+        for (int p = 0; p < values.length; p++) {
+            if (values[p] * sign > 0) {
+                bits.add(p);
+            }
+        }
+        bits.runOptimize();
+        return bits;
+    }
+
+    /**
+     * One metric's probes in ascending value order, with cumulative checkpoint bitmaps
+     */
+    private static final class SortedMetric {
+        private final double[] values;
+        private final int[] probes;
+        private final int blockSize;
+        private final RoaringBitmap[] checkpoints;
+        private final RoaringBitmap defined;
+
+        SortedMetric(double[] column) {
+            Integer[] order = new Integer[column.length];
+            int n = 0;
+            for (int p = 0; p < column.length; p++) {
+                if (!Double.isNaN(column[p])) {
+                    order[n++] = p;
+                }
+            }
+            Arrays.sort(order, 0, n, (x, y) -> Double.compare(column[x], column[y]));
+
+            values = new double[n];
+            probes = new int[n];
+            for (int r = 0; r < n; r++) {
+                probes[r] = order[r];
+                values[r] = column[order[r]];
+            }
+
+            // checkpoints[b] holds the probes of ranks [0, b * blockSize)
+            blockSize = Math.max(MIN_BLOCK_SIZE, (n + CHECKPOINTS - 1) / CHECKPOINTS);
+            checkpoints = new RoaringBitmap[n / blockSize + 1];
+            RoaringBitmap running = new RoaringBitmap();
+            for (int b = 0; b < checkpoints.length; b++) {
+                RoaringBitmap checkpoint = running.clone();
+                checkpoint.runOptimize();
+                checkpoints[b] = checkpoint;
+                int end = Math.min(n, (b + 1) * blockSize);
+                running.addN(probes, b * blockSize, end - b * blockSize);
+            }
+            running.runOptimize();
+            defined = running;
+        }
+
+        /**
+         * Probes of ranks [0, rank)
+         */
+        RoaringBitmap prefix(int rank) {
+            int block = rank / blockSize;
+            RoaringBitmap bits = checkpoints[block].clone();
+            int start = block * blockSize;
+            if (rank > start) {
+                bits.addN(probes, start, rank - start);
+            }
+            return bits;
+        }
+
+        /**
+         * Number of values &lt;= threshold
+         */
+        int countAtMost(double threshold) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= threshold) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Number of values &lt; threshold
+         */
+        int countBelow(double threshold) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] < threshold) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
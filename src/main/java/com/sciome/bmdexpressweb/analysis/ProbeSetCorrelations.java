@@ -0,0 +1,276 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pairwise Pearson correlations between the probes of each gene, used to
+ * identify genes with conflicting probe sets.
+ *
+ * Correlations are computed over the raw responses of every sample. Each gene's
+ * probe rows are standardized once into a per-thread buffer (missing responses
+ * take the row mean, so they contribute nothing), after which a correlation is
+ * a plain dot product. The dot products are evaluated in square tiles of
+ * {@value #TILE} probes so genes with hundreds of probes stay cache-resident.
+ * Genes are processed in parallel on a fork-join pool, split by estimated cost.
+ *
+ * Built once per category mapping and expression matrix; instances are immutable.
+ */
+public final class ProbeSetCorrelations {
+
+    private static final int TILE = 64;
+    private static final long MIN_TASK_COST = 1L << 16;
+
+    private final CategoryMapping mapping;
+    private final int[] pairOffsets;
+    private final float[] correlations;
+
+    private ProbeSetCorrelations(CategoryMapping mapping, int[] pairOffsets, float[] correlations) {
+        this.mapping = mapping;
+        this.pairOffsets = pairOffsets;
+        this.correlations = correlations;
+    }
+
+    /**
+     * Compute the correlations on the common fork-join pool.
+     */
+    public static ProbeSetCorrelations compute(CategoryMapping mapping, ProbeStatTable table, ExpressionMatrix matrix) {
+        return compute(mapping, table, matrix, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Compute the correlations of every gene with two or more probes.
+     *
+     * @param mapping gene -> probe mapping (probes are ProbeStatTable rows)
+     * @param table the probe statistics the mapping was built from
+     * @param matrix expression data; probes missing from it have NaN correlations
+     * @param pool the pool to run on
+     */
+    public static ProbeSetCorrelations compute(CategoryMapping mapping, ProbeStatTable table,
+                                               ExpressionMatrix matrix, ForkJoinPool pool) {
+        return compute(mapping, table, matrix, pool, CancellationToken.NONE);
+    }
+
+    /**
+     * Compute the correlations of every gene with two or more probes, checking
+     * the token before each gene.
+     *
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     */
+    public static ProbeSetCorrelations compute(CategoryMapping mapping, ProbeStatTable table,
+                                               ExpressionMatrix matrix, ForkJoinPool pool,
+                                               CancellationToken cancellation) {
+        int geneCount = mapping.getGeneCount();
+        int[] geneOffsets = mapping.geneProbeOffsets();
+        int[] pairOffsets = new int[geneCount + 1];
+        long[] cumulativeCost = new long[geneCount + 1];
+        for (int g = 0; g < geneCount; g++) {
+            long k = geneOffsets[g + 1] - geneOffsets[g];
+            long pairs = k * (k - 1) / 2;
+            if (pairOffsets[g] + pairs > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many probe pairs for correlation analysis");
+            }
+            pairOffsets[g + 1] = pairOffsets[g] + (int) pairs;
+            cumulativeCost[g + 1] = cumulativeCost[g] + (pairs + k) * matrix.getSampleCount();
+        }
+
+        int[] matrixRows = new int[table.getProbeCount()];
+        for (int p = 0; p < matrixRows.length; p++) {
+            matrixRows[p] = matrix.indexOfProbe(table.getProbeId(p));
+        }
+
+        float[] correlations = new float[pairOffsets[geneCount]];
+        Kernel kernel = new Kernel(mapping, matrix, matrixRows, pairOffsets, correlations, cancellation);
+        pool.invoke(new GeneRangeTask(kernel, cumulativeCost, 0, geneCount));
+        return new ProbeSetCorrelations(mapping, pairOffsets, correlations);
+    }
+
+    /**
+     * Correlation between the i-th and j-th probe of a gene (positions in the
+     * mapping's gene -> probe list), or NaN if either probe has no expression data.
+     */
+    public float get(int gene, int i, int j) {
+        if (i == j) {
+            return 1.0f;
+        }
+        int k = mapping.geneProbeOffsets()[gene + 1] - mapping.geneProbeOffsets()[gene];
+        return correlations[pairOffsets[gene] + pairIndex(Math.min(i, j), Math.max(i, j), k)];
+    }
+
+    /**
+     * Whether a gene has two passing probes whose responses are anti-correlated
+     * at or below {@code -cutoff}.
+     *
+     * @param probePassed pass state of every ProbeStatTable row
+     */
+    public boolean isConflicting(int gene, boolean[] probePassed, double cutoff) {
+        int[] geneOffsets = mapping.geneProbeOffsets();
+        int[] geneProbes = mapping.geneProbes();
+        int start = geneOffsets[gene];
+        int k = geneOffsets[gene + 1] - start;
+        int pair = pairOffsets[gene];
+        for (int i = 0; i < k; i++) {
+            boolean passesI = probePassed[geneProbes[start + i]];
+            for (int j = i + 1; j < k; j++, pair++) {
+                if (passesI && probePassed[geneProbes[start + j]] && correlations[pair] <= -cutoff) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Position of pair (i, j), i &lt; j, in the upper triangle of a k x k matrix, row by row.
+     */
+    private static int pairIndex(int i, int j, int k) {
+        return i * k - i * (i + 1) / 2 + (j - i - 1);
+    }
+
+    /**
+     * Splits a gene range until its estimated cost is small enough to run directly
+     */
+    private static final class GeneRangeTask extends RecursiveAction {
+        private final Kernel kernel;
+        private final long[] cumulativeCost;
+        private final int from;
+        private final int to;
+
+        GeneRangeTask(Kernel kernel, long[] cumulativeCost, int from, int to) {
+            this.kernel = kernel;
+            this.cumulativeCost = cumulativeCost;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1 || cumulativeCost[to] - cumulativeCost[from] <= MIN_TASK_COST) {
+                for (int g = from; g < to; g++) {
+                    kernel.cancellation.throwIfCancelled();
+                    kernel.computeGene(g);
+                }
+                return;
+            }
+            // Split at the cost midpoint so one expensive gene does not hold up its neighbours
+            long middle = (cumulativeCost[from] + cumulativeCost[to]) / 2;
+            int split = from + 1;
+            while (split < to - 1 && cumulativeCost[split + 1] <= middle) {
+                split++;
+            }
+            invokeAll(new GeneRangeTask(kernel, cumulativeCost, from, split),
+                    new GeneRangeTask(kernel, cumulativeCost, split, to));
+        }
+    }
+
+    /**
+     * Per-gene standardization and tiled dot products, with per-thread buffers
+     */
+    private static final class Kernel {
+        private final CategoryMapping mapping;
+        private final ExpressionMatrix matrix;
+        private final int[] matrixRows;
+        private final int[] pairOffsets;
+        private final float[] correlations;
+        private final CancellationToken cancellation;
+        private final ThreadLocal<double[]> buffers = ThreadLocal.withInitial(() -> new double[0]);
+
+        Kernel(CategoryMapping mapping, ExpressionMatrix matrix, int[] matrixRows,
+               int[] pairOffsets, float[] correlations, CancellationToken cancellation) {
+            this.mapping = mapping;
+            this.matrix = matrix;
+            this.matrixRows = matrixRows;
+            this.pairOffsets = pairOffsets;
+            this.correlations = correlations;
+            this.cancellation = cancellation;
+        }
+
+        void computeGene(int gene) {
+            int start = mapping.geneProbeOffsets()[gene];
+            int k = mapping.geneProbeOffsets()[gene + 1] - start;
+            if (k < 2) {
+                return;
+            }
+            int samples = matrix.getSampleCount();
+            double[] z = buffer(k * samples);
+            boolean[] valid = new boolean[k];
+            for (int i = 0; i < k; i++) {
+                valid[i] = standardize(matrixRows[mapping.geneProbes()[start + i]], z, i * samples, samples);
+            }
+
+            int base = pairOffsets[gene];
+            for (int iTile = 0; iTile < k; iTile += TILE) {
+                int iEnd = Math.min(k, iTile + TILE);
+                for (int jTile = iTile; jTile < k; jTile += TILE) {
+                    int jEnd = Math.min(k, jTile + TILE);
+                    for (int i = iTile; i < iEnd; i++) {
+                        int rowStart = base + pairIndex(i, i + 1, k) - (i + 1);
+                        for (int j = Math.max(jTile, i + 1); j < jEnd; j++) {
+                            correlations[rowStart + j] = valid[i] && valid[j]
+                                    ? (float) dot(z, i * samples, j * samples, samples)
+                                    : Float.NaN;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Write the centered, unit-norm responses of a matrix row into z[offset..offset + samples).
+         *
+         * @return false if the row is missing or has no variance
+         */
+        private boolean standardize(int row, double[] z, int offset, int samples) {
+            if (row < 0) {
+                return false;
+            }
+            float[] values = matrix.values();
+            int rowOffset = matrix.rowOffset(row);
+            double sum = 0.0;
+            int count = 0;
+            for (int s = 0; s < samples; s++) {
+                float value = values[rowOffset + s];
+                if (!Float.isNaN(value)) {
+                    sum += value;
+                    count++;
+                }
+            }
+            if (count < 2) {
+                return false;
+            }
+            double mean = sum / count;
+            double squares = 0.0;
+            for (int s = 0; s < samples; s++) {
+                float value = values[rowOffset + s];
+                double centered = Float.isNaN(value) ? 0.0 : value - mean;
+                z[offset + s] = centered;
+                squares += centered * centered;
+            }
+            if (squares == 0.0) {
+                return false;
+            }
+            double scale = 1.0 / Math.sqrt(squares);
+            for (int s = 0; s < samples; s++) {
+                z[offset + s] *= scale;
+            }
+            return true;
+        }
+
+        private double[] buffer(int size) {
+            double[] buffer = buffers.get();
+            if (buffer.length < size) {
+                buffer = new double[Math.max(size, buffer.length * 2)];
+                buffers.set(buffer);
+            }
+            return buffer;
+        }
+
+        private static double dot(double[] z, int a, int b, int n) {
+            double sum = 0.0;
+            for (int s = 0; s < n; s++) {
+                sum += z[a + s] * z[b + s];
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpress2.mvp.model.probe.Treatment;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Columnar, read-only snapshot of the per-probe statistics of a BMDResult.
+ *
+ * Values are read once from the BMDResult's row snapshot (ResultRows) by
+ * column header name, so category analyses can filter and aggregate over
+ * primitive arrays instead of re-walking ProbeStatResult rows for every run.
+ * Columns that the BMDResult does not provide are simply absent; missing
+ * cells are NaN.
+ */
+public final class ProbeStatTable {
+
+    /**
+     * Numeric columns used by category analysis filters and summaries
+     */
+    public enum Column {
+        BEST_BMD("Best BMD"),
+        BEST_BMDL("Best BMDL"),
+        BEST_BMDU("Best BMDU"),
+        FIT_P_VALUE("Best fitPValue", "Best Fit P-Value"),
+        R_SQUARED("Best RSquared", "Best R-Squared"),
+        ADVERSE_DIRECTION("Best adverseDirection", "Best Adverse Direction"),
+        PREFILTER_P_VALUE("Prefilter P-Value"),
+        PREFILTER_ADJUSTED_P_VALUE("Prefilter Adjusted P-Value"),
+        MAX_FOLD_CHANGE("Max Fold Change"),
+        STEP_FUNCTION("Best Model Is Step Function", "Best Is Step Function"),
+        STEP_FUNCTION_BMDL_LOWER("Best Model Is Step Function Less Than Lowest Dose",
+                "Best Is Step Function With BMDL Lower");
+
+        private final String[] headerNames;
+
+        Column(String... headerNames) {
+            this.headerNames = headerNames;
+        }
+
+        boolean matches(String header) {
+            for (String name : headerNames) {
+                if (name.equalsIgnoreCase(header.trim())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final String[] PROBE_ID_HEADERS = {"Probe ID"};
+    private static final String[] GENE_ID_HEADERS = {"Entrez Gene IDs", "Gene IDs"};
+    private static final String[] GENE_SYMBOL_HEADERS = {"Genes Symbols", "Gene Symbols"};
+    private static final String[] NO_GENES = new String[0];
+
+    private final String[] probeIds;
+    private final String[][] geneIds;
+    private final String[][] geneSymbols;
+    private final Map<Column, double[]> columns;
+    private final double maxDose;
+    private final double minPositiveDose;
+
+    /**
+     * @param probeIds probe identifiers
+     * @param geneIds gene identifiers per probe (may be empty, never null)
+     * @param geneSymbols gene symbols per probe, parallel to geneIds
+     * @param columns numeric columns, each of length probeIds.length
+     * @param maxDose highest dose in the experiment
+     * @param minPositiveDose lowest non-zero dose in the experiment
+     */
+    public ProbeStatTable(String[] probeIds, String[][] geneIds, String[][] geneSymbols,
+                          Map<Column, double[]> columns, double maxDose, double minPositiveDose) {
+        for (double[] values : columns.values()) {
+            if (values.length != probeIds.length) {
+                throw new IllegalArgumentException("Column length does not match probe count");
+            }
+        }
+        this.probeIds = probeIds;
+        this.geneIds = geneIds;
+        this.geneSymbols = geneSymbols;
+        this.columns = columns.isEmpty() ? new EnumMap<>(Column.class) : new EnumMap<>(columns);
+        this.maxDose = maxDose;
+        this.minPositiveDose = minPositiveDose;
+    }
+
+    /**
+     * Build a table from a BMDResult's column header and row data.
+     */
+    public static ProbeStatTable fromBmdResult(BMDResult bmdResult) {
+        ResultRows snapshot = ResultRows.of(bmdResult);
+        List<String> header = snapshot.getColumnHeader();
+        List<List<Object>> results = snapshot.getRows();
+        if (header == null) {
+            // Results without complete data produce an empty table
+            header = List.of();
+            results = List.of();
+        }
+
+        int probeIdIndex = indexOf(header, PROBE_ID_HEADERS);
+        int geneIdIndex = indexOf(header, GENE_ID_HEADERS);
+        int geneSymbolIndex = indexOf(header, GENE_SYMBOL_HEADERS);
+        Map<Column, Integer> columnIndexes = new EnumMap<>(Column.class);
+        for (int i = 0; i < header.size(); i++) {
+            for (Column column : Column.values()) {
+                if (!columnIndexes.containsKey(column) && header.get(i) != null && column.matches(header.get(i))) {
+                    columnIndexes.put(column, i);
+                }
+            }
+        }
+
+        int n = results.size();
+        String[] probeIds = new String[n];
+        String[][] geneIds = new String[n][];
+        String[][] geneSymbols = new String[n][];
+        Map<Column, double[]> columns = new EnumMap<>(Column.class);
+        for (Column column : columnIndexes.keySet()) {
+            columns.put(column, new double[n]);
+        }
+
+        for (int p = 0; p < n; p++) {
+            List<Object> row = results.get(p);
+            probeIds[p] = probeIdIndex >= 0 ? String.valueOf(cell(row, probeIdIndex)) : String.valueOf(p);
+            geneIds[p] = geneIdIndex >= 0 ? splitGenes(cell(row, geneIdIndex)) : NO_GENES;
+            geneSymbols[p] = geneSymbolIndex >= 0 ? splitGenes(cell(row, geneSymbolIndex)) : NO_GENES;
+            for (Map.Entry<Column, Integer> entry : columnIndexes.entrySet()) {
+                columns.get(entry.getKey())[p] = toDouble(cell(row, entry.getValue()));
+            }
+        }
+
+        double maxDose = Double.NaN;
+        double minPositiveDose = Double.NaN;
+        if (bmdResult.getDoseResponseExperiment() != null
+                && bmdResult.getDoseResponseExperiment().getTreatments() != null) {
+            for (Treatment treatment : bmdResult.getDoseResponseExperiment().getTreatments()) {
+                if (treatment.getDose() == null) {
+                    continue;
+                }
+                double dose = treatment.getDose();
+                if (Double.isNaN(maxDose) || dose > maxDose) {
+                    maxDose = dose;
+                }
+                if (dose > 0 && (Double.isNaN(minPositiveDose) || dose < minPositiveDose)) {
+                    minPositiveDose = dose;
+                }
+            }
+        }
+
+        return new ProbeStatTable(probeIds, geneIds, geneSymbols, columns, maxDose, minPositiveDose);
+    }
+
+    public int getProbeCount() {
+        return probeIds.length;
+    }
+
+    public String getProbeId(int probe) {
+        return probeIds[probe];
+    }
+
+    public String[] getGeneIds(int probe) {
+        return geneIds[probe];
+    }
+
+    public String[] getGeneSymbols(int probe) {
+        return geneSymbols[probe];
+    }
+
+    public boolean hasColumn(Column column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * Value of a column for one probe, or NaN if the column is absent.
+     */
+    public double get(Column column, int probe) {
+        double[] values = columns.get(column);
+        return values == null ? Double.NaN : values[probe];
+    }
+
+    /**
+     * Direct access to a column's values (not a copy), or null if absent.
+     */
+    public double[] column(Column column) {
+        return columns.get(column);
+    }
+
+    public double getMaxDose() {
+        return maxDose;
+    }
+
+    public double getMinPositiveDose() {
+        return minPositiveDose;
+    }
+
+    private static int indexOf(List<String> header, String[] names) {
+        for (int i = 0; i < header.size(); i++) {
+            for (String name : names) {
+                if (header.get(i) != null && name.equalsIgnoreCase(header.get(i).trim())) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static Object cell(List<Object> row, int index) {
+        return row != null && index < row.size() ? row.get(index) : null;
+    }
+
+    private static double toDouble(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        if (value == null) {
+            return Double.NaN;
+        }
+        String text = value.toString().trim();
+        if (text.isEmpty()) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            String lower = text.toLowerCase(Locale.ROOT);
+            if (lower.equals("up") || lower.equals("true")) {
+                return 1.0;
+            }
+            if (lower.equals("down")) {
+                return -1.0;
+            }
+            if (lower.equals("false")) {
+                return 0.0;
+            }
+            return Double.NaN;
+        }
+    }
+
+    private static String[] splitGenes(Object value) {
+        if (value == null) {
+            return NO_GENES;
+        }
+        List<String> genes = new ArrayList<>(2);
+        for (String gene : value.toString().split("[;,]")) {
+            String trimmed = gene.trim();
+            if (!trimmed.isEmpty() && !trimmed.equalsIgnoreCase("null")) {
+                genes.add(trimmed);
+            }
+        }
+        return genes.isEmpty() ? NO_GENES : genes.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,139 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResult;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Immutable snapshot of the column header and row data of a BMDResult or
+ * CategoryAnalysisResults.
+ *
+ * The library builds rows by mutating transient fields of the result
+ * (getColumnHeader, generateRowData), which is slow for large results and
+ * races when two requests view the same result. Snapshots are built once per
+ * result: concurrent first readers wait for a single build, and later readers
+ * share it without locking. A snapshot is rebuilt only if the result's list of
+ * probe or category rows is replaced or resized, or after invalidate().
+ *
+ * Snapshots are held as long as their result is (weak keys, by identity).
+ */
+public final class ResultRows {
+
+    private static final Cache<Object, ResultRows> SNAPSHOTS = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    private final List<String> columnHeader;
+    private final List<List<Object>> rows;
+    // Row list of the result at build time, to notice replaced rows
+    private final WeakReference<List<?>> source;
+    private final int sourceSize;
+
+    private ResultRows(List<String> columnHeader, List<List<Object>> rows, List<?> source) {
+        this.columnHeader = columnHeader;
+        this.rows = rows;
+        this.source = new WeakReference<>(source);
+        this.sourceSize = source != null ? source.size() : -1;
+    }
+
+    /**
+     * Rows of a BMD result, one per probe; empty if the result cannot produce rows
+     */
+    public static ResultRows of(BMDResult bmdResult) {
+        return of(bmdResult, BMDResult::getProbeStatResults, result -> {
+            List<String> columnHeader = null;
+            List<ProbeStatResult> probes = null;
+            try {
+                columnHeader = result.getColumnHeader();
+                result.generateRowData();
+                probes = result.getProbeStatResults();
+            } catch (NullPointerException e) {
+                // Results without complete data have no rows
+            }
+            return build(columnHeader, probes, ProbeStatResult::getRow);
+        });
+    }
+
+    /**
+     * Rows of a category analysis result, one per category
+     */
+    public static ResultRows of(CategoryAnalysisResults categoryResults) {
+        return of(categoryResults, CategoryAnalysisResults::getCategoryAnalsyisResults, result -> {
+            List<String> columnHeader = null;
+            List<CategoryAnalysisResult> categories = null;
+            try {
+                columnHeader = result.getColumnHeader();
+                result.generateRowData();
+                categories = result.getCategoryAnalsyisResults();
+            } catch (NullPointerException e) {
+                // Results without complete data have no rows
+            }
+            return build(columnHeader, categories, CategoryAnalysisResult::getRow);
+        });
+    }
+
+    /**
+     * Drop the snapshot of a result that was changed in place, or is being
+     * (re)added to a project
+     */
+    public static void invalidate(Object result) {
+        SNAPSHOTS.invalidate(result);
+    }
+
+    /**
+     * Column names, or null if the result has none
+     */
+    public List<String> getColumnHeader() {
+        return columnHeader;
+    }
+
+    /**
+     * Rows, each parallel to the column header; unmodifiable
+     */
+    public List<List<Object>> getRows() {
+        return rows;
+    }
+
+    private static <R> ResultRows of(R result, Function<R, List<?>> source, Function<R, ResultRows> builder) {
+        ResultRows snapshot = SNAPSHOTS.getIfPresent(result);
+        if (snapshot != null) {
+            if (snapshot.isCurrent(source.apply(result))) {
+                return snapshot;
+            }
+            SNAPSHOTS.asMap().remove(result, snapshot);
+        }
+        try {
+            return SNAPSHOTS.get(result, () -> builder.apply(result));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new IllegalStateException("Failed to generate row data: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static <T> ResultRows build(List<String> columnHeader, List<T> source, Function<T, List<Object>> row) {
+        List<List<Object>> rows = new ArrayList<>(source != null ? source.size() : 0);
+        if (source != null) {
+            for (T element : source) {
+                List<Object> cells = row.apply(element);
+                // Copied: getRow() may hand out the result's own, mutable list
+                rows.add(cells != null ? Collections.unmodifiableList(new ArrayList<>(cells)) : null);
+            }
+        }
+        return new ResultRows(columnHeader != null ? Collections.unmodifiableList(new ArrayList<>(columnHeader)) : null,
+                Collections.unmodifiableList(rows), source);
+    }
+
+    private boolean isCurrent(List<?> current) {
+        return current == source.get() && (current != null ? current.size() : -1) == sourceSize;
+    }
+}
@@ -0,0 +1,50 @@
+package com.sciome.bmdexpressweb.analysis;
+
+/**
+ * Numerical helpers shared by the server-side analysis engines.
+ */
+public final class Statistics {
+
+    private Statistics() {
+    }
+
+    /**
+     * Table of ln(i!) for i = 0..max, for repeated hypergeometric evaluations.
+     */
+    public static double[] logFactorials(int max) {
+        double[] table = new double[max + 1];
+        for (int i = 2; i <= max; i++) {
+            table[i] = table[i - 1] + Math.log(i);
+        }
+        return table;
+    }
+
+    /**
+     * Fisher's exact test, right tail: P(X &gt;= k) where X is hypergeometric with
+     * population N, K successes in the population and n draws.
+     *
+     * @param logFactorials table from {@link #logFactorials(int)} covering at least N
+     */
+    public static double fisherExactRightTail(int k, int n, int bigK, int bigN, double[] logFactorials) {
+        if (k <= 0) {
+            return 1.0;
+        }
+        int max = Math.min(n, bigK);
+        int start = Math.max(k, n - (bigN - bigK));
+        if (start > max) {
+            return 0.0;
+        }
+        double logDenominator = logChoose(bigN, n, logFactorials);
+        double p = 0.0;
+        for (int x = start; x <= max; x++) {
+            p += Math.exp(logChoose(bigK, x, logFactorials)
+                    + logChoose(bigN - bigK, n - x, logFactorials) - logDenominator);
+        }
+        return Math.min(1.0, p);
+    }
+
+    private static double logChoose(int n, int k, double[] logFactorials) {
+        return logFactorials[n] - logFactorials[k] - logFactorials[n - k];
+    }
+
+}
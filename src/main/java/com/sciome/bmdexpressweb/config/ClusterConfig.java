@@ -0,0 +1,40 @@
+package com.sciome.bmdexpressweb.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.filters.ProjectAffinityFilter;
+import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService;
+import com.sciome.bmdexpressweb.service.ClusterMembership;
+import com.sciome.bmdexpressweb.service.ClusterRouter;
+import com.sciome.bmdexpressweb.service.ProjectService;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Request routing for multi-node deployments (bmdexpress.cluster.*).
+ *
+ * The affinity filter is registered here rather than as a @Component so that
+ * web slice tests, which pick up filter components, do not need the services
+ * it routes with.
+ */
+@Configuration
+public class ClusterConfig {
+
+    @Bean
+    public FilterRegistrationBean<ProjectAffinityFilter> projectAffinityFilter(
+            ClusterMembership membership,
+            ClusterRouter router,
+            ProjectService projectService,
+            CategoryAnalysisAsyncService analysisService,
+            ObjectMapper objectMapper) {
+
+        FilterRegistrationBean<ProjectAffinityFilter> registration = new FilterRegistrationBean<>(
+                new ProjectAffinityFilter(membership, router, projectService, analysisService,
+                        objectMapper));
+        registration.addUrlPatterns("/api/*");
+        // After DocsFilter, before anything reads the request
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
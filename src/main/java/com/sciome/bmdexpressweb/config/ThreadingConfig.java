@@ -0,0 +1,53 @@
+package com.sciome.bmdexpressweb.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for blocking I/O.
+ *
+ * With spring.threads.virtual.enabled=true (opt-in, Java 21) Spring Boot runs
+ * servlet requests and @Async tasks on virtual threads, so project loads, file
+ * listings and other blocking request handling no longer hold one of Tomcat's
+ * platform threads each. The blocking I/O executor defined here follows the
+ * same switch: it runs the UI's background REST calls (BmdExpressApiService)
+ * on a virtual thread per task, or on a small platform pool when the mode is off.
+ *
+ * CPU-bound work is not affected by the mode: category analyses keep running
+ * on the bounded platform pool of AnalysisScheduler.
+ */
+@Configuration
+public class ThreadingConfig {
+
+    public static final String BLOCKING_IO_EXECUTOR = "blockingIoExecutor";
+
+    @Bean(name = BLOCKING_IO_EXECUTOR, destroyMethod = "shutdownNow")
+    public ExecutorService blockingIoExecutor(
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${bmdexpress.io.platform-threads:16}") int platformThreads) {
+        return blockingIoExecutor(virtualThreads, platformThreads);
+    }
+
+    /**
+     * Executor for blocking I/O
+     *
+     * @param virtualThreads run each task on its own virtual thread
+     * @param platformThreads pool size when virtual threads are not used
+     */
+    public static ExecutorService blockingIoExecutor(boolean virtualThreads, int platformThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("blocking-io-", 1).factory());
+        }
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.max(1, platformThreads), runnable -> {
+            Thread thread = new Thread(runnable, "blocking-io-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
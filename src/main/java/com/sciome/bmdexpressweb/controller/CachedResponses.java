@@ -0,0 +1,187 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.service.ResponseCache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Responses of immutable resources, served through ResponseCache.
+ *
+ * A request whose If-None-Match matches the resource's ETag gets 304 Not
+ * Modified. A cached body is sent as stored, gzip-compressed if the client
+ * accepts it. On a miss the response is produced as usual, with its ETag, and
+ * the body is recorded on its way to the client and cached once complete.
+ * Resources without a version (ETag null) are served as before.
+ */
+public final class CachedResponses {
+
+    private static final List<String> VARY = List.of(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
+    private CachedResponses() {
+    }
+
+    /**
+     * A streamed response, recorded into the cache on a miss
+     *
+     * @param cache the response cache
+     * @param etag ETag of the resource, or null if it cannot be cached
+     * @param request headers of the request
+     * @param uncached produces the response on a miss
+     */
+    public static ResponseEntity<StreamingResponseBody> stream(ResponseCache cache, String etag, HttpHeaders request,
+                                                               Supplier<ResponseEntity<StreamingResponseBody>> uncached) {
+        if (etag == null) {
+            return uncached.get();
+        }
+        if (ResponseCache.matches(request.getFirst(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return notModified(etag);
+        }
+
+        ResponseCache.Body cached = cache.get(etag);
+        if (cached != null) {
+            boolean gzip = cached.getGzip() != null && ResponseCache.acceptsGzip(request.getFirst(HttpHeaders.ACCEPT_ENCODING));
+            byte[] bytes = gzip ? cached.getGzip() : cached.getIdentity();
+            return ResponseEntity.ok()
+                    .headers(hitHeaders(etag, cached, gzip, bytes.length))
+                    .body(out -> out.write(bytes));
+        }
+
+        ResponseEntity<StreamingResponseBody> response = uncached.get();
+        StreamingResponseBody body = response.getBody();
+        if (response.getStatusCode() != HttpStatus.OK || body == null) {
+            return response;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(response.getHeaders());
+        headers.setETag(etag);
+        headers.setVary(VARY);
+        String contentType = String.valueOf(headers.getContentType());
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(out -> {
+                    RecordingOutputStream recording = new RecordingOutputStream(out, cache.getMaxEntryBytes());
+                    body.writeTo(recording);
+                    recording.flush();
+                    if (!recording.isOverflowed()) {
+                        cache.put(etag, contentType, recording.toByteArray());
+                    }
+                });
+    }
+
+    /**
+     * A response encoded in memory, cached on a miss
+     *
+     * @param cache the response cache
+     * @param etag ETag of the resource, or null if it cannot be cached
+     * @param request headers of the request
+     * @param contentType Content-Type of the encoded body
+     * @param encoder encodes the body on a miss
+     */
+    public static ResponseEntity<byte[]> bytes(ResponseCache cache, String etag, HttpHeaders request,
+                                               MediaType contentType, Supplier<byte[]> encoder) {
+        if (etag == null) {
+            return ResponseEntity.ok().contentType(contentType).body(encoder.get());
+        }
+        if (ResponseCache.matches(request.getFirst(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return notModified(etag);
+        }
+
+        ResponseCache.Body cached = cache.get(etag);
+        if (cached != null) {
+            boolean gzip = cached.getGzip() != null && ResponseCache.acceptsGzip(request.getFirst(HttpHeaders.ACCEPT_ENCODING));
+            byte[] bytes = gzip ? cached.getGzip() : cached.getIdentity();
+            return ResponseEntity.ok()
+                    .headers(hitHeaders(etag, cached, gzip, bytes.length))
+                    .body(bytes);
+        }
+
+        byte[] identity = encoder.get();
+        cache.put(etag, contentType.toString(), identity);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .eTag(etag)
+                .varyBy(VARY.toArray(String[]::new))
+                .body(identity);
+    }
+
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .varyBy(VARY.toArray(String[]::new))
+                .build();
+    }
+
+    private static HttpHeaders hitHeaders(String etag, ResponseCache.Body cached, boolean gzip, int length) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_TYPE, cached.getContentType());
+        headers.setContentLength(length);
+        headers.setVary(VARY);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            headers.setETag(ResponseCache.gzipEtag(etag));
+        } else {
+            headers.setETag(etag);
+        }
+        return headers;
+    }
+
+    /**
+     * Passes a body through while keeping a copy, up to a limit
+     */
+    private static final class RecordingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final int limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream(8192);
+
+        RecordingOutputStream(OutputStream out, int limit) {
+            this.out = out;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            record(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            record(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        boolean isOverflowed() {
+            return copy == null;
+        }
+
+        byte[] toByteArray() {
+            return copy.toByteArray();
+        }
+
+        private void record(byte[] b, int off, int len) {
+            if (copy == null) {
+                return;
+            }
+            if (copy.size() + len > limit) {
+                // Too large to cache: stop copying
+                copy = null;
+                return;
+            }
+            copy.write(b, off, len);
+        }
+    }
+}
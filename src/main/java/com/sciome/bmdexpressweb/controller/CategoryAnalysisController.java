@@ -1,20 +1,44 @@
 package com.sciome.bmdexpressweb.controller;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.analysis.ResultRows;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchResponse;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisRequest;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisResponse;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpressweb.dto.ProbeFilterResponse;
+import com.sciome.bmdexpressweb.service.AnalysisEventService;
+import com.sciome.bmdexpressweb.service.AnalysisNotAvailableException;
+import com.sciome.bmdexpressweb.service.AnalysisRequestKeys;
 import com.sciome.bmdexpressweb.service.BmdResultsService;
 import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService;
+import com.sciome.bmdexpressweb.service.CategoryDefinitionFiles;
+import com.sciome.bmdexpressweb.service.ColumnarTableCodec;
+import com.sciome.bmdexpressweb.service.DelimitedTableWriter;
+import com.sciome.bmdexpressweb.service.ProbeFilterService;
 import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
 import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -35,11 +59,30 @@ public class CategoryAnalysisController {
     @Autowired
     private CategoryAnalysisAsyncService analysisService;
 
+    @Autowired
+    private ProbeFilterService probeFilterService;
+
+    @Autowired
+    private AnalysisEventService eventService;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    @Autowired
+    private CategoryDefinitionFiles definitionFiles;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Submit a category analysis job
      *
      * POST /api/category-analysis
      *
+     * Requests identical to an earlier one on the same project content are
+     * deduplicated: they get the earlier job's analysis ID, with 202 while it
+     * is still running and 200 once it has completed.
+     *
      * @param request Category analysis request
      * @return Analysis job response with analysis ID
      */
@@ -61,8 +104,17 @@ public class CategoryAnalysisController {
                     request.getProjectId(),
                     request.getBmdResultName());
 
-            // Submit async analysis
+            String requestKey = AnalysisRequestKeys.of(
+                    projectService.getContentHash(request.getProjectId()),
+                    bmdResult.getName(),
+                    request.getAnalysisType(),
+                    request.getParameters(),
+                    definitionFiles);
+
+            // Submit async analysis, or attach to an identical one
             CompletableFuture<String> future = analysisService.runCategoryAnalysisAsync(
+                    request.getProjectId(),
+                    requestKey,
                     bmdResult,
                     request.getAnalysisType(),
                     request.getParameters());
@@ -77,6 +129,17 @@ public class CategoryAnalysisController {
 
             response.setResultLocation("/api/category-analysis/" + analysisId);
 
+            CategoryAnalysisAsyncService.AnalysisJobResult job = requestKey != null
+                    ? analysisService.getAnalysisResult(analysisId) : null;
+            if (job != null && "COMPLETED".equals(job.getStatus())) {
+                // Memoized result of an identical request
+                response.setStatus("COMPLETED");
+                response.setSubmittedAt(job.getSubmittedAt());
+                response.setCompletedAt(job.getCompletedAt());
+                logger.info("Category analysis request answered by completed analysis: {}", analysisId);
+                return ResponseEntity.ok(response);
+            }
+
             logger.info("Category analysis submitted: {}", analysisId);
 
             return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
@@ -84,30 +147,154 @@ public class CategoryAnalysisController {
         } catch (IllegalArgumentException e) {
             logger.error("Invalid request", e);
             return ResponseEntity.badRequest().build();
+        } catch (AnalysisNotAvailableException e) {
+            // Analysis types this server cannot run (501)
+            throw e;
         } catch (Exception e) {
             logger.error("Failed to submit category analysis", e);
             throw new RuntimeException("Failed to submit category analysis: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Submit a batch (parameter sweep) of category analyses
+     *
+     * POST /api/category-analysis/batch
+     *
+     * All variants run as one job against the same BMD result, sharing probe
+     * filtering, gene mapping and per-category statistics where they overlap.
+     *
+     * @param request Batch request with one parameter set per variant
+     * @return Batch response with one analysis ID per variant
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<CategoryAnalysisBatchResponse> submitCategoryAnalysisBatch(
+            @RequestBody CategoryAnalysisBatchRequest request) {
+
+        logger.info("Submitting batch category analysis: type={}, project={}, bmdResult={}, variants={}",
+                request.getAnalysisType(), request.getProjectId(), request.getBmdResultName(),
+                request.getVariants() != null ? request.getVariants().size() : 0);
+
+        if (!projectService.projectExists(request.getProjectId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        BMDResult bmdResult = bmdResultsService.findBmdResult(
+                request.getProjectId(),
+                request.getBmdResultName());
+
+        String batchId = analysisService.submitBatch(
+                request.getProjectId(), bmdResult, request.getAnalysisType(), request.getVariants());
+
+        CategoryAnalysisBatchResponse response = toBatchResponse(batchId, analysisService.getBatch(batchId));
+        response.setProjectId(request.getProjectId());
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    /**
+     * Get batch category analysis status
+     *
+     * GET /api/category-analysis/batch/{batchId}
+     *
+     * @param batchId The batch ID
+     * @return Status of every variant in the batch
+     */
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<CategoryAnalysisBatchResponse> getCategoryAnalysisBatch(@PathVariable String batchId) {
+        return ResponseEntity.ok(toBatchResponse(batchId, analysisService.getBatch(batchId)));
+    }
+
+    /**
+     * Preview how many probes survive a set of filter parameters
+     *
+     * POST /api/category-analysis/probe-filter
+     *
+     * Filters are compiled once per BMD result, so repeated calls while
+     * thresholds are being adjusted return in microseconds.
+     *
+     * @param request Project, BMD result and filter parameters (analysis type is ignored)
+     * @return Total and passing probe counts
+     */
+    @PostMapping("/probe-filter")
+    public ResponseEntity<ProbeFilterResponse> previewProbeFilter(@RequestBody CategoryAnalysisRequest request) {
+        if (!projectService.projectExists(request.getProjectId())) {
+            return ResponseEntity.notFound().build();
+        }
+
+        BMDResult bmdResult = bmdResultsService.findBmdResult(
+                request.getProjectId(),
+                request.getBmdResultName());
+
+        ProbeFilterResponse response = probeFilterService.filterProbes(bmdResult, request.getParameters());
+        response.setProjectId(request.getProjectId());
+        return ResponseEntity.ok(response);
+    }
+
+    private static CategoryAnalysisBatchResponse toBatchResponse(
+            String batchId, List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs) {
+
+        List<CategoryAnalysisResponse> analyses = new ArrayList<>();
+        boolean allDone = true;
+        for (CategoryAnalysisAsyncService.AnalysisJobResult job : jobs) {
+            CategoryAnalysisResponse analysis = new CategoryAnalysisResponse(job.getAnalysisId(), null, job.getStatus());
+            analysis.setResultLocation("/api/category-analysis/" + job.getAnalysisId());
+            analysis.setSubmittedAt(job.getSubmittedAt());
+            analysis.setCompletedAt(job.getCompletedAt());
+            analysis.setErrorMessage(job.getErrorMessage());
+            analyses.add(analysis);
+            allDone &= job.getCompletedAt() != null;
+        }
+        return new CategoryAnalysisBatchResponse(batchId, null, allDone ? "COMPLETED" : "RUNNING", analyses);
+    }
+
     /**
      * Get category analysis status and results
      *
      * GET /api/category-analysis/{analysisId}
      *
+     * Clients whose Accept header prefers the columnar media type of
+     * ColumnarTableCodec get a completed result as a table in that format
+     * (name, column header and rows); the status of an unfinished analysis is
+     * always JSON, so they should accept application/json as well.
+     *
+     * A completed result does not change until its parameters are updated, so
+     * it carries a strong ETag (from the analysis ID and completion time) and
+     * is served through the ResponseCache.
+     *
      * @param analysisId The analysis ID
+     * @param accept Accept header
+     * @param headers Request headers, for conditional requests and compression
      * @return Analysis status and results
      */
     @GetMapping("/{analysisId}")
-    public ResponseEntity<?> getCategoryAnalysis(@PathVariable String analysisId) {
+    public ResponseEntity<?> getCategoryAnalysis(
+            @PathVariable String analysisId,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader HttpHeaders headers) {
 
         try {
             CategoryAnalysisAsyncService.AnalysisJobResult job =
                     analysisService.getAnalysisResult(analysisId);
 
             if ("COMPLETED".equals(job.getStatus())) {
-                // Return the full results
-                return ResponseEntity.ok(job.getResults());
+                boolean columnar = ColumnarTableCodec.isRequested(accept);
+                String etag = job.getCompletedAt() == null ? null : ResponseCache.etag(
+                        analysisId + "@" + job.getCompletedAt(), "category-analysis", columnar ? "columnar" : "json");
+                if (columnar) {
+                    return CachedResponses.bytes(responseCache, etag, headers, ColumnarTableCodec.MEDIA_TYPE,
+                            () -> encodeTable(job));
+                }
+
+                // Return the full results (table form for engine-computed batch variants)
+                Object results = job.getResults() == null && job.getTableView() != null
+                        ? job.getTableView()
+                        : job.getResults();
+                if (results == null) {
+                    return ResponseEntity.ok(null);
+                }
+                return CachedResponses.bytes(responseCache, etag, headers, MediaType.APPLICATION_JSON,
+                        () -> toJson(results));
             } else {
                 // Return status only
                 CategoryAnalysisResponse response = new CategoryAnalysisResponse(
@@ -126,6 +313,110 @@ public class CategoryAnalysisController {
         }
     }
 
+    /**
+     * Stream category analysis progress as server-sent events
+     *
+     * GET /api/category-analysis/{analysisId}/events
+     *
+     * Sends the current state at once, "progress" events (status, stage and
+     * percentage) while the analysis runs, and a final "complete" event before
+     * the stream closes. Heartbeat comments keep idle connections open. Clients
+     * that reconnect with Last-Event-ID are only resent the state if it changed.
+     *
+     * @param analysisId The analysis ID
+     * @param lastEventId ID of the last event received before a reconnect
+     * @return Event stream
+     */
+    @GetMapping(value = "/{analysisId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCategoryAnalysisEvents(
+            @PathVariable String analysisId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+
+        try {
+            return ResponseEntity.ok(eventService.subscribe(analysisId, lastEventId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Cancel a running analysis, or delete a finished one
+     *
+     * DELETE /api/category-analysis/{analysisId}
+     *
+     * A pending or running analysis stops at its next cooperative check and
+     * frees its worker; it stays visible with status CANCELLED. A finished
+     * analysis is removed together with its results. An analysis shared by
+     * submitters of identical requests is only cancelled or removed by the last
+     * of them; earlier requests just detach the caller.
+     *
+     * @param analysisId The analysis ID
+     * @return Status of the cancelled analysis, or 204 if a finished analysis was
+     *         deleted or the caller was detached from a shared one
+     */
+    @DeleteMapping("/{analysisId}")
+    public ResponseEntity<CategoryAnalysisResponse> cancelCategoryAnalysis(@PathVariable String analysisId) {
+
+        try {
+            if (!analysisService.cancelAnalysis(analysisId)) {
+                return ResponseEntity.noContent().build();
+            }
+
+            CategoryAnalysisAsyncService.AnalysisJobResult job = analysisService.getAnalysisResult(analysisId);
+            CategoryAnalysisResponse response = new CategoryAnalysisResponse(
+                    job.getAnalysisId(),
+                    null,
+                    job.getStatus());
+            response.setSubmittedAt(job.getSubmittedAt());
+            response.setCompletedAt(job.getCompletedAt());
+            response.setErrorMessage(job.getErrorMessage());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    /**
+     * Update the filter parameters of a completed analysis
+     *
+     * PATCH /api/category-analysis/{analysisId}/parameters
+     *
+     * The body is merged into the analysis's current parameters: fields that are
+     * present replace the current value and explicit nulls clear it. Only the
+     * categories affected by the change are recomputed, so the updated results
+     * are returned directly. Supported for batch analyses. Analyses shared by
+     * several submitters of the same request are not updated (409).
+     *
+     * @param analysisId The analysis ID
+     * @param patch Changed parameter fields
+     * @return Updated category analysis results
+     */
+    @PatchMapping("/{analysisId}/parameters")
+    public ResponseEntity<CategoryAnalysisTableView> updateCategoryAnalysisParameters(
+            @PathVariable String analysisId,
+            @RequestBody JsonNode patch) {
+
+        CategoryAnalysisAsyncService.AnalysisJobResult job = analysisService.getAnalysisResult(analysisId);
+        if (!"COMPLETED".equals(job.getStatus()) || job.isShared()) {
+            // Shared analyses would change under the other submitters
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        CategoryAnalysisParametersDto parameters;
+        try {
+            CategoryAnalysisParametersDto current = job.getParameters() != null
+                    ? objectMapper.convertValue(job.getParameters(), CategoryAnalysisParametersDto.class)
+                    : new CategoryAnalysisParametersDto();
+            parameters = objectMapper.readerForUpdating(current).readValue(patch);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid parameters: " + e.getMessage(), e);
+        }
+
+        logger.info("Updating category analysis parameters: {}", analysisId);
+        return ResponseEntity.ok(analysisService.updateParameters(analysisId, parameters).getTableView());
+    }
+
     /**
      * Export category analysis results as JSON
      *
@@ -163,25 +454,25 @@ public class CategoryAnalysisController {
     }
 
     /**
-     * Export category analysis results as TSV
+     * Export category analysis results as TSV or CSV
      *
-     * GET /api/category-analysis/{analysisId}/export?format=tsv
+     * GET /api/category-analysis/{analysisId}/export?format=tsv|csv&gzip=true|false
      *
-     * STUB: Would generate TSV format output from CategoryAnalysisResults.
-     * In a full implementation, this would:
-     * 1. Get the column headers from results.getColumnHeader()
-     * 2. Get all rows from results.getCategoryAnalysisResults()
-     * 3. Format as tab-separated values
+     * Writes the column header and one row per category, from the results or,
+     * for engine-computed batch variants, the table view.
      *
      * @param analysisId The analysis ID
-     * @param format The format parameter (should be "tsv")
-     * @return Category analysis results as TSV
+     * @param format "tsv" (default) or "csv"
+     * @param gzip Whether to download a gzip-compressed file
+     * @return The table as a streamed file attachment; 409 if the analysis has not completed
      */
-    @GetMapping(value = "/{analysisId}/export", params = "format=tsv", produces = "text/tab-separated-values")
-    public ResponseEntity<String> exportCategoryAnalysisTsv(
+    @GetMapping(value = "/{analysisId}/export", params = "format!=json")
+    public ResponseEntity<StreamingResponseBody> exportCategoryAnalysisTable(
             @PathVariable String analysisId,
-            @RequestParam(defaultValue = "tsv") String format) {
+            @RequestParam(defaultValue = "tsv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
 
+        DelimitedTableWriter.Format exportFormat = DelimitedTableWriter.Format.of(format);
         try {
             CategoryAnalysisAsyncService.AnalysisJobResult job =
                     analysisService.getAnalysisResult(analysisId);
@@ -191,22 +482,46 @@ public class CategoryAnalysisController {
             }
 
             CategoryAnalysisResults results = job.getResults();
-
-            // STUB: Generate placeholder TSV
-            // See /tmp/server/controller/CategoryAnalysisController.java lines 164-201 for full implementation
-            StringBuilder tsv = new StringBuilder();
-            tsv.append("# Category analysis results export is stubbed\n");
-            tsv.append("# No actual results available\n");
-            tsv.append("ID\tName\tDescription\n");
-
-            logger.warn("Export TSV is stubbed - returning placeholder data");
-
-            return ResponseEntity.ok()
-                    .header("Content-Disposition", "attachment; filename=category_analysis_" + analysisId + ".tsv")
-                    .body(tsv.toString());
+            CategoryAnalysisTableView tableView = job.getTableView();
+            return TableExports.attachment("category_analysis_" + analysisId, exportFormat, gzip, writer -> {
+                if (results == null && tableView != null) {
+                    if (tableView.getColumnHeader() != null) {
+                        writer.writeRow(tableView.getColumnHeader());
+                    }
+                    if (tableView.getCategoryAnalsyisResults() != null) {
+                        for (Map<String, Object> row : tableView.getCategoryAnalsyisResults()) {
+                            writer.writeRow(row.get("row") instanceof List<?> cells ? cells : null);
+                        }
+                    }
+                } else if (results != null) {
+                    ResultRows rows = ResultRows.of(results);
+                    TableExports.table(rows.getColumnHeader(), rows.getRows()).write(writer);
+                }
+            });
 
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
+
+    private byte[] toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize analysis results: " + e.getMessage(), e);
+        }
+    }
+
+    // A completed analysis as a columnar table: its table view, or the rows of its results
+    private static byte[] encodeTable(CategoryAnalysisAsyncService.AnalysisJobResult job) {
+        if (job.getResults() == null && job.getTableView() != null) {
+            return ColumnarTableCodec.encode(job.getTableView());
+        }
+        CategoryAnalysisResults results = job.getResults();
+        if (results == null) {
+            return ColumnarTableCodec.encode(null, List.of(), List.of());
+        }
+        ResultRows rows = ResultRows.of(results);
+        return ColumnarTableCodec.encode(results.getName(), rows.getColumnHeader(), rows.getRows());
+    }
 }
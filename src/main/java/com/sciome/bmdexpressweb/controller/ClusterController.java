@@ -0,0 +1,97 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.service.ClusterMembership;
+import com.sciome.bmdexpressweb.service.ClusterRouter;
+import com.sciome.bmdexpressweb.service.ProjectService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Internal endpoints the nodes of a multi-node deployment call on each other
+ * to hand projects over (see ClusterRouter). Requests must carry the cluster
+ * secret; on a single node these endpoints do not exist.
+ */
+@RestController
+@RequestMapping("/internal/cluster")
+public class ClusterController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterController.class);
+
+    @Autowired
+    private ClusterMembership membership;
+
+    @Autowired
+    private ProjectService projectService;
+
+    /**
+     * Export a project held by this node, for its new owner
+     *
+     * GET /internal/cluster/projects/{projectId}
+     *
+     * @param projectId Project ID
+     * @return The project in .bm2 format, with its metadata in headers
+     */
+    @GetMapping("/projects/{projectId}")
+    public ResponseEntity<StreamingResponseBody> exportProject(
+            @PathVariable String projectId,
+            @RequestHeader(value = ClusterMembership.SECRET_HEADER, required = false) String secret) {
+
+        if (!membership.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!membership.isTrusted(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (!projectService.projectExists(projectId)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
+        logger.info("Handing over project {} ({})", projectId, holder.getOriginalFilename());
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(ClusterRouter.FILENAME_HEADER,
+                        URLEncoder.encode(holder.getOriginalFilename(), StandardCharsets.UTF_8))
+                .header(ClusterRouter.UPLOADED_AT_HEADER, holder.getUploadedAt().toString());
+        if (holder.getContentHash() != null) {
+            response.header(ClusterRouter.CONTENT_HASH_HEADER, holder.getContentHash());
+        }
+        return response.body(out -> projectService.exportProject(projectId, out));
+    }
+
+    /**
+     * Drop this node's copy of a project once its new owner has taken it over
+     *
+     * DELETE /internal/cluster/projects/{projectId}
+     *
+     * @param projectId Project ID
+     * @return 204 No Content
+     */
+    @DeleteMapping("/projects/{projectId}")
+    public ResponseEntity<Void> releaseProject(
+            @PathVariable String projectId,
+            @RequestHeader(value = ClusterMembership.SECRET_HEADER, required = false) String secret) {
+
+        if (!membership.isEnabled()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!membership.isTrusted(secret)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        projectService.deleteProject(projectId);
+        logger.info("Released project {} to {}", projectId, membership.ownerOf(projectId));
+
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
+import com.sciome.bmdexpressweb.service.ExpressionImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * REST Controller for expression data (DoseResponseExperiment) import
+ *
+ * Expression matrices are uploaded as tab- or comma-separated files with a
+ * sample header row followed by a dose row, matching the desktop import format.
+ */
+@RestController
+@RequestMapping("/api/projects/{projectId}/expression-data")
+public class ExpressionDataController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpressionDataController.class);
+
+    @Autowired
+    private ExpressionImportService importService;
+
+    /**
+     * Import an expression matrix into a project
+     *
+     * POST /api/projects/{projectId}/expression-data
+     * Content-Type: multipart/form-data
+     * Body: file=<.txt/.tsv/.csv file>, name=<optional experiment name>
+     *
+     * Uploads are limited by spring.servlet.multipart.max-file-size (512MB by
+     * default, enough for 100,000 probes x 200 samples).
+     *
+     * @param projectId The project ID
+     * @param file The expression matrix file
+     * @param name Optional experiment name (defaults to the file name without extension)
+     * @return Import summary
+     */
+    @PostMapping
+    public ResponseEntity<ExpressionImportResponse> importExpressionData(
+            @PathVariable String projectId,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "name", required = false) String name) throws IOException {
+
+        String experimentName = name != null && !name.isBlank() ? name : stripExtension(file.getOriginalFilename());
+        logger.info("Importing expression data {} into project {}", experimentName, projectId);
+
+        // Spool to disk so the parser can memory-map the file
+        Path tempFile = Files.createTempFile("bmd_expression_", ".txt");
+        try {
+            file.transferTo(tempFile);
+            ExpressionImportResponse response = importService.importExpressionData(projectId, tempFile, experimentName);
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Get list of expression data names in a project
+     *
+     * GET /api/projects/{projectId}/expression-data
+     *
+     * @param projectId The project ID
+     * @return List of experiment names
+     */
+    @GetMapping
+    public ResponseEntity<List<String>> getExpressionData(@PathVariable String projectId) {
+        return ResponseEntity.ok(importService.getExperimentNames(projectId));
+    }
+
+    private static String stripExtension(String filename) {
+        if (filename == null || filename.isBlank()) {
+            return "Expression Data";
+        }
+        int dot = filename.lastIndexOf('.');
+        return dot > 0 ? filename.substring(0, dot) : filename;
+    }
+}
@@ -1,8 +1,10 @@
 package com.sciome.bmdexpressweb.controller;
 
 import com.sciome.bmdexpressweb.dto.ErrorResponse;
+import com.sciome.bmdexpressweb.service.AnalysisNotAvailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -10,6 +12,9 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.support.MissingServletRequestPartException;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+
 /**
  * Global exception handler for REST API
  *
@@ -56,6 +61,68 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
 
+    /**
+     * Handle CancellationException (503 Service Unavailable)
+     * Thrown when a synchronous analysis step exceeds its configured timeout
+     */
+    @ExceptionHandler(CancellationException.class)
+    public ResponseEntity<ErrorResponse> handleCancellationException(
+            CancellationException ex, WebRequest request) {
+
+        logger.warn("Analysis stopped: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                ex.getMessage(),
+                request.getDescription(false).replace("uri=", "")
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
+    }
+
+    /**
+     * Handle RejectedExecutionException (503 Service Unavailable)
+     * Thrown when the project loader pool and its queue are full
+     */
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<ErrorResponse> handleRejectedExecutionException(
+            RejectedExecutionException ex, WebRequest request) {
+
+        logger.warn("Request rejected, too much work in progress: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.SERVICE_UNAVAILABLE.value(),
+                "Service Unavailable",
+                "Too many project loads in progress",
+                request.getDescription(false).replace("uri=", "")
+        );
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(error);
+    }
+
+    /**
+     * Handle AnalysisNotAvailableException (501 Not Implemented)
+     * Thrown when a request needs an analysis this server cannot run
+     */
+    @ExceptionHandler(AnalysisNotAvailableException.class)
+    public ResponseEntity<ErrorResponse> handleAnalysisNotAvailableException(
+            AnalysisNotAvailableException ex, WebRequest request) {
+
+        logger.warn("Not implemented: {}", ex.getMessage());
+
+        ErrorResponse error = new ErrorResponse(
+                HttpStatus.NOT_IMPLEMENTED.value(),
+                "Not Implemented",
+                ex.getMessage(),
+                request.getDescription(false).replace("uri=", "")
+        );
+
+        return ResponseEntity.status(HttpStatus.NOT_IMPLEMENTED).body(error);
+    }
+
     /**
      * Handle RuntimeException (500 Internal Server Error)
      * Generic runtime errors that occur during request processing
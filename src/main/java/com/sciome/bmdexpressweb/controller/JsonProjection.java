@@ -0,0 +1,302 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A selection of fields of a JSON document, so that only the selected
+ * subtrees are serialized (and their getters called).
+ *
+ * The syntax follows partial responses of Google APIs: a comma-separated list
+ * of fields, where "a/b" selects field b of a, and "a(b,c)" selects b and c of
+ * a. A selected field without sub-selection is written whole. Selections apply
+ * to every element of arrays and to the values of maps (by key). Field names
+ * are the JSON property names; names not present in the document are ignored.
+ *
+ * For example, "name,doseResponseExperiments/name,bMDResult(name,bmdMethod)"
+ * selects the project name, the experiment names and two fields of each BMD
+ * result.
+ *
+ * Projections are compiled once per distinct string and shared. Bean
+ * properties are found through the ObjectMapper's own serializers, so names,
+ * ignored properties and null handling match an unprojected response.
+ */
+public final class JsonProjection {
+
+    private static final int MAX_LENGTH = 2048;
+
+    private static final Cache<String, JsonProjection> COMPILED = CacheBuilder.newBuilder()
+            .maximumSize(256)
+            .build();
+
+    // Selected fields by name; empty for a value written whole
+    private final Map<String, JsonProjection> fields;
+
+    private JsonProjection(Map<String, JsonProjection> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * The compiled projection of a fields parameter
+     *
+     * @param fields the selection, e.g. "name,bMDResult(name)"
+     * @return the projection, or null if fields is null or blank (everything)
+     * @throws IllegalArgumentException if the selection is malformed
+     */
+    public static JsonProjection compile(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        JsonProjection projection = COMPILED.getIfPresent(fields);
+        if (projection == null) {
+            projection = new Parser(fields).parse();
+            COMPILED.put(fields, projection);
+        }
+        return projection;
+    }
+
+    /**
+     * Write a value with only the selected fields
+     *
+     * @param generator the generator to write to
+     * @param value the root value
+     * @param provider serializer provider of the application's ObjectMapper
+     */
+    public void write(JsonGenerator generator, Object value, SerializerProvider provider) throws IOException {
+        if (fields.isEmpty() || value == null) {
+            provider.defaultSerializeValue(value, generator);
+        } else if (value instanceof Collection<?> elements) {
+            generator.writeStartArray();
+            for (Object element : elements) {
+                write(generator, element, provider);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Object[] elements) {
+            generator.writeStartArray();
+            for (Object element : elements) {
+                write(generator, element, provider);
+            }
+            generator.writeEndArray();
+        } else if (value instanceof Map<?, ?> map) {
+            generator.writeStartObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                JsonProjection field = fields.get(name);
+                if (field != null) {
+                    generator.writeFieldName(name);
+                    field.write(generator, entry.getValue(), provider);
+                }
+            }
+            generator.writeEndObject();
+        } else {
+            JsonSerializer<Object> serializer = provider.findValueSerializer(value.getClass());
+            if (serializer instanceof BeanSerializerBase bean) {
+                writeBean(generator, value, bean, provider);
+            } else {
+                // A scalar or a type without properties: nothing to select from
+                serializer.serialize(value, generator, provider);
+            }
+        }
+    }
+
+    private void writeBean(JsonGenerator generator, Object bean, BeanSerializerBase serializer,
+                           SerializerProvider provider) throws IOException {
+        generator.writeStartObject(bean);
+        for (Iterator<PropertyWriter> properties = serializer.properties(); properties.hasNext(); ) {
+            PropertyWriter property = properties.next();
+            JsonProjection field = fields.get(property.getName());
+            if (field == null) {
+                continue;
+            }
+            if (field.fields.isEmpty() || !(property instanceof BeanPropertyWriter writer)) {
+                try {
+                    property.serializeAsField(bean, generator, provider);
+                } catch (IOException | RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw JsonMappingException.from(generator, "Failed to write " + property.getName(), e);
+                }
+                continue;
+            }
+
+            Object value;
+            try {
+                value = writer.get(bean);
+            } catch (Exception e) {
+                throw JsonMappingException.from(generator, "Failed to read " + property.getName(), e);
+            }
+            if (value == null) {
+                if (!writer.willSuppressNulls()) {
+                    generator.writeNullField(property.getName());
+                }
+                continue;
+            }
+            generator.writeFieldName(property.getName());
+            field.write(generator, value, provider);
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Canonical form of the selection: fields sorted, paths merged. Equal for
+     * projections that select the same fields, so it can name a cached response.
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        appendFields(text);
+        return text.toString();
+    }
+
+    private void appendFields(StringBuilder text) {
+        boolean first = true;
+        for (Map.Entry<String, JsonProjection> field : fields.entrySet()) {
+            if (!first) {
+                text.append(',');
+            }
+            first = false;
+            text.append(field.getKey());
+            if (!field.getValue().fields.isEmpty()) {
+                text.append('(');
+                field.getValue().appendFields(text);
+                text.append(')');
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof JsonProjection other && fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return fields.hashCode();
+    }
+
+    /**
+     * Recursive descent parser of the fields syntax:
+     * fields = selection ("," selection)*
+     * selection = name ("/" selection | "(" fields ")")?
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        Parser(String text) {
+            if (text.length() > MAX_LENGTH) {
+                throw new IllegalArgumentException("Fields projection longer than " + MAX_LENGTH + " characters");
+            }
+            this.text = text;
+        }
+
+        JsonProjection parse() {
+            Node root = new Node();
+            parseFields(root);
+            if (position < text.length()) {
+                throw error("unexpected '" + text.charAt(position) + "'");
+            }
+            return root.compile();
+        }
+
+        private void parseFields(Node parent) {
+            do {
+                parseSelection(parent);
+            } while (accept(','));
+        }
+
+        private void parseSelection(Node parent) {
+            Node selection = new Node();
+            String name = parseName();
+            if (accept('/')) {
+                parseSelection(selection);
+            } else if (accept('(')) {
+                parseFields(selection);
+                if (!accept(')')) {
+                    throw error("expected ')'");
+                }
+            }
+            parent.merge(name, selection);
+        }
+
+        private String parseName() {
+            skipSpaces();
+            int start = position;
+            while (position < text.length() && isNameChar(text.charAt(position))) {
+                position++;
+            }
+            if (position == start) {
+                throw error("expected a field name");
+            }
+            String name = text.substring(start, position);
+            skipSpaces();
+            return name;
+        }
+
+        private boolean accept(char c) {
+            skipSpaces();
+            if (position < text.length() && text.charAt(position) == c) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (position < text.length() && text.charAt(position) == ' ') {
+                position++;
+            }
+        }
+
+        private static boolean isNameChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '-' || c == '.';
+        }
+
+        private IllegalArgumentException error(String problem) {
+            return new IllegalArgumentException("Invalid fields projection at position " + position + ": " + problem);
+        }
+    }
+
+    /**
+     * A selection while it is parsed; no children means the value is selected whole
+     */
+    private static final class Node {
+        private final TreeMap<String, Node> children = new TreeMap<>();
+
+        /**
+         * Add a selection of a field; a field selected whole anywhere stays whole
+         */
+        void merge(String name, Node selection) {
+            Node existing = children.get(name);
+            if (existing == null) {
+                children.put(name, selection);
+            } else if (!existing.children.isEmpty()) {
+                if (selection.children.isEmpty()) {
+                    children.put(name, selection);
+                } else {
+                    selection.children.forEach(existing::merge);
+                }
+            }
+        }
+
+        JsonProjection compile() {
+            Map<String, JsonProjection> fields = new TreeMap<>();
+            children.forEach((name, child) -> fields.put(name, child.compile()));
+            return new JsonProjection(Collections.unmodifiableMap(fields));
+        }
+    }
+}
@@ -1,36 +1,70 @@
 package com.sciome.bmdexpressweb.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.analysis.ResultRows;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
 import com.sciome.bmdexpressweb.dto.ErrorResponse;
+import com.sciome.bmdexpressweb.dto.ProjectLoadResponse;
 import com.sciome.bmdexpressweb.dto.ProjectUploadResponse;
 import com.sciome.bmdexpressweb.service.BmdResultsService;
 import com.sciome.bmdexpressweb.service.CategoryResultsService;
+import com.sciome.bmdexpressweb.service.ColumnarTableCodec;
+import com.sciome.bmdexpressweb.service.DelimitedTableWriter;
+import com.sciome.bmdexpressweb.service.GeneLevelService;
 import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
 import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 /**
  * REST Controller for BMDExpress project management
  *
  * Provides endpoints for uploading, loading, and managing .bm2 project files.
+ *
+ * Uploads and server-side loads answer 201 Created once the project is loaded.
+ * The project is deserialized on ProjectService's loader pool and the request
+ * is completed asynchronously, so no servlet thread waits for it. Clients that
+ * send "Prefer: respond-async" get 202 Accepted at once instead, with the
+ * load's status URL in the Location header (GET /api/projects/loads/{loadId}).
+ *
+ * Large results (BMD results, category results, full projects) are streamed
+ * with StreamingJson: rows are written as they are produced instead of being
+ * collected and serialized in one piece. The full project can be narrowed to
+ * selected fields with a JsonProjection (?fields=...), so clients that only
+ * need names or summaries do not pay for every probe response.
+ *
+ * Result tables (BMD results, category results, gene-level summaries) are also
+ * available in the columnar binary format of ColumnarTableCodec to clients
+ * whose Accept header prefers it; JSON stays the default.
+ *
+ * These results never change while the project's content hash stays the same,
+ * so they carry strong ETags and are served through the ResponseCache (see
+ * CachedResponses): repeat requests get 304 Not Modified or the stored bytes.
  */
 @RestController
 @RequestMapping("/api/projects")
@@ -38,6 +72,10 @@ public class ProjectController {
 
     private static final Logger logger = LoggerFactory.getLogger(ProjectController.class);
 
+    // Representations of a result, for its ETag
+    private static final String JSON = "json";
+    private static final String COLUMNAR = "columnar";
+
     @Value("${bmdexpress.projects.dir:data/projects}")
     private String projectFilesDir;
 
@@ -50,55 +88,75 @@ public class ProjectController {
     @Autowired
     private CategoryResultsService categoryResultsService;
 
+    @Autowired
+    private GeneLevelService geneLevelService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ResponseCache responseCache;
+
     /**
      * Upload a .bm2 project file
      *
      * POST /api/projects
      * Content-Type: multipart/form-data
      * Body: file=<.bm2 file>
+     * Prefer: respond-async (optional)
+     *
+     * The request thread is released while the project is deserialized on the
+     * loader pool; the 201 response is written once the load has finished.
      *
      * @param file The .bm2 file
-     * @return Project upload response with project ID
+     * @param prefer Prefer header; "respond-async" returns 202 with a load status instead
+     * @return Project upload response with project ID, or load status if asynchronous
      */
     @PostMapping
-    public ResponseEntity<ProjectUploadResponse> uploadProject(
-            @RequestParam("file") MultipartFile file) throws Exception {
-
-        try {
-            logger.info("Uploading project file: {}", file.getOriginalFilename());
-
-            String projectId = projectService.loadProject(
-                    file.getInputStream(),
-                    file.getOriginalFilename());
-
-            ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
-            BMDProject project = holder.getProject();
+    public CompletableFuture<ResponseEntity<?>> uploadProject(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "Prefer", required = false) String prefer) throws IOException {
 
-            List<String> bmdResultNames = project.getbMDResult().stream()
-                    .map(r -> r.getName())
-                    .collect(Collectors.toList());
-
-            List<String> categoryResultNames = project.getCategoryAnalysisResults().stream()
-                    .map(r -> r.getName())
-                    .collect(Collectors.toList());
+        String filename = file.getOriginalFilename();
 
-            ProjectUploadResponse response = new ProjectUploadResponse(
-                    projectId,
-                    project.getName(),
-                    holder.getUploadedAt(),
-                    bmdResultNames,
-                    categoryResultNames,
-                    project.getDoseResponseExperiments().size()
-            );
-
-            logger.info("Project uploaded successfully: {} (ID: {})", file.getOriginalFilename(), projectId);
+        // The multipart content only lives as long as the request, so load from a copy
+        Path upload = Files.createTempFile("bm2-upload-", ".bm2");
+        CompletableFuture<String> load;
+        try {
+            file.transferTo(upload);
+            if (respondAsync(prefer)) {
+                logger.info("Uploading project file for asynchronous load: {}", filename);
+                return CompletableFuture.completedFuture(accepted(projectService.submitLoad(upload, filename, true)));
+            }
+            logger.info("Uploading project file: {}", filename);
+            load = projectService.loadProjectAsync(upload, filename, true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(upload);
+            throw e;
+        }
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        return load.handle((projectId, error) -> {
+            if (error != null) {
+                Throwable cause = unwrap(error);
+                logger.error("Failed to upload project", cause);
+                throw new RuntimeException("Failed to upload project: " + cause.getMessage(), cause);
+            }
+            logger.info("Project uploaded successfully: {} (ID: {})", filename, projectId);
+            return created(projectId);
+        });
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to upload project", e);
-            throw new RuntimeException("Failed to upload project: " + e.getMessage(), e);
-        }
+    /**
+     * Get the status of an asynchronous project load
+     *
+     * GET /api/projects/loads/{loadId}
+     *
+     * @param loadId The load ID
+     * @return Load status; includes the project ID and location once completed
+     */
+    @GetMapping("/loads/{loadId}")
+    public ResponseEntity<ProjectLoadResponse> getLoad(@PathVariable String loadId) {
+        return ResponseEntity.ok(projectService.getLoad(loadId));
     }
 
     /**
@@ -155,31 +213,110 @@ public class ProjectController {
      *
      * @param projectId The project ID
      * @param resultName The BMD result name
-     * @return The BMD result
+     * @param accept Accept header; the columnar media type gets the column header and probe rows only
+     * @param headers Request headers, for conditional requests and compression
+     * @return The BMD result, streamed or from the response cache
      */
     @GetMapping("/{projectId}/bmd-results/{resultName}")
-    public ResponseEntity<?> getBmdResult(
+    public ResponseEntity<StreamingResponseBody> getBmdResult(
             @PathVariable String projectId,
-            @PathVariable String resultName) {
+            @PathVariable String resultName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader HttpHeaders headers) {
 
+        BMDResult bmdResult;
+        String etag;
+        boolean columnar = ColumnarTableCodec.isRequested(accept);
         try {
-            BMDResult bmdResult = bmdResultsService.findBmdResult(projectId, resultName);
+            bmdResult = bmdResultsService.findBmdResult(projectId, resultName);
+            etag = ResponseCache.etag(projectService.getContentHash(projectId), "bmd-results/" + resultName,
+                    columnar ? COLUMNAR : JSON);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
 
-            // Ensure row data and column headers are generated for JSON serialization
-            try {
-                bmdResult.getColumnHeader(); // This populates the transient columnHeader field
-                bmdResult.generateRowData(); // This populates the row data
-            } catch (NullPointerException e) {
-                // Some BMDResult objects may not have complete data for row generation
-                // This is okay - we'll just return the object as-is
-                logger.debug("Unable to generate row data for BMDResult: {}", resultName);
+        return CachedResponses.stream(responseCache, etag, headers,
+                () -> columnar ? bmdResultTable(bmdResult) : bmdResultJson(bmdResult));
+    }
+
+    private ResponseEntity<StreamingResponseBody> bmdResultTable(BMDResult bmdResult) {
+        return columnar(out -> {
+            ResultRows rows = ResultRows.of(bmdResult);
+            ColumnarTableCodec.write(bmdResult.getName(), rows.getColumnHeader(), rows.getRows(), out);
+        });
+    }
+
+    private ResponseEntity<StreamingResponseBody> bmdResultJson(BMDResult bmdResult) {
+        return varyOnAccept(StreamingJson.ok(objectMapper, generator -> {
+            // The snapshot populates the transient column header and row data fields
+            // serialized with the result, once per result rather than per request
+            ResultRows.of(bmdResult);
+            objectMapper.writeValue(generator, bmdResult);
+        }));
+    }
+
+    /**
+     * Get gene-level BMD summaries of a BMD result: one row per gene with its
+     * probe count and BMD/BMDL/BMDU medians and minima. Cached per result.
+     *
+     * GET /api/projects/{projectId}/bmd-results/{resultName}/gene-level
+     *
+     * @param projectId The project ID
+     * @param resultName The BMD result name
+     * @param accept Accept header; may select the columnar media type
+     * @return Gene-level summary table
+     */
+    @GetMapping("/{projectId}/bmd-results/{resultName}/gene-level")
+    public ResponseEntity<?> getGeneLevelSummary(
+            @PathVariable String projectId,
+            @PathVariable String resultName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+
+        try {
+            BMDResult bmdResult = bmdResultsService.findBmdResult(projectId, resultName);
+            CategoryAnalysisTableView geneLevelView = geneLevelService.getGeneLevelView(bmdResult);
+            if (ColumnarTableCodec.isRequested(accept)) {
+                return ResponseEntity.ok()
+                        .contentType(ColumnarTableCodec.MEDIA_TYPE)
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .body(ColumnarTableCodec.encode(geneLevelView));
             }
+            return varyOnAccept(ResponseEntity.ok(geneLevelView));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
 
-            return ResponseEntity.ok(bmdResult);
+    /**
+     * Export a BMD result's probe table (column header and one row per probe)
+     *
+     * GET /api/projects/{projectId}/bmd-results/{resultName}/export?format=tsv|csv&gzip=true|false
+     *
+     * @param projectId The project ID
+     * @param resultName The BMD result name
+     * @param format "tsv" (default) or "csv"
+     * @param gzip Whether to download a gzip-compressed file
+     * @return The table as a streamed file attachment
+     */
+    @GetMapping("/{projectId}/bmd-results/{resultName}/export")
+    public ResponseEntity<StreamingResponseBody> exportBmdResult(
+            @PathVariable String projectId,
+            @PathVariable String resultName,
+            @RequestParam(defaultValue = "tsv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
 
+        DelimitedTableWriter.Format exportFormat = DelimitedTableWriter.Format.of(format);
+        BMDResult bmdResult;
+        try {
+            bmdResult = bmdResultsService.findBmdResult(projectId, resultName);
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
+
+        return TableExports.attachment(resultName, exportFormat, gzip, writer -> {
+            ResultRows rows = ResultRows.of(bmdResult);
+            TableExports.table(rows.getColumnHeader(), rows.getRows()).write(writer);
+        });
     }
 
     /**
@@ -199,17 +336,32 @@ public class ProjectController {
     /**
      * Get the full BMDProject object
      *
-     * GET /api/projects/{projectId}/full
+     * GET /api/projects/{projectId}/full?fields=name,doseResponseExperiments/name
      *
      * @param projectId The project ID
-     * @return The complete BMDProject object
+     * @param fields Optional projection (see JsonProjection); only the selected fields are serialized
+     * @param headers Request headers, for conditional requests and compression
+     * @return The BMDProject object or its selected fields, streamed or from the response cache
      */
     @GetMapping("/{projectId}/full")
-    public ResponseEntity<BMDProject> getFullProject(@PathVariable String projectId) {
+    public ResponseEntity<StreamingResponseBody> getFullProject(
+            @PathVariable String projectId,
+            @RequestParam(required = false) String fields,
+            @RequestHeader HttpHeaders headers) {
+
+        // Malformed projections are rejected (400) before the project is looked up
+        JsonProjection projection = JsonProjection.compile(fields);
         try {
             ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
-            BMDProject project = holder.getProject();
-            return ResponseEntity.ok(project);
+            String resource = projection == null ? "full" : "full?fields=" + projection;
+            String etag = ResponseCache.etag(holder.getContentHash(), resource, JSON);
+            if (projection == null) {
+                return CachedResponses.stream(responseCache, etag, headers,
+                        () -> StreamingJson.ok(objectMapper, holder.getProject()));
+            }
+            return CachedResponses.stream(responseCache, etag, headers,
+                    () -> StreamingJson.ok(objectMapper, generator -> projection.write(
+                            generator, holder.getProject(), objectMapper.getSerializerProviderInstance())));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
@@ -222,12 +374,16 @@ public class ProjectController {
      *
      * @param projectId The project ID
      * @param resultName The category result name
-     * @return The category analysis results
+     * @param accept Accept header; may select the columnar media type
+     * @param headers Request headers, for conditional requests and compression
+     * @return The category analysis results, streamed row by row or from the response cache
      */
     @GetMapping("/{projectId}/category-results/{resultName}")
-    public ResponseEntity<?> getCategoryResult(
+    public ResponseEntity<StreamingResponseBody> getCategoryResult(
             @PathVariable String projectId,
-            @PathVariable String resultName) {
+            @PathVariable String resultName,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader HttpHeaders headers) {
 
         try {
             ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
@@ -243,32 +399,89 @@ public class ProjectController {
                 return ResponseEntity.notFound().build();
             }
 
-            // Ensure row data and column headers are generated for JSON serialization
-            List<String> columnHeader = categoryResult.getColumnHeader(); // This populates the transient columnHeader field
-            categoryResult.generateRowData(); // This populates the row data
-
-            logger.debug("Column header size: {}", columnHeader != null ? columnHeader.size() : "null");
-            logger.debug("Column header: {}", columnHeader);
-            logger.debug("Category results size: {}", categoryResult.getCategoryAnalsyisResults() != null ? categoryResult.getCategoryAnalsyisResults().size() : "null");
-
-            // Convert to table view with explicit columnHeader field
-            List<Map<String, Object>> rowData = new java.util.ArrayList<>();
-            if (categoryResult.getCategoryAnalsyisResults() != null) {
-                for (var result : categoryResult.getCategoryAnalsyisResults()) {
-                    Map<String, Object> rowMap = new java.util.HashMap<>();
-                    rowMap.put("row", result.getRow()); // CategoryAnalysisResult has getRow() method
-                    rowData.add(rowMap);
+            boolean columnar = ColumnarTableCodec.isRequested(accept);
+            String etag = ResponseCache.etag(holder.getContentHash(), "category-results/" + resultName,
+                    columnar ? COLUMNAR : JSON);
+            return CachedResponses.stream(responseCache, etag, headers,
+                    () -> columnar ? categoryResultTable(categoryResult) : categoryResultJson(categoryResult));
+
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private ResponseEntity<StreamingResponseBody> categoryResultTable(CategoryAnalysisResults categoryResult) {
+        return columnar(out -> {
+            ResultRows rows = ResultRows.of(categoryResult);
+            ColumnarTableCodec.write(categoryResult.getName(), rows.getColumnHeader(), rows.getRows(), out);
+        });
+    }
+
+    // Same document as a CategoryAnalysisTableView, written one row at a time
+    private ResponseEntity<StreamingResponseBody> categoryResultJson(CategoryAnalysisResults categoryResult) {
+        return varyOnAccept(StreamingJson.ok(objectMapper, generator -> {
+            ResultRows rows = ResultRows.of(categoryResult);
+            logger.debug("Column header size: {}, rows: {}",
+                    rows.getColumnHeader() != null ? rows.getColumnHeader().size() : "null", rows.getRows().size());
+
+            generator.writeStartObject();
+            generator.writeStringField("name", categoryResult.getName());
+            generator.writeFieldName("columnHeader");
+            generator.writeObject(rows.getColumnHeader());
+            generator.writeFieldName("categoryAnalsyisResults"); // Keep typo for compatibility
+            if (categoryResult.getCategoryAnalsyisResults() == null) {
+                generator.writeNull();
+            } else {
+                generator.writeStartArray();
+                int written = 0;
+                for (List<Object> row : rows.getRows()) {
+                    generator.writeStartObject();
+                    generator.writeFieldName("row");
+                    generator.writeObject(row);
+                    generator.writeEndObject();
+                    if (++written % StreamingJson.FLUSH_ROWS == 0) {
+                        generator.flush();
+                    }
                 }
+                generator.writeEndArray();
             }
+            generator.writeEndObject();
+        }));
+    }
 
-            CategoryAnalysisTableView tableView = new CategoryAnalysisTableView(
-                categoryResult.getName(),
-                columnHeader,
-                rowData
-            );
+    /**
+     * Export a category analysis result's table
+     *
+     * GET /api/projects/{projectId}/category-results/{resultName}/export?format=tsv|csv&gzip=true|false
+     *
+     * @param projectId The project ID
+     * @param resultName The category result name
+     * @param format "tsv" (default) or "csv"
+     * @param gzip Whether to download a gzip-compressed file
+     * @return The table as a streamed file attachment
+     */
+    @GetMapping("/{projectId}/category-results/{resultName}/export")
+    public ResponseEntity<StreamingResponseBody> exportCategoryResult(
+            @PathVariable String projectId,
+            @PathVariable String resultName,
+            @RequestParam(defaultValue = "tsv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
 
-            return ResponseEntity.ok(tableView);
+        DelimitedTableWriter.Format exportFormat = DelimitedTableWriter.Format.of(format);
+        try {
+            CategoryAnalysisResults categoryResult = projectService.getProjectHolder(projectId).getProject()
+                    .getCategoryAnalysisResults().stream()
+                    .filter(r -> r.getName().equals(resultName))
+                    .findFirst()
+                    .orElse(null);
+            if (categoryResult == null) {
+                return ResponseEntity.notFound().build();
+            }
 
+            return TableExports.attachment(resultName, exportFormat, gzip, writer -> {
+                ResultRows rows = ResultRows.of(categoryResult);
+                TableExports.table(rows.getColumnHeader(), rows.getRows()).write(writer);
+            });
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
@@ -333,81 +546,140 @@ public class ProjectController {
      * Load a .bm2 project file from server filesystem
      *
      * POST /api/projects/load-from-file
+     * Prefer: respond-async (optional)
+     *
+     * As for uploads, the request thread is released while the project is loaded.
      *
      * @param request Map with "filename" key
-     * @return Project upload response with project ID
+     * @param prefer Prefer header; "respond-async" returns 202 with a load status instead
+     * @return Project upload response with project ID, or load status if asynchronous
      */
     @PostMapping("/load-from-file")
-    public ResponseEntity<?> loadProjectFromFile(@RequestBody Map<String, String> request) {
+    public CompletableFuture<ResponseEntity<?>> loadProjectFromFile(
+            @RequestBody Map<String, String> request,
+            @RequestHeader(value = "Prefer", required = false) String prefer) {
+
+        String filename = request.get("filename");
+        if (filename == null || filename.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(new ErrorResponse(400, "Bad Request", "No filename provided", "/api/projects/load-from-file")));
+        }
 
-        try {
-            String filename = request.get("filename");
-            if (filename == null || filename.isEmpty()) {
-                return ResponseEntity.badRequest()
-                    .body(new ErrorResponse(400, "Bad Request", "No filename provided", "/api/projects/load-from-file"));
-            }
+        // Security: prevent directory traversal
+        if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse(403, "Forbidden", "Invalid filename", "/api/projects/load-from-file")));
+        }
 
-            // Security: prevent directory traversal
-            if (filename.contains("..") || filename.contains("/") || filename.contains("\\")) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ErrorResponse(403, "Forbidden", "Invalid filename", "/api/projects/load-from-file"));
-            }
+        String filepath = projectFilesDir + "/" + filename;
+        File file = new File(filepath);
 
-            String filepath = projectFilesDir + "/" + filename;
-            File file = new File(filepath);
+        if (!file.exists()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(new ErrorResponse("File not found: " + filename)));
+        }
+
+        if (!file.canRead()) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                .body(new ErrorResponse("Cannot read file: " + filename)));
+        }
 
-            if (!file.exists()) {
-                return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ErrorResponse("File not found: " + filename));
+        CompletableFuture<String> load;
+        try {
+            if (respondAsync(prefer)) {
+                logger.info("Submitting project load from file: {}", filepath);
+                return CompletableFuture.completedFuture(accepted(projectService.submitLoad(file.toPath(), file.getName(), false)));
             }
+            logger.info("Loading project from file: {}", filepath);
+            load = projectService.loadProjectAsync(file.toPath(), file.getName(), false);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(loadRejected(e));
+        }
 
-            if (!file.canRead()) {
-                return ResponseEntity.status(HttpStatus.FORBIDDEN)
-                    .body(new ErrorResponse("Cannot read file: " + filename));
+        return load.handle((projectId, error) -> {
+            if (error == null) {
+                logger.info("Project loaded successfully: {} (ID: {})", filename, projectId);
+                return created(projectId);
+            }
+            Throwable cause = unwrap(error);
+            if (cause instanceof IOException) {
+                logger.error("Failed to load project from file", cause);
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                        .body(new ErrorResponse("Failed to read file: " + cause.getMessage()));
+            }
+            if (cause instanceof ClassNotFoundException) {
+                logger.error("Failed to deserialize project", cause);
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body(new ErrorResponse("Invalid project file format"));
             }
+            logger.error("Unexpected error loading project", cause);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ErrorResponse("Failed to load project: " + cause.getMessage()));
+        });
+    }
 
-            logger.info("Loading project from file: {}", filepath);
+    // 201 Created with the summary of a newly loaded project
+    private ResponseEntity<?> created(String projectId) {
+        ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
+        BMDProject project = holder.getProject();
 
-            String projectId = projectService.loadProject(
-                    new FileInputStream(file),
-                    file.getName());
+        List<String> bmdResultNames = project.getbMDResult().stream()
+                .map(r -> r.getName())
+                .collect(Collectors.toList());
 
-            ProjectService.ProjectHolder holder = projectService.getProjectHolder(projectId);
-            BMDProject project = holder.getProject();
+        List<String> categoryResultNames = project.getCategoryAnalysisResults().stream()
+                .map(r -> r.getName())
+                .collect(Collectors.toList());
 
-            List<String> bmdResultNames = project.getbMDResult().stream()
-                    .map(r -> r.getName())
-                    .collect(Collectors.toList());
+        ProjectUploadResponse response = new ProjectUploadResponse(
+                projectId,
+                project.getName(),
+                holder.getUploadedAt(),
+                bmdResultNames,
+                categoryResultNames,
+                project.getDoseResponseExperiments().size()
+        );
 
-            List<String> categoryResultNames = project.getCategoryAnalysisResults().stream()
-                    .map(r -> r.getName())
-                    .collect(Collectors.toList());
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
 
-            ProjectUploadResponse response = new ProjectUploadResponse(
-                    projectId,
-                    project.getName(),
-                    holder.getUploadedAt(),
-                    bmdResultNames,
-                    categoryResultNames,
-                    project.getDoseResponseExperiments().size()
-            );
+    private static ResponseEntity<?> loadRejected(RejectedExecutionException e) {
+        logger.warn("Project load rejected: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "30")
+                .body(new ErrorResponse(503, "Service Unavailable", "Too many project loads in progress",
+                        "/api/projects/load-from-file"));
+    }
 
-            logger.info("Project loaded successfully: {} (ID: {})", filename, projectId);
+    // The failure of a load, without the CompletionException of a dependent stage
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
 
-            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    private static boolean respondAsync(String prefer) {
+        return prefer != null && prefer.toLowerCase(Locale.ROOT).contains("respond-async");
+    }
 
-        } catch (IOException e) {
-            logger.error("Failed to load project from file", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ErrorResponse("Failed to read file: " + e.getMessage()));
-        } catch (ClassNotFoundException e) {
-            logger.error("Failed to deserialize project", e);
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
-                    .body(new ErrorResponse("Invalid project file format"));
-        } catch (Exception e) {
-            logger.error("Unexpected error loading project", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                    .body(new ErrorResponse("Failed to load project: " + e.getMessage()));
-        }
+    // 200 OK with a result table in the columnar binary format
+    private static ResponseEntity<StreamingResponseBody> columnar(StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .contentType(ColumnarTableCodec.MEDIA_TYPE)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    // The JSON form of a response that is columnar for some clients, so caches keep them apart
+    private static <T> ResponseEntity<T> varyOnAccept(ResponseEntity<T> response) {
+        return ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                .body(response.getBody());
+    }
+
+    private static ResponseEntity<ProjectLoadResponse> accepted(ProjectLoadResponse load) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/projects/loads/" + load.getLoadId()))
+                .header("Preference-Applied", "respond-async")
+                .body(load);
     }
 }
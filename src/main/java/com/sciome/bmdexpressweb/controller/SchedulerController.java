@@ -0,0 +1,30 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.dto.SchedulerStatsResponse;
+import com.sciome.bmdexpressweb.service.AnalysisScheduler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST Controller for analysis scheduler monitoring
+ */
+@RestController
+@RequestMapping("/api/scheduler")
+public class SchedulerController {
+
+    @Autowired
+    private AnalysisScheduler scheduler;
+
+    /**
+     * Get analysis scheduler statistics
+     *
+     * GET /api/scheduler/stats
+     *
+     * @return Queue depth per priority class, running tasks per type and queue wait time percentiles
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<SchedulerStatsResponse> getStats() {
+        return ResponseEntity.ok(scheduler.getStats());
+    }
+}
@@ -0,0 +1,75 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+
+/**
+ * JSON responses written while they are produced.
+ *
+ * The body is written by a StreamingResponseBody on the MVC async executor,
+ * through a JsonGenerator of the application's ObjectMapper (same modules and
+ * settings as regular responses). The status and headers are sent before the
+ * first value is computed, and the generator only holds its own small buffer,
+ * so time to first byte and memory per request do not grow with the result.
+ *
+ * Once the body has started, an error cannot change the status any more: it
+ * is logged and the response ends early, so clients see truncated JSON.
+ */
+public final class StreamingJson {
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamingJson.class);
+
+    // Rows written between explicit flushes to the client
+    public static final int FLUSH_ROWS = 500;
+
+    /**
+     * Writes a response body to a generator
+     */
+    @FunctionalInterface
+    public interface Writer {
+        void write(JsonGenerator generator) throws IOException;
+    }
+
+    private StreamingJson() {
+    }
+
+    /**
+     * 200 OK with a streamed JSON body
+     */
+    public static ResponseEntity<StreamingResponseBody> ok(ObjectMapper objectMapper, Writer writer) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body(objectMapper, writer));
+    }
+
+    /**
+     * 200 OK with an object serialized straight to the response
+     */
+    public static ResponseEntity<StreamingResponseBody> ok(ObjectMapper objectMapper, Object value) {
+        return ok(objectMapper, generator -> objectMapper.writeValue(generator, value));
+    }
+
+    public static StreamingResponseBody body(ObjectMapper objectMapper, Writer writer) {
+        return out -> {
+            // Commit status and headers before any of the body is produced
+            out.flush();
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                // The servlet container closes the response stream, and a body cut
+                // short by an error must not be completed into valid JSON
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+                writer.write(generator);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Streamed JSON response ended early", e);
+                throw e;
+            }
+        };
+    }
+}
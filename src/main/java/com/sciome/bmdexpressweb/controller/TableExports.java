@@ -0,0 +1,105 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.service.DelimitedTableWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Result tables as TSV or CSV file downloads, optionally gzip-compressed
+ * (a .tsv.gz or .csv.gz file, not a Content-Encoding).
+ *
+ * Rows are encoded by a DelimitedTableWriter on the MVC async executor and
+ * reach the client as its buffer fills, so exports of any length take a
+ * fixed amount of memory beyond the result itself.
+ */
+public final class TableExports {
+
+    private static final Logger logger = LoggerFactory.getLogger(TableExports.class);
+
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Writes the rows of a table, header first
+     */
+    @FunctionalInterface
+    public interface Rows {
+        void write(DelimitedTableWriter writer) throws IOException;
+    }
+
+    private TableExports() {
+    }
+
+    /**
+     * 200 OK with a table as a file attachment
+     *
+     * @param name file name without extension
+     * @param format TSV or CSV
+     * @param gzip whether to compress the file
+     * @param rows writes the table
+     */
+    public static ResponseEntity<StreamingResponseBody> attachment(String name, DelimitedTableWriter.Format format,
+                                                                   boolean gzip, Rows rows) {
+        String filename = safeFilename(name) + "." + format.getExtension() + (gzip ? ".gz" : "");
+        MediaType contentType = gzip
+                ? APPLICATION_GZIP
+                : new MediaType(MediaType.parseMediaType(format.getContentType()), StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString())
+                .body(out -> {
+                    try {
+                        if (gzip) {
+                            GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+                            write(compressed, format, rows);
+                            // Trailer only; the servlet container closes the response stream
+                            compressed.finish();
+                        } else {
+                            write(out, format, rows);
+                        }
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Export of {} ended early", filename, e);
+                        throw e;
+                    }
+                });
+    }
+
+    /**
+     * Rows of a table held in memory
+     *
+     * @param columnHeader column names, or null for no header line
+     * @param rows the rows
+     */
+    public static Rows table(List<String> columnHeader, List<? extends List<?>> rows) {
+        return writer -> {
+            if (columnHeader != null) {
+                writer.writeRow(columnHeader);
+            }
+            for (List<?> row : rows) {
+                writer.writeRow(row);
+            }
+        };
+    }
+
+    private static void write(OutputStream out, DelimitedTableWriter.Format format, Rows rows) throws IOException {
+        DelimitedTableWriter writer = new DelimitedTableWriter(out, format);
+        rows.write(writer);
+        writer.flush();
+    }
+
+    private static String safeFilename(String name) {
+        return name == null || name.isBlank() ? "export" : name.replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_");
+    }
+}
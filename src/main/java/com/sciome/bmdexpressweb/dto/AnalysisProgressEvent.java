@@ -0,0 +1,96 @@
+package com.sciome.bmdexpressweb.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for analysis job progress events pushed over server-sent events
+ */
+public class AnalysisProgressEvent {
+    private String analysisId;
+    private String status;
+    private String stage;
+    private double progress;
+    private String resultLocation;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    private String errorMessage;
+
+    // Constructors
+    public AnalysisProgressEvent() {
+    }
+
+    public AnalysisProgressEvent(String analysisId, String status, String stage, double progress) {
+        this.analysisId = analysisId;
+        this.status = status;
+        this.stage = stage;
+        this.progress = progress;
+    }
+
+    // Getters and setters
+    public String getAnalysisId() {
+        return analysisId;
+    }
+
+    public void setAnalysisId(String analysisId) {
+        this.analysisId = analysisId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * Percentage done, from 0 to 100
+     */
+    public double getProgress() {
+        return progress;
+    }
+
+    public void setProgress(double progress) {
+        this.progress = progress;
+    }
+
+    public String getResultLocation() {
+        return resultLocation;
+    }
+
+    public void setResultLocation(String resultLocation) {
+        this.resultLocation = resultLocation;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(LocalDateTime submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
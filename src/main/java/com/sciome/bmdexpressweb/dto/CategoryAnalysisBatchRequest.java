@@ -0,0 +1,97 @@
+package com.sciome.bmdexpressweb.dto;
+
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for a batch (parameter sweep) category analysis request
+ *
+ * All variants run against the same BMD result with the same analysis type
+ * and differ only in their parameters.
+ */
+public class CategoryAnalysisBatchRequest {
+    private String projectId;
+    private String bmdResultName;
+    private CategoryAnalysisEnum analysisType;
+    private List<Variant> variants = new ArrayList<>();
+
+    // Constructors
+    public CategoryAnalysisBatchRequest() {
+    }
+
+    public CategoryAnalysisBatchRequest(String projectId, String bmdResultName,
+                                        CategoryAnalysisEnum analysisType, List<Variant> variants) {
+        this.projectId = projectId;
+        this.bmdResultName = bmdResultName;
+        this.analysisType = analysisType;
+        this.variants = variants;
+    }
+
+    // Getters and setters
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getBmdResultName() {
+        return bmdResultName;
+    }
+
+    public void setBmdResultName(String bmdResultName) {
+        this.bmdResultName = bmdResultName;
+    }
+
+    public CategoryAnalysisEnum getAnalysisType() {
+        return analysisType;
+    }
+
+    public void setAnalysisType(CategoryAnalysisEnum analysisType) {
+        this.analysisType = analysisType;
+    }
+
+    public List<Variant> getVariants() {
+        return variants;
+    }
+
+    public void setVariants(List<Variant> variants) {
+        this.variants = variants;
+    }
+
+    /**
+     * One parameter set of the sweep
+     */
+    public static class Variant {
+        private String name;
+        private CategoryAnalysisParametersDto parameters;
+
+        public Variant() {
+        }
+
+        public Variant(String name, CategoryAnalysisParametersDto parameters) {
+            this.name = name;
+            this.parameters = parameters;
+        }
+
+        // Getters and setters
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public CategoryAnalysisParametersDto getParameters() {
+            return parameters;
+        }
+
+        public void setParameters(CategoryAnalysisParametersDto parameters) {
+            this.parameters = parameters;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sciome.bmdexpressweb.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO for batch category analysis response
+ *
+ * Contains one CategoryAnalysisResponse per variant, in request order. Each
+ * variant's results are retrieved individually via its resultLocation.
+ */
+public class CategoryAnalysisBatchResponse {
+    private String batchId;
+    private String projectId;
+    private String status;
+    private List<CategoryAnalysisResponse> analyses = new ArrayList<>();
+
+    // Constructors
+    public CategoryAnalysisBatchResponse() {
+    }
+
+    public CategoryAnalysisBatchResponse(String batchId, String projectId, String status,
+                                         List<CategoryAnalysisResponse> analyses) {
+        this.batchId = batchId;
+        this.projectId = projectId;
+        this.status = status;
+        this.analyses = analyses;
+    }
+
+    // Getters and setters
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public List<CategoryAnalysisResponse> getAnalyses() {
+        return analyses;
+    }
+
+    public void setAnalyses(List<CategoryAnalysisResponse> analyses) {
+        this.analyses = analyses;
+    }
+}
@@ -1,10 +1,15 @@
 package com.sciome.bmdexpressweb.dto;
 
+import java.io.Serializable;
+
 /**
  * DTO for category analysis parameters
  * Maps to CategoryAnalysisParameters from core BMDExpress library
+ *
+ * Serializable so batches can be queued for worker nodes.
  */
-public class CategoryAnalysisParametersDto {
+public class CategoryAnalysisParametersDto implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     // Filtering parameters
     private Boolean removePromiscuousProbes;
@@ -38,7 +43,8 @@ public class CategoryAnalysisParametersDto {
     // Pathway-specific
     private String pathwayDB; // "REACTOME", "KEGG", etc.
 
-    // Defined category-specific
+    // Defined category-specific: names of files in the definitions directory
+    // (bmdexpress.categories.dir), not paths
     private String probeFilePath;
     private String categoryFilePath;
 
@@ -1,12 +1,17 @@
 package com.sciome.bmdexpressweb.dto;
 
+import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
 
 /**
  * DTO for category analysis results formatted for table display
+ *
+ * Serializable so finished job results can be written to the job store.
  */
-public class CategoryAnalysisTableView {
+public class CategoryAnalysisTableView implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String name;
     private List<String> columnHeader;
     private List<Map<String, Object>> categoryAnalsyisResults; // Keep typo for compatibility
@@ -0,0 +1,78 @@
+package com.sciome.bmdexpressweb.dto;
+
+/**
+ * Response DTO for expression data import operations
+ *
+ * Summarizes the DoseResponseExperiment that was parsed from an uploaded
+ * expression matrix and added to a project.
+ */
+public class ExpressionImportResponse {
+    private String projectId;
+    private String experimentName;
+    private int probeCount;
+    private int sampleCount;
+    private int doseGroupCount;
+    private long parseTimeMs;
+
+    public ExpressionImportResponse() {
+    }
+
+    public ExpressionImportResponse(String projectId, String experimentName, int probeCount,
+                                    int sampleCount, int doseGroupCount, long parseTimeMs) {
+        this.projectId = projectId;
+        this.experimentName = experimentName;
+        this.probeCount = probeCount;
+        this.sampleCount = sampleCount;
+        this.doseGroupCount = doseGroupCount;
+        this.parseTimeMs = parseTimeMs;
+    }
+
+    // Getters and Setters
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getExperimentName() {
+        return experimentName;
+    }
+
+    public void setExperimentName(String experimentName) {
+        this.experimentName = experimentName;
+    }
+
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    public void setProbeCount(int probeCount) {
+        this.probeCount = probeCount;
+    }
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(int sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public int getDoseGroupCount() {
+        return doseGroupCount;
+    }
+
+    public void setDoseGroupCount(int doseGroupCount) {
+        this.doseGroupCount = doseGroupCount;
+    }
+
+    public long getParseTimeMs() {
+        return parseTimeMs;
+    }
+
+    public void setParseTimeMs(long parseTimeMs) {
+        this.parseTimeMs = parseTimeMs;
+    }
+}
@@ -0,0 +1,66 @@
+package com.sciome.bmdexpressweb.dto;
+
+/**
+ * Response DTO for probe filter previews
+ *
+ * Number of probes of a BMD result that survive a set of category analysis
+ * filters, without running the category analysis itself.
+ */
+public class ProbeFilterResponse {
+    private String projectId;
+    private String bmdResultName;
+    private int probeCount;
+    private int passedProbeCount;
+    private long elapsedMicros;
+
+    public ProbeFilterResponse() {
+    }
+
+    public ProbeFilterResponse(String bmdResultName, int probeCount, int passedProbeCount, long elapsedMicros) {
+        this.bmdResultName = bmdResultName;
+        this.probeCount = probeCount;
+        this.passedProbeCount = passedProbeCount;
+        this.elapsedMicros = elapsedMicros;
+    }
+
+    // Getters and Setters
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getBmdResultName() {
+        return bmdResultName;
+    }
+
+    public void setBmdResultName(String bmdResultName) {
+        this.bmdResultName = bmdResultName;
+    }
+
+    public int getProbeCount() {
+        return probeCount;
+    }
+
+    public void setProbeCount(int probeCount) {
+        this.probeCount = probeCount;
+    }
+
+    public int getPassedProbeCount() {
+        return passedProbeCount;
+    }
+
+    public void setPassedProbeCount(int passedProbeCount) {
+        this.passedProbeCount = passedProbeCount;
+    }
+
+    public long getElapsedMicros() {
+        return elapsedMicros;
+    }
+
+    public void setElapsedMicros(long elapsedMicros) {
+        this.elapsedMicros = elapsedMicros;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sciome.bmdexpressweb.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO for the status of an asynchronous project load
+ *
+ * Returned with 202 Accepted when a load is submitted, and by
+ * GET /api/projects/loads/{loadId}. Once the load has completed, projectId and
+ * resultLocation identify the loaded project.
+ */
+public class ProjectLoadResponse {
+    private String loadId;
+    private String filename;
+    private String status;
+    private String projectId;
+    private String resultLocation;
+    private LocalDateTime submittedAt;
+    private LocalDateTime completedAt;
+    private String errorMessage;
+
+    // Constructors
+    public ProjectLoadResponse() {
+    }
+
+    public ProjectLoadResponse(String loadId, String filename, String status) {
+        this.loadId = loadId;
+        this.filename = filename;
+        this.status = status;
+    }
+
+    // Getters and Setters
+    public String getLoadId() {
+        return loadId;
+    }
+
+    public void setLoadId(String loadId) {
+        this.loadId = loadId;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getProjectId() {
+        return projectId;
+    }
+
+    public void setProjectId(String projectId) {
+        this.projectId = projectId;
+    }
+
+    public String getResultLocation() {
+        return resultLocation;
+    }
+
+    public void setResultLocation(String resultLocation) {
+        this.resultLocation = resultLocation;
+    }
+
+    public LocalDateTime getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public void setSubmittedAt(LocalDateTime submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+
+    public void setCompletedAt(LocalDateTime completedAt) {
+        this.completedAt = completedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,157 @@
+package com.sciome.bmdexpressweb.dto;
+
+import java.util.Map;
+
+/**
+ * Response DTO for analysis scheduler statistics
+ *
+ * Queue depths per priority class, running tasks per task type and queue wait
+ * time percentiles over the most recent dispatches of each priority class.
+ */
+public class SchedulerStatsResponse {
+    private int workerThreads;
+    private int runningTasks;
+    private long completedTasks;
+    private int queuedOwners;
+    private Map<String, Integer> queueDepth;
+    private Map<String, Integer> runningByType;
+    private Map<String, WaitTimePercentiles> waitTimes;
+
+    public SchedulerStatsResponse() {
+    }
+
+    // Getters and Setters
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public void setWorkerThreads(int workerThreads) {
+        this.workerThreads = workerThreads;
+    }
+
+    public int getRunningTasks() {
+        return runningTasks;
+    }
+
+    public void setRunningTasks(int runningTasks) {
+        this.runningTasks = runningTasks;
+    }
+
+    public long getCompletedTasks() {
+        return completedTasks;
+    }
+
+    public void setCompletedTasks(long completedTasks) {
+        this.completedTasks = completedTasks;
+    }
+
+    /**
+     * Number of distinct owners (projects) with queued tasks
+     */
+    public int getQueuedOwners() {
+        return queuedOwners;
+    }
+
+    public void setQueuedOwners(int queuedOwners) {
+        this.queuedOwners = queuedOwners;
+    }
+
+    /**
+     * Queued tasks per priority class
+     */
+    public Map<String, Integer> getQueueDepth() {
+        return queueDepth;
+    }
+
+    public void setQueueDepth(Map<String, Integer> queueDepth) {
+        this.queueDepth = queueDepth;
+    }
+
+    /**
+     * Running tasks per task type
+     */
+    public Map<String, Integer> getRunningByType() {
+        return runningByType;
+    }
+
+    public void setRunningByType(Map<String, Integer> runningByType) {
+        this.runningByType = runningByType;
+    }
+
+    /**
+     * Queue wait time percentiles per priority class
+     */
+    public Map<String, WaitTimePercentiles> getWaitTimes() {
+        return waitTimes;
+    }
+
+    public void setWaitTimes(Map<String, WaitTimePercentiles> waitTimes) {
+        this.waitTimes = waitTimes;
+    }
+
+    /**
+     * Queue wait time percentiles, in milliseconds
+     */
+    public static class WaitTimePercentiles {
+        private long dispatched;
+        private double p50Millis;
+        private double p90Millis;
+        private double p99Millis;
+        private double maxMillis;
+
+        public WaitTimePercentiles() {
+        }
+
+        public WaitTimePercentiles(long dispatched, double p50Millis, double p90Millis,
+                                   double p99Millis, double maxMillis) {
+            this.dispatched = dispatched;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+
+        /**
+         * Total tasks dispatched; percentiles cover the most recent 1024
+         */
+        public long getDispatched() {
+            return dispatched;
+        }
+
+        public void setDispatched(long dispatched) {
+            this.dispatched = dispatched;
+        }
+
+        public double getP50Millis() {
+            return p50Millis;
+        }
+
+        public void setP50Millis(double p50Millis) {
+            this.p50Millis = p50Millis;
+        }
+
+        public double getP90Millis() {
+            return p90Millis;
+        }
+
+        public void setP90Millis(double p90Millis) {
+            this.p90Millis = p90Millis;
+        }
+
+        public double getP99Millis() {
+            return p99Millis;
+        }
+
+        public void setP99Millis(double p99Millis) {
+            this.p99Millis = p99Millis;
+        }
+
+        public double getMaxMillis() {
+            return maxMillis;
+        }
+
+        public void setMaxMillis(double maxMillis) {
+            this.maxMillis = maxMillis;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.sciome.bmdexpressweb.filters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.dto.ErrorResponse;
+import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService;
+import com.sciome.bmdexpressweb.service.ClusterMembership;
+import com.sciome.bmdexpressweb.service.ClusterRouter;
+import com.sciome.bmdexpressweb.service.ProjectService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Routes API requests to the node that holds their project, in a multi-node
+ * deployment (see ClusterMembership); does nothing on a single node.
+ *
+ * - /api/projects/{projectId}/** and requests whose JSON body names a
+ *   projectId (category analysis, batch and probe filter submissions) go to the project's owner. On the owner, a project it does
+ *   not hold yet is taken over from its previous node first.
+ * - Analysis, batch and load IDs are not on the ring. Their jobs
+ *   run where the project is, so a node that does not have the job asks the
+ *   other nodes and relays the first answer that is not 404.
+ * - Requests forwarded by another node are always handled here, so nodes
+ *   whose configurations briefly disagree cannot forward in a loop.
+ */
+public class ProjectAffinityFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectAffinityFilter.class);
+
+    private static final Pattern ID = Pattern.compile("[A-Za-z0-9._-]+");
+
+    private enum Kind {
+        PROJECT, PROJECT_IN_BODY, LOAD, ANALYSIS, BATCH
+    }
+
+    private record Route(Kind kind, String id) {
+    }
+
+    private final ClusterMembership membership;
+    private final ClusterRouter router;
+    private final ProjectService projectService;
+    private final CategoryAnalysisAsyncService analysisService;
+    private final ObjectMapper objectMapper;
+
+    public ProjectAffinityFilter(ClusterMembership membership, ClusterRouter router,
+                                 ProjectService projectService, CategoryAnalysisAsyncService analysisService,
+                                 ObjectMapper objectMapper) {
+        this.membership = membership;
+        this.router = router;
+        this.projectService = projectService;
+        this.analysisService = analysisService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !membership.isEnabled();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        Route route = route(request);
+        if (route == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        boolean forwarded = request.getHeader(ClusterMembership.FORWARDED_BY_HEADER) != null
+                && membership.isTrusted(request.getHeader(ClusterMembership.SECRET_HEADER));
+
+        try {
+            switch (route.kind()) {
+                case PROJECT -> routeToProject(request, response, chain, route.id(), null, forwarded);
+                case PROJECT_IN_BODY -> {
+                    // Submissions are small JSON documents
+                    byte[] body = request.getInputStream().readAllBytes();
+                    routeToProject(new CachedBodyRequest(request, body), response, chain,
+                            projectIdOf(body), body, forwarded);
+                }
+                default -> routeToJob(request, response, chain, route, forwarded);
+            }
+        } catch (RejectedExecutionException e) {
+            // Taking over the project needs the loader pool
+            log.warn("Project handover rejected: {}", e.getMessage());
+            response.setHeader("Retry-After", "5");
+            writeError(request, response, HttpStatus.SERVICE_UNAVAILABLE, "Project loader is busy, retry later");
+        }
+    }
+
+    private void routeToProject(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                                String projectId, byte[] body, boolean forwarded)
+            throws ServletException, IOException {
+
+        if (projectId != null && !forwarded && !membership.isLocal(projectId)) {
+            forward(membership.ownerOf(projectId), request, body, response);
+            return;
+        }
+        if (projectId != null && membership.isLocal(projectId)) {
+            router.ensureResident(projectId);
+        }
+        chain.doFilter(request, response);
+    }
+
+    private void routeToJob(HttpServletRequest request, HttpServletResponse response, FilterChain chain,
+                            Route route, boolean forwarded) throws ServletException, IOException {
+
+        if (forwarded || isResident(route)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        HttpServletRequest cached = new CachedBodyRequest(request, body);
+        for (String peer : membership.peersFor(route.id())) {
+            HttpResponse<InputStream> upstream;
+            try {
+                upstream = router.send(peer, cached, body);
+            } catch (IOException e) {
+                log.warn("Could not ask {} for {} {}: {}", peer, route.kind(), route.id(), e.getMessage());
+                continue;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (upstream.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                upstream.body().close();
+                continue;
+            }
+            router.relay(upstream, response);
+            return;
+        }
+        // Nobody has it: let the controller answer 404
+        chain.doFilter(cached, response);
+    }
+
+    private void forward(String node, HttpServletRequest request, byte[] body, HttpServletResponse response)
+            throws IOException {
+
+        log.debug("Forwarding {} {} to {}", request.getMethod(), request.getRequestURI(), node);
+        HttpResponse<InputStream> upstream;
+        try {
+            upstream = router.send(node, request, body);
+        } catch (IOException e) {
+            log.warn("Could not forward {} to {}: {}", request.getRequestURI(), node, e.getMessage());
+            writeError(request, response, HttpStatus.BAD_GATEWAY, "Node holding the project is unreachable: " + node);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writeError(request, response, HttpStatus.SERVICE_UNAVAILABLE, "Request interrupted");
+            return;
+        }
+        router.relay(upstream, response);
+    }
+
+    private boolean isResident(Route route) {
+        try {
+            switch (route.kind()) {
+                case LOAD -> projectService.getLoad(route.id());
+                case ANALYSIS -> analysisService.getAnalysisResult(route.id());
+                case BATCH -> analysisService.getBatch(route.id());
+                default -> {
+                    return true;
+                }
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Classify a request by the ID that decides where it runs, or null if it
+     * can run on any node
+     */
+    private static Route route(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String[] segments = path.split("/");
+        if (segments.length < 3 || !"api".equals(segments[1])) {
+            return null;
+        }
+        boolean post = "POST".equals(request.getMethod());
+        String first = segments.length > 3 ? segments[3] : null;
+        String second = segments.length > 4 ? segments[4] : null;
+
+        Route route = switch (segments[2]) {
+            case "projects" -> {
+                if (first == null || "available-files".equals(first) || "load-from-file".equals(first)) {
+                    yield null;
+                }
+                yield "loads".equals(first) ? route(Kind.LOAD, second) : new Route(Kind.PROJECT, first);
+            }
+            case "category-analysis" -> {
+                if (first == null || "probe-filter".equals(first)) {
+                    yield post ? new Route(Kind.PROJECT_IN_BODY, null) : null;
+                }
+                if ("batch".equals(first)) {
+                    yield second == null ? (post ? new Route(Kind.PROJECT_IN_BODY, null) : null)
+                            : route(Kind.BATCH, second);
+                }
+                yield new Route(Kind.ANALYSIS, first);
+            }
+            default -> null;
+        };
+        if (route == null || (route.kind() != Kind.PROJECT_IN_BODY && !ID.matcher(route.id()).matches())) {
+            return null;
+        }
+        return route;
+    }
+
+    private static Route route(Kind kind, String id) {
+        return id != null ? new Route(kind, id) : null;
+    }
+
+    private String projectIdOf(byte[] body) {
+        try {
+            JsonNode projectId = objectMapper.readTree(body).get("projectId");
+            return projectId != null && projectId.isTextual() && ID.matcher(projectId.asText()).matches()
+                    ? projectId.asText() : null;
+        } catch (IOException e) {
+            // Malformed: the controller rejects it
+            return null;
+        }
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        if (response.isCommitted()) {
+            return;
+        }
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(),
+                new ErrorResponse(status.value(), status.getReasonPhrase(), message, request.getRequestURI()));
+    }
+
+    /**
+     * A request whose body was read by this filter, replayed to the controller
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return in.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
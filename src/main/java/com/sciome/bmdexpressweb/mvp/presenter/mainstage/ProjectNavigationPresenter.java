@@ -114,6 +114,16 @@ public class ProjectNavigationPresenter extends PresenterBase<IProjectNavigation
 		}
 	}
 
+	/**
+	 * Add a category analysis that completed while the project is open
+	 */
+	public void addCategoryAnalysisJob(String name, String analysisId)
+	{
+		if (getView() instanceof ProjectNavigationView) {
+			((ProjectNavigationView) getView()).addCategoryAnalysisJob(name, analysisId);
+		}
+	}
+
 	/*
 	 * Desktop ProjectNavigationPresenter has additional @Subscribe methods for:
 	 * - onLoadOneWayANOVAAnalysis
@@ -0,0 +1,183 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * Client side of AnalysisEventService: follows a category analysis over its
+ * server-sent events (GET /api/category-analysis/{id}/events) without holding
+ * a thread while the analysis runs.
+ *
+ * The HTTP client hands over the stream line by line as data arrives. Streams
+ * the server closes before the "complete" event (timeouts) are reopened with
+ * the Last-Event-ID header. Cancelling the returned future closes the stream.
+ */
+final class AnalysisEventClient {
+
+    private final HttpClient client;
+    private final String apiUrl;
+    private final ObjectMapper objectMapper;
+
+    AnalysisEventClient(HttpClient client, String apiUrl, ObjectMapper objectMapper) {
+        this.client = client;
+        this.apiUrl = apiUrl;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Follow an analysis to its final state
+     *
+     * @param analysisId The analysis ID
+     * @return the final event (analysisId, status, errorMessage, ...); completes
+     *         exceptionally if the analysis is not found or the server cannot be reached
+     */
+    CompletableFuture<Map<String, Object>> follow(String analysisId) {
+        Follower follower = new Follower(analysisId);
+        try {
+            follower.connect(URI.create(apiUrl + "/api/category-analysis/" + analysisId + "/events"));
+        } catch (IllegalArgumentException e) {
+            follower.result.completeExceptionally(e);
+        }
+        return follower.result;
+    }
+
+    /**
+     * One followed analysis, across reconnections
+     */
+    private final class Follower implements Flow.Subscriber<String> {
+        private final String analysisId;
+        private final CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        private final EventStreamParser parser = new EventStreamParser(objectMapper);
+        private volatile Flow.Subscription subscription;
+
+        Follower(String analysisId) {
+            this.analysisId = analysisId;
+            // Done, failed or cancelled: the open stream is no longer needed
+            result.whenComplete((event, error) -> {
+                Flow.Subscription current = subscription;
+                if (current != null) {
+                    current.cancel();
+                }
+            });
+        }
+
+        void connect(URI uri) {
+            if (result.isDone()) {
+                return;
+            }
+            HttpRequest.Builder request = HttpRequest.newBuilder(uri).header("Accept", "text/event-stream");
+            String lastEventId = parser.getLastEventId();
+            if (lastEventId != null) {
+                request.header("Last-Event-ID", lastEventId);
+            }
+            client.sendAsync(request.build(), info -> info.statusCode() == 200
+                            ? HttpResponse.BodySubscribers.fromLineSubscriber(this)
+                            : HttpResponse.BodySubscribers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            result.completeExceptionally(error);
+                        } else if (response.statusCode() != 200) {
+                            result.completeExceptionally(new IllegalStateException(response.statusCode() == 404
+                                    ? "Analysis not found: " + analysisId
+                                    : "Analysis events not available (HTTP " + response.statusCode() + ")"));
+                        } else {
+                            // Closed before the final event: continue from the last event seen
+                            connect(uri);
+                        }
+                    });
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (result.isDone()) {
+                subscription.cancel();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(String line) {
+            try {
+                Map<String, Object> complete = parser.accept(line);
+                if (complete != null) {
+                    result.complete(complete);
+                }
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            // Reported by the response future
+        }
+
+        @Override
+        public void onComplete() {
+            // Reported by the response future
+        }
+    }
+
+    /**
+     * Reads an event stream one line at a time
+     */
+    static final class EventStreamParser {
+        private final ObjectMapper objectMapper;
+        private final StringBuilder data = new StringBuilder();
+        private String event;
+        private volatile String lastEventId;
+
+        EventStreamParser(ObjectMapper objectMapper) {
+            this.objectMapper = objectMapper;
+        }
+
+        /**
+         * @return the data of the "complete" event once its last line has been read, otherwise null
+         */
+        @SuppressWarnings("unchecked")
+        Map<String, Object> accept(String line) throws IOException {
+            if (line.isEmpty()) {
+                // A blank line ends the event
+                String name = event;
+                event = null;
+                if (AnalysisEventService.COMPLETE_EVENT.equals(name) && data.length() > 0) {
+                    return objectMapper.readValue(data.toString(), Map.class);
+                }
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = fieldValue(line);
+            } else if (line.startsWith("id:")) {
+                lastEventId = fieldValue(line);
+            } else if (line.startsWith("data:")) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                data.append(fieldValue(line));
+            }
+            // Comments (heartbeats) and retry fields are ignored
+            return null;
+        }
+
+        /**
+         * @return the ID of the last event read, or null
+         */
+        String getLastEventId() {
+            return lastEventId;
+        }
+
+        private static String fieldValue(String line) {
+            String value = line.substring(line.indexOf(':') + 1);
+            return value.startsWith(" ") ? value.substring(1) : value;
+        }
+    }
+}
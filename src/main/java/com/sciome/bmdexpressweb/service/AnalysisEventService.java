@@ -0,0 +1,240 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.AnalysisProgressEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Pushes category analysis job progress to clients over server-sent events.
+ *
+ * Each subscriber first receives the job's current state, then a "progress"
+ * event whenever the job starts or its progress changes, and a final "complete"
+ * event once the job reaches a final state, after which the stream is closed.
+ * Progress of running jobs is sampled at a fixed interval, so a job computing
+ * thousands of categories per second sends a few events per second at most.
+ * A comment line is sent as a heartbeat to keep idle connections open.
+ *
+ * Event IDs identify the job state they describe. A client that reconnects with
+ * the Last-Event-ID header is only sent the current state if it has changed.
+ *
+ * All sends happen on one scheduler thread, so an emitter is never written to
+ * concurrently.
+ */
+@Service
+public class AnalysisEventService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisEventService.class);
+
+    public static final String PROGRESS_EVENT = "progress";
+    public static final String COMPLETE_EVENT = "complete";
+
+    private final CategoryAnalysisAsyncService analysisService;
+    private final long emitterTimeoutMillis;
+    private final long reconnectMillis;
+    private final ScheduledExecutorService executor;
+    private final Consumer<CategoryAnalysisAsyncService.AnalysisJobResult> jobListener = this::jobChanged;
+
+    // Analysis ID -> open streams
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    /**
+     * @param progressInterval how often the progress of running jobs is sampled
+     * @param heartbeatInterval how often idle streams get a heartbeat comment
+     * @param emitterTimeout how long a stream stays open; clients reconnect after it closes
+     * @param reconnectDelay reconnection delay suggested to clients
+     */
+    public AnalysisEventService(CategoryAnalysisAsyncService analysisService, Duration progressInterval,
+                                Duration heartbeatInterval, Duration emitterTimeout, Duration reconnectDelay) {
+        this.analysisService = analysisService;
+        this.emitterTimeoutMillis = emitterTimeout.toMillis();
+        this.reconnectMillis = reconnectDelay.toMillis();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "analysis-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::pushProgress, progressInterval.toMillis(),
+                progressInterval.toMillis(), TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(),
+                heartbeatInterval.toMillis(), TimeUnit.MILLISECONDS);
+        analysisService.addJobListener(jobListener);
+    }
+
+    @Autowired
+    public AnalysisEventService(
+            CategoryAnalysisAsyncService analysisService,
+            @Value("${bmdexpress.events.progress-interval-ms:250}") long progressIntervalMillis,
+            @Value("${bmdexpress.events.heartbeat-seconds:15}") long heartbeatSeconds,
+            @Value("${bmdexpress.events.timeout-minutes:30}") long timeoutMinutes,
+            @Value("${bmdexpress.events.reconnect-ms:2000}") long reconnectMillis) {
+        this(analysisService, Duration.ofMillis(progressIntervalMillis), Duration.ofSeconds(heartbeatSeconds),
+                Duration.ofMinutes(timeoutMinutes), Duration.ofMillis(reconnectMillis));
+    }
+
+    /**
+     * Open an event stream for an analysis job.
+     *
+     * @param analysisId The analysis ID
+     * @param lastEventId Last-Event-ID sent by a reconnecting client, or null
+     * @return the stream
+     * @throws IllegalArgumentException if the analysis is not found
+     */
+    public SseEmitter subscribe(String analysisId, String lastEventId) {
+        return subscribe(analysisId, lastEventId, new SseEmitter(emitterTimeoutMillis));
+    }
+
+    SseEmitter subscribe(String analysisId, String lastEventId, SseEmitter emitter) {
+        CategoryAnalysisAsyncService.AnalysisJobResult job = analysisService.getAnalysisResult(analysisId);
+        Subscriber subscriber = new Subscriber(emitter, lastEventId);
+        emitter.onCompletion(() -> unsubscribe(analysisId, subscriber));
+        emitter.onTimeout(() -> unsubscribe(analysisId, subscriber));
+        emitter.onError(e -> unsubscribe(analysisId, subscriber));
+        subscribers.computeIfAbsent(analysisId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+
+        // Sent after registering, so a job that finishes meanwhile is not missed
+        executor.execute(() -> push(analysisId, job, subscriber));
+        return emitter;
+    }
+
+    /**
+     * Number of open streams
+     */
+    public int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        analysisService.removeJobListener(jobListener);
+        executor.shutdownNow();
+        subscribers.values().forEach(list -> list.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    /**
+     * Event describing a job's current state
+     */
+    static AnalysisProgressEvent toEvent(CategoryAnalysisAsyncService.AnalysisJobResult job) {
+        AnalysisProgressEvent event = new AnalysisProgressEvent(
+                job.getAnalysisId(), job.getStatus(), job.getStage(), job.getProgress());
+        event.setSubmittedAt(job.getSubmittedAt());
+        event.setCompletedAt(job.getCompletedAt());
+        event.setErrorMessage(job.getErrorMessage());
+        if ("COMPLETED".equals(job.getStatus())) {
+            event.setResultLocation("/api/category-analysis/" + job.getAnalysisId());
+        }
+        return event;
+    }
+
+    /**
+     * ID of the event describing a job's current state: the job's change count
+     * and whole progress percentage
+     */
+    static String eventId(CategoryAnalysisAsyncService.AnalysisJobResult job) {
+        return job.getVersion() + "-" + (int) job.getProgress();
+    }
+
+    private void jobChanged(CategoryAnalysisAsyncService.AnalysisJobResult job) {
+        if (subscribers.containsKey(job.getAnalysisId())) {
+            executor.execute(() -> pushAll(job.getAnalysisId(), job));
+        }
+    }
+
+    private void pushProgress() {
+        for (String analysisId : subscribers.keySet()) {
+            try {
+                pushAll(analysisId, analysisService.getAnalysisResult(analysisId));
+            } catch (IllegalArgumentException e) {
+                // Deleted or expired: nothing more will happen to it
+                List<Subscriber> gone = subscribers.remove(analysisId);
+                if (gone != null) {
+                    gone.forEach(subscriber -> subscriber.emitter.complete());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Failed to push progress for analysis {}", analysisId, e);
+            }
+        }
+    }
+
+    private void pushAll(String analysisId, CategoryAnalysisAsyncService.AnalysisJobResult job) {
+        List<Subscriber> list = subscribers.get(analysisId);
+        if (list != null) {
+            for (Subscriber subscriber : list) {
+                push(analysisId, job, subscriber);
+            }
+        }
+    }
+
+    /**
+     * Send the job's state unless this subscriber has already seen it; close
+     * the stream after the final state.
+     */
+    private void push(String analysisId, CategoryAnalysisAsyncService.AnalysisJobResult job, Subscriber subscriber) {
+        boolean done = job.getCompletedAt() != null;
+        String id = eventId(job);
+        try {
+            if (!id.equals(subscriber.lastEventId)) {
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(id)
+                        .name(done ? COMPLETE_EVENT : PROGRESS_EVENT)
+                        .reconnectTime(reconnectMillis)
+                        .data(toEvent(job), MediaType.APPLICATION_JSON));
+                subscriber.lastEventId = id;
+            }
+            if (done) {
+                unsubscribe(analysisId, subscriber);
+                subscriber.emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away
+            unsubscribe(analysisId, subscriber);
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.forEach((analysisId, list) -> {
+            for (Subscriber subscriber : list) {
+                try {
+                    subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } catch (IOException | IllegalStateException e) {
+                    unsubscribe(analysisId, subscriber);
+                }
+            }
+        });
+    }
+
+    private void unsubscribe(String analysisId, Subscriber subscriber) {
+        subscribers.computeIfPresent(analysisId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        // Only accessed on the executor thread
+        private String lastEventId;
+
+        Subscriber(SseEmitter emitter, String lastEventId) {
+            this.emitter = emitter;
+            this.lastEventId = lastEventId;
+        }
+    }
+}
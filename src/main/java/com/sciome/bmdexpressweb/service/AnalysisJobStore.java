@@ -0,0 +1,489 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService.AnalysisJobResult;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bounded store for category analysis jobs.
+ *
+ * Every job is indexed by ID in memory, so status lookups are a single hash
+ * lookup. When a job finishes, its status and results are written to a
+ * gzip-compressed file in the job directory and the results are dropped from
+ * the heap; the index entry keeps only status fields, and results are read
+ * back on demand through a small cache of recently used results.
+ *
+ * Finished jobs are removed once they are older than the TTL, and the oldest
+ * finished jobs are removed while there are more than the maximum number of
+ * them or their files exceed the disk budget. Finished jobs are reloaded from
+ * the job directory on startup; jobs that were still running are lost.
+ *
+ * Without a job directory, results stay in memory and only the TTL and the job
+ * limit apply.
+ */
+@Component
+public class AnalysisJobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobStore.class);
+
+    private static final String SUFFIX = ".job.gz";
+
+    private final Path directory;
+    private final Duration ttl;
+    private final int maxFinishedJobs;
+    private final long maxDiskBytes;
+
+    private final Map<String, AnalysisJobResult> jobs = new ConcurrentHashMap<>();
+
+    // Batch ID -> analysis IDs of its variants, in request order
+    private final Map<String, List<String>> batches = new ConcurrentHashMap<>();
+
+    // Finished analysis ID -> bytes on disk, oldest completion first. Guarded by this.
+    private final LinkedHashMap<String, Long> finished = new LinkedHashMap<>();
+    private long diskBytes;
+
+    // Results read back from disk (or just written), by analysis ID
+    private final Cache<String, Results> resident;
+
+    /**
+     * In-memory store without limits
+     */
+    public AnalysisJobStore() {
+        this(null, Duration.ZERO, 0, 0, 0);
+    }
+
+    /**
+     * @param directory job directory, or null to keep results in memory
+     * @param ttl how long finished jobs are kept (zero = no limit)
+     * @param maxFinishedJobs maximum number of finished jobs kept (0 = no limit)
+     * @param maxDiskBytes maximum total size of job files (0 = no limit)
+     * @param residentResults number of recently used results kept in memory once written to disk
+     */
+    public AnalysisJobStore(Path directory, Duration ttl, int maxFinishedJobs, long maxDiskBytes,
+                            int residentResults) {
+        this.directory = directory;
+        this.ttl = ttl;
+        this.maxFinishedJobs = maxFinishedJobs;
+        this.maxDiskBytes = maxDiskBytes;
+        this.resident = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(1, residentResults))
+                .build();
+        if (directory != null) {
+            reload();
+        }
+    }
+
+    @Autowired
+    public AnalysisJobStore(
+            @Value("${bmdexpress.jobs.dir:data/jobs}") String directory,
+            @Value("${bmdexpress.jobs.ttl-hours:24}") long ttlHours,
+            @Value("${bmdexpress.jobs.max-finished:10000}") int maxFinishedJobs,
+            @Value("${bmdexpress.jobs.max-disk-mb:1024}") long maxDiskMegabytes,
+            @Value("${bmdexpress.jobs.resident-results:8}") int residentResults) {
+        this(directory.isBlank() ? null : Path.of(directory), Duration.ofHours(Math.max(0, ttlHours)),
+                maxFinishedJobs, maxDiskMegabytes * 1024 * 1024, residentResults);
+    }
+
+    /**
+     * Add a new job.
+     */
+    public void put(AnalysisJobResult job) {
+        jobs.put(job.getAnalysisId(), job);
+    }
+
+    /**
+     * Add the jobs of a batch and record them as its variants, in order.
+     */
+    public void putBatch(String batchId, List<AnalysisJobResult> variants) {
+        List<String> analysisIds = new ArrayList<>(variants.size());
+        for (int i = 0; i < variants.size(); i++) {
+            AnalysisJobResult job = variants.get(i);
+            job.setBatch(batchId, i);
+            put(job);
+            analysisIds.add(job.getAnalysisId());
+        }
+        batches.put(batchId, List.copyOf(analysisIds));
+    }
+
+    /**
+     * @return the job, or null if it is unknown or has expired
+     */
+    public AnalysisJobResult get(String analysisId) {
+        AnalysisJobResult job = jobs.get(analysisId);
+        if (job != null && expired(job, LocalDateTime.now())) {
+            List<AnalysisJobResult> evicted;
+            synchronized (this) {
+                evicted = evict();
+            }
+            release(evicted);
+            return null;
+        }
+        return job;
+    }
+
+    /**
+     * @return the batch's remaining jobs in variant order, or null if the batch is unknown
+     */
+    public List<AnalysisJobResult> getBatch(String batchId) {
+        List<String> analysisIds = batches.get(batchId);
+        if (analysisIds == null) {
+            return null;
+        }
+        return analysisIds.stream().map(this::get).filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Record that a job has reached a final state, or that the results of a
+     * finished job have changed. Writes the job out, drops its results from the
+     * heap and enforces the store's limits. Call with the job's lock held.
+     */
+    public void finished(AnalysisJobResult job) {
+        String analysisId = job.getAnalysisId();
+        long bytes = 0;
+        if (directory != null) {
+            Results results = new Results(job.getResults(), job.getTableView());
+            try {
+                bytes = write(job, results);
+                if (!results.isEmpty()) {
+                    job.resultsMovedTo(this);
+                    resident.put(analysisId, results);
+                }
+            } catch (IOException e) {
+                log.warn("Failed to write analysis job {}; keeping its results in memory", analysisId, e);
+            }
+        }
+
+        List<AnalysisJobResult> evicted;
+        synchronized (this) {
+            Long previous = finished.remove(analysisId);
+            if (previous != null) {
+                diskBytes -= previous;
+            }
+            if (jobs.containsKey(analysisId)) {
+                finished.put(analysisId, bytes);
+                diskBytes += bytes;
+            } else {
+                // Deleted while it was being written
+                deleteFile(analysisId);
+            }
+            evicted = evict();
+        }
+        // Evicted jobs are older than this one, so job locks are taken newest first
+        release(evicted);
+    }
+
+    /**
+     * Delete a job and its file. Its batch keeps the (now missing) entry.
+     */
+    public void remove(String analysisId) {
+        AnalysisJobResult job = jobs.remove(analysisId);
+        synchronized (this) {
+            Long bytes = finished.remove(analysisId);
+            if (bytes != null) {
+                diskBytes -= bytes;
+            }
+        }
+        resident.invalidate(analysisId);
+        deleteFile(analysisId);
+        if (job != null) {
+            release(List.of(job));
+        }
+    }
+
+    /**
+     * Results of a job whose results were moved to disk, or null if the job is gone.
+     *
+     * @throws UncheckedIOException if the job file cannot be read
+     */
+    Results load(String analysisId) {
+        Results results = resident.getIfPresent(analysisId);
+        if (results != null || !jobs.containsKey(analysisId)) {
+            return results;
+        }
+        try (ObjectInputStream in = open(file(analysisId))) {
+            in.readObject(); // record
+            results = new Results((CategoryAnalysisResults) in.readObject(),
+                    (CategoryAnalysisTableView) in.readObject());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read analysis job " + analysisId, e);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new IllegalStateException("Corrupt analysis job file: " + analysisId, e);
+        }
+        resident.put(analysisId, results);
+        return results;
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Total size of the job files, in bytes
+     */
+    public synchronized long getDiskBytes() {
+        return diskBytes;
+    }
+
+    /**
+     * Drop finished jobs from the front of the completion order while they have
+     * expired or the store is over its limits. Called with the store lock held;
+     * the evicted jobs are {@link #release released} once it is given up.
+     *
+     * @return the evicted jobs
+     */
+    private List<AnalysisJobResult> evict() {
+        List<AnalysisJobResult> evicted = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        Iterator<Map.Entry<String, Long>> it = finished.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Long> oldest = it.next();
+            AnalysisJobResult job = jobs.get(oldest.getKey());
+            boolean overLimit = (maxFinishedJobs > 0 && finished.size() > maxFinishedJobs)
+                    || (maxDiskBytes > 0 && diskBytes > maxDiskBytes);
+            if (job != null && !overLimit && !expired(job, now)) {
+                break;
+            }
+            it.remove();
+            diskBytes -= oldest.getValue();
+            evicted(oldest.getKey(), job);
+            if (job != null) {
+                evicted.add(job);
+            }
+        }
+        return evicted;
+    }
+
+    private void evicted(String analysisId, AnalysisJobResult job) {
+        jobs.remove(analysisId);
+        resident.invalidate(analysisId);
+        deleteFile(analysisId);
+        if (job == null) {
+            return;
+        }
+        String batchId = job.getBatchId();
+        if (batchId != null && batches.getOrDefault(batchId, List.of()).stream().noneMatch(jobs::containsKey)) {
+            batches.remove(batchId);
+        }
+        log.debug("Evicted analysis job {}", analysisId);
+    }
+
+    /**
+     * Drop the results of jobs that left the store, each under its own lock so
+     * that readers holding the job never see it half released. Never called with
+     * the store lock held: job locks are taken before it, in {@link #finished}.
+     */
+    private static void release(List<AnalysisJobResult> jobs) {
+        for (AnalysisJobResult job : jobs) {
+            synchronized (job) {
+                job.release();
+            }
+        }
+    }
+
+    private boolean expired(AnalysisJobResult job, LocalDateTime now) {
+        LocalDateTime completedAt = job.getCompletedAt();
+        return !ttl.isZero() && completedAt != null && completedAt.plus(ttl).isBefore(now);
+    }
+
+    private Path file(String analysisId) {
+        return directory.resolve(analysisId + SUFFIX);
+    }
+
+    /**
+     * Write a job's record and results to a temporary file and move it into place.
+     *
+     * @return the size of the job file
+     */
+    private long write(AnalysisJobResult job, Results results) throws IOException {
+        Files.createDirectories(directory);
+        Path target = file(job.getAnalysisId());
+        Path temp = Files.createTempFile(directory, job.getAnalysisId(), ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp))))) {
+                out.writeObject(new JobRecord(job, !results.isEmpty()));
+                out.writeObject(results.categoryResults);
+                out.writeObject(results.tableView);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return Files.size(target);
+    }
+
+    private static ObjectInputStream open(Path file) throws IOException {
+        return new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))));
+    }
+
+    private void deleteFile(String analysisId) {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file(analysisId));
+        } catch (IOException e) {
+            log.warn("Failed to delete analysis job file {}", analysisId, e);
+        }
+    }
+
+    /**
+     * Rebuild the index from the job files. Only the record at the head of each
+     * file is read; expired and unreadable files are deleted.
+     */
+    private void reload() {
+        List<AnalysisJobResult> reloaded = new ArrayList<>();
+        Map<String, Long> sizes = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tmp")) {
+                for (Path file : files) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    try (ObjectInputStream in = open(file)) {
+                        AnalysisJobResult job = ((JobRecord) in.readObject()).toJob(this);
+                        if (expired(job, now)) {
+                            Files.deleteIfExists(file);
+                            continue;
+                        }
+                        reloaded.add(job);
+                        sizes.put(job.getAnalysisId(), Files.size(file));
+                    } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                        log.warn("Discarding unreadable analysis job file {}", file, e);
+                        Files.deleteIfExists(file);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read job directory " + directory, e);
+        }
+
+        reloaded.sort(Comparator.comparing(AnalysisJobResult::getCompletedAt));
+        Map<String, List<AnalysisJobResult>> reloadedBatches = new LinkedHashMap<>();
+        List<AnalysisJobResult> evicted;
+        synchronized (this) {
+            for (AnalysisJobResult job : reloaded) {
+                jobs.put(job.getAnalysisId(), job);
+                finished.put(job.getAnalysisId(), sizes.get(job.getAnalysisId()));
+                diskBytes += sizes.get(job.getAnalysisId());
+                if (job.getBatchId() != null) {
+                    reloadedBatches.computeIfAbsent(job.getBatchId(), id -> new ArrayList<>()).add(job);
+                }
+            }
+            reloadedBatches.forEach((batchId, variants) -> batches.put(batchId, variants.stream()
+                    .sorted(Comparator.comparingInt(AnalysisJobResult::getBatchIndex))
+                    .map(AnalysisJobResult::getAnalysisId)
+                    .toList()));
+            evicted = evict();
+        }
+        release(evicted);
+        log.info("Reloaded {} analysis jobs ({} KB) from {}", jobs.size(), diskBytes / 1024, directory);
+    }
+
+    /**
+     * Results of a finished job
+     */
+    static final class Results {
+        final CategoryAnalysisResults categoryResults;
+        final CategoryAnalysisTableView tableView;
+
+        Results(CategoryAnalysisResults categoryResults, CategoryAnalysisTableView tableView) {
+            this.categoryResults = categoryResults;
+            this.tableView = tableView;
+        }
+
+        boolean isEmpty() {
+            return categoryResults == null && tableView == null;
+        }
+    }
+
+    /**
+     * Status fields of a finished job, written at the head of its file
+     */
+    private static final class JobRecord implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String analysisId;
+        private final String projectId;
+        private final String name;
+        private final String status;
+        private final CategoryAnalysisEnum analysisType;
+        private final LocalDateTime submittedAt;
+        private final LocalDateTime completedAt;
+        private final String errorMessage;
+        private final String batchId;
+        private final int batchIndex;
+        private final boolean hasResults;
+
+        JobRecord(AnalysisJobResult job, boolean hasResults) {
+            this.analysisId = job.getAnalysisId();
+            this.projectId = job.getProjectId();
+            this.name = job.getName();
+            this.status = job.getStatus();
+            this.analysisType = job.getAnalysisType();
+            this.submittedAt = job.getSubmittedAt();
+            this.completedAt = job.getCompletedAt();
+            this.errorMessage = job.getErrorMessage();
+            this.batchId = job.getBatchId();
+            this.batchIndex = job.getBatchIndex();
+            this.hasResults = hasResults;
+        }
+
+        AnalysisJobResult toJob(AnalysisJobStore store) {
+            AnalysisJobResult job = new AnalysisJobResult(analysisId);
+            job.setProjectId(projectId);
+            job.setName(name);
+            job.setStatus(status);
+            job.setStage("DONE");
+            job.setAnalysisType(analysisType);
+            job.setSubmittedAt(submittedAt);
+            job.setCompletedAt(completedAt);
+            job.setErrorMessage(errorMessage);
+            job.setBatch(batchId, batchIndex);
+            if (hasResults) {
+                job.resultsMovedTo(store);
+            }
+            return job;
+        }
+    }
+}
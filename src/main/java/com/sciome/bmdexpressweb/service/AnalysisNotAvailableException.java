@@ -0,0 +1,13 @@
+package com.sciome.bmdexpressweb.service;
+
+/**
+ * Thrown when a request needs an analysis this server cannot run, such as GO
+ * and PATHWAY category analyses, which need the desktop annotation databases.
+ * The REST API answers it with 501 Not Implemented.
+ */
+public class AnalysisNotAvailableException extends RuntimeException {
+
+    public AnalysisNotAvailableException(String message) {
+        super(message);
+    }
+}
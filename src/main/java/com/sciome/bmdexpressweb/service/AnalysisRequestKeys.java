@@ -0,0 +1,76 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Canonical keys that identify category analysis submissions.
+ *
+ * A key is the SHA-256 of the project's content hash, the BMD result name,
+ * the analysis type and the parameters in canonical form: serialized from the
+ * parsed DTO with properties in name order and nulls left out. Requests that
+ * differ only in JSON property order, number formatting or explicit nulls get
+ * the same key. Category definition files named in the parameters contribute
+ * the hash of their content, so editing a file gives new requests a new key.
+ */
+public final class AnalysisRequestKeys {
+
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .serializationInclusion(JsonInclude.Include.NON_NULL)
+            .build();
+
+    private AnalysisRequestKeys() {
+    }
+
+    /**
+     * Key of a category analysis submission
+     *
+     * @param projectContentHash Content hash of the project (null if unknown)
+     * @param bmdResultName Name of the analyzed BMD result
+     * @param analysisType Type of category analysis
+     * @param parameters Analysis parameters (null for defaults)
+     * @param definitionFiles Where the category definition files named in the parameters are found
+     * @return the key, or null if the project content hash is unknown
+     * @throws IllegalArgumentException if a named definition file is invalid or not found
+     */
+    public static String of(String projectContentHash, String bmdResultName,
+                            CategoryAnalysisEnum analysisType, CategoryAnalysisParametersDto parameters,
+                            CategoryDefinitionFiles definitionFiles) {
+        if (projectContentHash == null) {
+            return null;
+        }
+        CategoryAnalysisParametersDto canonical = parameters != null ? parameters : new CategoryAnalysisParametersDto();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, projectContentHash);
+            update(digest, bmdResultName);
+            update(digest, String.valueOf(analysisType));
+            update(digest, CANONICAL.writeValueAsString(canonical));
+            update(digest, definitionFiles.contentHash(canonical.getProbeFilePath()));
+            update(digest, definitionFiles.contentHash(canonical.getCategoryFilePath()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid analysis parameters: " + e.getMessage(), e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        // Length prefix keeps field boundaries unambiguous
+        byte[] bytes = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+        digest.update((bytes.length + ":").getBytes(StandardCharsets.UTF_8));
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,349 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.SchedulerStatsResponse;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Fair-share, priority-aware scheduler shared by all analysis work.
+ *
+ * Tasks are queued by priority class and, within a class, by owner (the
+ * project that submitted them). A free worker takes the next task from the
+ * INTERACTIVE class if there is one, otherwise from BATCH, visiting owners
+ * round-robin so a project with hundreds of queued tasks gets the same share
+ * of dispatches as a project with one. BATCH tasks never occupy the last
+ * worker, which stays available for interactive work, and each task type can
+ * be given its own concurrency limit.
+ *
+ * Long jobs should be submitted as a sequence of short tasks (one per sweep
+ * variant, for example) that resubmit their continuation, so they yield their
+ * worker between steps.
+ */
+@Service
+public class AnalysisScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisScheduler.class);
+
+    /** Single category analyses */
+    public static final String CATEGORY_ANALYSIS = "category-analysis";
+
+    /** One variant of a batch category analysis */
+    public static final String CATEGORY_BATCH = "category-batch";
+
+    private static final int WAIT_SAMPLES = 1024;
+
+    /**
+     * Priority classes, in dispatch order
+     */
+    public enum Priority {
+        INTERACTIVE,
+        BATCH
+    }
+
+    private final int threads;
+    private final Map<String, Integer> typeLimits;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Map<Priority, FairQueue> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, WaitTimes> waitTimes = new EnumMap<>(Priority.class);
+    private final Map<String, Integer> runningByType = new HashMap<>();
+    private int runningBatch;
+    private long completedTasks;
+    private boolean shutdown;
+
+    /**
+     * @param threads worker threads (0 = number of CPUs); at least 2 so one can be kept for interactive work
+     * @param typeLimits maximum concurrently running tasks per task type; types without an entry are unlimited
+     */
+    public AnalysisScheduler(int threads, Map<String, Integer> typeLimits) {
+        this.threads = Math.max(2, threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        this.typeLimits = Map.copyOf(typeLimits);
+        for (Priority priority : Priority.values()) {
+            queues.put(priority, new FairQueue());
+            waitTimes.put(priority, new WaitTimes());
+        }
+        for (int i = 0; i < this.threads; i++) {
+            Thread worker = new Thread(this::workerLoop, "analysis-worker-" + i);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+        log.info("Analysis scheduler started: {} workers, type limits {}", this.threads, this.typeLimits);
+    }
+
+    @Autowired
+    public AnalysisScheduler(
+            @Value("${bmdexpress.scheduler.threads:0}") int threads,
+            @Value("${bmdexpress.scheduler.type-limits:}") String typeLimits) {
+        this(threads, parseTypeLimits(typeLimits));
+    }
+
+    /**
+     * Parse {@code type=limit[,type=limit...]}.
+     *
+     * @throws IllegalArgumentException if an entry is malformed
+     */
+    static Map<String, Integer> parseTypeLimits(String typeLimits) {
+        Map<String, Integer> limits = new HashMap<>();
+        if (typeLimits == null || typeLimits.isBlank()) {
+            return limits;
+        }
+        for (String entry : typeLimits.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid scheduler type limit: " + entry);
+            }
+            try {
+                limits.put(parts[0].trim(), Math.max(1, Integer.parseInt(parts[1].trim())));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid scheduler type limit: " + entry, e);
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Queue a task.
+     *
+     * @param type task type, for per-type concurrency limits and statistics
+     * @param owner fair-share key, usually the project ID
+     * @param priority priority class
+     * @param task the work
+     * @return completes when the task has run, exceptionally if it threw
+     * @throws IllegalStateException if the scheduler has been shut down
+     */
+    public CompletableFuture<Void> submit(String type, String owner, Priority priority, Runnable task) {
+        Task queued = new Task(type, owner != null ? owner : "", priority, task);
+        lock.lock();
+        try {
+            if (shutdown) {
+                throw new IllegalStateException("Analysis scheduler is shut down");
+            }
+            queues.get(priority).add(queued);
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        return queued.future;
+    }
+
+    /**
+     * Snapshot of queue depths, running tasks and recent queue wait times.
+     */
+    public SchedulerStatsResponse getStats() {
+        lock.lock();
+        try {
+            SchedulerStatsResponse stats = new SchedulerStatsResponse();
+            stats.setWorkerThreads(threads);
+            stats.setCompletedTasks(completedTasks);
+            Map<String, Integer> queued = new LinkedHashMap<>();
+            Map<String, SchedulerStatsResponse.WaitTimePercentiles> waits = new LinkedHashMap<>();
+            for (Priority priority : Priority.values()) {
+                queued.put(priority.name(), queues.get(priority).size);
+                waits.put(priority.name(), waitTimes.get(priority).percentiles());
+            }
+            stats.setQueueDepth(queued);
+            stats.setQueuedOwners(queues.values().stream().mapToInt(queue -> queue.byOwner.size()).sum());
+            stats.setRunningByType(new TreeMap<>(runningByType));
+            stats.setRunningTasks(runningByType.values().stream().mapToInt(Integer::intValue).sum());
+            stats.setWaitTimes(waits);
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the workers. Queued tasks are dropped and running tasks are interrupted.
+     */
+    @PreDestroy
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.forEach(Thread::interrupt);
+    }
+
+    private void workerLoop() {
+        while (true) {
+            Task task;
+            lock.lock();
+            try {
+                while ((task = nextTask()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                runningByType.merge(task.type, 1, Integer::sum);
+                if (task.priority == Priority.BATCH) {
+                    runningBatch++;
+                }
+                waitTimes.get(task.priority).record(System.nanoTime() - task.queuedNanos);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.work.run();
+                task.future.complete(null);
+            } catch (Throwable e) {
+                log.error("Analysis task failed: {} for {}", task.type, task.owner, e);
+                task.future.completeExceptionally(e);
+            } finally {
+                lock.lock();
+                try {
+                    runningByType.merge(task.type, -1, (a, b) -> a + b == 0 ? null : a + b);
+                    if (task.priority == Priority.BATCH) {
+                        runningBatch--;
+                    }
+                    completedTasks++;
+                    workAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Next runnable task, or null. Called with the lock held.
+     */
+    private Task nextTask() {
+        if (shutdown) {
+            return null;
+        }
+        Task task = queues.get(Priority.INTERACTIVE).poll(this::underTypeLimit);
+        if (task == null && runningBatch < threads - 1) {
+            task = queues.get(Priority.BATCH).poll(this::underTypeLimit);
+        }
+        return task;
+    }
+
+    private boolean underTypeLimit(String type) {
+        Integer limit = typeLimits.get(type);
+        return limit == null || runningByType.getOrDefault(type, 0) < limit;
+    }
+
+    private static final class Task {
+        private final String type;
+        private final String owner;
+        private final Priority priority;
+        private final Runnable work;
+        private final long queuedNanos = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Task(String type, String owner, Priority priority, Runnable work) {
+            this.type = type;
+            this.owner = owner;
+            this.priority = priority;
+            this.work = work;
+        }
+    }
+
+    /**
+     * Per-owner FIFO queues visited round-robin. Guarded by the scheduler lock.
+     */
+    private static final class FairQueue {
+        private final Map<String, ArrayDeque<Task>> byOwner = new HashMap<>();
+        private final ArrayDeque<String> rotation = new ArrayDeque<>();
+        private int size;
+
+        void add(Task task) {
+            ArrayDeque<Task> tasks = byOwner.get(task.owner);
+            if (tasks == null) {
+                tasks = new ArrayDeque<>();
+                byOwner.put(task.owner, tasks);
+                rotation.addLast(task.owner);
+            }
+            tasks.addLast(task);
+            size++;
+        }
+
+        /**
+         * Oldest task of the next owner in turn whose type may run; that owner
+         * then moves to the back of the rotation.
+         */
+        Task poll(Predicate<String> typeMayRun) {
+            for (int visited = rotation.size(); visited > 0; visited--) {
+                String owner = rotation.pollFirst();
+                ArrayDeque<Task> tasks = byOwner.get(owner);
+                Task found = null;
+                for (Iterator<Task> it = tasks.iterator(); it.hasNext(); ) {
+                    Task task = it.next();
+                    if (typeMayRun.test(task.type)) {
+                        it.remove();
+                        found = task;
+                        break;
+                    }
+                }
+                if (tasks.isEmpty()) {
+                    byOwner.remove(owner);
+                } else {
+                    rotation.addLast(owner);
+                }
+                if (found != null) {
+                    size--;
+                    return found;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Ring buffer of the most recent queue wait times. Guarded by the scheduler lock.
+     */
+    private static final class WaitTimes {
+        private final long[] samples = new long[WAIT_SAMPLES];
+        private long count;
+
+        void record(long waitNanos) {
+            samples[(int) (count++ % WAIT_SAMPLES)] = waitNanos;
+        }
+
+        SchedulerStatsResponse.WaitTimePercentiles percentiles() {
+            int n = (int) Math.min(count, WAIT_SAMPLES);
+            long[] sorted = Arrays.copyOf(samples, n);
+            Arrays.sort(sorted);
+            return new SchedulerStatsResponse.WaitTimePercentiles(count,
+                    percentileMillis(sorted, 0.50), percentileMillis(sorted, 0.90),
+                    percentileMillis(sorted, 0.99), n == 0 ? 0.0 : sorted[n - 1] / 1e6);
+        }
+
+        private static double percentileMillis(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+}
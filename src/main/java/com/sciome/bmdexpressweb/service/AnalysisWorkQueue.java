@@ -0,0 +1,329 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Distribution of category analysis batches across nodes.
+ *
+ * The node's role is set by bmdexpress.mode:
+ * - standalone (default): batches run on this node's AnalysisScheduler
+ * - api: batches are written to the shared work queue (bmdexpress.queue.dir)
+ *   and their results are collected from it; nothing is analyzed here
+ * - worker: AnalysisWorker claims batches from the queue and runs them here
+ *
+ * All nodes share one FileLeaseQueue. The API node polls the queue for the
+ * batches it submitted, reports them as running once a worker holds them and
+ * applies their results when they arrive. Every node reaps expired leases, so
+ * a batch held by a worker that died is retried elsewhere.
+ */
+@Component
+public class AnalysisWorkQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisWorkQueue.class);
+
+    // Results and failed tasks nobody collected are deleted after this long
+    private static final Duration UNCLAIMED_RETENTION = Duration.ofDays(1);
+
+    public enum Mode {
+        STANDALONE, API, WORKER
+    }
+
+    /**
+     * Receives the outcome of a submitted batch, on the queue's poller thread
+     */
+    public interface Callback {
+        /**
+         * A worker has claimed the batch
+         */
+        void running();
+
+        void completed(BatchResult result);
+
+        /**
+         * The batch could not be run, e.g. its workers kept dying
+         */
+        void failed(String message);
+    }
+
+    private final Mode mode;
+    private final FileLeaseQueue queue;
+    private final ScheduledExecutorService poller;
+
+    // Batches submitted by this node and not yet finished
+    private final Map<String, Submitted> submitted = new ConcurrentHashMap<>();
+
+    /**
+     * Standalone node: no queue
+     */
+    public AnalysisWorkQueue() {
+        this(Mode.STANDALONE, null, Duration.ZERO);
+    }
+
+    /**
+     * @param mode role of this node
+     * @param queue the shared queue (ignored for standalone nodes)
+     * @param pollInterval how often the API node checks on its batches
+     */
+    public AnalysisWorkQueue(Mode mode, FileLeaseQueue queue, Duration pollInterval) {
+        this.mode = mode;
+        this.queue = mode != Mode.STANDALONE ? queue : null;
+        if (mode == Mode.API) {
+            long pollMillis = Math.max(10, pollInterval.toMillis());
+            poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "work-queue-poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        } else {
+            poller = null;
+        }
+    }
+
+    @Autowired
+    public AnalysisWorkQueue(
+            @Value("${bmdexpress.mode:standalone}") String mode,
+            @Value("${bmdexpress.queue.dir:data/queue}") String directory,
+            @Value("${bmdexpress.queue.lease-seconds:60}") long leaseSeconds,
+            @Value("${bmdexpress.queue.max-attempts:3}") int maxAttempts,
+            @Value("${bmdexpress.queue.poll-ms:500}") long pollMillis) {
+        this(Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT)),
+                openQueue(mode, directory, leaseSeconds, maxAttempts), Duration.ofMillis(pollMillis));
+    }
+
+    private static FileLeaseQueue openQueue(String mode, String directory, long leaseSeconds, int maxAttempts) {
+        if ("standalone".equalsIgnoreCase(mode.trim())) {
+            return null;
+        }
+        try {
+            return new FileLeaseQueue(Path.of(directory), Duration.ofSeconds(Math.max(1, leaseSeconds)), maxAttempts);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open work queue " + directory, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (poller != null) {
+            poller.shutdownNow();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * True if batches submitted on this node are run by workers
+     */
+    public boolean dispatchesRemotely() {
+        return mode == Mode.API;
+    }
+
+    /**
+     * The shared queue, or null on a standalone node
+     */
+    FileLeaseQueue getQueue() {
+        return queue;
+    }
+
+    /**
+     * Put a batch on the queue for a worker
+     *
+     * @throws UncheckedIOException if the batch cannot be written to the queue
+     */
+    public void submit(String batchId, BatchTask task, Callback callback) {
+        try {
+            queue.enqueue(batchId, task);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to queue batch " + batchId, e);
+        }
+        submitted.put(batchId, new Submitted(callback));
+        log.info("Queued batch {} for a worker ({} variants)", batchId, task.getNames().size());
+    }
+
+    /**
+     * Stop a submitted batch: removed if still queued, otherwise its worker is asked to stop
+     */
+    public void cancel(String batchId) {
+        if (queue == null || submitted.remove(batchId) == null) {
+            return;
+        }
+        try {
+            queue.cancel(batchId);
+        } catch (IOException e) {
+            log.warn("Failed to cancel queued batch {}", batchId, e);
+        }
+    }
+
+    /**
+     * Check every submitted batch once; reap expired leases and old leftovers
+     */
+    void poll() {
+        try {
+            queue.reapExpiredLeases();
+            for (Map.Entry<String, Submitted> entry : submitted.entrySet()) {
+                String batchId = entry.getKey();
+                Submitted batch = entry.getValue();
+                FileLeaseQueue.State state = queue.state(batchId);
+                if (state != FileLeaseQueue.State.UNKNOWN) {
+                    batch.missing = false;
+                }
+                switch (state) {
+                    case LEASED -> {
+                        if (!batch.running) {
+                            batch.running = true;
+                            batch.callback.running();
+                        }
+                    }
+                    case DONE -> {
+                        BatchResult result = queue.takeResult(batchId, BatchResult.class);
+                        if (result != null && submitted.remove(batchId) != null) {
+                            batch.callback.completed(result);
+                        }
+                    }
+                    case FAILED -> {
+                        submitted.remove(batchId);
+                        queue.discard(batchId);
+                        batch.callback.failed("Batch failed: its worker stopped responding on every attempt");
+                    }
+                    case UNKNOWN -> {
+                        // A task moving between directories can be missed once
+                        if (batch.missing && submitted.remove(batchId) != null) {
+                            batch.callback.failed("Batch was removed from the work queue");
+                        }
+                        batch.missing = true;
+                    }
+                    default -> {
+                        // still pending
+                    }
+                }
+            }
+            queue.sweep(UNCLAIMED_RETENTION);
+        } catch (Exception e) {
+            log.warn("Work queue poll failed", e);
+        }
+    }
+
+    private static final class Submitted {
+        private final Callback callback;
+        private boolean running;
+        // Not found in the queue on the last poll
+        private boolean missing;
+
+        Submitted(Callback callback) {
+            this.callback = callback;
+        }
+    }
+
+    /**
+     * A category analysis batch, as queued for a worker
+     */
+    public static final class BatchTask implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String projectId;
+        private final BMDResult bmdResult;
+        private final CategoryAnalysisEnum analysisType;
+        private final List<String> names;
+        private final List<CategoryAnalysisParametersDto> parameters;
+
+        public BatchTask(String projectId, BMDResult bmdResult, CategoryAnalysisEnum analysisType,
+                         List<String> names, List<CategoryAnalysisParametersDto> parameters) {
+            this.projectId = projectId;
+            this.bmdResult = bmdResult;
+            this.analysisType = analysisType;
+            this.names = new ArrayList<>(names);
+            this.parameters = new ArrayList<>(parameters);
+        }
+
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public BMDResult getBmdResult() {
+            return bmdResult;
+        }
+
+        public CategoryAnalysisEnum getAnalysisType() {
+            return analysisType;
+        }
+
+        public List<String> getNames() {
+            return names;
+        }
+
+        public List<CategoryAnalysisParametersDto> getParameters() {
+            return parameters;
+        }
+    }
+
+    /**
+     * Outcome of a batch, one entry per variant in request order
+     */
+    public static final class BatchResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final List<VariantResult> variants;
+
+        public BatchResult(List<VariantResult> variants) {
+            this.variants = new ArrayList<>(variants);
+        }
+
+        public List<VariantResult> getVariants() {
+            return variants;
+        }
+    }
+
+    /**
+     * Outcome of one variant: COMPLETED with its table, or FAILED / CANCELLED with a message
+     */
+    public static final class VariantResult implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String status;
+        private final CategoryAnalysisTableView tableView;
+        private final String errorMessage;
+
+        public VariantResult(String status, CategoryAnalysisTableView tableView, String errorMessage) {
+            this.status = status;
+            this.tableView = tableView;
+            this.errorMessage = errorMessage;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public CategoryAnalysisTableView getTableView() {
+            return tableView;
+        }
+
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+}
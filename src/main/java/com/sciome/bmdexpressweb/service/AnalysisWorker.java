@@ -0,0 +1,184 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
+import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService.AnalysisJobResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs category analysis batches claimed from the shared work queue, on
+ * worker nodes (bmdexpress.mode=worker); does nothing on other nodes.
+ *
+ * Each of bmdexpress.worker.concurrency threads claims one batch at a time and
+ * runs it through this node's CategoryAnalysisAsyncService, so the batch gets
+ * the same scheduling, engine sharing and timeouts as a local submission.
+ * While it runs, the lease is renewed every third of the lease duration; if the
+ * lease is lost or the submitter cancels the batch, the local jobs are
+ * cancelled. Idle threads reap expired leases and poll for new batches.
+ */
+@Component
+public class AnalysisWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisWorker.class);
+
+    private static final long CHECK_MILLIS = 100;
+
+    private final AnalysisWorkQueue workQueue;
+    private final CategoryAnalysisAsyncService analysisService;
+    private final int concurrency;
+    private final long pollMillis;
+    private final String workerId;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+
+    public AnalysisWorker(AnalysisWorkQueue workQueue, CategoryAnalysisAsyncService analysisService,
+                          int concurrency, Duration pollInterval) {
+        this.workQueue = workQueue;
+        this.analysisService = analysisService;
+        this.concurrency = Math.max(1, concurrency);
+        this.pollMillis = Math.max(10, pollInterval.toMillis());
+        this.workerId = ManagementFactory.getRuntimeMXBean().getName();
+    }
+
+    @Autowired
+    public AnalysisWorker(
+            AnalysisWorkQueue workQueue,
+            CategoryAnalysisAsyncService analysisService,
+            @Value("${bmdexpress.worker.concurrency:1}") int concurrency,
+            @Value("${bmdexpress.queue.poll-ms:500}") long pollMillis) {
+        this(workQueue, analysisService, concurrency, Duration.ofMillis(pollMillis));
+    }
+
+    @PostConstruct
+    public void start() {
+        if (workQueue.getMode() != AnalysisWorkQueue.Mode.WORKER || running) {
+            return;
+        }
+        running = true;
+        for (int i = 1; i <= concurrency; i++) {
+            Thread thread = new Thread(this::workLoop, "analysis-worker-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        log.info("Analysis worker {} started with {} threads", workerId, concurrency);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+        threads.clear();
+    }
+
+    private void workLoop() {
+        FileLeaseQueue queue = workQueue.getQueue();
+        while (running) {
+            try {
+                queue.reapExpiredLeases();
+                FileLeaseQueue.Lease lease = queue.claim();
+                if (lease == null) {
+                    Thread.sleep(pollMillis);
+                    continue;
+                }
+                process(queue, lease);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Analysis worker loop failed", e);
+            }
+        }
+    }
+
+    /**
+     * Run one claimed batch to completion and report its outcome
+     */
+    void process(FileLeaseQueue queue, FileLeaseQueue.Lease lease) throws Exception {
+        AnalysisWorkQueue.BatchTask task = (AnalysisWorkQueue.BatchTask) lease.getPayload();
+        log.info("Worker {} running batch {} (attempt {})", workerId, lease.getTaskId(), lease.getAttempt());
+
+        List<CategoryAnalysisBatchRequest.Variant> variants = new ArrayList<>();
+        for (int i = 0; i < task.getNames().size(); i++) {
+            variants.add(new CategoryAnalysisBatchRequest.Variant(task.getNames().get(i), task.getParameters().get(i)));
+        }
+        String localBatchId = analysisService.submitBatch(task.getProjectId(), task.getBmdResult(),
+                task.getAnalysisType(), variants);
+        List<AnalysisJobResult> jobs = analysisService.getBatch(localBatchId);
+
+        long renewEvery = Math.max(CHECK_MILLIS, queue.getLeaseDuration().toMillis() / 3);
+        long nextRenewal = System.currentTimeMillis() + renewEvery;
+        try {
+            while (!jobs.stream().allMatch(job -> job.getCompletedAt() != null)) {
+                if (!running) {
+                    cancelAll(jobs);
+                    queue.release(lease);
+                    return;
+                }
+                if (System.currentTimeMillis() >= nextRenewal) {
+                    nextRenewal = System.currentTimeMillis() + renewEvery;
+                    if (!queue.renew(lease)) {
+                        log.warn("Worker {} lost the lease on batch {}", workerId, lease.getTaskId());
+                        cancelAll(jobs);
+                        return;
+                    }
+                    if (queue.isCancelled(lease.getTaskId())) {
+                        log.info("Batch {} cancelled by its submitter", lease.getTaskId());
+                        cancelAll(jobs);
+                    }
+                }
+                try {
+                    Thread.sleep(CHECK_MILLIS);
+                } catch (InterruptedException e) {
+                    // Shutting down: hand the batch to another worker
+                    cancelAll(jobs);
+                    queue.release(lease);
+                    throw e;
+                }
+            }
+
+            List<AnalysisWorkQueue.VariantResult> results = new ArrayList<>();
+            for (AnalysisJobResult job : jobs) {
+                results.add(new AnalysisWorkQueue.VariantResult(job.getStatus(),
+                        "COMPLETED".equals(job.getStatus()) ? job.getTableView() : null, job.getErrorMessage()));
+            }
+            queue.complete(lease, new AnalysisWorkQueue.BatchResult(results));
+            log.info("Worker {} finished batch {}", workerId, lease.getTaskId());
+        } finally {
+            // The results now live on the submitting node
+            for (AnalysisJobResult job : jobs) {
+                try {
+                    if (job.getCompletedAt() != null) {
+                        analysisService.cancelAnalysis(job.getAnalysisId());
+                    }
+                } catch (IllegalArgumentException e) {
+                    // already gone
+                }
+            }
+        }
+    }
+
+    private void cancelAll(List<AnalysisJobResult> jobs) {
+        for (AnalysisJobResult job : jobs) {
+            try {
+                if (job.getCompletedAt() == null) {
+                    analysisService.cancelAnalysis(job.getAnalysisId());
+                }
+            } catch (IllegalArgumentException e) {
+                // already gone
+            }
+        }
+    }
+}
@@ -15,26 +15,57 @@ import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuil
 import org.apache.hc.client5.http.ssl.SSLConnectionSocketFactory;
 import org.apache.hc.client5.http.ssl.TrustAllStrategy;
 import org.apache.hc.core5.ssl.SSLContexts;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
 import com.sciome.bmdexpressweb.dto.ProjectUploadResponse;
 
 import javax.net.ssl.SSLContext;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.http.HttpClient;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service to interact with BMDExpress REST API
+ *
+ * Calls block the calling thread, except followAnalysis, which reads the
+ * analysis' event stream asynchronously. The UI makes them from the blocking I/O
+ * executor (see ThreadingConfig), which uses virtual threads when
+ * spring.threads.virtual.enabled is set; the connection pool is sized so that
+ * many concurrent calls are not serialized on a handful of connections.
+ *
+ * Result tables (category results, completed analyses) are requested in the
+ * columnar binary format of ColumnarTableCodec unless
+ * bmdexpress.api.binary-tables is off, and decoded into the same maps as
+ * their JSON form. JSON responses (e.g. the status of a running analysis)
+ * are still understood.
  */
 @Service
 public class BmdExpressApiService {
 
+    // Columnar tables preferred, JSON for everything else
+    private static final String TABLE_ACCEPT =
+            ColumnarTableCodec.MEDIA_TYPE_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.5";
+
     private final RestTemplate restTemplate;
+    private final AnalysisEventClient eventClient;
     private final String apiUrl;
+    private final boolean binaryTables;
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
-    public BmdExpressApiService(@Value("${bmdexpress.api.url:}") String apiUrl) {
+    public BmdExpressApiService(@Value("${bmdexpress.api.url:}") String apiUrl,
+                                @Value("${bmdexpress.api.max-connections:64}") int maxConnections,
+                                @Value("${bmdexpress.api.binary-tables:true}") boolean binaryTables) {
         // If no API URL is configured, use empty string for relative URLs (same server)
         this.apiUrl = apiUrl;
+        this.binaryTables = binaryTables;
         try {
             // Trust all certificates (for self-signed certs) and disable hostname verification
             SSLContext sslContext = SSLContexts.custom()
@@ -51,12 +82,20 @@ public class BmdExpressApiService {
                     .setConnectionManager(
                         PoolingHttpClientConnectionManagerBuilder.create()
                             .setSSLSocketFactory(socketFactory)
+                            .setMaxConnTotal(maxConnections)
+                            .setMaxConnPerRoute(maxConnections)
                             .build()
                     )
                     .build();
 
             HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient);
             this.restTemplate = new RestTemplate(factory);
+
+            // Event streams stay open for the whole analysis; read them asynchronously
+            this.eventClient = new AnalysisEventClient(HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .sslContext(sslContext)
+                    .build(), apiUrl, objectMapper);
         } catch (Exception e) {
             throw new RuntimeException("Failed to create RestTemplate", e);
         }
@@ -90,6 +129,37 @@ public class BmdExpressApiService {
         return response.getBody();
     }
 
+    /**
+     * Get project metadata as a typed summary (same shape as the upload response)
+     */
+    public ProjectUploadResponse getProjectSummary(String projectId) {
+        String url = apiUrl + "/api/projects/" + projectId;
+        ResponseEntity<ProjectUploadResponse> response = restTemplate.getForEntity(url, ProjectUploadResponse.class);
+        return response.getBody();
+    }
+
+    /**
+     * Import an expression matrix (TSV/CSV) into a project
+     */
+    public ExpressionImportResponse importExpressionData(String projectId, File file, String experimentName) {
+        String url = apiUrl + "/api/projects/" + projectId + "/expression-data";
+
+        MultiValueMap<String, Object> body = new LinkedMultiValueMap<>();
+        body.add("file", new FileSystemResource(file));
+        if (experimentName != null) {
+            body.add("name", experimentName);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        HttpEntity<MultiValueMap<String, Object>> requestEntity = new HttpEntity<>(body, headers);
+
+        ResponseEntity<ExpressionImportResponse> response =
+                restTemplate.postForEntity(url, requestEntity, ExpressionImportResponse.class);
+        return response.getBody();
+    }
+
     /**
      * Get the full BMDProject object
      */
@@ -133,9 +203,7 @@ public class BmdExpressApiService {
         String url = apiUrl + "/api/category-analysis/" + analysisId;
 
         try {
-            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-            System.out.println("DEBUG: Response status: " + response.getStatusCode());
-            Map<String, Object> result = response.getBody();
+            Map<String, Object> result = getTable(url);
             System.out.println("DEBUG: Successfully received response, keys: " + (result != null ? result.keySet() : "null"));
             return result;
         } catch (Exception e) {
@@ -145,6 +213,22 @@ public class BmdExpressApiService {
         }
     }
 
+    /**
+     * Follow a category analysis to its final state over its server-sent
+     * events (GET /api/category-analysis/{id}/events).
+     *
+     * Does not block: no thread is held while the analysis runs, so any number
+     * of analyses can be followed at once. Cancelling the returned future
+     * closes the stream.
+     *
+     * @param analysisId The analysis ID
+     * @return the final event (analysisId, status, errorMessage, ...); completes
+     *         exceptionally if the analysis is not found or was deleted
+     */
+    public CompletableFuture<Map<String, Object>> followAnalysis(String analysisId) {
+        return eventClient.follow(analysisId);
+    }
+
     /**
      * List available .bm2 files on server
      */
@@ -179,8 +263,44 @@ public class BmdExpressApiService {
     @SuppressWarnings("unchecked")
     public Map<String, Object> getCategoryResult(String projectId, String resultName) {
         String url = apiUrl + "/api/projects/" + projectId + "/category-results/" + resultName;
-        ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
-        return response.getBody();
+        return getTable(url);
+    }
+
+    /**
+     * GET a result table, columnar if enabled and the server sends it, otherwise JSON
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getTable(String url) {
+        if (!binaryTables) {
+            ResponseEntity<Map> response = restTemplate.getForEntity(url, Map.class);
+            return response.getBody();
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, TABLE_ACCEPT);
+        ResponseEntity<byte[]> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+        byte[] body = response.getBody();
+        if (body == null || body.length == 0) {
+            return null;
+        }
+        try {
+            MediaType contentType = response.getHeaders().getContentType();
+            if (contentType != null && ColumnarTableCodec.MEDIA_TYPE.isCompatibleWith(contentType)) {
+                return toMap(ColumnarTableCodec.read(new ByteArrayInputStream(body)));
+            }
+            return objectMapper.readValue(body, Map.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read result table from " + url, e);
+        }
+    }
+
+    // Same keys as the JSON form of a table
+    private static Map<String, Object> toMap(CategoryAnalysisTableView table) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", table.getName());
+        map.put("columnHeader", table.getColumnHeader());
+        map.put("categoryAnalsyisResults", table.getCategoryAnalsyisResults());
+        return map;
     }
 
     /**
@@ -1,80 +1,838 @@
 package com.sciome.bmdexpressweb.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.analysis.CancellationToken;
+import com.sciome.bmdexpressweb.analysis.CategoryAnalysisEngine;
+import com.sciome.bmdexpressweb.analysis.CategoryMapping;
+import com.sciome.bmdexpressweb.analysis.ExpressionMatrix;
+import com.sciome.bmdexpressweb.analysis.ProbeFilterIndex;
+import com.sciome.bmdexpressweb.analysis.ProbeStatTable;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
 import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Async service for running category analyses
- * Wraps the core CategoryAnalysisService from BMDExpress
+ *
+ * GENE_LEVEL and DEFINED analyses, single or batched, are computed by the
+ * server-side CategoryAnalysisEngine. GO and PATHWAY analyses need the desktop
+ * annotation databases and are rejected (AnalysisNotAvailableException).
+ *
+ * All work runs on the shared AnalysisScheduler, queued per project.
+ *
+ * Every job carries a CancellationToken that the engines check between
+ * categories. Jobs can be cancelled on request and are stopped when they run
+ * longer than the timeout configured for their analysis type; either way the
+ * worker moves on at once and the job's intermediate state is released.
+ *
+ * Identical submissions (same request key, see AnalysisRequestKeys) are
+ * deduplicated: a request identical to a pending or running one is attached to
+ * that job, and one identical to a completed job gets the completed job's ID.
+ * Each submitter counts as an attachment to the shared job; cancelling or
+ * deleting it only detaches the caller until the last attachment is released.
+ *
+ * On an API node (bmdexpress.mode=api) batches are not run here but queued for
+ * worker nodes through AnalysisWorkQueue; their jobs are updated as the
+ * workers report back. Parameter updates need the engine state of a locally
+ * run analysis and are not available for batches run by workers.
+ *
+ * Engine state is kept apart from the jobs, in a small cache of the most
+ * recently used engines that is read only by parameter updates; finished jobs
+ * hold their results alone.
  */
 @Service
 public class CategoryAnalysisAsyncService {
 
     private static final Logger logger = LoggerFactory.getLogger(CategoryAnalysisAsyncService.class);
 
-    // In-memory result store
-    private final Map<String, AnalysisJobResult> analysisResults = new ConcurrentHashMap<>();
+    // Engines kept for parameter updates: the most recently used ones, while in use
+    static final int MAX_ENGINES = 16;
+    static final Duration ENGINE_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private final ProbeFilterService probeFilterService;
+    private final ExpressionMatrixService expressionMatrixService;
+    private final AnalysisScheduler scheduler;
+    private final AnalysisJobStore jobStore;
+    private final AnalysisWorkQueue workQueue;
+    private final Map<CategoryAnalysisEnum, Duration> timeouts;
+    private final CategoryDefinitionFiles definitionFiles;
+
+    // Notified whenever a job starts, finishes or has its results updated
+    private final List<Consumer<AnalysisJobResult>> jobListeners = new CopyOnWriteArrayList<>();
+
+    // Request key -> analysis ID of the job computing it; entries whose job has
+    // failed, been cancelled or left the job store are replaced on the next lookup
+    private final Cache<String, String> requestKeys = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .build();
+
+    // Analysis ID -> engine of a completed, locally computed analysis (batch
+    // variants with the same category definition share one engine)
+    private final Cache<String, CategoryAnalysisEngine> engines = CacheBuilder.newBuilder()
+            .concurrencyLevel(1) // one segment, so the least recently used engine goes first
+            .maximumSize(MAX_ENGINES)
+            .expireAfterAccess(ENGINE_IDLE_TIMEOUT)
+            .build();
+
+    /**
+     * Service with an in-memory job store and without analysis timeouts
+     */
+    public CategoryAnalysisAsyncService(ProbeFilterService probeFilterService,
+                                        ExpressionMatrixService expressionMatrixService,
+                                        AnalysisScheduler scheduler) {
+        this(probeFilterService, expressionMatrixService, scheduler, new AnalysisJobStore(), Map.of());
+    }
+
+    /**
+     * @param timeouts maximum running time per analysis type; types without an entry never time out
+     */
+    public CategoryAnalysisAsyncService(ProbeFilterService probeFilterService,
+                                        ExpressionMatrixService expressionMatrixService,
+                                        AnalysisScheduler scheduler,
+                                        AnalysisJobStore jobStore,
+                                        Map<CategoryAnalysisEnum, Duration> timeouts) {
+        this(probeFilterService, expressionMatrixService, scheduler, jobStore, new AnalysisWorkQueue(), timeouts);
+    }
+
+    /**
+     * @param workQueue queue for running batches on worker nodes (used on API nodes only)
+     * @param timeouts maximum running time per analysis type; types without an entry never time out
+     */
+    public CategoryAnalysisAsyncService(ProbeFilterService probeFilterService,
+                                        ExpressionMatrixService expressionMatrixService,
+                                        AnalysisScheduler scheduler,
+                                        AnalysisJobStore jobStore,
+                                        AnalysisWorkQueue workQueue,
+                                        Map<CategoryAnalysisEnum, Duration> timeouts) {
+        this(probeFilterService, expressionMatrixService, scheduler, jobStore, workQueue, timeouts,
+                new CategoryDefinitionFiles(CategoryDefinitionFiles.DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * @param workQueue queue for running batches on worker nodes (used on API nodes only)
+     * @param timeouts maximum running time per analysis type; types without an entry never time out
+     * @param definitionFiles where the category definition files of DEFINED analyses are found
+     */
+    public CategoryAnalysisAsyncService(ProbeFilterService probeFilterService,
+                                        ExpressionMatrixService expressionMatrixService,
+                                        AnalysisScheduler scheduler,
+                                        AnalysisJobStore jobStore,
+                                        AnalysisWorkQueue workQueue,
+                                        Map<CategoryAnalysisEnum, Duration> timeouts,
+                                        CategoryDefinitionFiles definitionFiles) {
+        this.probeFilterService = probeFilterService;
+        this.expressionMatrixService = expressionMatrixService;
+        this.scheduler = scheduler;
+        this.jobStore = jobStore;
+        this.workQueue = workQueue;
+        this.timeouts = timeouts.isEmpty() ? Map.of() : new EnumMap<>(timeouts);
+        this.definitionFiles = definitionFiles;
+    }
+
+    @Autowired
+    public CategoryAnalysisAsyncService(
+            ProbeFilterService probeFilterService,
+            ExpressionMatrixService expressionMatrixService,
+            AnalysisScheduler scheduler,
+            AnalysisJobStore jobStore,
+            AnalysisWorkQueue workQueue,
+            CategoryDefinitionFiles definitionFiles,
+            @Value("${bmdexpress.category-analysis.timeout-seconds.gene-level:0}") long geneLevelTimeoutSeconds,
+            @Value("${bmdexpress.category-analysis.timeout-seconds.defined:0}") long definedTimeoutSeconds,
+            @Value("${bmdexpress.category-analysis.timeout-seconds.go:0}") long goTimeoutSeconds,
+            @Value("${bmdexpress.category-analysis.timeout-seconds.pathway:0}") long pathwayTimeoutSeconds) {
+        this(probeFilterService, expressionMatrixService, scheduler, jobStore, workQueue, timeoutMap(
+                geneLevelTimeoutSeconds, definedTimeoutSeconds, goTimeoutSeconds, pathwayTimeoutSeconds),
+                definitionFiles);
+    }
+
+    private static Map<CategoryAnalysisEnum, Duration> timeoutMap(long geneLevel, long defined, long go, long pathway) {
+        Map<CategoryAnalysisEnum, Duration> timeouts = new EnumMap<>(CategoryAnalysisEnum.class);
+        long[] seconds = {geneLevel, defined, go, pathway};
+        CategoryAnalysisEnum[] types = {CategoryAnalysisEnum.GENE_LEVEL, CategoryAnalysisEnum.DEFINED,
+                CategoryAnalysisEnum.GO, CategoryAnalysisEnum.PATHWAY};
+        for (int i = 0; i < types.length; i++) {
+            if (seconds[i] > 0) {
+                timeouts.put(types[i], Duration.ofSeconds(seconds[i]));
+            }
+        }
+        return timeouts;
+    }
 
     /**
      * Run category analysis asynchronously
      *
+     * The analysis is queued as interactive work on the AnalysisScheduler, in
+     * the fair-share queue of the submitting project; its ID is returned at once.
+     *
+     * @param projectId The project the BMD result belongs to (fair-share key)
      * @param bmdResult The BMDResult to analyze
-     * @param analysisType Type of category analysis (GO, PATHWAY, DEFINED, GENE_LEVEL)
-     * @param parametersDto Analysis parameters
+     * @param analysisType Type of category analysis (GENE_LEVEL or DEFINED)
+     * @param parametersDto Analysis parameters (null for the defaults)
      * @return CompletableFuture with analysis ID
+     * @throws AnalysisNotAvailableException for GO and PATHWAY analyses
+     * @throws IllegalArgumentException if a DEFINED analysis has no category file, names a
+     *         definition file that is not in the definitions directory, or a filter is set
+     *         whose probe statistics the BMD result lacks
      */
-    @Async
     public CompletableFuture<String> runCategoryAnalysisAsync(
+            String projectId,
             BMDResult bmdResult,
             CategoryAnalysisEnum analysisType,
             CategoryAnalysisParametersDto parametersDto) {
 
+        checkSupported(analysisType, parametersDto);
+        checkDefinitionFiles(analysisType, parametersDto);
+        CategoryAnalysisParametersDto parameters = parametersDto != null
+                ? parametersDto : new CategoryAnalysisParametersDto();
+        probeFilterService.getIndex(bmdResult).checkAvailable(parameters);
         String analysisId = UUID.randomUUID().toString();
 
         // Store initial status
         AnalysisJobResult job = new AnalysisJobResult(analysisId);
-        job.setStatus("RUNNING");
+        job.setProjectId(projectId);
+        job.setName(bmdResult.getName() + "_" + analysisType);
+        job.setAnalysisType(analysisType);
         job.setSubmittedAt(LocalDateTime.now());
-        analysisResults.put(analysisId, job);
+        jobStore.put(job);
+
+        scheduler.submit(AnalysisScheduler.CATEGORY_ANALYSIS, projectId, AnalysisScheduler.Priority.INTERACTIVE,
+                () -> runCategoryAnalysis(job, bmdResult, analysisType, parameters));
+        return CompletableFuture.completedFuture(analysisId);
+    }
+
+    /**
+     * Check that an analysis can be run by this service
+     *
+     * @throws AnalysisNotAvailableException for GO and PATHWAY analyses
+     * @throws IllegalArgumentException if the type is missing or a DEFINED analysis has no category file
+     */
+    public static void checkSupported(CategoryAnalysisEnum analysisType, CategoryAnalysisParametersDto parameters) {
+        if (analysisType == null) {
+            throw new IllegalArgumentException("Category analysis type is required");
+        }
+        if (analysisType != CategoryAnalysisEnum.GENE_LEVEL && analysisType != CategoryAnalysisEnum.DEFINED) {
+            throw new AnalysisNotAvailableException(analysisType
+                    + " category analysis needs the desktop annotation databases and is not available on this server");
+        }
+        if (analysisType == CategoryAnalysisEnum.DEFINED
+                && (parameters == null || parameters.getCategoryFilePath() == null)) {
+            throw new IllegalArgumentException("categoryFilePath is required for DEFINED analysis");
+        }
+    }
+
+    /**
+     * Check that the definition files a DEFINED analysis names are in the definitions directory
+     *
+     * @throws IllegalArgumentException if a file name is invalid or the file is not found
+     */
+    private void checkDefinitionFiles(CategoryAnalysisEnum analysisType, CategoryAnalysisParametersDto parameters) {
+        if (analysisType == CategoryAnalysisEnum.DEFINED && parameters != null) {
+            definitionFiles.resolve(parameters.getProbeFilePath());
+            definitionFiles.resolve(parameters.getCategoryFilePath());
+        }
+    }
+
+    /**
+     * Run category analysis asynchronously, reusing the job of an identical request.
+     *
+     * If a pending, running or completed job was submitted with the same request
+     * key, its analysis ID is returned, the caller is counted as another
+     * attachment to that job and nothing new is queued. Otherwise the analysis is
+     * submitted as by runCategoryAnalysisAsync and recorded under the key.
+     *
+     * @param projectId The project the BMD result belongs to (fair-share key)
+     * @param requestKey Canonical request key (see AnalysisRequestKeys), or null to skip deduplication
+     * @param bmdResult The BMDResult to analyze
+     * @param analysisType Type of category analysis (GO, PATHWAY, DEFINED, GENE_LEVEL)
+     * @param parametersDto Analysis parameters
+     * @return CompletableFuture with analysis ID
+     */
+    public CompletableFuture<String> runCategoryAnalysisAsync(
+            String projectId,
+            String requestKey,
+            BMDResult bmdResult,
+            CategoryAnalysisEnum analysisType,
+            CategoryAnalysisParametersDto parametersDto) {
+
+        if (requestKey == null) {
+            return runCategoryAnalysisAsync(projectId, bmdResult, analysisType, parametersDto);
+        }
+        synchronized (requestKeys) {
+            String existingId = requestKeys.getIfPresent(requestKey);
+            AnalysisJobResult existing = existingId != null ? jobStore.get(existingId) : null;
+            if (existing != null && attach(existing)) {
+                logger.info("Identical category analysis request for project {}: reusing {} ({})",
+                        projectId, existingId, existing.getStatus());
+                return CompletableFuture.completedFuture(existingId);
+            }
+            String analysisId = runCategoryAnalysisAsync(projectId, bmdResult, analysisType, parametersDto).join();
+            requestKeys.put(requestKey, analysisId);
+            return CompletableFuture.completedFuture(analysisId);
+        }
+    }
+
+    /**
+     * Count another submitter of an identical request against a job, unless the
+     * job has failed, was cancelled or was deleted meanwhile
+     */
+    private boolean attach(AnalysisJobResult job) {
+        synchronized (job) {
+            if (job.attachments == 0 || "FAILED".equals(job.getStatus()) || "CANCELLED".equals(job.getStatus())) {
+                return false;
+            }
+            job.attachments++;
+            return true;
+        }
+    }
+
+    private void runCategoryAnalysis(AnalysisJobResult job, BMDResult bmdResult,
+                                     CategoryAnalysisEnum analysisType, CategoryAnalysisParametersDto parametersDto) {
+        synchronized (job) {
+            if (job.cancellation.isCancelled()) {
+                return;
+            }
+            job.setStatus("RUNNING");
+            job.setStage("ANALYZING");
+            job.cancellation.startDeadline(timeoutMillis(analysisType));
+        }
+        changed(job);
 
         try {
             logger.info("Starting category analysis: {} for BMDResult: {}", analysisType, bmdResult.getName());
+            long start = System.nanoTime();
+
+            ProbeFilterIndex filters = probeFilterService.getIndex(bmdResult);
+            DoseResponseExperiment experiment = bmdResult.getDoseResponseExperiment();
+            CategoryAnalysisEngine engine = new CategoryAnalysisEngine(filters,
+                    buildMapping(filters.getTable(), analysisType, parametersDto),
+                    experiment != null ? () -> expressionMatrixService.getMatrix(experiment) : null);
+            CategoryAnalysisTableView tableView = engine.analyze(job.getName(), parametersDto, job.cancellation);
+            completed(job, tableView, engine, parametersDto);
+
+            logger.info("Completed category analysis {} in {} ms",
+                    job.getAnalysisId(), (System.nanoTime() - start) / 1_000_000);
+
+        } catch (CancellationException e) {
+            logger.info("Category analysis stopped: {} ({})", job.getAnalysisId(), e.getMessage());
+            stopped(job);
+        } catch (Exception e) {
+            logger.error("Category analysis failed: {}", job.getAnalysisId(), e);
+            fail(job, e);
+        }
+    }
+
+    /**
+     * Submit a batch of category analysis variants against one BMD result.
+     *
+     * All variants run in a single background job that shares work between them:
+     * the probe filters are compiled once per BMD result (and cached across
+     * batches), the gene/category mapping is built once, and per-category statistics are
+     * computed once per distinct set of passing probes. Each variant gets its own
+     * analysis ID and result.
+     *
+     * Only GENE_LEVEL and DEFINED analyses are supported; GO and PATHWAY need the
+     * desktop annotation databases.
+     *
+     * The batch runs on the AnalysisScheduler one variant per task, in the
+     * submitting project's fair-share queue. Sweeps of several variants run at
+     * BATCH priority; a single variant is treated as interactive.
+     *
+     * @param projectId The project the BMD result belongs to (fair-share key)
+     * @param bmdResult The BMDResult to analyze
+     * @param analysisType Type of category analysis (GENE_LEVEL or DEFINED)
+     * @param variants The parameter variants
+     * @return Batch ID
+     * @throws IllegalArgumentException if the analysis type or variants are invalid
+     */
+    public String submitBatch(String projectId, BMDResult bmdResult, CategoryAnalysisEnum analysisType,
+                              List<CategoryAnalysisBatchRequest.Variant> variants) {
+
+        if (analysisType != CategoryAnalysisEnum.GENE_LEVEL && analysisType != CategoryAnalysisEnum.DEFINED) {
+            throw new IllegalArgumentException(
+                    "Batch category analysis supports GENE_LEVEL and DEFINED analyses only, not " + analysisType);
+        }
+        if (variants == null || variants.isEmpty()) {
+            throw new IllegalArgumentException("At least one variant is required");
+        }
+
+        ProbeFilterIndex filters = probeFilterService.getIndex(bmdResult);
+        List<CategoryAnalysisParametersDto> parameters = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            CategoryAnalysisBatchRequest.Variant variant = variants.get(i);
+            CategoryAnalysisParametersDto variantParameters = variant.getParameters() != null
+                    ? variant.getParameters() : new CategoryAnalysisParametersDto();
+            if (analysisType == CategoryAnalysisEnum.DEFINED && variantParameters.getCategoryFilePath() == null) {
+                throw new IllegalArgumentException("categoryFilePath is required for DEFINED analysis");
+            }
+            checkDefinitionFiles(analysisType, variantParameters);
+            filters.checkAvailable(variantParameters);
+            parameters.add(variantParameters);
+            names.add(variant.getName() != null ? variant.getName()
+                    : bmdResult.getName() + "_" + analysisType + "_" + (i + 1));
+        }
+
+        String batchId = UUID.randomUUID().toString();
+        List<AnalysisJobResult> jobs = new ArrayList<>();
+        for (int i = 0; i < variants.size(); i++) {
+            AnalysisJobResult job = new AnalysisJobResult(UUID.randomUUID().toString());
+            job.setProjectId(projectId);
+            job.setName(names.get(i));
+            job.setAnalysisType(analysisType);
+            job.setSubmittedAt(LocalDateTime.now());
+            jobs.add(job);
+        }
+        jobStore.putBatch(batchId, jobs);
+
+        if (workQueue.dispatchesRemotely()) {
+            logger.info("Queueing batch category analysis {} for a worker: {} variants of {} for BMDResult: {}",
+                    batchId, variants.size(), analysisType, bmdResult.getName());
+            try {
+                workQueue.submit(batchId,
+                        new AnalysisWorkQueue.BatchTask(projectId, bmdResult, analysisType, names, parameters),
+                        new RemoteBatch(jobs, parameters));
+            } catch (UncheckedIOException e) {
+                logger.error("Batch category analysis failed: {}", batchId, e);
+                for (AnalysisJobResult job : jobs) {
+                    fail(job, e);
+                }
+            }
+            return batchId;
+        }
+
+        logger.info("Submitting batch category analysis {}: {} variants of {} for BMDResult: {}",
+                batchId, variants.size(), analysisType, bmdResult.getName());
+
+        AnalysisScheduler.Priority priority = variants.size() == 1
+                ? AnalysisScheduler.Priority.INTERACTIVE : AnalysisScheduler.Priority.BATCH;
+        scheduler.submit(AnalysisScheduler.CATEGORY_BATCH, projectId, priority,
+                new BatchRun(batchId, projectId, priority, bmdResult, analysisType, names, parameters, jobs));
+        return batchId;
+    }
+
+    /**
+     * Get the jobs of a batch, in variant order. Deleted variants are left out.
+     *
+     * @throws IllegalArgumentException if the batch is not found
+     */
+    public List<AnalysisJobResult> getBatch(String batchId) {
+        List<AnalysisJobResult> jobs = jobStore.getBatch(batchId);
+        if (jobs == null) {
+            throw new IllegalArgumentException("Batch not found: " + batchId);
+        }
+        return jobs;
+    }
+
+    /**
+     * A batch in progress. Each scheduler task runs the next variant and then
+     * requeues the batch, so a long sweep yields its worker between variants.
+     * Engines are kept between steps and dropped when the last variant is done.
+     */
+    private final class BatchRun implements Runnable {
+        private final String batchId;
+        private final String projectId;
+        private final AnalysisScheduler.Priority priority;
+        private final BMDResult bmdResult;
+        private final CategoryAnalysisEnum analysisType;
+        private final List<String> names;
+        private final List<CategoryAnalysisParametersDto> parameters;
+        private final List<AnalysisJobResult> jobs;
+        private final long start = System.nanoTime();
+
+        // One engine per distinct category definition; GENE_LEVEL variants all share one
+        private final Map<String, CategoryAnalysisEngine> engines = new HashMap<>();
+        private ProbeFilterIndex filters;
+        private Supplier<ExpressionMatrix> expressionMatrix;
+        private int next;
+
+        BatchRun(String batchId, String projectId, AnalysisScheduler.Priority priority, BMDResult bmdResult,
+                 CategoryAnalysisEnum analysisType, List<String> names,
+                 List<CategoryAnalysisParametersDto> parameters, List<AnalysisJobResult> jobs) {
+            this.batchId = batchId;
+            this.projectId = projectId;
+            this.priority = priority;
+            this.bmdResult = bmdResult;
+            this.analysisType = analysisType;
+            this.names = names;
+            this.parameters = parameters;
+            this.jobs = jobs;
+        }
+
+        @Override
+        public void run() {
+            if (filters == null && !prepare()) {
+                return;
+            }
+            // Cancelled variants are skipped without giving up the worker
+            while (next < jobs.size() && !runVariant(next++)) {
+                // skipped
+            }
+            if (next < jobs.size()) {
+                scheduler.submit(AnalysisScheduler.CATEGORY_BATCH, projectId, priority, this);
+            } else {
+                engines.clear();
+                logger.info("Completed batch category analysis {}: {} variants in {} ms",
+                        batchId, jobs.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+
+        private boolean prepare() {
+            try {
+                filters = probeFilterService.getIndex(bmdResult);
+            } catch (Exception e) {
+                logger.error("Batch category analysis failed: {}", batchId, e);
+                for (AnalysisJobResult job : jobs) {
+                    fail(job, e);
+                }
+                return false;
+            }
+
+            // Expression data is only converted if a variant asks for conflicting probe sets
+            DoseResponseExperiment experiment = bmdResult.getDoseResponseExperiment();
+            expressionMatrix = experiment != null ? () -> expressionMatrixService.getMatrix(experiment) : null;
+            return true;
+        }
+
+        /**
+         * @return false if the variant was cancelled before it started
+         */
+        private boolean runVariant(int i) {
+            AnalysisJobResult job = jobs.get(i);
+            CategoryAnalysisParametersDto variantParameters = parameters.get(i);
+            synchronized (job) {
+                if (job.cancellation.isCancelled()) {
+                    return false;
+                }
+                job.setStatus("RUNNING");
+                job.setStage("ANALYZING");
+                job.cancellation.startDeadline(timeoutMillis(analysisType));
+            }
+            changed(job);
+            try {
+                String mappingKey = analysisType == CategoryAnalysisEnum.DEFINED
+                        ? variantParameters.getProbeFilePath() + "|" + variantParameters.getCategoryFilePath()
+                        : analysisType.name();
+                CategoryAnalysisEngine engine = engines.computeIfAbsent(mappingKey,
+                        key -> new CategoryAnalysisEngine(filters,
+                                buildMapping(filters.getTable(), analysisType, variantParameters), expressionMatrix));
+
+                CategoryAnalysisTableView tableView = engine.analyze(names.get(i), variantParameters, job.cancellation);
+                completed(job, tableView, engine, variantParameters);
+            } catch (CancellationException e) {
+                logger.info("Category analysis variant stopped: {} ({})", job.getAnalysisId(), e.getMessage());
+                stopped(job);
+            } catch (Exception e) {
+                logger.error("Category analysis variant failed: {}", job.getAnalysisId(), e);
+                fail(job, e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A batch queued for a worker node. Applies the worker's reports to the
+     * batch's jobs; jobs cancelled here in the meantime keep their state.
+     */
+    private final class RemoteBatch implements AnalysisWorkQueue.Callback {
+        private final List<AnalysisJobResult> jobs;
+        private final List<CategoryAnalysisParametersDto> parameters;
+
+        RemoteBatch(List<AnalysisJobResult> jobs, List<CategoryAnalysisParametersDto> parameters) {
+            this.jobs = jobs;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public void running() {
+            for (AnalysisJobResult job : jobs) {
+                synchronized (job) {
+                    if (job.getCompletedAt() != null) {
+                        continue;
+                    }
+                    job.setStatus("RUNNING");
+                    job.setStage("ANALYZING");
+                }
+                changed(job);
+            }
+        }
+
+        @Override
+        public void completed(AnalysisWorkQueue.BatchResult result) {
+            for (int i = 0; i < jobs.size(); i++) {
+                AnalysisJobResult job = jobs.get(i);
+                AnalysisWorkQueue.VariantResult variant = result.getVariants().get(i);
+                synchronized (job) {
+                    if (job.getCompletedAt() != null) {
+                        continue;
+                    }
+                    job.setStatus(variant.getStatus());
+                    job.setErrorMessage(variant.getErrorMessage());
+                    job.setCompletedAt(LocalDateTime.now());
+                    if ("COMPLETED".equals(variant.getStatus())) {
+                        job.setTableView(variant.getTableView());
+                        job.setParameters(parameters.get(i));
+                    }
+                    finished(job);
+                }
+            }
+        }
+
+        @Override
+        public void failed(String message) {
+            for (AnalysisJobResult job : jobs) {
+                fail(job, new IllegalStateException(message));
+            }
+        }
+    }
+
+    /**
+     * Re-run a completed analysis with new filter parameters.
+     *
+     * The analysis' engine keeps its filtered probe set and per-category state,
+     * so only the categories touched by probes whose filter outcome changed are
+     * recomputed. The update runs synchronously and replaces the analysis'
+     * parameters and results. Engines are kept for the {@value #MAX_ENGINES} most
+     * recently used analyses only; older ones have to be run again.
+     *
+     * An analysis shared by several submitters of an identical request is not
+     * updated, since the others would get results they did not ask for.
+     *
+     * @param analysisId The analysis ID of a completed, locally computed analysis
+     * @param parameters The complete new parameter set
+     * @return The updated analysis job
+     * @throws IllegalArgumentException if the analysis is not found, is not completed, is shared,
+     *         no longer has its engine, or the new parameters change the category definition files
+     */
+    public AnalysisJobResult updateParameters(String analysisId, CategoryAnalysisParametersDto parameters) {
+        AnalysisJobResult job = getAnalysisResult(analysisId);
+        synchronized (job) {
+            CategoryAnalysisEngine engine = engines.getIfPresent(analysisId);
+            if (engine == null || !"COMPLETED".equals(job.getStatus())) {
+                throw new IllegalArgumentException(
+                        "Parameter updates are only supported for recently completed analyses: " + analysisId);
+            }
+            if (job.attachments > 1) {
+                throw new IllegalArgumentException("Analysis " + analysisId + " is shared by "
+                        + job.attachments + " submitters of the same request and cannot be updated");
+            }
+            if (!Objects.equals(job.parameters.getProbeFilePath(), parameters.getProbeFilePath())
+                    || !Objects.equals(job.parameters.getCategoryFilePath(), parameters.getCategoryFilePath())) {
+                throw new IllegalArgumentException("Category definition files cannot be changed by a parameter update");
+            }
 
-            // TODO: Implement actual analysis
-            // The prototype (/tmp/server) has a full implementation that:
-            // 1. Converts CategoryAnalysisParametersDto to CategoryAnalysisParameters using convertToParameters()
-            // 2. Calls CategoryAnalysisService.categoryAnalysis() from desktop app core
-            // 3. Returns CategoryAnalysisResults
-            //
-            // Stub implementation for now - just marks as completed without real analysis
-            // See /tmp/server/service/CategoryAnalysisAsyncService.java lines 58-86 for full implementation
+            long start = System.nanoTime();
+            CancellationToken cancellation = new CancellationToken();
+            cancellation.startDeadline(timeoutMillis(job.getAnalysisType()));
+            job.setTableView(engine.reanalyze(job.getTableView().getName(), job.parameters, parameters,
+                    cancellation));
+            job.setParameters(parameters);
+            job.setCompletedAt(LocalDateTime.now());
+            // Its results no longer match the request it was submitted with
+            requestKeys.asMap().values().remove(analysisId);
+            finished(job);
+            logger.info("Updated category analysis {}: {} categories recomputed in {} us",
+                    analysisId, engine.getLastUpdatedCategoryCount(), (System.nanoTime() - start) / 1_000);
+            return job;
+        }
+    }
 
+    /**
+     * Record the results of an engine-computed analysis, unless it was cancelled meanwhile
+     *
+     * @throws CancellationException if the job was cancelled or timed out
+     */
+    private void completed(AnalysisJobResult job, CategoryAnalysisTableView tableView, CategoryAnalysisEngine engine,
+                           CategoryAnalysisParametersDto parameters) {
+        synchronized (job) {
+            job.cancellation.throwIfCancelled();
+            job.setTableView(tableView);
+            engines.put(job.getAnalysisId(), engine);
+            job.setParameters(parameters);
             job.setStatus("COMPLETED");
             job.setCompletedAt(LocalDateTime.now());
+            finished(job);
+        }
+    }
 
-            logger.info("Completed category analysis stub: {}", analysisId);
-            logger.warn("Category analysis execution is stubbed - no actual analysis performed");
+    private CategoryMapping buildMapping(ProbeStatTable table, CategoryAnalysisEnum analysisType,
+                                         CategoryAnalysisParametersDto parameters) {
+        if (analysisType == CategoryAnalysisEnum.GENE_LEVEL) {
+            return CategoryMapping.geneLevel(table);
+        }
+        try {
+            // Only files in the definitions directory, never client-chosen paths
+            return CategoryMapping.defined(table, definitionFiles.resolve(parameters.getProbeFilePath()),
+                    definitionFiles.resolve(parameters.getCategoryFilePath()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read category definition files", e);
+        }
+    }
 
-            return CompletableFuture.completedFuture(analysisId);
+    /**
+     * Cancel or delete an analysis.
+     *
+     * A pending or running analysis is cancelled: its engine stops at the next
+     * category, the job is marked CANCELLED and kept so pollers can see it.
+     * A finished analysis is deleted together with its results.
+     *
+     * An analysis shared by several submitters of an identical request is only
+     * cancelled or deleted by the last of them; the others just release their
+     * attachment and the analysis goes on for the rest.
+     *
+     * @param analysisId The analysis ID
+     * @return true if a running analysis was cancelled, false if a finished one
+     *         was deleted or the caller's attachment to a shared one was released
+     * @throws IllegalArgumentException if the analysis is not found
+     */
+    public boolean cancelAnalysis(String analysisId) {
+        AnalysisJobResult job = getAnalysisResult(analysisId);
+        synchronized (job) {
+            if (job.attachments > 1) {
+                job.attachments--;
+                logger.info("Detached a submitter from category analysis {}: {} still attached",
+                        analysisId, job.attachments);
+                return false;
+            }
+            job.attachments = 0;
+            if (job.getCompletedAt() != null) {
+                jobStore.remove(analysisId);
+                engines.invalidate(analysisId);
+                logger.info("Deleted category analysis: {}", analysisId);
+                return false;
+            }
+            job.cancellation.cancel("Cancelled by request");
+            stopped(job);
+            logger.info("Cancelled category analysis: {}", analysisId);
+        }
+        // A queued batch whose variants are all finished or cancelled no longer needs its worker
+        String batchId = job.getBatchId();
+        if (batchId != null && workQueue.dispatchesRemotely()
+                && jobStore.getBatch(batchId).stream().allMatch(variant -> variant.getCompletedAt() != null)) {
+            workQueue.cancel(batchId);
+        }
+        return true;
+    }
 
-        } catch (Exception e) {
-            logger.error("Category analysis failed: {}", analysisId, e);
+    /**
+     * Register a listener that is called, on the thread that made the change,
+     * whenever a job starts running, reaches a final state or has its results
+     * updated. Listeners must return quickly.
+     */
+    public void addJobListener(Consumer<AnalysisJobResult> listener) {
+        jobListeners.add(listener);
+    }
+
+    public void removeJobListener(Consumer<AnalysisJobResult> listener) {
+        jobListeners.remove(listener);
+    }
+
+    /**
+     * A future completed with the job once it has reached a final state
+     * (COMPLETED, FAILED or CANCELLED)
+     *
+     * @param analysisId The analysis ID
+     * @throws IllegalArgumentException if the analysis is not found
+     */
+    public CompletableFuture<AnalysisJobResult> whenFinished(String analysisId) {
+        CompletableFuture<AnalysisJobResult> finished = new CompletableFuture<>();
+        Consumer<AnalysisJobResult> listener = job -> {
+            if (job.getAnalysisId().equals(analysisId) && job.getCompletedAt() != null) {
+                finished.complete(job);
+            }
+        };
+        // Registered before the state is checked, so a job finishing in between is not missed
+        addJobListener(listener);
+        finished.whenComplete((job, e) -> removeJobListener(listener));
+        try {
+            AnalysisJobResult job = getAnalysisResult(analysisId);
+            if (job.getCompletedAt() != null) {
+                finished.complete(job);
+            }
+        } catch (IllegalArgumentException e) {
+            removeJobListener(listener);
+            throw e;
+        }
+        return finished;
+    }
+
+    private void finished(AnalysisJobResult job) {
+        job.setStage("DONE");
+        jobStore.finished(job);
+        changed(job);
+    }
+
+    private void changed(AnalysisJobResult job) {
+        job.version.incrementAndGet();
+        for (Consumer<AnalysisJobResult> listener : jobListeners) {
+            try {
+                listener.accept(job);
+            } catch (RuntimeException e) {
+                logger.warn("Analysis job listener failed for {}", job.getAnalysisId(), e);
+            }
+        }
+    }
+
+    private long timeoutMillis(CategoryAnalysisEnum analysisType) {
+        Duration timeout = analysisType != null ? timeouts.get(analysisType) : null;
+        return timeout != null ? timeout.toMillis() : 0;
+    }
+
+    /**
+     * Record a cancelled or timed-out job and drop its intermediate state.
+     * Timeouts count as failures; explicit cancellations do not.
+     */
+    private void stopped(AnalysisJobResult job) {
+        synchronized (job) {
+            if (job.getCompletedAt() != null) {
+                return;
+            }
+            job.setStatus(job.cancellation.isTimedOut() ? "FAILED" : "CANCELLED");
+            job.setErrorMessage(job.cancellation.getReason());
+            job.setCompletedAt(LocalDateTime.now());
+            job.release();
+            finished(job);
+        }
+    }
+
+    private void fail(AnalysisJobResult job, Exception e) {
+        synchronized (job) {
+            if (job.getCompletedAt() != null) {
+                return;
+            }
             job.setStatus("FAILED");
             job.setErrorMessage(e.getMessage());
             job.setCompletedAt(LocalDateTime.now());
-            return CompletableFuture.failedFuture(e);
+            job.release();
+            finished(job);
         }
     }
 
@@ -82,55 +840,50 @@ public class CategoryAnalysisAsyncService {
      * Get analysis job status and results
      */
     public AnalysisJobResult getAnalysisResult(String analysisId) {
-        AnalysisJobResult result = analysisResults.get(analysisId);
+        AnalysisJobResult result = jobStore.get(analysisId);
         if (result == null) {
             throw new IllegalArgumentException("Analysis not found: " + analysisId);
         }
         return result;
     }
 
-    /**
-     * Convert DTO parameters to CategoryAnalysisParameters from desktop app
-     *
-     * STUB: This method signature is defined to match the prototype implementation.
-     * The full implementation would convert all DTO fields to CategoryAnalysisParameters
-     * for use with the desktop app's CategoryAnalysisService.
-     *
-     * See /tmp/server/service/CategoryAnalysisAsyncService.java lines 100-242 for full implementation
-     * that handles:
-     * - BMD filtering (p-value, BMD/BMDL ratios, r-squared cutoffs)
-     * - Gene set size filters (min/max genes)
-     * - Fold change filters
-     * - Prefilter settings
-     * - GO category selection
-     * - Pathway database selection
-     * - Defined category file parameters
-     *
-     * @param dto The DTO containing analysis parameters from REST API
-     * @param analysisType The type of category analysis
-     * @return CategoryAnalysisParameters for desktop app (not implemented in stub)
-     */
-    private Object convertToParameters(CategoryAnalysisParametersDto dto, CategoryAnalysisEnum analysisType) {
-        // STUB: Return null for now
-        // Full implementation would return CategoryAnalysisParameters instance
-        logger.warn("convertToParameters is stubbed - parameter conversion not implemented");
-        return null;
-    }
-
     /**
      * Result holder for async analysis jobs
      */
     public static class AnalysisJobResult {
         private final String analysisId;
-        private String status; // PENDING, RUNNING, COMPLETED, FAILED
+        private String projectId;
+        private String name;
+        private String status; // PENDING, RUNNING, COMPLETED, FAILED, CANCELLED
+        private String stage; // QUEUED, ANALYZING, DONE
+        private CategoryAnalysisEnum analysisType;
         private LocalDateTime submittedAt;
         private LocalDateTime completedAt;
         private CategoryAnalysisResults results;
+        private CategoryAnalysisTableView tableView;
         private String errorMessage;
 
+        // Parameters of engine-computed analyses, the base of parameter updates
+        private CategoryAnalysisParametersDto parameters;
+
+        private final CancellationToken cancellation = new CancellationToken();
+
+        // Submitters of identical requests sharing this job, 0 once cancelled or
+        // deleted; guarded by the job's lock
+        private int attachments = 1;
+
+        // Incremented on every change reported to job listeners
+        private final AtomicLong version = new AtomicLong();
+
+        // Set once the job store has moved this job's results to disk
+        private AnalysisJobStore store;
+        private String batchId;
+        private int batchIndex;
+
         public AnalysisJobResult(String analysisId) {
             this.analysisId = analysisId;
             this.status = "PENDING";
+            this.stage = "QUEUED";
         }
 
         // Getters and setters
@@ -138,6 +891,35 @@ public class CategoryAnalysisAsyncService {
             return analysisId;
         }
 
+        /**
+         * Whether several submitters of an identical request share this job
+         */
+        public synchronized boolean isShared() {
+            return attachments > 1;
+        }
+
+        /**
+         * The project the analyzed BMD result belongs to
+         */
+        public String getProjectId() {
+            return projectId;
+        }
+
+        public void setProjectId(String projectId) {
+            this.projectId = projectId;
+        }
+
+        /**
+         * Display name of the analysis (the variant name for batch analyses)
+         */
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
         public String getStatus() {
             return status;
         }
@@ -146,6 +928,40 @@ public class CategoryAnalysisAsyncService {
             this.status = status;
         }
 
+        public String getStage() {
+            return stage;
+        }
+
+        public void setStage(String stage) {
+            this.stage = stage;
+        }
+
+        /**
+         * Percentage of the job that is done: 100 once completed, the share of
+         * categories computed so far while running
+         */
+        public double getProgress() {
+            if ("COMPLETED".equals(status)) {
+                return 100.0;
+            }
+            return "RUNNING".equals(status) ? 100.0 * cancellation.getProgress() : 0.0;
+        }
+
+        /**
+         * Number of changes reported to job listeners so far
+         */
+        public long getVersion() {
+            return version.get();
+        }
+
+        public CategoryAnalysisEnum getAnalysisType() {
+            return analysisType;
+        }
+
+        public void setAnalysisType(CategoryAnalysisEnum analysisType) {
+            this.analysisType = analysisType;
+        }
+
         public LocalDateTime getSubmittedAt() {
             return submittedAt;
         }
@@ -163,6 +979,10 @@ public class CategoryAnalysisAsyncService {
         }
 
         public CategoryAnalysisResults getResults() {
+            if (results == null && store != null) {
+                AnalysisJobStore.Results stored = store.load(analysisId);
+                return stored != null ? stored.categoryResults : null;
+            }
             return results;
         }
 
@@ -170,6 +990,32 @@ public class CategoryAnalysisAsyncService {
             this.results = results;
         }
 
+        /**
+         * Results computed by the server-side engine (batch analyses), in table form
+         */
+        public CategoryAnalysisTableView getTableView() {
+            if (tableView == null && store != null) {
+                AnalysisJobStore.Results stored = store.load(analysisId);
+                return stored != null ? stored.tableView : null;
+            }
+            return tableView;
+        }
+
+        public void setTableView(CategoryAnalysisTableView tableView) {
+            this.tableView = tableView;
+        }
+
+        /**
+         * Parameters of engine-computed analyses (null for other analyses)
+         */
+        public CategoryAnalysisParametersDto getParameters() {
+            return parameters;
+        }
+
+        public void setParameters(CategoryAnalysisParametersDto parameters) {
+            this.parameters = parameters;
+        }
+
         public String getErrorMessage() {
             return errorMessage;
         }
@@ -177,5 +1023,36 @@ public class CategoryAnalysisAsyncService {
         public void setErrorMessage(String errorMessage) {
             this.errorMessage = errorMessage;
         }
+
+        String getBatchId() {
+            return batchId;
+        }
+
+        int getBatchIndex() {
+            return batchIndex;
+        }
+
+        void setBatch(String batchId, int batchIndex) {
+            this.batchId = batchId;
+            this.batchIndex = batchIndex;
+        }
+
+        /**
+         * Drop the heap copy of the results; from now on they are read back from the store
+         */
+        void resultsMovedTo(AnalysisJobStore store) {
+            this.store = store;
+            tableView = null;
+            results = null;
+        }
+
+        /**
+         * Drop results so they can be garbage collected
+         */
+        void release() {
+            tableView = null;
+            results = null;
+            store = null;
+        }
     }
 }
@@ -0,0 +1,96 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Category definition files of DEFINED analyses (probe and category files).
+ *
+ * Clients name the files (probeFilePath, categoryFilePath of the analysis
+ * parameters); they are only looked up in the configured definitions directory
+ * (bmdexpress.categories.dir), never elsewhere on the server. Names with path
+ * separators or ".." are rejected, as are names that resolve outside the
+ * directory.
+ */
+@Component
+public class CategoryDefinitionFiles {
+
+    public static final String DEFAULT_DIRECTORY = "data/categories";
+
+    private final Path directory;
+
+    public CategoryDefinitionFiles(Path directory) {
+        this.directory = directory.toAbsolutePath().normalize();
+    }
+
+    @Autowired
+    public CategoryDefinitionFiles(@Value("${bmdexpress.categories.dir:" + DEFAULT_DIRECTORY + "}") String directory) {
+        this(Path.of(directory));
+    }
+
+    /**
+     * Resolve a definition file name in the definitions directory
+     *
+     * @param name file name as given by the client, or null
+     * @return the file, or null if no name was given
+     * @throws IllegalArgumentException if the name is not a plain file name or the file is not found
+     */
+    public Path resolve(String name) {
+        if (name == null) {
+            return null;
+        }
+        // Security: prevent directory traversal
+        if (name.isBlank() || name.contains("..") || name.contains("/") || name.contains("\\")) {
+            throw new IllegalArgumentException("Invalid category definition file name: " + name);
+        }
+        Path file = directory.resolve(name).normalize();
+        if (!file.startsWith(directory)) {
+            throw new IllegalArgumentException("Invalid category definition file name: " + name);
+        }
+        if (!Files.isRegularFile(file)) {
+            throw new IllegalArgumentException("Category definition file not found: " + name);
+        }
+        return file;
+    }
+
+    /**
+     * SHA-256 of a definition file's content, so requests naming an edited file
+     * get a new request key
+     *
+     * @param name file name as given by the client, or null
+     * @return the content hash, "" if no name was given
+     * @throws IllegalArgumentException if the name is not a plain file name or the file is not found
+     */
+    public String contentHash(String name) {
+        Path file = resolve(name);
+        if (file == null) {
+            return "";
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                digest.update(buffer, 0, n);
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read category definition file: " + name, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
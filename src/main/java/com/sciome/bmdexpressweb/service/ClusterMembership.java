@@ -0,0 +1,151 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Membership of a multi-node API deployment and ownership of project IDs.
+ *
+ * bmdexpress.cluster.nodes lists the base URLs of all API nodes and
+ * bmdexpress.cluster.self names this one; with no nodes configured the node
+ * runs alone and owns everything. Project IDs are assigned to nodes on a
+ * consistent hash ring, and new projects get IDs owned by the node that loaded
+ * them, so a project stays resident on one node. Requests for a project owned
+ * elsewhere are forwarded by ProjectAffinityFilter.
+ *
+ * Nodes authenticate forwarded and internal requests to each other with the
+ * shared bmdexpress.cluster.secret, which a multi-node deployment must set.
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+
+    public static final String SECRET_HEADER = "X-BMDExpress-Cluster-Secret";
+    public static final String FORWARDED_BY_HEADER = "X-BMDExpress-Forwarded-By";
+
+    // Gives up finding a locally owned ID after this many tries (expected: one per node)
+    private static final int MAX_ID_ATTEMPTS = 10_000;
+
+    private final ConsistentHashRing ring;
+    private final String self;
+    private final byte[] secret;
+
+    /**
+     * Single node: owns every project
+     */
+    public ClusterMembership() {
+        this(List.of(), "", "", 1);
+    }
+
+    /**
+     * @param nodes base URLs of all API nodes, including this one (empty = single node)
+     * @param self base URL of this node, as listed in nodes
+     * @param secret shared secret of the nodes
+     * @param virtualNodes ring points per node
+     * @throws IllegalArgumentException if self is not one of the nodes, or there
+     *         are several nodes and the secret is blank
+     */
+    public ClusterMembership(List<String> nodes, String self, String secret, int virtualNodes) {
+        List<String> members = nodes.stream()
+                .map(ClusterMembership::normalize)
+                .filter(node -> !node.isEmpty())
+                .distinct()
+                .toList();
+        this.self = normalize(self);
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        if (members.size() <= 1) {
+            this.ring = null;
+            return;
+        }
+        if (!members.contains(this.self)) {
+            throw new IllegalArgumentException("bmdexpress.cluster.self (" + self
+                    + ") is not one of bmdexpress.cluster.nodes " + members);
+        }
+        if (secret.isBlank()) {
+            throw new IllegalArgumentException("bmdexpress.cluster.secret must be set when bmdexpress.cluster.nodes "
+                    + "lists several nodes; without it any client could call internal cluster endpoints");
+        }
+        this.ring = new ConsistentHashRing(members, virtualNodes);
+        log.info("Cluster of {} nodes, this node is {}", members.size(), this.self);
+    }
+
+    @Autowired
+    public ClusterMembership(
+            @Value("${bmdexpress.cluster.nodes:}") String nodes,
+            @Value("${bmdexpress.cluster.self:}") String self,
+            @Value("${bmdexpress.cluster.secret:}") String secret,
+            @Value("${bmdexpress.cluster.virtual-nodes:128}") int virtualNodes) {
+        this(Arrays.asList(nodes.split(",")), self, secret, virtualNodes);
+    }
+
+    private static String normalize(String node) {
+        String trimmed = node.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+
+    /**
+     * True if there are other nodes to route to
+     */
+    public boolean isEnabled() {
+        return ring != null;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    /**
+     * Node that owns a project ID (this node when running alone)
+     */
+    public String ownerOf(String projectId) {
+        return ring != null ? ring.ownerOf(projectId) : self;
+    }
+
+    public boolean isLocal(String projectId) {
+        return ring == null || ring.ownerOf(projectId).equals(self);
+    }
+
+    /**
+     * The other nodes, in the order to search them for a project this node
+     * should hold but does not
+     */
+    public List<String> peersFor(String projectId) {
+        return ring != null ? ring.othersFor(projectId, self) : List.of();
+    }
+
+    /**
+     * A new random project ID owned by this node
+     */
+    public String newLocalId() {
+        for (int i = 0; i < MAX_ID_ATTEMPTS; i++) {
+            String id = UUID.randomUUID().toString();
+            if (isLocal(id)) {
+                return id;
+            }
+        }
+        throw new IllegalStateException("This node owns no part of the hash ring: " + self);
+    }
+
+    public String getSecret() {
+        return new String(secret, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Check the secret sent by another node; nothing is trusted without a secret
+     */
+    public boolean isTrusted(String presentedSecret) {
+        return secret.length > 0
+                && presentedSecret != null
+                && MessageDigest.isEqual(secret, presentedSecret.getBytes(StandardCharsets.UTF_8));
+    }
+}
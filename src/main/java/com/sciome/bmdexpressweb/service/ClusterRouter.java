@@ -0,0 +1,219 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.util.concurrent.Striped;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Moves requests and projects between the nodes of a multi-node deployment.
+ *
+ * Requests are forwarded to another node as they came in, with the cluster
+ * secret and this node's name added, and the response is relayed back as it
+ * arrives, so event streams and large results pass through without buffering.
+ *
+ * Projects move lazily: when this node owns a project it does not hold (the
+ * membership changed since it was loaded), ensureResident fetches it from the
+ * node that has it and tells that node to drop its copy. Concurrent requests
+ * for the same project wait for one handover.
+ */
+@Service
+public class ClusterRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterRouter.class);
+
+    public static final String FILENAME_HEADER = "X-BMDExpress-Filename";
+    public static final String UPLOADED_AT_HEADER = "X-BMDExpress-Uploaded-At";
+    public static final String CONTENT_HASH_HEADER = "X-BMDExpress-Content-Hash";
+
+    // Not passed on to the other node or back to the client
+    private static final Set<String> UNRELAYED_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "host", "content-length", "expect", "date",
+            ClusterMembership.SECRET_HEADER.toLowerCase(Locale.ROOT),
+            ClusterMembership.FORWARDED_BY_HEADER.toLowerCase(Locale.ROOT));
+
+    private final ClusterMembership membership;
+    private final ProjectService projectService;
+    private final HttpClient client;
+    private final Striped<Lock> handoverLocks = Striped.lock(64);
+
+    @Autowired
+    public ClusterRouter(ClusterMembership membership, ProjectService projectService,
+                         @Value("${bmdexpress.cluster.connect-timeout-ms:5000}") long connectTimeoutMillis) {
+        this.membership = membership;
+        this.projectService = projectService;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(Math.max(1, connectTimeoutMillis)))
+                .build();
+    }
+
+    /**
+     * Send a client request on to another node
+     *
+     * @param node base URL of the node
+     * @param request the client request
+     * @param body the request body if it was already read, otherwise null to stream it
+     * @return the node's response; its body must be relayed or closed
+     */
+    public HttpResponse<InputStream> send(String node, HttpServletRequest request, byte[] body)
+            throws IOException, InterruptedException {
+
+        String query = request.getQueryString();
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(node + path + (query != null ? "?" + query : "")));
+
+        for (String name : Collections.list(request.getHeaderNames())) {
+            if (!UNRELAYED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                for (String value : Collections.list(request.getHeaders(name))) {
+                    builder.header(name, value);
+                }
+            }
+        }
+        builder.header(ClusterMembership.SECRET_HEADER, membership.getSecret());
+        builder.header(ClusterMembership.FORWARDED_BY_HEADER, membership.getSelf());
+
+        HttpRequest.BodyPublisher publisher;
+        if (body != null) {
+            publisher = HttpRequest.BodyPublishers.ofByteArray(body);
+        } else if (request.getContentLengthLong() > 0 || request.getHeader("Transfer-Encoding") != null) {
+            publisher = HttpRequest.BodyPublishers.ofInputStream(() -> {
+                try {
+                    return request.getInputStream();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } else {
+            publisher = HttpRequest.BodyPublishers.noBody();
+        }
+        builder.method(request.getMethod(), publisher);
+
+        return client.send(builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * Copy another node's response to the client, flushing whenever the node
+     * has nothing more buffered so streamed responses stay streamed
+     */
+    public void relay(HttpResponse<InputStream> upstream, HttpServletResponse response) throws IOException {
+        response.setStatus(upstream.statusCode());
+        upstream.headers().map().forEach((name, values) -> {
+            if (!name.startsWith(":") && !UNRELAYED_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
+        });
+        try (InputStream in = upstream.body()) {
+            OutputStream out = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Make sure a project this node owns is held here, taking it over from
+     * another node if needed
+     *
+     * @return true if the project is now resident on this node
+     * @throws java.util.concurrent.RejectedExecutionException if the loader pool and its queue are full
+     */
+    public boolean ensureResident(String projectId) {
+        if (projectService.projectExists(projectId)) {
+            return true;
+        }
+        if (!membership.isEnabled() || !membership.isLocal(projectId)) {
+            return false;
+        }
+        Lock lock = handoverLocks.get(projectId);
+        lock.lock();
+        try {
+            if (projectService.projectExists(projectId)) {
+                return true;
+            }
+            for (String peer : membership.peersFor(projectId)) {
+                try {
+                    if (takeOver(peer, projectId)) {
+                        return true;
+                    }
+                } catch (IOException | ClassNotFoundException | IllegalArgumentException e) {
+                    log.warn("Failed to take over project {} from {}", projectId, peer, e);
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean takeOver(String peer, String projectId)
+            throws IOException, InterruptedException, ClassNotFoundException {
+
+        URI uri = URI.create(peer + "/internal/cluster/projects/" + projectId);
+        HttpResponse<InputStream> response = client.send(internalRequest(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream in = response.body()) {
+            if (response.statusCode() == 404) {
+                return false;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Project handover refused by " + peer + ": HTTP " + response.statusCode());
+            }
+            HttpHeaders headers = response.headers();
+            String filename = URLDecoder.decode(headers.firstValue(FILENAME_HEADER).orElse(""), StandardCharsets.UTF_8);
+            LocalDateTime uploadedAt = headers.firstValue(UPLOADED_AT_HEADER)
+                    .map(LocalDateTime::parse)
+                    .orElse(LocalDateTime.now());
+            projectService.adoptProject(projectId, in, filename, uploadedAt,
+                    headers.firstValue(CONTENT_HASH_HEADER).orElse(null));
+        }
+
+        // Resident here now: drop the previous copy
+        HttpResponse<Void> released = client.send(internalRequest(uri).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (released.statusCode() >= 300) {
+            log.warn("{} did not release project {}: HTTP {}", peer, projectId, released.statusCode());
+        }
+        log.info("Took over project {} from {}", projectId, peer);
+        return true;
+    }
+
+    private HttpRequest.Builder internalRequest(URI uri) {
+        return HttpRequest.newBuilder(uri)
+                .header(ClusterMembership.SECRET_HEADER, membership.getSecret())
+                .header(ClusterMembership.FORWARDED_BY_HEADER, membership.getSelf());
+    }
+}
@@ -0,0 +1,329 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.cbor.CBORGenerator;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import org.springframework.http.MediaType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar binary encoding of result tables (BMD results, category results,
+ * gene-level summaries), served instead of JSON to clients that ask for
+ * application/vnd.bmdexpress.table+cbor. JSON stays the default.
+ *
+ * The table is a CBOR map: format, version, name, rowCount and one entry per
+ * column with its name, type and values. Numeric columns are a single byte
+ * string of little-endian values, tagged as an RFC 8746 typed array (float64,
+ * sint32 or sint64), so they are a fraction of the size of their JSON text and
+ * decode with one bulk copy. Null cells of a float64 column are NaN in the
+ * values and set in a "nulls" bitmap. Columns of strings are CBOR text arrays;
+ * anything else is written cell by cell ("mixed").
+ *
+ * Rows shorter than the widest row are padded with nulls.
+ */
+public final class ColumnarTableCodec {
+
+    public static final String MEDIA_TYPE_VALUE = "application/vnd.bmdexpress.table+cbor";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+
+    static final String FORMAT = "bmdexpress-table";
+    static final int VERSION = 1;
+
+    // RFC 8746 typed array tags
+    private static final int TAG_SINT32_LE = 78;
+    private static final int TAG_SINT64_LE = 79;
+    private static final int TAG_FLOAT64_LE = 86;
+
+    private static final CBORMapper MAPPER = new CBORMapper();
+
+    enum ColumnType {
+        FLOAT64("float64"), INT32("int32"), INT64("int64"), STRING("string"), MIXED("mixed");
+
+        private final String id;
+
+        ColumnType(String id) {
+            this.id = id;
+        }
+
+        static ColumnType of(String id) {
+            for (ColumnType type : values()) {
+                if (type.id.equals(id)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown column type: " + id);
+        }
+    }
+
+    private ColumnarTableCodec() {
+    }
+
+    /**
+     * True if the client asked for the columnar format ahead of JSON: its most
+     * preferred explicitly named media type is this one. Wildcards never select it.
+     *
+     * @param accept the Accept header, may be null
+     */
+    public static boolean isRequested(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // Stable, so equally preferred types keep the client's order
+        mediaTypes.sort(Comparator.comparingDouble(MediaType::getQualityValue).reversed());
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0 || mediaType.isWildcardType() || mediaType.isWildcardSubtype()) {
+                continue;
+            }
+            return mediaType.isCompatibleWith(MEDIA_TYPE);
+        }
+        return false;
+    }
+
+    /**
+     * Encode a table in memory
+     *
+     * @see #write(String, List, List, OutputStream)
+     */
+    public static byte[] encode(String name, List<String> columnHeader, List<? extends List<?>> rows) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            write(name, columnHeader, rows, out);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode table " + name, e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Encode a table view (rows as {"row": [...]} maps)
+     */
+    public static byte[] encode(CategoryAnalysisTableView tableView) {
+        return encode(tableView.getName(), tableView.getColumnHeader(), rowsOf(tableView));
+    }
+
+    /**
+     * Write a table to a stream, one column at a time
+     *
+     * @param name table name
+     * @param columnHeader column names, may be null
+     * @param rows rows of cells; a null row counts as empty
+     * @param out destination; left open
+     */
+    public static void write(String name, List<String> columnHeader, List<? extends List<?>> rows, OutputStream out)
+            throws IOException {
+
+        int columnCount = columnHeader != null ? columnHeader.size() : 0;
+        for (List<?> row : rows) {
+            if (row != null) {
+                columnCount = Math.max(columnCount, row.size());
+            }
+        }
+        int rowCount = rows.size();
+
+        CBORGenerator generator = (CBORGenerator) MAPPER.getFactory().createGenerator(out);
+        generator.writeStartObject();
+        generator.writeStringField("format", FORMAT);
+        generator.writeNumberField("version", VERSION);
+        generator.writeStringField("name", name);
+        generator.writeNumberField("rowCount", rowCount);
+        generator.writeArrayFieldStart("columns");
+        for (int c = 0; c < columnCount; c++) {
+            ColumnType type = typeOf(rows, c);
+            generator.writeStartObject();
+            generator.writeStringField("name", columnHeader != null && c < columnHeader.size() ? columnHeader.get(c) : null);
+            generator.writeStringField("type", type.id);
+            generator.writeFieldName("values");
+            switch (type) {
+                case FLOAT64 -> {
+                    ByteBuffer values = ByteBuffer.allocate(rowCount * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    BitSet nulls = new BitSet();
+                    for (int r = 0; r < rowCount; r++) {
+                        Object cell = cell(rows.get(r), c);
+                        if (cell == null) {
+                            nulls.set(r);
+                            values.putDouble(Double.NaN);
+                        } else {
+                            values.putDouble(((Number) cell).doubleValue());
+                        }
+                    }
+                    generator.writeTag(TAG_FLOAT64_LE);
+                    generator.writeBinary(values.array());
+                    if (!nulls.isEmpty()) {
+                        generator.writeFieldName("nulls");
+                        generator.writeBinary(nulls.toByteArray());
+                    }
+                }
+                case INT32 -> {
+                    ByteBuffer values = ByteBuffer.allocate(rowCount * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    for (int r = 0; r < rowCount; r++) {
+                        values.putInt(((Number) cell(rows.get(r), c)).intValue());
+                    }
+                    generator.writeTag(TAG_SINT32_LE);
+                    generator.writeBinary(values.array());
+                }
+                case INT64 -> {
+                    ByteBuffer values = ByteBuffer.allocate(rowCount * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    for (int r = 0; r < rowCount; r++) {
+                        values.putLong(((Number) cell(rows.get(r), c)).longValue());
+                    }
+                    generator.writeTag(TAG_SINT64_LE);
+                    generator.writeBinary(values.array());
+                }
+                case STRING -> {
+                    generator.writeStartArray();
+                    for (int r = 0; r < rowCount; r++) {
+                        generator.writeString((String) cell(rows.get(r), c));
+                    }
+                    generator.writeEndArray();
+                }
+                default -> {
+                    generator.writeStartArray();
+                    for (int r = 0; r < rowCount; r++) {
+                        generator.writeObject(cell(rows.get(r), c));
+                    }
+                    generator.writeEndArray();
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * Decode a table into the same shape as its JSON form
+     *
+     * @throws IOException if the input is not a table in this format
+     */
+    public static CategoryAnalysisTableView read(InputStream in) throws IOException {
+        JsonNode root = MAPPER.readTree(in);
+        if (root == null || !FORMAT.equals(root.path("format").asText()) || root.path("version").asInt() > VERSION) {
+            throw new IOException("Not a " + FORMAT + " version " + VERSION + " table");
+        }
+        int rowCount = root.path("rowCount").asInt();
+        JsonNode columns = root.path("columns");
+
+        List<String> header = new ArrayList<>();
+        List<List<Object>> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            rows.add(new ArrayList<>(columns.size()));
+        }
+        for (JsonNode column : columns) {
+            header.add(column.path("name").isNull() ? null : column.path("name").asText());
+            JsonNode values = column.path("values");
+            switch (ColumnType.of(column.path("type").asText())) {
+                case FLOAT64 -> {
+                    double[] doubles = new double[rowCount];
+                    ByteBuffer.wrap(values.binaryValue()).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().get(doubles);
+                    BitSet nulls = column.has("nulls") ? BitSet.valueOf(column.get("nulls").binaryValue()) : new BitSet();
+                    for (int r = 0; r < rowCount; r++) {
+                        rows.get(r).add(nulls.get(r) ? null : doubles[r]);
+                    }
+                }
+                case INT32 -> {
+                    int[] ints = new int[rowCount];
+                    ByteBuffer.wrap(values.binaryValue()).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(ints);
+                    for (int r = 0; r < rowCount; r++) {
+                        rows.get(r).add(ints[r]);
+                    }
+                }
+                case INT64 -> {
+                    long[] longs = new long[rowCount];
+                    ByteBuffer.wrap(values.binaryValue()).order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(longs);
+                    for (int r = 0; r < rowCount; r++) {
+                        rows.get(r).add(longs[r]);
+                    }
+                }
+                case STRING -> {
+                    for (int r = 0; r < rowCount; r++) {
+                        JsonNode value = values.get(r);
+                        rows.get(r).add(value == null || value.isNull() ? null : value.asText());
+                    }
+                }
+                default -> {
+                    for (int r = 0; r < rowCount; r++) {
+                        rows.get(r).add(MAPPER.treeToValue(values.get(r), Object.class));
+                    }
+                }
+            }
+        }
+
+        List<Map<String, Object>> rowData = new ArrayList<>(rowCount);
+        for (List<Object> row : rows) {
+            Map<String, Object> rowMap = new HashMap<>();
+            rowMap.put("row", row);
+            rowData.add(rowMap);
+        }
+        return new CategoryAnalysisTableView(root.path("name").isNull() ? null : root.path("name").asText(),
+                header, rowData);
+    }
+
+    private static List<List<?>> rowsOf(CategoryAnalysisTableView tableView) {
+        List<List<?>> rows = new ArrayList<>();
+        if (tableView.getCategoryAnalsyisResults() != null) {
+            for (Map<String, Object> rowMap : tableView.getCategoryAnalsyisResults()) {
+                rows.add(rowMap != null && rowMap.get("row") instanceof List<?> row ? row : null);
+            }
+        }
+        return rows;
+    }
+
+    private static Object cell(List<?> row, int column) {
+        return row != null && column < row.size() ? row.get(column) : null;
+    }
+
+    private static ColumnType typeOf(List<? extends List<?>> rows, int column) {
+        boolean strings = true;
+        boolean numbers = true;
+        boolean ints = true;
+        boolean longs = true;
+        boolean hasNull = false;
+        boolean hasValue = false;
+        for (List<?> row : rows) {
+            Object cell = cell(row, column);
+            if (cell == null) {
+                hasNull = true;
+                continue;
+            }
+            hasValue = true;
+            strings &= cell instanceof String;
+            boolean integral = cell instanceof Integer || cell instanceof Short || cell instanceof Byte;
+            ints &= integral;
+            longs &= integral || cell instanceof Long;
+            numbers &= integral || cell instanceof Long || cell instanceof Double || cell instanceof Float;
+            if (!strings && !numbers) {
+                return ColumnType.MIXED;
+            }
+        }
+        if (!hasValue || strings) {
+            return ColumnType.STRING;
+        }
+        if (ints && !hasNull) {
+            return ColumnType.INT32;
+        }
+        if (longs && !hasNull) {
+            return ColumnType.INT64;
+        }
+        return numbers ? ColumnType.FLOAT64 : ColumnType.MIXED;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sciome.bmdexpressweb.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring mapping keys (project IDs) to nodes.
+ *
+ * Each node is placed on the ring at virtualNodes points, and a key belongs to
+ * the first node point at or after the key's hash. Adding or removing a node
+ * only moves the keys between that node's points and their predecessors,
+ * about 1/n of all keys, so a membership change leaves most projects where
+ * they are. Immutable and safe to share between threads.
+ */
+public final class ConsistentHashRing {
+
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+    private final List<String> nodes;
+
+    /**
+     * @param nodes node names (base URLs), in any order
+     * @param virtualNodes points per node; more points spread keys more evenly
+     * @throws IllegalArgumentException if there are no nodes
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        this.nodes = List.copyOf(nodes);
+        int replicas = Math.max(1, virtualNodes);
+        for (String node : this.nodes) {
+            for (int i = 0; i < replicas; i++) {
+                // On the rare hash collision the smaller node name keeps the point
+                points.merge(hash(node + "#" + i), node, (a, b) -> a.compareTo(b) <= 0 ? a : b);
+            }
+        }
+    }
+
+    public List<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Node that owns a key
+     */
+    public String ownerOf(String key) {
+        Map.Entry<Long, String> entry = points.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : points.firstEntry().getValue();
+    }
+
+    /**
+     * All nodes other than the given one, in ring order after the key's owner.
+     * Used to look for a key on the nodes that may have held it before.
+     */
+    public List<String> othersFor(String key, String exclude) {
+        List<String> others = new ArrayList<>();
+        for (String node : points.tailMap(hash(key), true).values()) {
+            if (!node.equals(exclude) && !others.contains(node)) {
+                others.add(node);
+            }
+        }
+        for (String node : points.values()) {
+            if (others.size() == nodes.size()) {
+                break;
+            }
+            if (!node.equals(exclude) && !others.contains(node)) {
+                others.add(node);
+            }
+        }
+        return others;
+    }
+
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
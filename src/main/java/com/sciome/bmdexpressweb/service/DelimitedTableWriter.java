@@ -0,0 +1,189 @@
+package com.sciome.bmdexpressweb.service;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes result tables as TSV or CSV (UTF-8, "\n" line ends) straight to an
+ * output stream.
+ *
+ * Cells are encoded into one reusable byte buffer that is written out when
+ * full, so memory stays flat however many rows are exported, and numbers and
+ * strings are formatted without allocating per cell. Numbers are written
+ * like Double.toString, Float.toString or Long.toString; null cells are empty.
+ *
+ * TSV cannot quote, so tabs and line breaks inside a cell become spaces. CSV
+ * cells are quoted as RFC 4180 requires (when they hold a comma, quote or
+ * line break).
+ *
+ * Not thread-safe; one writer per export.
+ */
+public final class DelimitedTableWriter implements Flushable {
+
+    public enum Format {
+        TSV('\t', "text/tab-separated-values", "tsv"),
+        CSV(',', "text/csv", "csv");
+
+        private final char separator;
+        private final String contentType;
+        private final String extension;
+
+        Format(char separator, String contentType, String extension) {
+            this.separator = separator;
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException for anything but "tsv" or "csv"
+         */
+        public static Format of(String name) {
+            for (Format format : values()) {
+                if (format.extension.equals(name.toLowerCase(Locale.ROOT))) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unsupported export format: " + name);
+        }
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutputStream out;
+    private final Format format;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    // Reused for number formatting
+    private final StringBuilder number = new StringBuilder(32);
+
+    public DelimitedTableWriter(OutputStream out, Format format) {
+        this.out = out;
+        this.format = format;
+    }
+
+    /**
+     * Write one row; a null row is an empty line
+     */
+    public void writeRow(List<?> cells) throws IOException {
+        if (cells != null) {
+            for (int i = 0, n = cells.size(); i < n; i++) {
+                if (i > 0) {
+                    put(format.separator);
+                }
+                writeCell(cells.get(i));
+            }
+        }
+        put('\n');
+    }
+
+    /**
+     * Write out everything buffered and flush the stream
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    private void writeCell(Object cell) throws IOException {
+        if (cell == null) {
+            return;
+        }
+        if (cell instanceof Double value) {
+            number.setLength(0);
+            number.append(value.doubleValue());
+            writeChars(number, false);
+        } else if (cell instanceof Float value) {
+            number.setLength(0);
+            number.append(value.floatValue());
+            writeChars(number, false);
+        } else if (cell instanceof Long || cell instanceof Integer || cell instanceof Short || cell instanceof Byte) {
+            number.setLength(0);
+            number.append(((Number) cell).longValue());
+            writeChars(number, false);
+        } else {
+            CharSequence text = cell instanceof CharSequence chars ? chars : cell.toString();
+            writeChars(text, format == Format.CSV && needsQuotes(text));
+        }
+    }
+
+    private boolean needsQuotes(CharSequence text) {
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void writeChars(CharSequence text, boolean quoted) throws IOException {
+        if (quoted) {
+            put('"');
+        }
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (quoted && c == '"') {
+                    put('"');
+                } else if (format == Format.TSV && (c == '\t' || c == '\n' || c == '\r')) {
+                    c = ' ';
+                }
+                put(c);
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xc0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xf0 | codePoint >> 18);
+                buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate, replaced as String.getBytes does
+                put('?');
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xe0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3f);
+                buffer[position++] = (byte) (0x80 | c & 0x3f);
+            }
+        }
+        if (quoted) {
+            put('"');
+        }
+    }
+
+    private void put(char ascii) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = (byte) ascii;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
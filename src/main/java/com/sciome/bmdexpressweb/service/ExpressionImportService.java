@@ -0,0 +1,144 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.analysis.ExpressionMatrix;
+import com.sciome.bmdexpressweb.analysis.ExpressionMatrixParser;
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
+import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import com.sciome.bmdexpress2.mvp.model.probe.Probe;
+import com.sciome.bmdexpress2.mvp.model.probe.ProbeResponse;
+import com.sciome.bmdexpress2.mvp.model.probe.Treatment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Service for importing expression matrices (TSV/CSV) into projects as
+ * DoseResponseExperiments.
+ *
+ * Files are parsed by ExpressionMatrixParser straight into a dense matrix; the
+ * experiment's probe responses are then built from that matrix, and the matrix
+ * itself is registered with ExpressionMatrixService so it is not rebuilt.
+ */
+@Service
+public class ExpressionImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpressionImportService.class);
+
+    private final ProjectService projectService;
+    private final ExpressionMatrixService matrixService;
+    private final ExpressionMatrixParser parser = new ExpressionMatrixParser();
+
+    @Autowired
+    public ExpressionImportService(ProjectService projectService, ExpressionMatrixService matrixService) {
+        this.projectService = projectService;
+        this.matrixService = matrixService;
+    }
+
+    /**
+     * Parse an expression file and add it to a project.
+     *
+     * @param projectId the project identifier
+     * @param file the expression file on local disk
+     * @param experimentName name for the new experiment
+     * @return summary of the imported experiment
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if the project is not found or the file is malformed
+     */
+    public ExpressionImportResponse importExpressionData(String projectId, Path file, String experimentName)
+            throws IOException {
+
+        // Fail fast before parsing if the project does not exist
+        projectService.getProject(projectId);
+
+        long start = System.nanoTime();
+        ExpressionMatrixParser.ParsedExpressionData data = parser.parse(file);
+        long parseTimeMs = (System.nanoTime() - start) / 1_000_000;
+
+        ExpressionMatrix matrix = data.getMatrix();
+        DoseResponseExperiment experiment = buildExperiment(experimentName, data);
+        projectService.addDoseResponseExperiment(projectId, experiment);
+        matrixService.put(experiment, matrix);
+
+        log.info("Imported expression data {} into project {}: {} probes x {} samples (parsed in {} ms)",
+                experimentName, projectId, matrix.getProbeCount(), matrix.getSampleCount(), parseTimeMs);
+
+        return new ExpressionImportResponse(
+                projectId,
+                experimentName,
+                matrix.getProbeCount(),
+                matrix.getSampleCount(),
+                matrix.getDoseGroups().getGroupCount(),
+                parseTimeMs);
+    }
+
+    /**
+     * Get the names of all expression data sets (DoseResponseExperiments) in a project.
+     *
+     * @param projectId the project identifier
+     * @return list of experiment names
+     * @throws IllegalArgumentException if the project is not found
+     */
+    public List<String> getExperimentNames(String projectId) {
+        BMDProject project = projectService.getProject(projectId);
+
+        if (project.getDoseResponseExperiments() == null) {
+            return List.of();
+        }
+
+        return project.getDoseResponseExperiments().stream()
+                .map(DoseResponseExperiment::getName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Build a DoseResponseExperiment directly from parsed matrix rows.
+     * Probe responses are created in parallel; no intermediate row list is kept.
+     */
+    static DoseResponseExperiment buildExperiment(String name, ExpressionMatrixParser.ParsedExpressionData data) {
+        ExpressionMatrix matrix = data.getMatrix();
+        String[] sampleNames = data.getSampleNames();
+        int sampleCount = matrix.getSampleCount();
+        float[] values = matrix.values();
+
+        List<Treatment> treatments = new ArrayList<>(sampleCount);
+        for (int s = 0; s < sampleCount; s++) {
+            Treatment treatment = new Treatment();
+            treatment.setName(sampleNames[s]);
+            treatment.setDose(matrix.getDose(s));
+            treatments.add(treatment);
+        }
+
+        ProbeResponse[] probeResponses = new ProbeResponse[matrix.getProbeCount()];
+        IntStream.range(0, probeResponses.length).parallel().forEach(p -> {
+            Probe probe = new Probe();
+            probe.setId(matrix.getProbeId(p));
+
+            int offset = matrix.rowOffset(p);
+            List<Float> responses = new ArrayList<>(sampleCount);
+            for (int s = 0; s < sampleCount; s++) {
+                responses.add(values[offset + s]);
+            }
+
+            ProbeResponse probeResponse = new ProbeResponse();
+            probeResponse.setProbe(probe);
+            probeResponse.setResponses(responses);
+            probeResponses[p] = probeResponse;
+        });
+
+        DoseResponseExperiment experiment = new DoseResponseExperiment();
+        experiment.setName(name);
+        experiment.setTreatments(treatments);
+        experiment.setProbeResponses(new ArrayList<>(Arrays.asList(probeResponses)));
+        return experiment;
+    }
+}
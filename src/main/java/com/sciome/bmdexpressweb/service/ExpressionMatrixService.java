@@ -0,0 +1,59 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.analysis.ExpressionMatrix;
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Service that builds and caches the dense ExpressionMatrix of each experiment.
+ *
+ * Matrices are keyed by experiment identity with weak keys, so a matrix is built
+ * at most once while its experiment is reachable and is released together with
+ * the project that owns it. Imports add new experiments and never change the
+ * responses of an existing one, so cached matrices do not go stale.
+ */
+@Service
+public class ExpressionMatrixService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpressionMatrixService.class);
+
+    private final Cache<DoseResponseExperiment, ExpressionMatrix> matrices = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Get the dense matrix for an experiment, building it on first access.
+     * Concurrent callers for the same experiment wait for a single build.
+     *
+     * @param experiment the experiment
+     * @return the dense expression matrix
+     */
+    public ExpressionMatrix getMatrix(DoseResponseExperiment experiment) {
+        try {
+            return matrices.get(experiment, () -> {
+                long start = System.nanoTime();
+                ExpressionMatrix matrix = ExpressionMatrix.fromExperiment(experiment);
+                log.debug("Built expression matrix for {}: {} probes x {} samples ({} KB) in {} ms",
+                        experiment.getName(), matrix.getProbeCount(), matrix.getSampleCount(),
+                        matrix.estimatedBytes() / 1024, (System.nanoTime() - start) / 1_000_000);
+                return matrix;
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to build expression matrix: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Register a matrix that was produced directly (e.g. by a file import) so it is
+     * not rebuilt from the experiment's probe responses.
+     */
+    public void put(DoseResponseExperiment experiment, ExpressionMatrix matrix) {
+        matrices.put(experiment, matrix);
+    }
+}
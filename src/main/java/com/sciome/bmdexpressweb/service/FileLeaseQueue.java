@@ -0,0 +1,405 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Work queue on a shared directory, with lease-based claiming.
+ *
+ * Each task is one file. A node claims a task by atomically moving its file
+ * from pending/ to leased/; only one mover can win, so a task is held by one
+ * node at a time without any lock service. The lease lasts for the lease
+ * duration after the leased file's modification time, and the holder keeps it
+ * by renewing (touching the file) well within that time. Leases that were not
+ * renewed, because the holder died or hung, are put back in pending/ by
+ * whichever node reaps next, and after the maximum number of attempts the task
+ * is moved to failed/ instead. The holder finishes a task by writing its result
+ * to results/, where the submitter picks it up.
+ *
+ * Delivery is at least once: a holder that loses its lease may still finish, so
+ * a task can produce more than one result; the submitter takes the first.
+ *
+ * All writes go to a temporary file that is moved into place, so readers never
+ * see partial files. The directory can be local (several JVMs on one box) or
+ * a shared file system that supports atomic rename.
+ */
+public class FileLeaseQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(FileLeaseQueue.class);
+
+    private static final String TASK = ".task";
+    private static final String RESULT = ".result";
+    private static final String REAPING = ".reaping";
+
+    /**
+     * Where a task is
+     */
+    public enum State {
+        PENDING, LEASED, DONE, FAILED, UNKNOWN
+    }
+
+    private final Path pending;
+    private final Path leased;
+    private final Path results;
+    private final Path failed;
+    private final Path cancelled;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+
+    /**
+     * @param directory queue directory; created if missing
+     * @param leaseDuration how long a claimed task stays leased without renewal
+     * @param maxAttempts number of leases a task gets before it is moved to failed/
+     */
+    public FileLeaseQueue(Path directory, Duration leaseDuration, int maxAttempts) throws IOException {
+        this.pending = Files.createDirectories(directory.resolve("pending"));
+        this.leased = Files.createDirectories(directory.resolve("leased"));
+        this.results = Files.createDirectories(directory.resolve("results"));
+        this.failed = Files.createDirectories(directory.resolve("failed"));
+        this.cancelled = Files.createDirectories(directory.resolve("cancelled"));
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * Add a task
+     *
+     * @throws FileAlreadyExistsException if a task with this ID is pending
+     */
+    public void enqueue(String taskId, Serializable payload) throws IOException {
+        Path target = pending.resolve(taskId + TASK);
+        if (Files.exists(target)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        write(target, new Envelope(taskId, 1, payload));
+    }
+
+    /**
+     * Claim the oldest pending task
+     *
+     * @return the lease, or null if no task is pending
+     */
+    public Lease claim() throws IOException {
+        for (Path file : oldestFirst(pending, "*" + TASK)) {
+            Path target = leased.resolve(file.getFileName());
+            try {
+                // Start the lease clock before the move, so a reaper never sees a stale leased file
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue; // claimed by another node
+            }
+            try {
+                Envelope envelope = read(target, Envelope.class);
+                return new Lease(envelope.taskId, envelope.attempt, envelope.payload, target);
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                log.warn("Discarding unreadable task {}", file.getFileName(), e);
+                moveQuietly(target, failed.resolve(file.getFileName()));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extend a lease by the lease duration
+     *
+     * @return false if the lease was lost (reaped or completed elsewhere)
+     */
+    public boolean renew(Lease lease) {
+        try {
+            Files.setLastModifiedTime(lease.file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Store the result of a leased task and end the lease
+     *
+     * @return false if the lease had already been lost; the result is stored anyway
+     */
+    public boolean complete(Lease lease, Serializable result) throws IOException {
+        write(results.resolve(lease.taskId + RESULT), result);
+        return Files.deleteIfExists(lease.file);
+    }
+
+    /**
+     * Give a task back without counting the attempt (e.g. on shutdown)
+     */
+    public void release(Lease lease) {
+        moveQuietly(lease.file, pending.resolve(lease.file.getFileName()));
+    }
+
+    /**
+     * Put tasks whose lease has expired back in pending/, or in failed/ once
+     * they have used up their attempts
+     *
+     * @return number of expired leases reaped
+     */
+    public int reapExpiredLeases() throws IOException {
+        long expiredBefore = System.currentTimeMillis() - leaseDuration.toMillis();
+        int reaped = 0;
+        for (Path file : oldestFirst(leased, "*" + REAPING)) {
+            // Left behind by a reaper that died; make it an expired lease again
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() < expiredBefore) {
+                    String name = file.getFileName().toString();
+                    Files.move(file, file.resolveSibling(name.substring(0, name.length() - REAPING.length())),
+                            StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (NoSuchFileException e) {
+                // recovered elsewhere
+            }
+        }
+        for (Path file : oldestFirst(leased, "*" + TASK)) {
+            Path reaping = file.resolveSibling(file.getFileName() + REAPING);
+            try {
+                if (Files.getLastModifiedTime(file).toMillis() >= expiredBefore) {
+                    continue;
+                }
+                // Take the expired lease exclusively, so concurrent reapers requeue it once
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+                Files.move(file, reaping, StandardCopyOption.ATOMIC_MOVE);
+            } catch (NoSuchFileException e) {
+                continue; // completed or reaped elsewhere
+            }
+            try {
+                Envelope envelope = read(reaping, Envelope.class);
+                if (envelope.attempt >= maxAttempts) {
+                    log.warn("Task {} failed: lease expired on attempt {} of {}",
+                            envelope.taskId, envelope.attempt, maxAttempts);
+                    moveQuietly(reaping, failed.resolve(file.getFileName()));
+                } else {
+                    log.info("Task {} requeued: lease expired on attempt {}", envelope.taskId, envelope.attempt);
+                    write(pending.resolve(file.getFileName()),
+                            new Envelope(envelope.taskId, envelope.attempt + 1, envelope.payload));
+                    Files.deleteIfExists(reaping);
+                }
+                reaped++;
+            } catch (ClassNotFoundException | ClassCastException e) {
+                log.warn("Discarding unreadable task {}", file.getFileName(), e);
+                moveQuietly(reaping, failed.resolve(file.getFileName()));
+            }
+        }
+        return reaped;
+    }
+
+    /**
+     * Where a task is; DONE once a result is waiting.
+     *
+     * The directories are checked in the order tasks move through them
+     * (pending, leased, failed, results), so a task that moves on between two
+     * checks is still found in the next one. A task sent back to pending/ (a
+     * requeued or released lease) can still be missed between the checks, so
+     * UNKNOWN is only reliable if it is seen again on a later call.
+     */
+    public State state(String taskId) {
+        if (Files.exists(pending.resolve(taskId + TASK))) {
+            return State.PENDING;
+        }
+        if (Files.exists(leased.resolve(taskId + TASK)) || Files.exists(leased.resolve(taskId + TASK + REAPING))) {
+            return State.LEASED;
+        }
+        if (Files.exists(failed.resolve(taskId + TASK))) {
+            return State.FAILED;
+        }
+        return Files.exists(results.resolve(taskId + RESULT)) ? State.DONE : State.UNKNOWN;
+    }
+
+    /**
+     * Read and remove the result of a task, together with its cancellation marker
+     *
+     * @return the result, or null if there is none
+     */
+    public <T extends Serializable> T takeResult(String taskId, Class<T> type) throws IOException, ClassNotFoundException {
+        Path file = results.resolve(taskId + RESULT);
+        T result;
+        try {
+            result = read(file, type);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(cancelled.resolve(taskId));
+        return result;
+    }
+
+    /**
+     * Remove every trace of a task: pending, failed, result and cancellation marker.
+     * A lease in progress runs to its end; its result is left for the sweep.
+     */
+    public void discard(String taskId) throws IOException {
+        Files.deleteIfExists(pending.resolve(taskId + TASK));
+        Files.deleteIfExists(failed.resolve(taskId + TASK));
+        Files.deleteIfExists(results.resolve(taskId + RESULT));
+        Files.deleteIfExists(cancelled.resolve(taskId));
+    }
+
+    /**
+     * Ask the holder of a task to stop; a pending task is removed at once
+     */
+    public void cancel(String taskId) throws IOException {
+        Files.deleteIfExists(pending.resolve(taskId + TASK));
+        try {
+            Files.createFile(cancelled.resolve(taskId));
+        } catch (FileAlreadyExistsException e) {
+            // already cancelled
+        }
+    }
+
+    public boolean isCancelled(String taskId) {
+        return Files.exists(cancelled.resolve(taskId));
+    }
+
+    /**
+     * Delete results, failed tasks and cancellation markers nobody picked up,
+     * e.g. because the submitter restarted
+     *
+     * @return number of files deleted
+     */
+    public int sweep(Duration olderThan) throws IOException {
+        long before = System.currentTimeMillis() - olderThan.toMillis();
+        int deleted = 0;
+        for (Path directory : List.of(results, failed, cancelled)) {
+            for (Path file : oldestFirst(directory, "*")) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < before && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // taken meanwhile
+                }
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Files matching the glob, by modification time. Temporary files (leading dot) are skipped.
+     */
+    private static List<Path> oldestFirst(Path directory, String glob) throws IOException {
+        Map<Path, Long> times = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().startsWith(".")) {
+                    continue;
+                }
+                try {
+                    times.put(file, Files.getLastModifiedTime(file).toMillis());
+                } catch (NoSuchFileException e) {
+                    // moved meanwhile
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>(times.keySet());
+        files.sort(Comparator.comparing(times::get));
+        return files;
+    }
+
+    private static void write(Path target, Serializable value) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".", ".tmp");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp))))) {
+                out.writeObject(value);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static <T> T read(Path file, Class<T> type) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(
+                new BufferedInputStream(Files.newInputStream(file))))) {
+            return type.cast(in.readObject());
+        }
+    }
+
+    private static void moveQuietly(Path from, Path to) {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            throw new IllegalStateException("Queue directory does not support atomic moves", e);
+        } catch (IOException e) {
+            log.warn("Failed to move {} to {}", from, to, e);
+        }
+    }
+
+    /**
+     * A claimed task
+     */
+    public static final class Lease {
+        private final String taskId;
+        private final int attempt;
+        private final Serializable payload;
+        private final Path file;
+
+        private Lease(String taskId, int attempt, Serializable payload, Path file) {
+            this.taskId = taskId;
+            this.attempt = attempt;
+            this.payload = payload;
+            this.file = file;
+        }
+
+        public String getTaskId() {
+            return taskId;
+        }
+
+        /**
+         * 1 for the first lease of the task, one more for each expired lease before it
+         */
+        public int getAttempt() {
+            return attempt;
+        }
+
+        public Serializable getPayload() {
+            return payload;
+        }
+    }
+
+    /**
+     * Task file content
+     */
+    private static final class Envelope implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String taskId;
+        private final int attempt;
+        private final Serializable payload;
+
+        Envelope(String taskId, int attempt, Serializable payload) {
+            this.taskId = taskId;
+            this.attempt = attempt;
+            this.payload = payload;
+        }
+    }
+}
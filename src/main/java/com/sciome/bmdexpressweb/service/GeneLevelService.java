@@ -0,0 +1,59 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.analysis.GeneLevelSummary;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Service that builds and caches gene-level BMD summaries of each BMD result.
+ *
+ * Summaries are keyed by BMDResult identity with weak keys and reuse the probe
+ * table already parsed for the result's probe filters. Like the filters, they
+ * live as long as the result, which is never modified once loaded.
+ */
+@Service
+public class GeneLevelService {
+
+    private static final Logger log = LoggerFactory.getLogger(GeneLevelService.class);
+
+    private final ProbeFilterService probeFilterService;
+
+    private final Cache<BMDResult, CategoryAnalysisTableView> views = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    @Autowired
+    public GeneLevelService(ProbeFilterService probeFilterService) {
+        this.probeFilterService = probeFilterService;
+    }
+
+    /**
+     * Get the gene-level summary table of a BMD result, building it on first access.
+     * Concurrent callers for the same result wait for a single build.
+     *
+     * @param bmdResult the BMD result
+     * @return one row per gene with probe count and BMD/BMDL/BMDU medians and minima
+     */
+    public CategoryAnalysisTableView getGeneLevelView(BMDResult bmdResult) {
+        try {
+            return views.get(bmdResult, () -> {
+                long start = System.nanoTime();
+                GeneLevelSummary summary = GeneLevelSummary.aggregate(
+                        probeFilterService.getIndex(bmdResult).getTable());
+                log.debug("Aggregated {} genes for {} in {} ms",
+                        summary.getGeneCount(), bmdResult.getName(), (System.nanoTime() - start) / 1_000_000);
+                return summary.toTableView(bmdResult.getName());
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to aggregate genes: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.analysis.ProbeFilterIndex;
+import com.sciome.bmdexpressweb.analysis.ProbeStatTable;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.ProbeFilterResponse;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Service that compiles and caches the category analysis probe filters of each
+ * BMD result.
+ *
+ * Indexes are keyed by BMDResult identity with weak keys, so the probe table is
+ * read and every filter compiled at most once while the result is reachable.
+ * Loaded results are never modified, so an index stays valid for its lifetime.
+ */
+@Service
+public class ProbeFilterService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProbeFilterService.class);
+
+    private final Cache<BMDResult, ProbeFilterIndex> indexes = CacheBuilder.newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Get the compiled probe filters of a BMD result, building them on first access.
+     * Concurrent callers for the same result wait for a single build.
+     *
+     * @param bmdResult the BMD result
+     * @return the probe filter index
+     */
+    public ProbeFilterIndex getIndex(BMDResult bmdResult) {
+        try {
+            return indexes.get(bmdResult, () -> {
+                long start = System.nanoTime();
+                ProbeFilterIndex index = new ProbeFilterIndex(ProbeStatTable.fromBmdResult(bmdResult));
+                log.debug("Compiled probe filters for {}: {} probes in {} ms",
+                        bmdResult.getName(), index.getProbeCount(), (System.nanoTime() - start) / 1_000_000);
+                return index;
+            });
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to compile probe filters: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Count the probes of a BMD result that pass a set of category analysis
+     * filters, using the result's own gene annotations. Intended for live
+     * feedback while thresholds are being edited.
+     *
+     * @param bmdResult the BMD result
+     * @param parameters the filter parameters
+     * @return probe counts and evaluation time
+     */
+    public ProbeFilterResponse filterProbes(BMDResult bmdResult, CategoryAnalysisParametersDto parameters) {
+        ProbeFilterIndex index = getIndex(bmdResult);
+        long start = System.nanoTime();
+        RoaringBitmap passed = index.filter(parameters != null ? parameters : new CategoryAnalysisParametersDto());
+        long elapsedMicros = (System.nanoTime() - start) / 1_000;
+        return new ProbeFilterResponse(bmdResult.getName(), index.getProbeCount(),
+                passed.getCardinality(), elapsedMicros);
+    }
+}
@@ -1,21 +1,58 @@
 package com.sciome.bmdexpressweb.service;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sciome.bmdexpressweb.dto.ProjectLoadResponse;
 import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing BMDExpress projects (.bm2 files)
  * Provides in-memory storage and deserialization of .bm2 project files
+ *
+ * Each project carries a content hash: the SHA-256 of the uploaded file, so
+ * identical uploads have the same hash. Adding data to a project gives it a
+ * new hash of its own.
+ *
+ * Deserialization runs on a dedicated loader pool with its own limits
+ * (bmdexpress.projects.loader-threads running, bmdexpress.projects.max-queued-loads
+ * waiting), so a few large loads cannot take over the request threads that serve
+ * quick metadata requests. Loads beyond the limits are rejected with
+ * RejectedExecutionException. Loads can be run synchronously (loadProject) or
+ * submitted and polled (submitLoad / getLoad).
+ *
+ * In a multi-node deployment (see ClusterMembership) new projects get IDs
+ * owned by this node. A project whose owner changed is handed over whole:
+ * exportProject on the node that has it, adoptProject on its new owner.
  */
 @Service
 public class ProjectService {
@@ -26,28 +63,246 @@ public class ProjectService {
     // Maps project ID (UUID) -> ProjectHolder (project + metadata)
     private final Map<String, ProjectHolder> projects = new ConcurrentHashMap<>();
 
+    // Submitted loads, kept for an hour after they were last polled
+    private final Cache<String, LoadJob> loads = CacheBuilder.newBuilder()
+            .expireAfterAccess(1, TimeUnit.HOURS)
+            .build();
+
+    private final ThreadPoolExecutor loaderExecutor;
+    private final ClusterMembership membership;
+
+    public ProjectService() {
+        this(2, 16);
+    }
+
+    public ProjectService(int loaderThreads, int maxQueuedLoads) {
+        this(loaderThreads, maxQueuedLoads, new ClusterMembership());
+    }
+
+    @Autowired
+    public ProjectService(
+            @Value("${bmdexpress.projects.loader-threads:2}") int loaderThreads,
+            @Value("${bmdexpress.projects.max-queued-loads:16}") int maxQueuedLoads,
+            ClusterMembership membership) {
+        this.membership = membership;
+        int threads = Math.max(1, loaderThreads);
+        AtomicInteger counter = new AtomicInteger();
+        this.loaderExecutor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedLoads)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "project-loader-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loaderExecutor.shutdownNow();
+    }
+
     /**
-     * Load a .bm2 project file from an InputStream and store it in memory
+     * Load a .bm2 project file from an InputStream and store it in memory.
+     * Deserialization runs on the loader pool; the caller waits for it.
      *
      * @param inputStream .bm2 file content
      * @param filename Original filename
      * @return Project ID (UUID)
      * @throws IOException if deserialization fails
      * @throws ClassNotFoundException if BMDProject class not found
+     * @throws java.util.concurrent.RejectedExecutionException if the loader pool and its queue are full
      */
     public String loadProject(InputStream inputStream, String filename)
             throws IOException, ClassNotFoundException {
 
+        return await(loaderExecutor.submit(() -> readProject(inputStream, filename)), filename);
+    }
+
+    /**
+     * Take over a project handed over by another node, under its existing ID.
+     * Deserialization runs on the loader pool; the caller waits for it.
+     *
+     * @param projectId ID of the project
+     * @param inputStream the project, as written by exportProject
+     * @param filename Original filename
+     * @param uploadedAt When the project was first loaded
+     * @param contentHash Content hash of the project
+     * @throws IOException if deserialization fails
+     * @throws ClassNotFoundException if BMDProject class not found
+     * @throws java.util.concurrent.RejectedExecutionException if the loader pool and its queue are full
+     */
+    public void adoptProject(String projectId, InputStream inputStream, String filename,
+                             LocalDateTime uploadedAt, String contentHash)
+            throws IOException, ClassNotFoundException {
+
+        await(loaderExecutor.submit(() -> {
+            ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(inputStream, 1024 * 2000));
+            BMDProject project = (BMDProject) ois.readObject();
+            projects.putIfAbsent(projectId, new ProjectHolder(projectId, project, filename, uploadedAt, contentHash));
+            log.info("Project adopted: {} (ID: {})", filename, projectId);
+            return projectId;
+        }), filename);
+    }
+
+    /**
+     * Write a project in .bm2 format, for handing it over to another node
+     *
+     * @param projectId The project ID
+     * @param outputStream Destination; left open
+     * @throws IllegalArgumentException if project not found
+     * @throws IOException if the project cannot be written
+     */
+    public void exportProject(String projectId, OutputStream outputStream) throws IOException {
+        BMDProject project = getProject(projectId);
+        ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(outputStream));
+        synchronized (project) {
+            oos.writeObject(project);
+        }
+        oos.flush();
+    }
+
+    private static <T> T await(Future<T> future, String filename) throws IOException, ClassNotFoundException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading project: " + filename);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof ClassNotFoundException cnf) {
+                throw cnf;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Failed to load project: " + filename, cause);
+        }
+    }
+
+    /**
+     * Submit a .bm2 project file for loading on the loader pool and return immediately
+     *
+     * @param file The file to load
+     * @param filename Original filename
+     * @param deleteAfterLoad Delete the file once the load has finished (temporary upload copies)
+     * @return Status of the submitted load
+     * @throws java.util.concurrent.RejectedExecutionException if the loader pool and its queue are full
+     */
+    public ProjectLoadResponse submitLoad(Path file, String filename, boolean deleteAfterLoad) {
+        LoadJob job = new LoadJob(UUID.randomUUID().toString(), filename);
+        loaderExecutor.execute(() -> {
+            job.status = "RUNNING";
+            try (InputStream in = Files.newInputStream(file)) {
+                job.projectId = readProject(in, filename);
+                job.status = "COMPLETED";
+            } catch (Throwable t) {
+                // Corrupt files can also fail with errors, e.g. StackOverflowError on a too deep graph
+                log.error("Failed to load project: {}", filename, t);
+                job.errorMessage = loadErrorMessage(t);
+                job.status = "FAILED";
+                rethrowIfFatal(t);
+            } finally {
+                job.completedAt = LocalDateTime.now();
+                if (deleteAfterLoad) {
+                    deleteQuietly(file);
+                }
+            }
+        });
+        loads.put(job.loadId, job);
+
+        log.info("Project load {} submitted: {}", job.loadId, filename);
+
+        return job.toResponse();
+    }
+
+    /**
+     * Load a .bm2 project file on the loader pool without waiting for it
+     *
+     * @param file The file to load
+     * @param filename Original filename
+     * @param deleteAfterLoad Delete the file once the load has finished (temporary upload copies)
+     * @return The project ID once the project is loaded; completes exceptionally with the
+     *         IOException, ClassNotFoundException or error of a failed load
+     * @throws java.util.concurrent.RejectedExecutionException if the loader pool and its queue are full
+     */
+    public CompletableFuture<String> loadProjectAsync(Path file, String filename, boolean deleteAfterLoad) {
+        CompletableFuture<String> projectId = new CompletableFuture<>();
+        loaderExecutor.execute(() -> {
+            String loaded;
+            try {
+                try (InputStream in = Files.newInputStream(file)) {
+                    loaded = readProject(in, filename);
+                } finally {
+                    // Gone by the time the caller hears of the load
+                    if (deleteAfterLoad) {
+                        deleteQuietly(file);
+                    }
+                }
+            } catch (Throwable t) {
+                projectId.completeExceptionally(t);
+                rethrowIfFatal(t);
+                return;
+            }
+            projectId.complete(loaded);
+        });
+        return projectId;
+    }
+
+    private static String loadErrorMessage(Throwable t) {
+        if (t instanceof OutOfMemoryError) {
+            return "Not enough memory to load the project";
+        }
+        return t instanceof ClassNotFoundException || t instanceof Error || t.getMessage() == null
+                ? "Invalid project file format" : t.getMessage();
+    }
+
+    /**
+     * Rethrow errors of the JVM itself once the load has been failed, so they still
+     * reach the loader thread's uncaught exception handler
+     */
+    private static void rethrowIfFatal(Throwable t) {
+        if (t instanceof VirtualMachineError error) {
+            throw error;
+        }
+    }
+
+    /**
+     * Get the status of a submitted load
+     *
+     * @param loadId The load ID
+     * @return Load status snapshot
+     * @throws IllegalArgumentException if the load is not found
+     */
+    public ProjectLoadResponse getLoad(String loadId) {
+        LoadJob job = loads.getIfPresent(loadId);
+        if (job == null) {
+            throw new IllegalArgumentException("Load not found: " + loadId);
+        }
+        return job.toResponse();
+    }
+
+    private String readProject(InputStream inputStream, String filename)
+            throws IOException, ClassNotFoundException {
+
         log.info("Loading project from file: {}", filename);
 
-        BufferedInputStream bis = new BufferedInputStream(inputStream, 1024 * 2000);
+        MessageDigest digest = sha256();
+        BufferedInputStream bis = new BufferedInputStream(new DigestInputStream(inputStream, digest), 1024 * 2000);
         ObjectInputStream ois = new ObjectInputStream(bis);
 
         BMDProject project = (BMDProject) ois.readObject();
+        // Hash the whole file, including anything after the serialized project
+        bis.transferTo(OutputStream.nullOutputStream());
         ois.close();
 
-        String projectId = UUID.randomUUID().toString();
-        ProjectHolder holder = new ProjectHolder(projectId, project, filename, LocalDateTime.now());
+        String projectId = membership.newLocalId();
+        ProjectHolder holder = new ProjectHolder(projectId, project, filename, LocalDateTime.now(),
+                HexFormat.of().formatHex(digest.digest()));
 
         projects.put(projectId, holder);
 
@@ -56,6 +311,14 @@ public class ProjectService {
         return projectId;
     }
 
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}", file, e);
+        }
+    }
+
     /**
      * Get a project by ID
      *
@@ -86,6 +349,17 @@ public class ProjectService {
         return holder;
     }
 
+    /**
+     * Get the content hash of a project
+     *
+     * @param projectId The project ID
+     * @return SHA-256 of the project content (hex)
+     * @throws IllegalArgumentException if project not found
+     */
+    public String getContentHash(String projectId) {
+        return getProjectHolder(projectId).getContentHash();
+    }
+
     /**
      * Check if project exists
      *
@@ -107,6 +381,32 @@ public class ProjectService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Add a DoseResponseExperiment (imported expression data) to a project
+     *
+     * @param projectId The project ID
+     * @param experiment The experiment to add
+     * @throws IllegalArgumentException if project not found or an experiment with the same name exists
+     */
+    public void addDoseResponseExperiment(String projectId, DoseResponseExperiment experiment) {
+        BMDProject project = getProject(projectId);
+
+        synchronized (project) {
+            if (project.getDoseResponseExperiments() == null) {
+                project.setDoseResponseExperiments(new ArrayList<>());
+            }
+            boolean duplicate = project.getDoseResponseExperiments().stream()
+                    .anyMatch(existing -> existing.getName().equalsIgnoreCase(experiment.getName()));
+            if (duplicate) {
+                throw new IllegalArgumentException("Expression data already exists: " + experiment.getName());
+            }
+            project.getDoseResponseExperiments().add(experiment);
+        }
+        getProjectHolder(projectId).contentChanged();
+
+        log.info("Expression data added: {} (project ID: {})", experiment.getName(), projectId);
+    }
+
     /**
      * Remove a project from memory
      *
@@ -119,6 +419,44 @@ public class ProjectService {
         }
     }
 
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Mutable state of a submitted load
+     */
+    private static class LoadJob {
+        private final String loadId;
+        private final String filename;
+        private final LocalDateTime submittedAt = LocalDateTime.now();
+        private volatile String status = "PENDING";
+        private volatile String projectId;
+        private volatile String errorMessage;
+        private volatile LocalDateTime completedAt;
+
+        LoadJob(String loadId, String filename) {
+            this.loadId = loadId;
+            this.filename = filename;
+        }
+
+        ProjectLoadResponse toResponse() {
+            ProjectLoadResponse response = new ProjectLoadResponse(loadId, filename, status);
+            response.setProjectId(projectId);
+            response.setSubmittedAt(submittedAt);
+            response.setCompletedAt(completedAt);
+            response.setErrorMessage(errorMessage);
+            if (projectId != null) {
+                response.setResultLocation("/api/projects/" + projectId);
+            }
+            return response;
+        }
+    }
+
     /**
      * Holder class for project + metadata
      * Stores the BMDProject along with upload metadata
@@ -128,13 +466,21 @@ public class ProjectService {
         private final BMDProject project;
         private final String originalFilename;
         private final LocalDateTime uploadedAt;
+        private volatile String contentHash;
+        private int revision;
 
         public ProjectHolder(String projectId, BMDProject project,
                            String originalFilename, LocalDateTime uploadedAt) {
+            this(projectId, project, originalFilename, uploadedAt, null);
+        }
+
+        public ProjectHolder(String projectId, BMDProject project,
+                           String originalFilename, LocalDateTime uploadedAt, String contentHash) {
             this.projectId = projectId;
             this.project = project;
             this.originalFilename = originalFilename;
             this.uploadedAt = uploadedAt;
+            this.contentHash = contentHash;
         }
 
         public String getProjectId() {
@@ -152,5 +498,25 @@ public class ProjectService {
         public LocalDateTime getUploadedAt() {
             return uploadedAt;
         }
+
+        /**
+         * SHA-256 of the project content (hex), or null if unknown
+         */
+        public String getContentHash() {
+            return contentHash;
+        }
+
+        /**
+         * Derive a new content hash after the project was modified in memory.
+         * It is unique to this project, as other copies of the file did not get the same changes.
+         */
+        synchronized void contentChanged() {
+            if (contentHash == null) {
+                return;
+            }
+            MessageDigest digest = sha256();
+            digest.update((contentHash + "|" + projectId + "|" + (++revision)).getBytes(StandardCharsets.UTF_8));
+            contentHash = HexFormat.of().formatHex(digest.digest());
+        }
     }
 }
@@ -0,0 +1,208 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encoded response bodies of resources that never change once computed:
+ * results of a loaded project, versioned by the project's content hash, and
+ * completed analyses, versioned by their completion time.
+ *
+ * Entries are named by their strong ETag, derived from the resource version,
+ * path and representation (e.g. JSON or columnar). A conditional request is
+ * therefore answered without computing or even finding the body, and a body
+ * computed for one copy of a project serves identical uploads too. Bodies are
+ * kept as sent and gzip-compressed (when that is smaller); the gzip form has
+ * its own ETag. The cache is bounded by the total size of both forms
+ * (bmdexpress.response-cache.max-bytes), and larger bodies than
+ * bmdexpress.response-cache.max-entry-bytes are not kept.
+ */
+@Service
+public class ResponseCache {
+
+    private final Cache<String, Body> bodies;
+    private final int maxEntryBytes;
+
+    @Autowired
+    public ResponseCache(@Value("${bmdexpress.response-cache.max-bytes:268435456}") long maxBytes,
+                         @Value("${bmdexpress.response-cache.max-entry-bytes:33554432}") int maxEntryBytes) {
+        this.maxEntryBytes = maxBytes > 0 ? Math.max(0, maxEntryBytes) : 0;
+        this.bodies = CacheBuilder.newBuilder()
+                .maximumWeight(Math.max(0, maxBytes))
+                .weigher((String etag, Body body) -> body.weight())
+                .build();
+    }
+
+    /**
+     * Strong ETag of one representation of a resource version
+     *
+     * @param version version of the resource, e.g. a project content hash
+     * @param resource path of the resource within that version
+     * @param variant representation, e.g. "json"
+     * @return the quoted ETag, or null if the version is unknown
+     */
+    public static String etag(String version, String resource, String variant) {
+        if (version == null) {
+            return null;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((version + "\n" + resource + "\n" + variant).getBytes(StandardCharsets.UTF_8));
+            return "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * ETag of the gzip-compressed form of a body
+     */
+    public static String gzipEtag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * True if an If-None-Match header matches an ETag or its gzip form. As
+     * RFC 9110 specifies for If-None-Match, weak tags match their strong ones.
+     *
+     * @param ifNoneMatch the header, may be null
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        String gzipEtag = gzipEtag(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True if an Accept-Encoding header allows gzip
+     *
+     * @param acceptEncoding the header, may be null
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean refused = false;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        refused = Double.parseDouble(parameter.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        refused = true;
+                    }
+                }
+            }
+            if (!refused) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cached body for an ETag, or null
+     */
+    public Body get(String etag) {
+        return bodies.getIfPresent(etag);
+    }
+
+    /**
+     * Keep a body, compressing it now so hits cost no more than a copy
+     *
+     * @param etag ETag of the body, from {@link #etag}
+     * @param contentType its Content-Type
+     * @param identity the body as sent without compression
+     */
+    public void put(String etag, String contentType, byte[] identity) {
+        if (identity.length > maxEntryBytes) {
+            return;
+        }
+        byte[] gzip = gzip(identity);
+        bodies.put(etag, new Body(contentType, identity, gzip.length < identity.length ? gzip : null));
+    }
+
+    /**
+     * Size of the largest body that is kept; 0 if the cache is off
+     */
+    public int getMaxEntryBytes() {
+        return maxEntryBytes;
+    }
+
+    private static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A cached response body
+     */
+    public static final class Body {
+        private final String contentType;
+        private final byte[] identity;
+        private final byte[] gzip;
+
+        public Body(String contentType, byte[] identity, byte[] gzip) {
+            this.contentType = contentType;
+            this.identity = identity;
+            this.gzip = gzip;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * The body as sent without compression
+         */
+        public byte[] getIdentity() {
+            return identity;
+        }
+
+        /**
+         * The gzip-compressed body, or null if compression did not make it smaller
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        int weight() {
+            return identity.length + (gzip != null ? gzip.length : 0);
+        }
+    }
+}
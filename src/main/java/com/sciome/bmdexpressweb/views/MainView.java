@@ -1,13 +1,17 @@
 package com.sciome.bmdexpressweb.views;
 
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
 import com.sciome.bmdexpressweb.dto.ProjectUploadResponse;
 import com.sciome.bmdexpressweb.mvp.presenter.mainstage.ProjectNavigationPresenter;
 import com.sciome.bmdexpressweb.service.BmdExpressApiService;
 import com.sciome.bmdexpressweb.shared.eventbus.BMDExpressEventBus;
 import com.sciome.bmdexpressweb.views.dataview.CategoryAnalysisDataView;
 import com.sciome.bmdexpressweb.views.mainstage.ProjectNavigationView;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.contextmenu.MenuItem;
 import com.vaadin.flow.component.contextmenu.SubMenu;
 import com.vaadin.flow.component.dialog.Dialog;
@@ -23,6 +27,7 @@ import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.splitlayout.SplitLayout;
 import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.component.upload.receivers.FileBuffer;
 import com.vaadin.flow.component.upload.receivers.MemoryBuffer;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.StreamResource;
@@ -38,17 +43,35 @@ import org.springframework.util.MultiValueMap;
 import org.springframework.web.client.RestTemplate;
 
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * MainView - Clean Vaadin implementation with menu bar and modal upload dialog.
  * Primary view for BMDExpress web application using MVP architecture.
+ *
+ * Updates from outside a request (project loads finishing, completed analyses,
+ * status label timeouts) go through UiUpdateDispatcher and are pushed to the
+ * browser (@Push is set on the application shell). Like everything else the
+ * view learns about analyses through the REST API: analyses submitted here
+ * are followed over their server-sent events.
  */
 @Route("")
 public class MainView extends VerticalLayout {
 
     private final BmdExpressApiService apiService;
     private final BMDExpressEventBus eventBus;
+    private final UiUpdateDispatcher uiUpdates;
+
+    // Pending auto-hide of the action status label
+    private ScheduledFuture<?> statusClear;
+
+    // Event streams of analyses submitted from this view, closed on detach
+    private final Set<CompletableFuture<?>> followedAnalyses = new HashSet<>();
 
     // UI Components
     private H1 projectNameLabel;
@@ -63,16 +86,18 @@ public class MainView extends VerticalLayout {
     private VerticalLayout dataViewArea;
     private CategoryAnalysisDataView categoryAnalysisDataView;
 
-    // Upload dialog
+    // Upload dialogs
     private Dialog uploadDialog;
+    private Dialog expressionImportDialog;
 
     // Current project ID for fetching category results
     private String currentProjectId;
 
     @Autowired
-    public MainView(BmdExpressApiService apiService, BMDExpressEventBus eventBus) {
+    public MainView(BmdExpressApiService apiService, BMDExpressEventBus eventBus, UiUpdateDispatcher uiUpdates) {
         this.apiService = apiService;
         this.eventBus = eventBus;
+        this.uiUpdates = uiUpdates;
 
         setSizeFull();
         setPadding(false);
@@ -83,6 +108,7 @@ public class MainView extends VerticalLayout {
         initializeMVPComponents();
         initializeContentArea();
         initializeUploadDialog();
+        initializeExpressionImportDialog();
     }
 
     /**
@@ -98,12 +124,41 @@ public class MainView extends VerticalLayout {
         // Create category analysis data view
         categoryAnalysisDataView = new CategoryAnalysisDataView();
 
-        // Wire up selection listener
+        // Wire up selection listeners
         projectNavigationView.addSelectionListener(this::handleCategorySelection);
+        projectNavigationView.addAnalysisSelectionListener(this::handleAnalysisSelection);
 
         System.out.println("MainView: MVP components initialized");
     }
 
+    @Override
+    protected void onDetach(DetachEvent detachEvent) {
+        if (statusClear != null) {
+            statusClear.cancel(false);
+        }
+        followedAnalyses.forEach(follow -> follow.cancel(false));
+        followedAnalyses.clear();
+        super.onDetach(detachEvent);
+    }
+
+    /**
+     * Adds an analysis that finished for the open project to the navigation
+     * tree, or reports why it did not complete
+     *
+     * @param event the final server-sent event of the analysis
+     */
+    private void analysisFinished(String projectId, String analysisId, String name, Map<String, Object> event) {
+        if (!projectId.equals(currentProjectId)) {
+            return;
+        }
+        if ("COMPLETED".equals(event.get("status"))) {
+            projectNavigationPresenter.addCategoryAnalysisJob(name, analysisId);
+            updateActionStatus("Analysis completed: " + name);
+        } else {
+            showErrorNotification("Analysis " + name + " " + event.get("status") + ": " + event.get("errorMessage"));
+        }
+    }
+
     /**
      * Creates the menu bar (File, Analysis, Help menus)
      */
@@ -115,6 +170,7 @@ public class MainView extends VerticalLayout {
         MenuItem fileMenu = menuBar.addItem("File");
         SubMenu fileSubMenu = fileMenu.getSubMenu();
         fileSubMenu.addItem("Open Project", e -> showUploadDialog());
+        fileSubMenu.addItem("Import Expression Data", e -> showExpressionImportDialog());
         fileSubMenu.addItem("Close Project", e -> closeProject());
         fileSubMenu.addItem("Save Project", e -> saveProject());
         fileSubMenu.addItem("Save As...", e -> saveProjectAs());
@@ -127,6 +183,7 @@ public class MainView extends VerticalLayout {
         analysisSubMenu.addItem("One-way ANOVA", e -> performOneWayANOVA());
         analysisSubMenu.addItem("Williams Trend", e -> performWilliamsTrend());
         analysisSubMenu.addItem("BMD Analysis", e -> performBMDAnalysis());
+        analysisSubMenu.addItem("Gene Level Analysis", e -> performGeneLevelAnalysis());
         analysisSubMenu.addItem("GO Analysis", e -> performGOAnalysis());
         analysisSubMenu.addItem("Pathway Analysis", e -> performPathwayAnalysis());
 
@@ -246,15 +303,12 @@ public class MainView extends VerticalLayout {
                 String fileName = event.getFileName();
                 InputStream inputStream = buffer.getInputStream();
 
-                // Upload file to server via REST API
+                // Load the project in the background; the tree is filled in when it is done
                 uploadProjectFile(fileName, inputStream);
 
                 // Close dialog
                 uploadDialog.close();
-
-                // Show success notification
-                showSuccessNotification("Project uploaded successfully: " + fileName);
-                updateProjectLabel(fileName);
+                updateActionStatus("Loading project: " + fileName);
 
             } catch (Exception e) {
                 showErrorNotification("Failed to upload project: " + e.getMessage());
@@ -279,6 +333,107 @@ public class MainView extends VerticalLayout {
         uploadDialog.add(dialogLayout);
     }
 
+    /**
+     * Creates the modal expression data import dialog (File > Import Expression Data)
+     */
+    private void initializeExpressionImportDialog() {
+        expressionImportDialog = new Dialog();
+        expressionImportDialog.setCloseOnEsc(true);
+        expressionImportDialog.setCloseOnOutsideClick(false);
+        expressionImportDialog.setWidth("500px");
+
+        VerticalLayout dialogLayout = new VerticalLayout();
+        dialogLayout.setPadding(true);
+        dialogLayout.setSpacing(true);
+
+        H3 title = new H3("Import Expression Data");
+        title.getStyle().set("margin-top", "0");
+
+        Paragraph description = new Paragraph(
+            "Select a tab- or comma-separated expression matrix. The first row holds sample names, " +
+            "the second row the dose of each sample, and each following row one probe."
+        );
+        description.getStyle().set("color", "var(--lumo-secondary-text-color)");
+
+        // File-backed buffer so large matrices are not held in memory
+        FileBuffer buffer = new FileBuffer();
+        Upload upload = new Upload(buffer);
+        upload.setAcceptedFileTypes(".txt", ".tsv", ".csv");
+        upload.setMaxFiles(1);
+        upload.setMaxFileSize(512 * 1024 * 1024); // 512MB max, as spring.servlet.multipart.max-file-size
+        upload.setDropAllowed(false);
+        upload.setUploadButton(new Button("Choose File"));
+
+        upload.addSucceededListener(event -> {
+            java.io.File file = buffer.getFileData().getFile();
+            String fileName = event.getFileName();
+            int dot = fileName.lastIndexOf('.');
+            String experimentName = dot > 0 ? fileName.substring(0, dot) : fileName;
+            String projectId = currentProjectId;
+
+            expressionImportDialog.close();
+            updateActionStatus("Importing expression data: " + experimentName);
+
+            // Parse and summarize in the background; the tree is refreshed when it is done
+            uiUpdates.runInBackground(getUI().orElseThrow(), () -> {
+                try {
+                    ExpressionImportResponse response =
+                            apiService.importExpressionData(projectId, file, experimentName);
+                    return new ExpressionImport(response, apiService.getProjectSummary(projectId));
+                } finally {
+                    file.delete();
+                }
+            }, imported -> expressionImported(projectId, imported), e -> {
+                showErrorNotification("Failed to import expression data: " + e.getMessage());
+                e.printStackTrace();
+            });
+        });
+
+        upload.addFileRejectedListener(event -> {
+            showErrorNotification("File rejected: " + event.getErrorMessage());
+        });
+
+        HorizontalLayout buttons = new HorizontalLayout();
+        buttons.setWidthFull();
+        buttons.setJustifyContentMode(JustifyContentMode.END);
+        buttons.add(new Button("Cancel", e -> expressionImportDialog.close()));
+
+        dialogLayout.add(title, description, upload, buttons);
+        expressionImportDialog.add(dialogLayout);
+    }
+
+    /**
+     * Result of an expression data import and the project summary read after it
+     */
+    private record ExpressionImport(ExpressionImportResponse response, ProjectUploadResponse summary) {
+    }
+
+    /**
+     * Reports a finished expression data import and refreshes the navigation
+     * tree with the new experiment count, if the project is still open
+     */
+    private void expressionImported(String projectId, ExpressionImport imported) {
+        ExpressionImportResponse response = imported.response();
+        showSuccessNotification("Imported " + response.getExperimentName() + ": "
+                + response.getProbeCount() + " probes x " + response.getSampleCount() + " samples");
+        if (!projectId.equals(currentProjectId)) {
+            return;
+        }
+        updateActionStatus("Expression data loaded: " + response.getExperimentName());
+        projectNavigationPresenter.populateTreeFromResponse(imported.summary());
+    }
+
+    /**
+     * Shows the expression data import dialog (requires an open project)
+     */
+    private void showExpressionImportDialog() {
+        if (currentProjectId == null) {
+            showErrorNotification("Open a project before importing expression data");
+            return;
+        }
+        expressionImportDialog.open();
+    }
+
     /**
      * Shows the upload dialog
      */
@@ -287,20 +442,34 @@ public class MainView extends VerticalLayout {
     }
 
     /**
-     * Uploads the project file to the bmdexpress-server via REST API
+     * Uploads the project file to the bmdexpress-server via REST API.
+     * The upload runs in the background and the result is pushed to the UI when it is done.
      */
-    private void uploadProjectFile(String fileName, InputStream inputStream) {
-        try {
-            // Save to temp file first
-            java.io.File tempFile = java.io.File.createTempFile("bmd_upload_", ".bm2");
-            try (java.io.FileOutputStream fos = new java.io.FileOutputStream(tempFile)) {
-                inputStream.transferTo(fos);
-            }
+    private void uploadProjectFile(String fileName, InputStream inputStream) throws java.io.IOException {
+        // Save to temp file first
+        java.io.File tempFile = java.io.File.createTempFile("bmd_upload_", ".bm2");
+        try (java.io.FileOutputStream fos = new java.io.FileOutputStream(tempFile)) {
+            inputStream.transferTo(fos);
+        }
 
-            // Upload to backend API using API service
-            ProjectUploadResponse response = apiService.uploadProject(tempFile);
-            tempFile.delete();
+        // Upload to backend API using API service
+        uiUpdates.runInBackground(getUI().orElseThrow(), () -> {
+            try {
+                return apiService.uploadProject(tempFile);
+            } finally {
+                tempFile.delete();
+            }
+        }, response -> projectLoaded(fileName, response), e -> {
+            showErrorNotification("Failed to upload project: " + e.getMessage());
+            e.printStackTrace();
+        });
+    }
 
+    /**
+     * Shows a project whose upload has finished
+     */
+    private void projectLoaded(String fileName, ProjectUploadResponse response) {
+        try {
             if (response != null && response.getProjectId() != null) {
                 System.out.println("Project uploaded successfully: " + response.getProjectId());
                 System.out.println("Project name: " + response.getName());
@@ -315,12 +484,16 @@ public class MainView extends VerticalLayout {
                 // Populate project navigation tree via presenter
                 projectNavigationPresenter.populateTreeFromResponse(response);
 
+                showSuccessNotification("Project uploaded successfully: " + fileName);
+                updateProjectLabel(fileName);
+
             } else {
                 throw new RuntimeException("Invalid response from API");
             }
 
         } catch (Exception e) {
-            throw new RuntimeException("Failed to upload project to server: " + e.getMessage(), e);
+            showErrorNotification("Failed to upload project: " + e.getMessage());
+            e.printStackTrace();
         }
     }
 
@@ -365,6 +538,84 @@ public class MainView extends VerticalLayout {
         showInfoNotification("BMD Analysis - not yet implemented");
     }
 
+    /**
+     * Lets the user pick a BMD result of the open project for a gene level analysis
+     */
+    private void performGeneLevelAnalysis() {
+        if (currentProjectId == null) {
+            showErrorNotification("Open a project before running an analysis");
+            return;
+        }
+        String projectId = currentProjectId;
+        uiUpdates.runInBackground(getUI().orElseThrow(), () -> apiService.getBmdResults(projectId),
+                bmdResultNames -> showGeneLevelDialog(projectId, bmdResultNames),
+                e -> showErrorNotification("Failed to list BMD results: " + e.getMessage()));
+    }
+
+    private void showGeneLevelDialog(String projectId, String[] bmdResultNames) {
+        if (bmdResultNames == null || bmdResultNames.length == 0) {
+            showInfoNotification("The project has no BMD results");
+            return;
+        }
+        Dialog dialog = new Dialog();
+        VerticalLayout layout = new VerticalLayout();
+        layout.add(new H3("Gene Level Analysis"));
+
+        ComboBox<String> bmdResult = new ComboBox<>("BMD result", bmdResultNames);
+        bmdResult.setValue(bmdResultNames[0]);
+        bmdResult.setWidthFull();
+
+        Button runButton = new Button("Run", e -> {
+            dialog.close();
+            submitGeneLevelAnalysis(projectId, bmdResult.getValue());
+        });
+        runButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
+
+        HorizontalLayout buttons = new HorizontalLayout();
+        buttons.setWidthFull();
+        buttons.setJustifyContentMode(JustifyContentMode.END);
+        buttons.add(new Button("Cancel", e -> dialog.close()), runButton);
+
+        layout.add(bmdResult, buttons);
+        dialog.add(layout);
+        dialog.open();
+    }
+
+    /**
+     * Submits a gene level analysis through the REST API and follows it until it has finished
+     */
+    private void submitGeneLevelAnalysis(String projectId, String bmdResultName) {
+        if (bmdResultName == null) {
+            return;
+        }
+        Map<String, Object> request = Map.of(
+                "projectId", projectId,
+                "bmdResultName", bmdResultName,
+                "analysisType", "GENE_LEVEL");
+        String name = bmdResultName + "_GENE_LEVEL";
+        UI ui = getUI().orElseThrow();
+        uiUpdates.runInBackground(ui, () -> apiService.submitCategoryAnalysis(request), response -> {
+            updateActionStatus("Analysis submitted: " + name);
+            followAnalysis(ui, projectId, (String) response.get("analysisId"), name);
+        }, e -> showErrorNotification("Failed to submit analysis: " + e.getMessage()));
+    }
+
+    /**
+     * Follows the analysis' server-sent events until its final event; no thread
+     * waits meanwhile, and the stream is closed when the view is detached
+     */
+    private void followAnalysis(UI ui, String projectId, String analysisId, String name) {
+        CompletableFuture<Map<String, Object>> follow = apiService.followAnalysis(analysisId);
+        followedAnalyses.add(follow);
+        uiUpdates.whenComplete(ui, follow, event -> {
+            followedAnalyses.remove(follow);
+            analysisFinished(projectId, analysisId, name, event);
+        }, e -> {
+            followedAnalyses.remove(follow);
+            showErrorNotification("Lost track of analysis " + name + ": " + e.getMessage());
+        });
+    }
+
     private void performGOAnalysis() {
         showInfoNotification("GO Analysis - not yet implemented");
     }
@@ -417,17 +668,12 @@ public class MainView extends VerticalLayout {
     public void updateActionStatus(String status) {
         actionStatusLabel.setText(status);
 
-        // Auto-hide after 5 seconds
-        getUI().ifPresent(ui -> {
-            new Thread(() -> {
-                try {
-                    Thread.sleep(5000);
-                    ui.access(() -> actionStatusLabel.setText(""));
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
-                }
-            }).start();
-        });
+        // Auto-hide after 5 seconds; a newer status restarts the timer
+        if (statusClear != null) {
+            statusClear.cancel(false);
+        }
+        getUI().ifPresent(ui -> statusClear =
+                uiUpdates.schedule(ui, Duration.ofSeconds(5), () -> actionStatusLabel.setText("")));
     }
 
     // ===========================
@@ -491,5 +737,30 @@ public class MainView extends VerticalLayout {
             e.printStackTrace();
         }
     }
-}
 
+    /**
+     * Handles selection of an analysis run in this session from the navigation tree
+     */
+    private void handleAnalysisSelection(String analysisId, String name) {
+        try {
+            Map<String, Object> analysis = apiService.getAnalysisResults(analysisId);
+
+            if (analysis == null || !analysis.containsKey("categoryAnalsyisResults")) {
+                showInfoNotification("No result table for analysis: " + name);
+                return;
+            }
+
+            dataViewArea.removeAll();
+            dataViewArea.add(categoryAnalysisDataView);
+            dataViewArea.setAlignItems(Alignment.STRETCH);
+            dataViewArea.setJustifyContentMode(JustifyContentMode.START);
+
+            categoryAnalysisDataView.loadCategoryData(analysis);
+            updateSelectionLabel("Category Analysis: " + name);
+
+        } catch (Exception e) {
+            showErrorNotification("Failed to load analysis: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+}
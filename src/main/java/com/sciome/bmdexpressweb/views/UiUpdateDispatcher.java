@@ -0,0 +1,176 @@
+package com.sciome.bmdexpressweb.views;
+
+import com.sciome.bmdexpressweb.config.ThreadingConfig;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.server.Command;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Applies UI updates that originate outside a request (timers, finished
+ * background work, analysis job events) and pushes them to the browser.
+ *
+ * Updates for a UI are queued and applied together in a single UI.access call
+ * after a short batching window, so a burst of events causes one session lock
+ * and one push instead of one per event. Delayed updates run on one shared
+ * scheduler instead of a thread per update, and blocking work (REST calls) runs
+ * on the shared blocking I/O executor (see ThreadingConfig) so it never delays
+ * the scheduler.
+ *
+ * Updates for a UI that has been closed are dropped.
+ */
+@Component
+public class UiUpdateDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(UiUpdateDispatcher.class);
+
+    private final long batchWindowMillis;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService background;
+
+    // UI -> updates waiting for the next flush
+    private final Map<UI, Queue<Command>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * @param batchWindow how long updates for a UI are collected before they are applied
+     * @param background executor for blocking background work; not shut down by this dispatcher
+     */
+    public UiUpdateDispatcher(Duration batchWindow, ExecutorService background) {
+        this.batchWindowMillis = batchWindow.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ui-updates");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.background = background;
+    }
+
+    @Autowired
+    public UiUpdateDispatcher(
+            @Value("${bmdexpress.ui.batch-window-ms:50}") long batchWindowMillis,
+            @Qualifier(ThreadingConfig.BLOCKING_IO_EXECUTOR) ExecutorService background) {
+        this(Duration.ofMillis(batchWindowMillis), background);
+    }
+
+    /**
+     * Queue an update for a UI; it is applied with the UI's other pending
+     * updates in the next batch.
+     */
+    public void access(UI ui, Command command) {
+        boolean[] first = new boolean[1];
+        pending.compute(ui, (key, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                first[0] = true;
+            }
+            queue.add(command);
+            return queue;
+        });
+        if (first[0]) {
+            scheduler.schedule(() -> flush(ui), batchWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue an update for a UI after a delay
+     *
+     * @return future that can be used to cancel the update before it is queued
+     */
+    public ScheduledFuture<?> schedule(UI ui, Duration delay, Command command) {
+        return scheduler.schedule(() -> access(ui, command), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run blocking work in the background and hand its result, or the failure,
+     * to the UI.
+     *
+     * @param ui The UI to update
+     * @param task The work; runs without the session lock
+     * @param onSuccess Called with the result, with the session lock held
+     * @param onFailure Called with the failure, with the session lock held
+     */
+    public <T> void runInBackground(UI ui, Callable<T> task, Consumer<T> onSuccess, Consumer<Exception> onFailure) {
+        background.execute(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                access(ui, () -> onFailure.accept(e));
+                return;
+            }
+            access(ui, () -> onSuccess.accept(result));
+        });
+    }
+
+    /**
+     * Hand the result of asynchronous work, or the failure, to the UI once it
+     * completes. Nothing is handed over if the work is cancelled.
+     *
+     * @param ui The UI to update
+     * @param future The work
+     * @param onSuccess Called with the result, with the session lock held
+     * @param onFailure Called with the failure, with the session lock held
+     */
+    public <T> void whenComplete(UI ui, CompletableFuture<T> future, Consumer<T> onSuccess,
+                                 Consumer<Throwable> onFailure) {
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                return;
+            }
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                access(ui, () -> onFailure.accept(cause));
+                return;
+            }
+            access(ui, () -> onSuccess.accept(result));
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        pending.clear();
+    }
+
+    private void flush(UI ui) {
+        Queue<Command> batch = pending.remove(ui);
+        if (batch == null) {
+            return;
+        }
+        try {
+            ui.access(() -> {
+                for (Command command : batch) {
+                    try {
+                        command.execute();
+                    } catch (RuntimeException e) {
+                        log.warn("UI update failed", e);
+                    }
+                }
+            });
+        } catch (UIDetachedException e) {
+            // UI closed meanwhile: nothing to update
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.sciome.bmdexpressweb.views.dataview;
 
 import com.vaadin.flow.component.charts.Chart;
 import com.vaadin.flow.component.charts.model.*;
+import com.vaadin.flow.component.grid.ColumnTextAlign;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.html.H2;
@@ -22,7 +23,7 @@ import java.util.Map;
 public class CategoryAnalysisDataView extends VerticalLayout {
 
     private final H2 titleLabel;
-    private final Grid<Map<String, Object>> dataGrid;
+    private final Grid<TypedTable.Row> dataGrid;
     private final Div chartsContainer;
 
     public CategoryAnalysisDataView() {
@@ -104,75 +105,53 @@ public class CategoryAnalysisDataView extends VerticalLayout {
         dataGrid.removeAllColumns();
         System.out.println("DEBUG: Cleared existing columns");
 
+        // Type the columns and format their cells once, so rendering and sorting
+        // only look up precomputed strings and primitive values
+        TypedTable table = TypedTable.of(columnHeaders, results, getLocale());
+
         // Add columns dynamically based on column headers
         System.out.println("DEBUG: Adding " + columnHeaders.size() + " columns");
-        for (int i = 0; i < columnHeaders.size(); i++) {
-            final int colIndex = i;
-            String header = columnHeaders.get(i);
-            System.out.println("DEBUG: Adding column " + i + ": " + header);
-
-            dataGrid.addColumn(rowData -> {
-                @SuppressWarnings("unchecked")
-                List<Object> row = (List<Object>) rowData.get("row");
-                if (row != null && colIndex < row.size()) {
-                    Object value = row.get(colIndex);
-                    return value != null ? value.toString() : "";
-                }
-                return "";
-            }).setHeader(header)
-              .setResizable(true)
-              .setSortable(true)
-              .setAutoWidth(true);
+        for (TypedTable.Column column : table.getColumns()) {
+            Grid.Column<TypedTable.Row> gridColumn = dataGrid.addColumn(column::getDisplay)
+                    .setHeader(column.getHeader())
+                    .setComparator(column.getComparator())
+                    .setResizable(true)
+                    .setSortable(true)
+                    .setAutoWidth(true);
+            if (column.getType() != TypedTable.Type.TEXT) {
+                gridColumn.setTextAlign(ColumnTextAlign.END);
+            }
         }
         System.out.println("DEBUG: Finished adding columns");
 
         // Set data provider
         System.out.println("DEBUG: Setting data provider with " + results.size() + " items");
-        dataGrid.setDataProvider(new ListDataProvider<>(results));
+        dataGrid.setDataProvider(new ListDataProvider<>(table.getRows()));
         System.out.println("DEBUG: Data provider set successfully");
 
         System.out.println("=== CategoryAnalysisDataView.loadCategoryData() COMPLETE ===");
 
         // TODO: Extract BMD data and create charts
-        extractAndDisplayCharts(results, columnHeaders);
+        extractAndDisplayCharts(table);
     }
 
     /**
      * Extract BMD statistics and display distribution charts
      */
-    private void extractAndDisplayCharts(List<Map<String, Object>> results, List<String> columnHeaders) {
-        // Find BMD Mean column index
-        int bmdMeanIndex = columnHeaders.indexOf("BMD Mean");
-        int bmdMedianIndex = columnHeaders.indexOf("BMD Median");
+    private void extractAndDisplayCharts(TypedTable table) {
+        // Find BMD Mean column
+        TypedTable.Column bmdMean = table.getColumn("BMD Mean");
+        TypedTable.Column bmdMedian = table.getColumn("BMD Median");
 
-        if (bmdMeanIndex == -1 && bmdMedianIndex == -1) {
+        if (bmdMean == null && bmdMedian == null) {
             chartsContainer.removeAll();
             chartsContainer.setText("No BMD data available for charting");
             return;
         }
 
         // Extract BMD values
-        List<Double> bmdMeanValues = new ArrayList<>();
-        List<Double> bmdMedianValues = new ArrayList<>();
-
-        for (Map<String, Object> result : results) {
-            @SuppressWarnings("unchecked")
-            List<Object> row = (List<Object>) result.get("row");
-            if (row != null) {
-                if (bmdMeanIndex >= 0 && bmdMeanIndex < row.size()) {
-                    Object meanVal = row.get(bmdMeanIndex);
-                    if (meanVal instanceof Number) {
-                        bmdMeanValues.add(((Number) meanVal).doubleValue());
-                    }
-                }
-                if (bmdMedianIndex >= 0 && bmdMedianIndex < row.size()) {
-                    Object medianVal = row.get(bmdMedianIndex);
-                    if (medianVal instanceof Number) {
-                        bmdMedianValues.add(((Number) medianVal).doubleValue());
-                    }
-                }
-            }
-        }
+        double[] bmdMeanValues = bmdMean != null ? bmdMean.getValues() : new double[0];
+        double[] bmdMedianValues = bmdMedian != null ? bmdMedian.getValues() : new double[0];
 
         // Display histogram charts
         chartsContainer.removeAll();
@@ -183,14 +162,14 @@ public class CategoryAnalysisDataView extends VerticalLayout {
         chartsLayout.setSpacing(true);
 
         // Create BMD Mean histogram if data is available
-        if (!bmdMeanValues.isEmpty()) {
+        if (bmdMeanValues.length > 0) {
             Chart meanChart = createHistogram("BMD Mean Distribution", bmdMeanValues);
             meanChart.setWidth("50%");
             chartsLayout.add(meanChart);
         }
 
         // Create BMD Median histogram if data is available
-        if (!bmdMedianValues.isEmpty()) {
+        if (bmdMedianValues.length > 0) {
             Chart medianChart = createHistogram("BMD Median Distribution", bmdMedianValues);
             medianChart.setWidth("50%");
             chartsLayout.add(medianChart);
@@ -209,7 +188,7 @@ public class CategoryAnalysisDataView extends VerticalLayout {
      * @param values BMD values to plot
      * @return Configured Vaadin Chart
      */
-    private Chart createHistogram(String title, List<Double> values) {
+    private Chart createHistogram(String title, double[] values) {
         Chart chart = new Chart(ChartType.COLUMN);
 
         Configuration conf = chart.getConfiguration();
@@ -217,8 +196,8 @@ public class CategoryAnalysisDataView extends VerticalLayout {
 
         // Calculate histogram bins (20 bins like the desktop app)
         int numBins = 20;
-        double min = values.stream().mapToDouble(Double::doubleValue).min().orElse(0.0);
-        double max = values.stream().mapToDouble(Double::doubleValue).max().orElse(0.0);
+        double min = Arrays.stream(values).min().orElse(0.0);
+        double max = Arrays.stream(values).max().orElse(0.0);
         double binWidth = (max - min) / numBins;
 
         // Create bin counts
@@ -0,0 +1,279 @@
+package com.sciome.bmdexpressweb.views.dataview;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A result table (column header and rows of cells, as sent by the API) read
+ * once into typed columns for display in a grid.
+ *
+ * Each column is typed from its cells: INTEGER if every cell is a whole
+ * number, DECIMAL if every cell is a number, TEXT otherwise. Numeric columns
+ * keep their values in primitive arrays and sort numerically; every column
+ * keeps display strings formatted for a locale. Rendering or sorting a cell is
+ * then an array lookup: nothing is cast, parsed or formatted per render.
+ * Missing cells display empty and sort before all values.
+ *
+ * Grid items are the table's Row objects, which only carry their row index.
+ */
+public final class TypedTable {
+
+    public enum Type {
+        INTEGER,
+        DECIMAL,
+        TEXT
+    }
+
+    /**
+     * One row of the table
+     */
+    public static final class Row {
+        private final int index;
+
+        private Row(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    /**
+     * One column of the table: its type, values and display strings
+     */
+    public static final class Column {
+        private final String header;
+        private final Type type;
+        // INTEGER values
+        private final long[] integers;
+        // DECIMAL values; NaN where missing
+        private final double[] decimals;
+        private final BitSet missing;
+        private final String[] display;
+        private final Comparator<Row> comparator;
+
+        private Column(String header, Type type, long[] integers, double[] decimals, BitSet missing,
+                       String[] display) {
+            this.header = header;
+            this.type = type;
+            this.integers = integers;
+            this.decimals = decimals;
+            this.missing = missing;
+            this.display = display;
+            this.comparator = switch (type) {
+                case INTEGER -> Comparator.comparingInt((Row row) -> missing.get(row.index) ? 0 : 1)
+                        .thenComparingLong(row -> integers[row.index]);
+                case DECIMAL -> Comparator.comparingInt((Row row) -> missing.get(row.index) ? 0 : 1)
+                        .thenComparingDouble(row -> decimals[row.index]);
+                case TEXT -> Comparator.comparingInt((Row row) -> missing.get(row.index) ? 0 : 1)
+                        .thenComparing(row -> display[row.index]);
+            };
+        }
+
+        public String getHeader() {
+            return header;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /**
+         * Display string of a cell; empty if missing
+         */
+        public String getDisplay(Row row) {
+            return display[row.index];
+        }
+
+        public boolean isMissing(Row row) {
+            return missing.get(row.index);
+        }
+
+        /**
+         * Numeric value of a cell, NaN if missing or in a TEXT column
+         */
+        public double getDouble(Row row) {
+            return switch (type) {
+                case INTEGER -> missing.get(row.index) ? Double.NaN : integers[row.index];
+                case DECIMAL -> decimals[row.index];
+                case TEXT -> Double.NaN;
+            };
+        }
+
+        /**
+         * Value of a cell of an INTEGER column; 0 if missing
+         */
+        public long getLong(Row row) {
+            return integers != null ? integers[row.index] : (long) getDouble(row);
+        }
+
+        /**
+         * Numeric sort order for numeric columns, display order for text
+         */
+        public Comparator<Row> getComparator() {
+            return comparator;
+        }
+
+        /**
+         * The values of a numeric column without missing cells, in row order
+         */
+        public double[] getValues() {
+            if (type == Type.TEXT) {
+                return new double[0];
+            }
+            double[] values = new double[display.length - missing.cardinality()];
+            int n = 0;
+            for (int i = 0; i < display.length; i++) {
+                if (!missing.get(i)) {
+                    values[n++] = type == Type.INTEGER ? integers[i] : decimals[i];
+                }
+            }
+            return values;
+        }
+    }
+
+    private final List<Column> columns;
+    private final List<Row> rows;
+
+    private TypedTable(List<Column> columns, List<Row> rows) {
+        this.columns = columns;
+        this.rows = rows;
+    }
+
+    /**
+     * Read a table
+     *
+     * @param columnHeader column names
+     * @param results rows, each a map with the row's cells under "row"
+     * @param locale locale of the display strings
+     */
+    public static TypedTable of(List<String> columnHeader, List<Map<String, Object>> results, Locale locale) {
+        int rowCount = results.size();
+        List<List<?>> cells = new ArrayList<>(rowCount);
+        for (Map<String, Object> result : results) {
+            cells.add(result != null && result.get("row") instanceof List<?> row ? row : List.of());
+        }
+
+        NumberFormat integerFormat = NumberFormat.getIntegerInstance(locale);
+        integerFormat.setGroupingUsed(false);
+        NumberFormat decimalFormat = NumberFormat.getNumberInstance(locale);
+        decimalFormat.setGroupingUsed(false);
+        decimalFormat.setMaximumFractionDigits(4);
+        DecimalFormat scientificFormat = new DecimalFormat("0.###E0", DecimalFormatSymbols.getInstance(locale));
+
+        List<Column> columns = new ArrayList<>(columnHeader.size());
+        for (int c = 0; c < columnHeader.size(); c++) {
+            columns.add(readColumn(columnHeader.get(c), c, cells, integerFormat, decimalFormat, scientificFormat));
+        }
+
+        List<Row> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            rows.add(new Row(r));
+        }
+        return new TypedTable(Collections.unmodifiableList(columns), Collections.unmodifiableList(rows));
+    }
+
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * The column with a header, or null
+     */
+    public Column getColumn(String header) {
+        for (Column column : columns) {
+            if (column.header != null && column.header.equals(header)) {
+                return column;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The rows, as grid items
+     */
+    public List<Row> getRows() {
+        return rows;
+    }
+
+    private static Column readColumn(String header, int c, List<List<?>> cells, NumberFormat integerFormat,
+                                     NumberFormat decimalFormat, DecimalFormat scientificFormat) {
+        int rowCount = cells.size();
+        Type type = Type.INTEGER;
+        BitSet missing = new BitSet(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            Object cell = cell(cells.get(r), c);
+            if (cell == null) {
+                missing.set(r);
+            } else if (!(cell instanceof Number)) {
+                type = Type.TEXT;
+            } else if (type == Type.INTEGER && !isWhole((Number) cell)) {
+                type = Type.DECIMAL;
+            }
+        }
+
+        String[] display = new String[rowCount];
+        long[] integers = null;
+        double[] decimals = null;
+        switch (type) {
+            case INTEGER -> {
+                integers = new long[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    if (!missing.get(r)) {
+                        integers[r] = ((Number) cell(cells.get(r), c)).longValue();
+                        display[r] = integerFormat.format(integers[r]);
+                    } else {
+                        display[r] = "";
+                    }
+                }
+            }
+            case DECIMAL -> {
+                decimals = new double[rowCount];
+                for (int r = 0; r < rowCount; r++) {
+                    Object cell = cell(cells.get(r), c);
+                    decimals[r] = cell != null ? ((Number) cell).doubleValue() : Double.NaN;
+                    if (Double.isNaN(decimals[r])) {
+                        missing.set(r);
+                    }
+                    display[r] = formatDecimal(decimals[r], decimalFormat, scientificFormat);
+                }
+            }
+            case TEXT -> {
+                for (int r = 0; r < rowCount; r++) {
+                    Object cell = cell(cells.get(r), c);
+                    display[r] = cell != null ? cell.toString() : "";
+                }
+            }
+        }
+        return new Column(header, type, integers, decimals, missing, display);
+    }
+
+    private static Object cell(List<?> row, int c) {
+        return c < row.size() ? row.get(c) : null;
+    }
+
+    private static boolean isWhole(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short
+                || number instanceof Byte;
+    }
+
+    private static String formatDecimal(double value, NumberFormat decimalFormat, DecimalFormat scientificFormat) {
+        if (Double.isNaN(value)) {
+            return "";
+        }
+        double magnitude = Math.abs(value);
+        if (magnitude != 0 && !Double.isInfinite(value) && (magnitude < 1e-3 || magnitude >= 1e7)) {
+            return scientificFormat.format(value);
+        }
+        return decimalFormat.format(value);
+    }
+}
@@ -9,6 +9,8 @@ import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.treegrid.TreeGrid;
 import com.vaadin.flow.data.provider.hierarchy.TreeData;
 import com.vaadin.flow.data.provider.hierarchy.TreeDataProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @CssImport("./styles/project-navigation.css")
 
@@ -28,6 +30,8 @@ import com.vaadin.flow.data.provider.hierarchy.TreeDataProvider;
  */
 public class ProjectNavigationView extends VerticalLayout implements IProjectNavigationView
 {
+	private static final Logger log = LoggerFactory.getLogger(ProjectNavigationView.class);
+
 	private TreeGrid<ProjectTreeNode> datasetTree;
 	private H3 title;
 	private TreeData<ProjectTreeNode> treeData;
@@ -75,6 +79,27 @@ public class ProjectNavigationView extends VerticalLayout implements IProjectNav
 		});
 	}
 
+	/**
+	 * Add selection listener to handle selection of analyses run in this session
+	 */
+	public void addAnalysisSelectionListener(AnalysisSelectionListener listener) {
+		datasetTree.addSelectionListener(event -> {
+			event.getFirstSelectedItem().ifPresent(node -> {
+				if (node.getType() == NodeType.CATEGORY_ANALYSIS_JOB) {
+					listener.onAnalysisSelected(node.getResultId(), node.getLabel());
+				}
+			});
+		});
+	}
+
+	/**
+	 * Functional interface for analysis selection events
+	 */
+	@FunctionalInterface
+	public interface AnalysisSelectionListener {
+		void onAnalysisSelected(String analysisId, String name);
+	}
+
 	/**
 	 * Functional interface for category selection events
 	 */
@@ -160,6 +185,41 @@ public class ProjectNavigationView extends VerticalLayout implements IProjectNav
 		System.out.println("ProjectNavigationView: Tree populated from response");
 	}
 
+	/**
+	 * Add a completed category analysis to the Category Analysis section,
+	 * creating the section if the project has none yet
+	 */
+	public void addCategoryAnalysisJob(String name, String analysisId)
+	{
+		ProjectTreeNode rootNode = treeData.getRootItems().isEmpty() ? null : treeData.getRootItems().get(0);
+		if (rootNode == null) {
+			return;
+		}
+
+		ProjectTreeNode catNode = null;
+		for (ProjectTreeNode child : treeData.getChildren(rootNode)) {
+			if (child.getType() == NodeType.CATEGORY_SECTION) {
+				catNode = child;
+			}
+		}
+		if (catNode == null) {
+			catNode = new ProjectTreeNode("Category Analysis", NodeType.CATEGORY_SECTION, null, false);
+			treeData.addItem(rootNode, catNode);
+		} else {
+			for (ProjectTreeNode child : treeData.getChildren(catNode)) {
+				if (analysisId.equals(child.getResultId())) {
+					return; // Already listed
+				}
+			}
+		}
+
+		treeData.addItem(catNode, new ProjectTreeNode(name, NodeType.CATEGORY_ANALYSIS_JOB, analysisId, false));
+		datasetTree.getDataProvider().refreshAll();
+		datasetTree.expand(rootNode, catNode);
+
+		log.debug("Analysis added to the navigation tree: {} ({})", name, analysisId);
+	}
+
 	/**
 	 * Node types for project tree
 	 */
@@ -169,7 +229,8 @@ public class ProjectNavigationView extends VerticalLayout implements IProjectNav
 		BMD_RESULTS_SECTION,
 		BMD_RESULT,
 		CATEGORY_SECTION,
-		CATEGORY_RESULT
+		CATEGORY_RESULT,
+		CATEGORY_ANALYSIS_JOB // Analysis run in this session; resultId is the analysis ID
 	}
 
 	/**
@@ -178,7 +239,7 @@ public class ProjectNavigationView extends VerticalLayout implements IProjectNav
 	public static class ProjectTreeNode {
 		private final String label;
 		private final NodeType type;
-		private final String resultId; // For category results
+		private final String resultId; // For category results and analysis jobs
 		private final boolean grayedOut;
 
 		public ProjectTreeNode(String label, NodeType type, String resultId, boolean grayedOut) {
@@ -0,0 +1,233 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CategoryAnalysisEngine and CategoryMapping
+ */
+class CategoryAnalysisEngineTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Helper method to create a table of 5 probes:
+     * p1 -> GA, p2 -> GA, p3 -> GB, p4 -> GC;GD (promiscuous), p5 -> GE (no BMD)
+     */
+    private ProbeStatTable createTable() {
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.BEST_BMD, new double[] {1.0, 3.0, 5.0, 2.0, Double.NaN});
+        columns.put(ProbeStatTable.Column.BEST_BMDL, new double[] {0.5, 1.5, 4.0, 1.0, Double.NaN});
+        columns.put(ProbeStatTable.Column.BEST_BMDU, new double[] {2.0, 6.0, 6.0, 4.0, Double.NaN});
+        columns.put(ProbeStatTable.Column.FIT_P_VALUE, new double[] {0.5, 0.05, 0.3, 0.9, 0.9});
+        return new ProbeStatTable(
+                new String[] {"p1", "p2", "p3", "p4", "p5"},
+                new String[][] {{"1"}, {"1"}, {"2"}, {"3", "4"}, {"5"}},
+                new String[][] {{"GA"}, {"GA"}, {"GB"}, {"GC", "GD"}, {"GE"}},
+                columns, 10.0, 0.1);
+    }
+
+    private static List<Object> row(CategoryAnalysisTableView view, String categoryId) {
+        for (Map<String, Object> rowMap : view.getCategoryAnalsyisResults()) {
+            @SuppressWarnings("unchecked")
+            List<Object> row = (List<Object>) rowMap.get("row");
+            if (categoryId.equals(row.get(0))) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    private static int column(String name) {
+        return CategoryAnalysisEngine.COLUMN_HEADER.indexOf(name);
+    }
+
+    @Test
+    void testGeneLevel_OneRowPerPassingGene() {
+        // Arrange
+        ProbeStatTable table = createTable();
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(table, CategoryMapping.geneLevel(table));
+
+        // Act
+        CategoryAnalysisTableView view = engine.analyze("genes", new CategoryAnalysisParametersDto());
+
+        // Assert - GE has no BMD so it never passes
+        assertEquals(4, view.getCategoryAnalsyisResults().size());
+        assertNull(row(view, "5"));
+        List<Object> geneA = row(view, "1");
+        assertEquals("GA", geneA.get(column("Category Description")));
+        assertEquals(2.0, (Double) geneA.get(column("BMD Mean")), 1e-12);
+        assertEquals(1.0, (Double) geneA.get(column("BMD Minimum")), 1e-12);
+    }
+
+    @Test
+    void testProbeFilters_FitPValueAndPromiscuous() {
+        // Arrange
+        ProbeStatTable table = createTable();
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(table, CategoryMapping.geneLevel(table));
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(0.1);
+        parameters.setRemovePromiscuousProbes(true);
+
+        // Act
+        CategoryAnalysisTableView view = engine.analyze("filtered", parameters);
+
+        // Assert - p2 fails the fit p-value, p4 is promiscuous
+        assertEquals(2, view.getCategoryAnalsyisResults().size());
+        assertEquals(1.0, (Double) row(view, "1").get(column("BMD Mean")), 1e-12);
+        assertNull(row(view, "3"));
+    }
+
+    @Test
+    void testDefinedCategories_FisherAndGeneCounts() throws Exception {
+        // Arrange
+        Path categoryFile = tempDir.resolve("categories.txt");
+        Files.writeString(categoryFile, "# id\tname\tgene\n"
+                + "C1\tFirst\t1;2\n"
+                + "C2\tSecond\t3\n"
+                + "C2\tSecond\t5\n"
+                + "C3\tEmpty\t99\n");
+        ProbeStatTable table = createTable();
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(
+                table, CategoryMapping.defined(table, null, categoryFile));
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(0.4);
+
+        // Act
+        CategoryAnalysisTableView view = engine.analyze("defined", parameters);
+
+        // Assert - universe of 5 genes; GA and GC/GD pass => K = 3
+        List<Object> c2 = row(view, "C2");
+        assertEquals(2, c2.get(column("All Genes")));
+        assertEquals(1, c2.get(column("Genes That Passed All Filters")));
+        // P(X >= 1), N = 5, K = 3, n = 2 => 1 - C(2,2)/C(5,2) = 0.9
+        assertEquals(0.9, (Double) c2.get(column("Fisher's Exact Right P-Value")), 1e-9);
+        assertEquals("GA", row(view, "C1").get(column("Genes")));
+        assertNull(row(view, "C3"));
+    }
+
+    @Test
+    void testVariants_ShareStatisticsForSameProbeMask() {
+        // Arrange
+        ProbeStatTable table = createTable();
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(table, CategoryMapping.geneLevel(table));
+        CategoryAnalysisParametersDto loose = new CategoryAnalysisParametersDto();
+        CategoryAnalysisParametersDto sized = new CategoryAnalysisParametersDto();
+        sized.setMinGenesInSet(2);
+        CategoryAnalysisParametersDto strict = new CategoryAnalysisParametersDto();
+        strict.setBmdPValueCutoff(0.4);
+
+        // Act
+        engine.analyze("loose", loose);
+        CategoryAnalysisTableView sizedView = engine.analyze("sized", sized);
+        engine.analyze("strict", strict);
+
+        // Assert - min genes only affects output, so only two stat computations ran
+        assertEquals(2, engine.getComputedStatsCount());
+        assertTrue(sizedView.getCategoryAnalsyisResults().isEmpty());
+    }
+
+    @Test
+    void testAnalyze_CancelledTokenStopsWithoutCachingStatistics() throws Exception {
+        // Arrange
+        ProbeStatTable table = createTable();
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(table, CategoryMapping.geneLevel(table));
+        CancellationToken cancelled = new CancellationToken();
+        cancelled.cancel("Cancelled by request");
+        CancellationToken timedOut = new CancellationToken();
+        timedOut.startDeadline(1);
+        Thread.sleep(5);
+
+        // Act & Assert
+        CancellationException e = assertThrows(CancellationException.class,
+                () -> engine.analyze("cancelled", new CategoryAnalysisParametersDto(), cancelled));
+        assertEquals("Cancelled by request", e.getMessage());
+        assertThrows(CancellationException.class,
+                () -> engine.analyze("timed out", new CategoryAnalysisParametersDto(), timedOut));
+        assertTrue(timedOut.isTimedOut());
+        assertFalse(cancelled.isTimedOut());
+        assertEquals(0, engine.getComputedStatsCount());
+        assertEquals(4, engine.analyze("genes", new CategoryAnalysisParametersDto()).getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testReanalyze_MatchesFullComputation() throws Exception {
+        // Arrange
+        Path categoryFile = tempDir.resolve("categories.txt");
+        Files.writeString(categoryFile, "C1\tFirst\t1;2\n"
+                + "C2\tSecond\t3;5\n"
+                + "C3\tThird\t1;4\n");
+        ProbeStatTable table = createTable();
+        CategoryMapping mapping = CategoryMapping.defined(table, null, categoryFile);
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(table, mapping);
+        CategoryAnalysisParametersDto strict = new CategoryAnalysisParametersDto();
+        strict.setBmdPValueCutoff(0.4);
+        CategoryAnalysisParametersDto looser = new CategoryAnalysisParametersDto();
+        looser.setBmdPValueCutoff(0.25);
+        engine.analyze("strict", strict);
+
+        // Act - p3 (GB) now passes; only C2 contains GB
+        CategoryAnalysisTableView updated = engine.reanalyze("looser", strict, looser);
+
+        // Assert
+        CategoryAnalysisTableView expected = new CategoryAnalysisEngine(table, mapping).analyze("looser", looser);
+        assertEquals(1, engine.getLastUpdatedCategoryCount());
+        assertEquals(expected.getCategoryAnalsyisResults().size(), updated.getCategoryAnalsyisResults().size());
+        for (String category : List.of("C1", "C2", "C3")) {
+            assertEquals(row(expected, category), row(updated, category));
+        }
+    }
+
+    @Test
+    void testConflictingProbeSets_ReportedWhenRequested() {
+        // Arrange - p1 and p2 (both GA) respond in opposite directions
+        ProbeStatTable table = createTable();
+        float[] values = {
+                1, 2, 3, 4,
+                4, 3, 2, 1,
+                1, 3, 2, 4,
+                2, 2, 3, 3,
+                0, 1, 0, 1};
+        ExpressionMatrix matrix = new ExpressionMatrix(
+                new String[] {"p1", "p2", "p3", "p4", "p5"}, new float[] {0, 0, 1, 1}, values);
+        CategoryAnalysisEngine engine = new CategoryAnalysisEngine(
+                new ProbeFilterIndex(table), CategoryMapping.geneLevel(table), () -> matrix);
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setIdentifyConflictingProbeSets(true);
+        parameters.setCorrelationCutoffConflictingProbeSets(0.9);
+
+        // Act
+        CategoryAnalysisTableView identified = engine.analyze("identified", parameters);
+        CategoryAnalysisTableView plain = engine.analyze("plain", new CategoryAnalysisParametersDto());
+
+        // Assert
+        int conflictColumn = column("Genes With Conflicting Probe Sets");
+        assertEquals("GA", row(identified, "1").get(conflictColumn));
+        assertEquals("", row(identified, "2").get(conflictColumn));
+        assertNull(row(plain, "1").get(conflictColumn));
+    }
+
+    @Test
+    void testFisherExactRightTail() {
+        // Arrange
+        double[] logFactorials = Statistics.logFactorials(20);
+
+        // Act & Assert - P(X >= 3), N = 20, K = 5, n = 4
+        double expected = (10.0 * 15 + 5) / 4845.0;
+        assertEquals(expected, Statistics.fisherExactRightTail(3, 4, 5, 20, logFactorials), 1e-12);
+        assertEquals(1.0, Statistics.fisherExactRightTail(0, 4, 5, 20, logFactorials));
+        assertEquals(0.0, Statistics.fisherExactRightTail(5, 4, 5, 20, logFactorials));
+    }
+}
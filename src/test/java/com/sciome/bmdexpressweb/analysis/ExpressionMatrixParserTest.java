@@ -0,0 +1,183 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExpressionMatrixParser
+ */
+class ExpressionMatrixParserTest {
+
+    private ExpressionMatrixParser parser;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        parser = new ExpressionMatrixParser();
+    }
+
+    private ExpressionMatrixParser.ParsedExpressionData parse(String content) {
+        return parser.parse(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private float parseFloat(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+        return ExpressionMatrixParser.parseFloat(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    @Test
+    void testParse_TabSeparated() {
+        // Arrange
+        String content = "Probe ID\tS1\tS2\tS3\n"
+                + "Doses\t0\t0.5\t5\n"
+                + "probe_1\t7.81\t7.93\t8.5\n"
+                + "probe_2\t-1.25\t2e2\t3\n";
+
+        // Act
+        ExpressionMatrixParser.ParsedExpressionData data = parse(content);
+        ExpressionMatrix matrix = data.getMatrix();
+
+        // Assert
+        assertArrayEquals(new String[] {"S1", "S2", "S3"}, data.getSampleNames());
+        assertEquals(2, matrix.getProbeCount());
+        assertEquals(3, matrix.getSampleCount());
+        assertEquals(0.5f, matrix.getDose(1));
+        assertEquals("probe_2", matrix.getProbeId(1));
+        assertEquals(7.93f, matrix.get(0, 1));
+        assertEquals(-1.25f, matrix.get(1, 0));
+        assertEquals(200f, matrix.get(1, 1));
+    }
+
+    @Test
+    void testParse_CsvWithCrlfQuotesAndBlankLines() {
+        // Arrange
+        String content = "\"Probe ID\",\"S1\",\"S2\"\r\n"
+                + "Doses,0,1\r\n"
+                + "\r\n"
+                + "\"probe_1\",1.5,NA\r\n"
+                + "probe_2,,3\r\n";
+
+        // Act
+        ExpressionMatrix matrix = parse(content).getMatrix();
+
+        // Assert
+        assertEquals(2, matrix.getProbeCount());
+        assertEquals("probe_1", matrix.getProbeId(0));
+        assertEquals(1.5f, matrix.get(0, 0));
+        assertTrue(Float.isNaN(matrix.get(0, 1)));
+        assertTrue(Float.isNaN(matrix.get(1, 0)));
+        assertEquals(3f, matrix.get(1, 1));
+    }
+
+    @Test
+    void testParse_ShortRowPaddedWithNaN() {
+        // Act
+        ExpressionMatrix matrix = parse("id\ta\tb\nDoses\t0\t1\np1\t4\n").getMatrix();
+
+        // Assert
+        assertEquals(4f, matrix.get(0, 0));
+        assertTrue(Float.isNaN(matrix.get(0, 1)));
+    }
+
+    @Test
+    void testParse_DoseCountMismatch() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> parse("id\ta\tb\nDoses\t0\np1\t1\t2\n"));
+    }
+
+    @Test
+    void testParse_ExtraCellsRejectedWithLineNumber() {
+        // Act
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                parse("id\ta\tb\nDoses\t0\t1\np1\t1\t2\n\np2\t3\t4\t5\n"));
+
+        // Assert
+        assertTrue(e.getMessage().startsWith("Line 5: probe p2 has 3 values"), e.getMessage());
+    }
+
+    @Test
+    void testParse_TrailingDelimiterAccepted() {
+        // Act
+        ExpressionMatrix matrix = parse("id\ta\tb\nDoses\t0\t1\np1\t1\t2\t\n").getMatrix();
+
+        // Assert
+        assertEquals(2f, matrix.get(0, 1));
+    }
+
+    @Test
+    void testParse_InvalidNumber() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> parse("id\ta\nDoses\t0\np1\tabc\n"));
+    }
+
+    @Test
+    void testParseFloat_MatchesJdk() {
+        String[] samples = {"0", "1", "-0.001", "123456.789", "1e-5", "3.4E+10", "0.000000123",
+                "9.87654321", "1234567890123456789012", "2.5e-30", "+7"};
+        for (String sample : samples) {
+            assertEquals(Float.parseFloat(sample), parseFloat(sample), Math.ulp(Float.parseFloat(sample)), sample);
+        }
+    }
+
+    @Test
+    void testParseFloat_LongMantissaMatchesJdkExactly() {
+        // More significant digits than the fast path keeps, float midpoints and values next to them
+        String[] samples = {"0.1234567890123456789", "1.000000059604644775390625",
+                "1.00000005960464477539062500001", "1.0000000596046447753906249999",
+                "12345678901234567890123", "-98765432109876543.21e-10", "0.000000000000000000123456789012345678",
+                "16777217", "16777217.000001", "-33554435", "123456789012345", "1234567890123456"};
+        for (String sample : samples) {
+            assertEquals(Float.parseFloat(sample), parseFloat(sample), sample);
+        }
+    }
+
+    @Test
+    void testParseFloat_LongMantissaWithSuffixRejected() {
+        // Float.parseFloat would accept the type suffix
+        assertThrows(IllegalArgumentException.class, () -> parseFloat("1234567890123456789d"));
+    }
+
+    @Test
+    void testParseFloat_SpecialValues() {
+        assertTrue(Float.isNaN(parseFloat("NaN")));
+        assertTrue(Float.isNaN(parseFloat("null")));
+        assertTrue(Float.isNaN(parseFloat("")));
+        assertEquals(Float.NEGATIVE_INFINITY, parseFloat("-Inf"));
+    }
+
+    @Test
+    void testParse_FileSplitAcrossManyChunks() throws Exception {
+        // Arrange - large enough to be split into several chunks
+        int probes = 40_000;
+        StringBuilder content = new StringBuilder("Probe ID\tS1\tS2\tS3\tS4\nDoses\t0\t1\t2\t3\n");
+        for (int p = 0; p < probes; p++) {
+            content.append("probe_").append(p);
+            for (int s = 0; s < 4; s++) {
+                content.append('\t').append(p + s * 0.25);
+            }
+            content.append('\n');
+        }
+        Path file = tempDir.resolve("expression.txt");
+        Files.writeString(file, content);
+
+        // Act
+        ExpressionMatrix matrix = parser.parse(file).getMatrix();
+
+        // Assert
+        assertEquals(probes, matrix.getProbeCount());
+        for (int p = 0; p < probes; p += 997) {
+            assertEquals("probe_" + p, matrix.getProbeId(p));
+            assertEquals(p + 0.75f, matrix.get(p, 3), Math.ulp(p + 0.75f));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import com.sciome.bmdexpress2.mvp.model.probe.Probe;
+import com.sciome.bmdexpress2.mvp.model.probe.ProbeResponse;
+import com.sciome.bmdexpress2.mvp.model.probe.Treatment;
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExpressionMatrix
+ */
+class ExpressionMatrixTest {
+
+    /**
+     * Helper method to create a small experiment: 3 probes x 4 samples
+     */
+    private DoseResponseExperiment createExperiment() {
+        DoseResponseExperiment experiment = new DoseResponseExperiment();
+        experiment.setName("Test Experiment");
+
+        List<Treatment> treatments = new ArrayList<>();
+        for (float dose : new float[] {0f, 0f, 1f, 10f}) {
+            Treatment treatment = new Treatment();
+            treatment.setName("S" + treatments.size());
+            treatment.setDose(dose);
+            treatments.add(treatment);
+        }
+        experiment.setTreatments(treatments);
+
+        List<ProbeResponse> responses = new ArrayList<>();
+        responses.add(createProbeResponse("probe_a", 1f, 2f, 3f, 4f));
+        responses.add(createProbeResponse("probe_b", 5f, 6f, 7f, 8f));
+        responses.add(createProbeResponse("probe_c", 9f, null, 11f));
+        experiment.setProbeResponses(responses);
+
+        return experiment;
+    }
+
+    private ProbeResponse createProbeResponse(String id, Float... values) {
+        Probe probe = new Probe();
+        probe.setId(id);
+        ProbeResponse response = new ProbeResponse();
+        response.setProbe(probe);
+        response.setResponses(new ArrayList<>(Arrays.asList(values)));
+        return response;
+    }
+
+    @Test
+    void testFromExperiment_Dimensions() {
+        // Act
+        ExpressionMatrix matrix = ExpressionMatrix.fromExperiment(createExperiment());
+
+        // Assert
+        assertEquals(3, matrix.getProbeCount());
+        assertEquals(4, matrix.getSampleCount());
+        assertEquals(12, matrix.values().length);
+        assertEquals("probe_b", matrix.getProbeId(1));
+        assertEquals(10f, matrix.getDose(3));
+    }
+
+    @Test
+    void testFromExperiment_RowMajorLayout() {
+        // Act
+        ExpressionMatrix matrix = ExpressionMatrix.fromExperiment(createExperiment());
+
+        // Assert
+        assertEquals(4, matrix.rowOffset(1));
+        assertEquals(7f, matrix.get(1, 2));
+        assertEquals(7f, matrix.values()[matrix.rowOffset(1) + 2]);
+    }
+
+    @Test
+    void testFromExperiment_MissingValuesAreNaN() {
+        // Act
+        ExpressionMatrix matrix = ExpressionMatrix.fromExperiment(createExperiment());
+
+        // Assert - null response and short row both become NaN
+        assertTrue(Float.isNaN(matrix.get(2, 1)));
+        assertTrue(Float.isNaN(matrix.get(2, 3)));
+        assertEquals(11f, matrix.get(2, 2));
+    }
+
+    @Test
+    void testIndexOfProbe() {
+        // Act
+        ExpressionMatrix matrix = ExpressionMatrix.fromExperiment(createExperiment());
+
+        // Assert
+        assertEquals(2, matrix.indexOfProbe("probe_c"));
+        assertEquals(-1, matrix.indexOfProbe("missing"));
+    }
+
+    @Test
+    void testDoseGroups() {
+        // Act
+        ExpressionMatrix.DoseGroups groups = ExpressionMatrix.fromExperiment(createExperiment()).getDoseGroups();
+
+        // Assert
+        assertEquals(3, groups.getGroupCount());
+        assertEquals(0, groups.groupOf(0));
+        assertEquals(0, groups.groupOf(1));
+        assertEquals(2, groups.groupOf(3));
+        assertEquals(2, groups.getGroupSize(0));
+        assertEquals(1f, groups.getDose(1));
+    }
+
+    @Test
+    void testConstructor_SizeMismatch() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () ->
+                new ExpressionMatrix(new String[] {"a", "b"}, new float[] {0f, 1f}, new float[3]));
+    }
+
+    @Test
+    void testFromExperiment_TooManyCells() {
+        // Arrange - 50,000 samples x 50,000 probes overflows an int
+        DoseResponseExperiment experiment = new DoseResponseExperiment();
+        List<Treatment> treatments = new ArrayList<>();
+        for (int s = 0; s < 50_000; s++) {
+            treatments.add(new Treatment());
+        }
+        experiment.setTreatments(treatments);
+        experiment.setProbeResponses(new AbstractList<>() {
+            @Override
+            public ProbeResponse get(int index) {
+                return new ProbeResponse();
+            }
+
+            @Override
+            public int size() {
+                return 50_000;
+            }
+        });
+
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                ExpressionMatrix.fromExperiment(experiment));
+        assertTrue(e.getMessage().contains("50000 probes x 50000 samples"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GeneLevelSummary
+ */
+class GeneLevelSummaryTest {
+
+    @Test
+    void testAggregate_MediansAndMinimaPerGene() {
+        // Arrange - p1 and p3 map to gene 10, p2 to 10 and a non-numeric ID, p4 has no BMD
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.BEST_BMD, new double[] {4.0, 1.0, 2.0, Double.NaN});
+        columns.put(ProbeStatTable.Column.BEST_BMDL, new double[] {2.0, 0.5, Double.NaN, 0.1});
+        columns.put(ProbeStatTable.Column.BEST_BMDU, new double[] {8.0, 2.0, 4.0, 0.2});
+        ProbeStatTable table = new ProbeStatTable(
+                new String[] {"p1", "p2", "p3", "p4"},
+                new String[][] {{"10"}, {"10", "LOC-X", "10"}, {"10"}, {"20"}},
+                new String[][] {{"GA"}, {"GA", "GX", "GA"}, {"GA"}, {"GB"}},
+                columns, 10.0, 0.1);
+
+        // Act
+        GeneLevelSummary summary = GeneLevelSummary.aggregate(table);
+
+        // Assert
+        assertEquals(2, summary.getGeneCount());
+        assertEquals("10", summary.getGeneId(0));
+        assertEquals("GA", summary.getGeneSymbol(0));
+        assertEquals(3, summary.getProbeCount(0));
+        assertEquals(2.0, summary.getBmdMedian(0), 1e-12);
+        assertEquals(1.0, summary.getBmdMinimum(0), 1e-12);
+        assertEquals(1.25, summary.getBmdlMedian(0), 1e-12);
+        assertEquals(0.5, summary.getBmdlMinimum(0), 1e-12);
+        assertEquals(4.0, summary.getBmduMedian(0), 1e-12);
+        assertEquals(2.0, summary.getBmduMinimum(0), 1e-12);
+        assertEquals("LOC-X", summary.getGeneId(1));
+        assertEquals("GX", summary.getGeneSymbol(1));
+        assertEquals(1, summary.getProbeCount(1));
+
+        CategoryAnalysisTableView view = summary.toTableView("genes");
+        assertEquals(GeneLevelSummary.COLUMN_HEADER, view.getColumnHeader());
+        List<?> firstRow = (List<?>) view.getCategoryAnalsyisResults().get(0).get("row");
+        assertEquals("p1;p2;p3", firstRow.get(firstRow.size() - 1));
+    }
+
+    @Test
+    void testAggregate_MatchesCategoryMappingGeneLevel() {
+        // Arrange - many probes over a few thousand numeric genes
+        int n = 30_000;
+        Random random = new Random(11);
+        double[] bmd = new double[n];
+        String[][] genes = new String[n][];
+        for (int p = 0; p < n; p++) {
+            bmd[p] = random.nextDouble() * 10;
+            genes[p] = new String[] {String.valueOf(random.nextInt(5_000) * 7)};
+        }
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.BEST_BMD, bmd);
+        ProbeStatTable table = new ProbeStatTable(new String[n], genes, genes, columns, 10.0, 0.1);
+        CategoryMapping mapping = CategoryMapping.geneLevel(table);
+
+        // Act
+        GeneLevelSummary summary = GeneLevelSummary.aggregate(table);
+
+        // Assert - same genes in the same order, with the same probe counts
+        assertEquals(mapping.getGeneCount(), summary.getGeneCount());
+        int[] offsets = mapping.geneProbeOffsets();
+        for (int g = 0; g < summary.getGeneCount(); g++) {
+            assertEquals(mapping.getCategoryId(g), summary.getGeneId(g));
+            assertEquals(offsets[g + 1] - offsets[g], summary.getProbeCount(g));
+            assertTrue(Double.isNaN(summary.getBmdlMedian(g)));
+        }
+    }
+}
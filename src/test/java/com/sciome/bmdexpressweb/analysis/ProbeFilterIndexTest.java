@@ -0,0 +1,127 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProbeFilterIndex
+ */
+class ProbeFilterIndexTest {
+
+    /**
+     * Helper method to create a table of 4 single-gene probes with step-function
+     * and adverse-direction flags: p1 up/step, p2 down, p3 up/step-below-lowest-dose, p4 down
+     */
+    private static ProbeStatTable createFlaggedTable() {
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.BEST_BMD, new double[] {1.0, 2.0, 3.0, 4.0});
+        columns.put(ProbeStatTable.Column.ADVERSE_DIRECTION, new double[] {1.0, -1.0, 1.0, -1.0});
+        columns.put(ProbeStatTable.Column.STEP_FUNCTION, new double[] {1.0, 0.0, 0.0, 0.0});
+        columns.put(ProbeStatTable.Column.STEP_FUNCTION_BMDL_LOWER, new double[] {0.0, 0.0, 1.0, Double.NaN});
+        return new ProbeStatTable(
+                new String[] {"p1", "p2", "p3", "p4"},
+                new String[][] {{"1"}, {"2"}, {"3"}, {"4"}},
+                new String[][] {{"GA"}, {"GB"}, {"GC"}, {"GD"}},
+                columns, 10.0, 0.1);
+    }
+
+    @Test
+    void testThresholds_MatchFullScan() {
+        // Arrange - enough probes for several checkpoint blocks, with NaNs and ties
+        int n = 20_000;
+        Random random = new Random(42);
+        double[] pValues = new double[n];
+        for (int p = 0; p < n; p++) {
+            pValues[p] = p % 17 == 0 ? Double.NaN : Math.round(random.nextDouble() * 1000) / 1000.0;
+        }
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.FIT_P_VALUE, pValues);
+        String[][] noGenes = new String[n][0];
+        ProbeStatTable table = new ProbeStatTable(new String[n], noGenes, noGenes, columns, Double.NaN, Double.NaN);
+        ProbeFilterIndex index = new ProbeFilterIndex(table);
+
+        for (double threshold : new double[] {-1.0, 0.0, 0.05, 0.1234, 0.5, 0.999, 1.0, 2.0}) {
+            // Act
+            RoaringBitmap atLeast = index.atLeast(ProbeFilterIndex.Metric.FIT_P_VALUE, threshold);
+            RoaringBitmap atMost = index.atMost(ProbeFilterIndex.Metric.FIT_P_VALUE, threshold);
+
+            // Assert
+            for (int p = 0; p < n; p++) {
+                assertEquals(pValues[p] >= threshold, atLeast.contains(p), "atLeast " + threshold + " probe " + p);
+                assertEquals(pValues[p] <= threshold, atMost.contains(p), "atMost " + threshold + " probe " + p);
+            }
+        }
+        assertNull(index.atLeast(ProbeFilterIndex.Metric.R_SQUARED, 0.5));
+    }
+
+    @Test
+    void testFilter_FlagsAreRemoved() {
+        // Arrange
+        ProbeFilterIndex index = new ProbeFilterIndex(createFlaggedTable());
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setRemoveStepFunction(true);
+        parameters.setRemoveStepFunctionWithBMDLower(true);
+
+        // Act
+        RoaringBitmap noStep = index.filter(parameters);
+        parameters.setRemoveAdverseDirection("DOWN");
+        RoaringBitmap noStepNoDown = index.filter(parameters);
+
+        // Assert
+        assertEquals(RoaringBitmap.bitmapOf(1, 3), noStep);
+        assertTrue(noStepNoDown.isEmpty());
+        assertEquals(4, index.filter(new CategoryAnalysisParametersDto()).getCardinality());
+    }
+
+    @Test
+    void testFilter_BmdBoundsAndPromiscuous() {
+        // Arrange - lowest dose 0.1, highest dose 10; p1 maps to two genes
+        Map<ProbeStatTable.Column, double[]> columns = new EnumMap<>(ProbeStatTable.Column.class);
+        columns.put(ProbeStatTable.Column.BEST_BMD, new double[] {0.01, 2.0, 30.0, Double.NaN});
+        ProbeStatTable table = new ProbeStatTable(
+                new String[] {"p1", "p2", "p3", "p4"},
+                new String[][] {{"1", "2"}, {"3"}, {"4"}, {"5"}},
+                new String[][] {{"GA", "GB"}, {"GC"}, {"GD"}, {"GE"}},
+                columns, 10.0, 0.1);
+        ProbeFilterIndex index = new ProbeFilterIndex(table);
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setRemoveBMDGreaterHighDose(true);
+
+        // Act
+        RoaringBitmap belowHighDose = index.filter(parameters);
+        parameters.setnFoldBelowLowestDose(5.0);
+        RoaringBitmap withinRange = index.filter(parameters);
+        parameters.setnFoldBelowLowestDose(null);
+        parameters.setRemovePromiscuousProbes(true);
+        RoaringBitmap notPromiscuous = index.filter(parameters);
+
+        // Assert - p4 has no BMD and is never eligible
+        assertEquals(RoaringBitmap.bitmapOf(0, 1), belowHighDose);
+        assertEquals(RoaringBitmap.bitmapOf(1), withinRange);
+        assertEquals(RoaringBitmap.bitmapOf(1), notPromiscuous);
+    }
+
+    @Test
+    void testFilter_MissingColumnRejected() {
+        // Arrange - the table has BMDs and flags, but no fit p-values or R squared
+        ProbeFilterIndex index = new ProbeFilterIndex(createFlaggedTable());
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(0.1);
+        parameters.setBmdRSquaredCutoff(0.5);
+        parameters.setRemoveStepFunction(true);
+
+        // Act & Assert - not silently skipped
+        assertEquals(List.of("bmdPValueCutoff", "bmdRSquaredCutoff"), index.unavailableFilters(parameters));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> index.filter(parameters));
+        assertTrue(e.getMessage().endsWith("bmdPValueCutoff, bmdRSquaredCutoff"));
+        assertTrue(index.unavailableFilters(new CategoryAnalysisParametersDto()).isEmpty());
+    }
+}
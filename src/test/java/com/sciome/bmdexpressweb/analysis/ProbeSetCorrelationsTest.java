@@ -0,0 +1,94 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProbeSetCorrelations
+ */
+class ProbeSetCorrelationsTest {
+
+    private static double pearson(float[] values, int a, int b, int samples) {
+        double meanA = 0.0;
+        double meanB = 0.0;
+        for (int s = 0; s < samples; s++) {
+            meanA += values[a * samples + s];
+            meanB += values[b * samples + s];
+        }
+        meanA /= samples;
+        meanB /= samples;
+        double cov = 0.0;
+        double varA = 0.0;
+        double varB = 0.0;
+        for (int s = 0; s < samples; s++) {
+            double da = values[a * samples + s] - meanA;
+            double db = values[b * samples + s] - meanB;
+            cov += da * db;
+            varA += da * da;
+            varB += db * db;
+        }
+        return cov / Math.sqrt(varA * varB);
+    }
+
+    @Test
+    void testCompute_MatchesNaivePearsonAcrossTiles() {
+        // Arrange - gene 0 has 150 probes (3 tiles), gene 1 has 2, gene 2 has 1
+        int probes = 153;
+        int samples = 12;
+        Random random = new Random(7);
+        String[] probeIds = new String[probes];
+        String[][] genes = new String[probes][];
+        float[] values = new float[probes * samples];
+        for (int p = 0; p < probes; p++) {
+            probeIds[p] = "probe_" + p;
+            genes[p] = new String[] {p < 150 ? "A" : p < 152 ? "B" : "C"};
+            for (int s = 0; s < samples; s++) {
+                values[p * samples + s] = (float) random.nextGaussian();
+            }
+        }
+        ExpressionMatrix matrix = new ExpressionMatrix(probeIds, new float[samples], values);
+        ProbeStatTable table = new ProbeStatTable(probeIds, genes, genes,
+                new EnumMap<>(ProbeStatTable.Column.class), Double.NaN, Double.NaN);
+        CategoryMapping mapping = CategoryMapping.geneLevel(table);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        // Act
+        ProbeSetCorrelations correlations = ProbeSetCorrelations.compute(mapping, table, matrix, pool);
+        pool.shutdown();
+
+        // Assert
+        for (int i = 0; i < 150; i++) {
+            for (int j = 0; j < 150; j++) {
+                double expected = i == j ? 1.0 : pearson(values, i, j, samples);
+                assertEquals(expected, correlations.get(0, i, j), 1e-5);
+            }
+        }
+        assertEquals(pearson(values, 150, 151, samples), correlations.get(1, 0, 1), 1e-5);
+    }
+
+    @Test
+    void testIsConflicting_OnlyPassingAntiCorrelatedProbes() {
+        // Arrange - probe 1 mirrors probe 0, probe 2 is missing from the expression data
+        String[] probeIds = {"p0", "p1", "p2"};
+        String[][] genes = {{"A"}, {"A"}, {"A"}};
+        float[] values = {1, 2, 3, 4, -1, -2, -3, -4};
+        ExpressionMatrix matrix = new ExpressionMatrix(new String[] {"p0", "p1"}, new float[4], values);
+        ProbeStatTable table = new ProbeStatTable(probeIds, genes, genes,
+                new EnumMap<>(ProbeStatTable.Column.class), Double.NaN, Double.NaN);
+        CategoryMapping mapping = CategoryMapping.geneLevel(table);
+
+        // Act
+        ProbeSetCorrelations correlations = ProbeSetCorrelations.compute(mapping, table, matrix);
+
+        // Assert
+        assertEquals(-1.0, correlations.get(0, 0, 1), 1e-6);
+        assertTrue(Float.isNaN(correlations.get(0, 0, 2)));
+        assertTrue(correlations.isConflicting(0, new boolean[] {true, true, true}, 0.5));
+        assertFalse(correlations.isConflicting(0, new boolean[] {true, false, true}, 0.5));
+    }
+}
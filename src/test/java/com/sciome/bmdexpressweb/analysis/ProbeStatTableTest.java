@@ -0,0 +1,92 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import com.sciome.bmdexpress2.mvp.model.probe.Treatment;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ProbeStatTable
+ */
+class ProbeStatTableTest {
+
+    private static ProbeStatResult probeRow(Object... cells) {
+        return new ProbeStatResult() {
+            @Override
+            public List<Object> getRow() {
+                return new ArrayList<>(Arrays.asList(cells));
+            }
+        };
+    }
+
+    private static BMDResult createBmdResult() {
+        BMDResult bmdResult = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                return List.of("Probe ID", "Entrez Gene IDs", "Genes Symbols", "Best BMD", "Best BMDL",
+                        "Best fitPValue", "Max Fold Change");
+            }
+        };
+        bmdResult.setName("BMD Analysis 1");
+        bmdResult.setProbeStatResults(new ArrayList<>(List.of(
+                probeRow("p1", "101;102", "Abc;Def", 1.5, 0.75, "0.42", -2.5),
+                probeRow("p2", null, null, null, 1.0, "NaN", 3.0))));
+
+        DoseResponseExperiment experiment = new DoseResponseExperiment();
+        List<Treatment> treatments = new ArrayList<>();
+        for (float dose : new float[] {0f, 0.3f, 3f}) {
+            Treatment treatment = new Treatment();
+            treatment.setDose(dose);
+            treatments.add(treatment);
+        }
+        experiment.setTreatments(treatments);
+        bmdResult.setDoseResponseExperiment(experiment);
+        return bmdResult;
+    }
+
+    @Test
+    void testFromBmdResult_ReadsColumnsByHeaderName() {
+        // Act
+        ProbeStatTable table = ProbeStatTable.fromBmdResult(createBmdResult());
+
+        // Assert
+        assertEquals(2, table.getProbeCount());
+        assertEquals("p1", table.getProbeId(0));
+        assertArrayEquals(new String[] {"101", "102"}, table.getGeneIds(0));
+        assertArrayEquals(new String[] {"Abc", "Def"}, table.getGeneSymbols(0));
+        assertEquals(1.5, table.get(ProbeStatTable.Column.BEST_BMD, 0), 1e-12);
+        assertEquals(0.42, table.get(ProbeStatTable.Column.FIT_P_VALUE, 0), 1e-12);
+        assertEquals(-2.5, table.get(ProbeStatTable.Column.MAX_FOLD_CHANGE, 0), 1e-12);
+        assertEquals(0.3, table.getMinPositiveDose(), 1e-6);
+        assertEquals(3.0, table.getMaxDose(), 1e-6);
+    }
+
+    @Test
+    void testFromBmdResult_MissingValuesAndColumns() {
+        // Act
+        ProbeStatTable table = ProbeStatTable.fromBmdResult(createBmdResult());
+
+        // Assert
+        assertEquals(0, table.getGeneIds(1).length);
+        assertTrue(Double.isNaN(table.get(ProbeStatTable.Column.BEST_BMD, 1)));
+        assertTrue(Double.isNaN(table.get(ProbeStatTable.Column.FIT_P_VALUE, 1)));
+        assertFalse(table.hasColumn(ProbeStatTable.Column.R_SQUARED));
+        assertTrue(Double.isNaN(table.get(ProbeStatTable.Column.R_SQUARED, 0)));
+    }
+
+    @Test
+    void testFromBmdResult_NoRows() {
+        // Act
+        ProbeStatTable table = ProbeStatTable.fromBmdResult(new BMDResult());
+
+        // Assert
+        assertEquals(0, table.getProbeCount());
+    }
+}
@@ -0,0 +1,200 @@
+package com.sciome.bmdexpressweb.analysis;
+
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResult;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ResultRows
+ */
+class ResultRowsTest {
+
+    private static ProbeStatResult probeRow(Object... cells) {
+        return new ProbeStatResult() {
+            @Override
+            public List<Object> getRow() {
+                return new ArrayList<>(Arrays.asList(cells));
+            }
+        };
+    }
+
+    /**
+     * BMD result with two probes that counts its row generations
+     */
+    private static BMDResult createBmdResult(AtomicInteger generations) {
+        BMDResult bmdResult = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                return List.of("Probe ID", "Best BMD");
+            }
+
+            @Override
+            public void generateRowData() {
+                generations.incrementAndGet();
+                try {
+                    // Long enough for concurrent readers to overlap
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        bmdResult.setName("BMD Analysis 1");
+        bmdResult.setProbeStatResults(new ArrayList<>(List.of(probeRow("p1", 1.5), probeRow("p2", null))));
+        return bmdResult;
+    }
+
+    @Test
+    void testOf_BmdResultRowsBuiltOnce() {
+        // Arrange
+        AtomicInteger generations = new AtomicInteger();
+        BMDResult bmdResult = createBmdResult(generations);
+
+        // Act
+        ResultRows first = ResultRows.of(bmdResult);
+        ResultRows second = ResultRows.of(bmdResult);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, generations.get());
+        assertEquals(List.of("Probe ID", "Best BMD"), first.getColumnHeader());
+        assertEquals(2, first.getRows().size());
+        assertEquals(Arrays.asList("p2", null), first.getRows().get(1));
+        assertThrows(UnsupportedOperationException.class, () -> first.getRows().get(0).set(0, "p3"));
+        assertThrows(UnsupportedOperationException.class, () -> first.getRows().remove(0));
+    }
+
+    @Test
+    void testOf_ConcurrentReadersShareOneBuild() throws Exception {
+        // Arrange
+        AtomicInteger generations = new AtomicInteger();
+        BMDResult bmdResult = createBmdResult(generations);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ResultRows>> snapshots = new ArrayList<>();
+
+        // Act
+        try {
+            for (int i = 0; i < 8; i++) {
+                snapshots.add(executor.submit(() -> {
+                    start.await();
+                    return ResultRows.of(bmdResult);
+                }));
+            }
+            start.countDown();
+
+            // Assert
+            ResultRows first = snapshots.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ResultRows> snapshot : snapshots) {
+                assertSame(first, snapshot.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, generations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testOf_RebuiltWhenRowsChangeOrInvalidated() {
+        // Arrange
+        AtomicInteger generations = new AtomicInteger();
+        BMDResult bmdResult = createBmdResult(generations);
+        ResultRows first = ResultRows.of(bmdResult);
+
+        // Act - rows replaced
+        bmdResult.setProbeStatResults(new ArrayList<>(List.of(probeRow("p9", 9.0))));
+        ResultRows replaced = ResultRows.of(bmdResult);
+
+        // Assert
+        assertNotSame(first, replaced);
+        assertEquals(List.of(List.of("p9", 9.0)), replaced.getRows());
+
+        // Act - rows added in place
+        bmdResult.getProbeStatResults().add(probeRow("p10", 10.0));
+        ResultRows grown = ResultRows.of(bmdResult);
+
+        // Assert
+        assertEquals(2, grown.getRows().size());
+
+        // Act - explicit invalidation
+        ResultRows.invalidate(bmdResult);
+        ResultRows invalidated = ResultRows.of(bmdResult);
+
+        // Assert
+        assertNotSame(grown, invalidated);
+        assertEquals(4, generations.get());
+    }
+
+    @Test
+    void testOf_SnapshotIndependentOfResultRows() {
+        // Arrange - a row handed out by reference, as the library's cached rows are
+        List<Object> cells = new ArrayList<>(Arrays.asList("p1", 1.5));
+        ProbeStatResult probe = new ProbeStatResult() {
+            @Override
+            public List<Object> getRow() {
+                return cells;
+            }
+        };
+        BMDResult bmdResult = createBmdResult(new AtomicInteger());
+        bmdResult.setProbeStatResults(new ArrayList<>(List.of(probe)));
+        ResultRows rows = ResultRows.of(bmdResult);
+
+        // Act
+        cells.set(1, 99.0);
+
+        // Assert
+        assertEquals(List.of("p1", 1.5), rows.getRows().get(0));
+    }
+
+    @Test
+    void testOf_CategoryResults() {
+        // Arrange
+        CategoryAnalysisResult row = mock(CategoryAnalysisResult.class);
+        when(row.getRow()).thenReturn(List.<Object>of("GO:1", 3));
+        CategoryAnalysisResults categoryResults = mock(CategoryAnalysisResults.class);
+        when(categoryResults.getColumnHeader()).thenReturn(List.of("GO ID", "Genes"));
+        when(categoryResults.getCategoryAnalsyisResults()).thenReturn(List.of(row));
+
+        // Act
+        ResultRows rows = ResultRows.of(categoryResults);
+        ResultRows.of(categoryResults);
+
+        // Assert
+        assertEquals(List.of("GO ID", "Genes"), rows.getColumnHeader());
+        assertEquals(List.of(List.of("GO:1", 3)), rows.getRows());
+        verify(categoryResults, times(1)).generateRowData();
+    }
+
+    @Test
+    void testOf_IncompleteResultHasNoRows() {
+        // Arrange
+        BMDResult bmdResult = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                throw new NullPointerException("no experiment");
+            }
+        };
+
+        // Act
+        ResultRows rows = ResultRows.of(bmdResult);
+
+        // Assert
+        assertNull(rows.getColumnHeader());
+        assertTrue(rows.getRows().isEmpty());
+    }
+}
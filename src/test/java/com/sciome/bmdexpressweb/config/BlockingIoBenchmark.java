@@ -0,0 +1,69 @@
+package com.sciome.bmdexpressweb.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manual benchmark of blocking calls on virtual threads against the
+ * platform-thread setup. Not part of the test suite (timings depend on the
+ * machine); run it after building the tests:
+ *
+ *   mvn -B test-compile
+ *   java -cp target/classes:target/test-classes com.sciome.bmdexpressweb.config.BlockingIoBenchmark [calls] [callMillis]
+ */
+public final class BlockingIoBenchmark {
+
+    // Tomcat's default maximum number of request threads
+    private static final int TOMCAT_MAX_THREADS = 200;
+
+    private BlockingIoBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        long callMillis = args.length > 1 ? Long.parseLong(args[1]) : 50;
+
+        Result platform = run(Executors.newFixedThreadPool(TOMCAT_MAX_THREADS), calls, callMillis);
+        Result virtual = run(ThreadingConfig.blockingIoExecutor(true, 0), calls, callMillis);
+
+        System.out.printf("%d blocking calls of %d ms%n", calls, callMillis);
+        System.out.printf("  %d platform threads: %d ms, max %d in flight%n",
+                TOMCAT_MAX_THREADS, platform.elapsedMillis, platform.maxInFlight);
+        System.out.printf("  virtual threads:     %d ms, max %d in flight%n",
+                virtual.elapsedMillis, virtual.maxInFlight);
+    }
+
+    /**
+     * Run blocking calls of callMillis each and measure the highest number of
+     * calls in flight at once and the elapsed time
+     */
+    private static Result run(ExecutorService executor, int calls, long callMillis) throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        long start = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            futures.add(executor.submit(() -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(callMillis); // stands in for a slow REST call or file read
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdownNow();
+        return new Result(maxInFlight.get(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private record Result(int maxInFlight, long elapsedMillis) {
+    }
+}
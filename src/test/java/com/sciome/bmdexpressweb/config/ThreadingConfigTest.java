@@ -0,0 +1,64 @@
+package com.sciome.bmdexpressweb.config;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ThreadingConfig. The throughput comparison of the two modes
+ * is a manual benchmark, BlockingIoBenchmark.
+ */
+class ThreadingConfigTest {
+
+    @Test
+    void testBlockingIoExecutor_PlatformModeIsBounded() throws Exception {
+        // Act
+        ExecutorService executor = ThreadingConfig.blockingIoExecutor(false, 4);
+        try {
+            Thread thread = executor.submit(Thread::currentThread).get();
+
+            // Assert
+            ThreadPoolExecutor pool = assertInstanceOf(ThreadPoolExecutor.class, executor);
+            assertEquals(4, pool.getCorePoolSize());
+            assertEquals(4, pool.getMaximumPoolSize());
+            assertFalse(thread.isVirtual());
+            assertTrue(thread.isDaemon());
+            assertTrue(thread.getName().startsWith("blocking-io-"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBlockingIoExecutor_PlatformModeKeepsOneThread() {
+        // Act
+        ExecutorService executor = ThreadingConfig.blockingIoExecutor(false, 0);
+        try {
+            // Assert
+            assertEquals(1, assertInstanceOf(ThreadPoolExecutor.class, executor).getMaximumPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBlockingIoExecutor_VirtualModeUsesVirtualThreads() throws Exception {
+        // Act
+        ExecutorService executor = ThreadingConfig.blockingIoExecutor(true, 4);
+        try {
+            Thread first = executor.submit(Thread::currentThread).get();
+            Thread second = executor.submit(Thread::currentThread).get();
+
+            // Assert - a new virtual thread per task, not a pool
+            assertFalse(executor instanceof ThreadPoolExecutor);
+            assertTrue(first.isVirtual());
+            assertTrue(first.getName().startsWith("blocking-io-"));
+            assertNotSame(first, second);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisRequest;
+import com.sciome.bmdexpressweb.service.AnalysisEventService;
+import com.sciome.bmdexpressweb.service.AnalysisScheduler;
+import com.sciome.bmdexpressweb.service.BmdResultsService;
+import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService;
+import com.sciome.bmdexpressweb.service.CategoryDefinitionFiles;
+import com.sciome.bmdexpressweb.service.ExpressionMatrixService;
+import com.sciome.bmdexpressweb.service.ProbeFilterService;
+import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Tests of CategoryAnalysisController against a real CategoryAnalysisAsyncService,
+ * for submitters that share a deduplicated analysis
+ */
+@WebMvcTest(CategoryAnalysisController.class)
+class CategoryAnalysisControllerDedupTest {
+
+    private static final String PROJECT_ID = "test-project-123";
+
+    @TestConfiguration
+    static class Config {
+
+        @Bean(destroyMethod = "shutdown")
+        AnalysisScheduler analysisScheduler() {
+            return new AnalysisScheduler(2, Map.of());
+        }
+
+        @Bean
+        ProbeFilterService probeFilterService() {
+            return new ProbeFilterService();
+        }
+
+        @Bean
+        CategoryAnalysisAsyncService categoryAnalysisAsyncService(ProbeFilterService probeFilterService,
+                                                                  AnalysisScheduler scheduler) {
+            return new CategoryAnalysisAsyncService(probeFilterService, new ExpressionMatrixService(), scheduler);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AnalysisScheduler scheduler;
+
+    @Autowired
+    private CategoryAnalysisAsyncService analysisService;
+
+    @MockBean
+    private ProjectService projectService;
+
+    @MockBean
+    private BmdResultsService bmdResultsService;
+
+    @MockBean
+    private AnalysisEventService eventService;
+
+    @MockBean
+    private ResponseCache responseCache;
+
+    @MockBean
+    private CategoryDefinitionFiles definitionFiles;
+
+    @BeforeEach
+    void setUp() {
+        when(projectService.projectExists(PROJECT_ID)).thenReturn(true);
+        when(projectService.getContentHash(PROJECT_ID)).thenReturn("content-hash");
+        when(bmdResultsService.findBmdResult(PROJECT_ID, "BMD Analysis 1")).thenReturn(createBmdResult());
+    }
+
+    /**
+     * Helper method to create a BMD result with 20 probes on 10 genes
+     */
+    private BMDResult createBmdResult() {
+        BMDResult bmdResult = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                return List.of("Probe ID", "Entrez Gene IDs", "Genes Symbols", "Best BMD", "Best fitPValue");
+            }
+        };
+        bmdResult.setName("BMD Analysis 1");
+        List<ProbeStatResult> results = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            Object[] cells = {"probe_" + p, String.valueOf(p / 2), "Gene" + (p / 2), 1.0 + p, p * 0.05};
+            results.add(new ProbeStatResult() {
+                @Override
+                public List<Object> getRow() {
+                    return new ArrayList<>(Arrays.asList(cells));
+                }
+            });
+        }
+        bmdResult.setProbeStatResults(results);
+        return bmdResult;
+    }
+
+    private String submit() throws Exception {
+        CategoryAnalysisRequest request = new CategoryAnalysisRequest(
+                PROJECT_ID,
+                "BMD Analysis 1",
+                CategoryAnalysisEnum.GENE_LEVEL,
+                new CategoryAnalysisParametersDto());
+
+        MvcResult result = mockMvc.perform(post("/api/category-analysis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("analysisId").asText();
+    }
+
+    @Test
+    void testCancelCategoryAnalysis_OneOfTwoSubmittersOnlyDetaches() throws Exception {
+        // Arrange - both workers busy, so the shared analysis stays pending
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit("blocker", "other", AnalysisScheduler.Priority.INTERACTIVE, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        String first;
+        String second;
+        try {
+            first = submit();
+            second = submit();
+
+            // Act - the first submitter gives up
+            mockMvc.perform(delete("/api/category-analysis/{analysisId}", first))
+                    .andExpect(status().isNoContent());
+        } finally {
+            release.countDown();
+        }
+
+        // Assert - the analysis goes on for the second submitter
+        assertEquals(first, second);
+        CategoryAnalysisAsyncService.AnalysisJobResult job =
+                analysisService.whenFinished(second).get(5, TimeUnit.SECONDS);
+        assertEquals("COMPLETED", job.getStatus());
+
+        // The last submitter's delete removes it
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", second))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", second))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testUpdateParameters_SharedAnalysisConflict() throws Exception {
+        // Arrange - the second submitter is answered by the first one's analysis
+        String first = submit();
+        assertEquals("COMPLETED", analysisService.whenFinished(first).get(5, TimeUnit.SECONDS).getStatus());
+        mockMvc.perform(post("/api/category-analysis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CategoryAnalysisRequest(
+                                PROJECT_ID,
+                                "BMD Analysis 1",
+                                CategoryAnalysisEnum.GENE_LEVEL,
+                                new CategoryAnalysisParametersDto()))))
+                .andExpect(status().isOk());
+
+        // Act & Assert - one submitter cannot change the other's results
+        mockMvc.perform(patch("/api/category-analysis/{analysisId}/parameters", first)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bmdPValueCutoff\": 0.5}"))
+                .andExpect(status().isConflict());
+
+        // After the other submitter has left, the update goes through
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", first))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(patch("/api/category-analysis/{analysisId}/parameters", first)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bmdPValueCutoff\": 0.5}"))
+                .andExpect(status().isOk());
+    }
+}
@@ -1,25 +1,40 @@
 package com.sciome.bmdexpressweb.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
 import com.sciome.bmdexpressweb.dto.CategoryAnalysisRequest;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpressweb.dto.ProbeFilterResponse;
+import com.sciome.bmdexpressweb.service.AnalysisEventService;
+import com.sciome.bmdexpressweb.service.AnalysisNotAvailableException;
+import com.sciome.bmdexpressweb.service.AnalysisRequestKeys;
 import com.sciome.bmdexpressweb.service.BmdResultsService;
 import com.sciome.bmdexpressweb.service.CategoryAnalysisAsyncService;
+import com.sciome.bmdexpressweb.service.CategoryDefinitionFiles;
+import com.sciome.bmdexpressweb.service.ProbeFilterService;
 import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -49,6 +64,18 @@ class CategoryAnalysisControllerTest {
     @MockBean
     private CategoryAnalysisAsyncService analysisService;
 
+    @MockBean
+    private ProbeFilterService probeFilterService;
+
+    @MockBean
+    private AnalysisEventService eventService;
+
+    @MockBean
+    private ResponseCache responseCache;
+
+    @MockBean
+    private CategoryDefinitionFiles definitionFiles;
+
     private BMDResult mockBmdResult;
     private String testProjectId;
     private String testAnalysisId;
@@ -69,6 +96,8 @@ class CategoryAnalysisControllerTest {
         when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
                 .thenReturn(mockBmdResult);
         when(analysisService.runCategoryAnalysisAsync(
+                eq(testProjectId),
+                any(),
                 eq(mockBmdResult),
                 eq(CategoryAnalysisEnum.GO),
                 any()))
@@ -94,11 +123,104 @@ class CategoryAnalysisControllerTest {
         verify(projectService, times(1)).projectExists(testProjectId);
         verify(bmdResultsService, times(1)).findBmdResult(testProjectId, "BMD Analysis 1");
         verify(analysisService, times(1)).runCategoryAnalysisAsync(
+                eq(testProjectId),
+                any(),
+                eq(mockBmdResult),
+                eq(CategoryAnalysisEnum.GO),
+                any());
+    }
+
+    @Test
+    void testSubmitCategoryAnalysis_IdenticalCompletedRequestReturnsCachedAnalysis() throws Exception {
+        // Arrange
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(projectService.getContentHash(testProjectId)).thenReturn("content-hash");
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(analysisService.runCategoryAnalysisAsync(
+                eq(testProjectId),
+                any(),
+                eq(mockBmdResult),
+                eq(CategoryAnalysisEnum.GO),
+                any()))
+                .thenReturn(CompletableFuture.completedFuture(testAnalysisId));
+
+        CategoryAnalysisAsyncService.AnalysisJobResult jobResult =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        jobResult.setStatus("COMPLETED");
+        jobResult.setSubmittedAt(LocalDateTime.now().minusMinutes(2));
+        jobResult.setCompletedAt(LocalDateTime.now().minusMinutes(1));
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(jobResult);
+
+        CategoryAnalysisRequest request = new CategoryAnalysisRequest(
+                testProjectId,
+                "BMD Analysis 1",
+                CategoryAnalysisEnum.GO,
+                new CategoryAnalysisParametersDto());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.analysisId").value(testAnalysisId))
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.completedAt").exists());
+
+        verify(analysisService, times(1)).runCategoryAnalysisAsync(
+                eq(testProjectId),
+                eq(AnalysisRequestKeys.of("content-hash", "BMD Analysis 1", CategoryAnalysisEnum.GO,
+                        new CategoryAnalysisParametersDto(), definitionFiles)),
                 eq(mockBmdResult),
                 eq(CategoryAnalysisEnum.GO),
                 any());
     }
 
+    @Test
+    void testSubmitCategoryAnalysis_UnavailableTypeReturnsNotImplemented() throws Exception {
+        // Arrange
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(analysisService.runCategoryAnalysisAsync(any(), any(), any(), eq(CategoryAnalysisEnum.PATHWAY), any()))
+                .thenThrow(new AnalysisNotAvailableException("PATHWAY category analysis is not available"));
+
+        CategoryAnalysisRequest request = new CategoryAnalysisRequest(
+                testProjectId,
+                "BMD Analysis 1",
+                CategoryAnalysisEnum.PATHWAY,
+                new CategoryAnalysisParametersDto());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNotImplemented())
+                .andExpect(jsonPath("$.message").value("PATHWAY category analysis is not available"));
+    }
+
+    @Test
+    void testSubmitCategoryAnalysis_UnsupportedOperationIsServerError() throws Exception {
+        // Arrange - a bug, not an analysis this server cannot run
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(analysisService.runCategoryAnalysisAsync(any(), any(), any(), eq(CategoryAnalysisEnum.GENE_LEVEL), any()))
+                .thenThrow(new UnsupportedOperationException());
+
+        CategoryAnalysisRequest request = new CategoryAnalysisRequest(
+                testProjectId,
+                "BMD Analysis 1",
+                CategoryAnalysisEnum.GENE_LEVEL,
+                new CategoryAnalysisParametersDto());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isInternalServerError());
+    }
+
     @Test
     void testSubmitCategoryAnalysis_ProjectNotFound() throws Exception {
         // Arrange
@@ -119,7 +241,7 @@ class CategoryAnalysisControllerTest {
 
         verify(projectService, times(1)).projectExists("invalid-id");
         verify(bmdResultsService, never()).findBmdResult(any(), any());
-        verify(analysisService, never()).runCategoryAnalysisAsync(any(), any(), any());
+        verify(analysisService, never()).runCategoryAnalysisAsync(any(), any(), any(), any(), any());
     }
 
     @Test
@@ -219,4 +341,260 @@ class CategoryAnalysisControllerTest {
 
         verify(analysisService, times(1)).getAnalysisResult(testAnalysisId);
     }
+
+    @Test
+    void testCancelCategoryAnalysis_Running() throws Exception {
+        // Arrange
+        CategoryAnalysisAsyncService.AnalysisJobResult jobResult =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        jobResult.setStatus("CANCELLED");
+        jobResult.setSubmittedAt(LocalDateTime.now());
+        jobResult.setCompletedAt(LocalDateTime.now());
+        jobResult.setErrorMessage("Cancelled by request");
+
+        when(analysisService.cancelAnalysis(testAnalysisId)).thenReturn(true);
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(jobResult);
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", testAnalysisId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.analysisId").value(testAnalysisId))
+                .andExpect(jsonPath("$.status").value("CANCELLED"));
+
+        verify(analysisService, times(1)).cancelAnalysis(testAnalysisId);
+    }
+
+    @Test
+    void testCancelCategoryAnalysis_FinishedIsDeleted() throws Exception {
+        // Arrange
+        when(analysisService.cancelAnalysis(testAnalysisId)).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", testAnalysisId))
+                .andExpect(status().isNoContent());
+
+        verify(analysisService, never()).getAnalysisResult(any());
+    }
+
+    @Test
+    void testCancelCategoryAnalysis_NotFound() throws Exception {
+        // Arrange
+        when(analysisService.cancelAnalysis("missing"))
+                .thenThrow(new IllegalArgumentException("Analysis not found: missing"));
+
+        // Act & Assert
+        mockMvc.perform(delete("/api/category-analysis/{analysisId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamCategoryAnalysisEvents_Success() throws Exception {
+        // Arrange
+        when(eventService.subscribe(testAnalysisId, "3-40")).thenReturn(new SseEmitter());
+
+        // Act & Assert
+        mockMvc.perform(get("/api/category-analysis/{analysisId}/events", testAnalysisId)
+                        .header("Last-Event-ID", "3-40"))
+                .andExpect(request().asyncStarted());
+
+        verify(eventService, times(1)).subscribe(testAnalysisId, "3-40");
+    }
+
+    @Test
+    void testStreamCategoryAnalysisEvents_NotFound() throws Exception {
+        // Arrange
+        when(eventService.subscribe(eq("missing"), any()))
+                .thenThrow(new IllegalArgumentException("Analysis not found: missing"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/category-analysis/{analysisId}/events", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testGetCategoryAnalysis_CompletedBatchVariantReturnsTable() throws Exception {
+        // Arrange
+        CategoryAnalysisAsyncService.AnalysisJobResult jobResult =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        jobResult.setStatus("COMPLETED");
+        jobResult.setTableView(new CategoryAnalysisTableView("sweep_1", List.of("Category ID"), List.of()));
+
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(jobResult);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/category-analysis/{analysisId}", testAnalysisId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("sweep_1"));
+    }
+
+    @Test
+    void testExportCategoryAnalysis_TsvFromTableView() throws Exception {
+        // Arrange
+        CategoryAnalysisAsyncService.AnalysisJobResult jobResult =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        jobResult.setStatus("COMPLETED");
+        jobResult.setTableView(new CategoryAnalysisTableView("sweep_1", List.of("Category ID", "Genes"),
+                List.of(Map.<String, Object>of("row", List.of("GO:0001", 12)))));
+
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(jobResult);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/category-analysis/{analysisId}/export", testAnalysisId)
+                        .param("format", "tsv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/tab-separated-values"))
+                .andExpect(header().string("Content-Disposition", containsString(".tsv")))
+                .andExpect(content().string("Category ID\tGenes\nGO:0001\t12\n"));
+    }
+
+    @Test
+    void testExportCategoryAnalysis_NotCompletedReturnsConflict() throws Exception {
+        // Arrange
+        CategoryAnalysisAsyncService.AnalysisJobResult jobResult =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        jobResult.setStatus("RUNNING");
+
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(jobResult);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/category-analysis/{analysisId}/export", testAnalysisId)
+                        .param("format", "csv"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void testSubmitCategoryAnalysisBatch_Success() throws Exception {
+        // Arrange
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(analysisService.submitBatch(eq(testProjectId), eq(mockBmdResult), eq(CategoryAnalysisEnum.GENE_LEVEL), any()))
+                .thenReturn("batch-1");
+        CategoryAnalysisAsyncService.AnalysisJobResult first = new CategoryAnalysisAsyncService.AnalysisJobResult("a-1");
+        CategoryAnalysisAsyncService.AnalysisJobResult second = new CategoryAnalysisAsyncService.AnalysisJobResult("a-2");
+        when(analysisService.getBatch("batch-1")).thenReturn(List.of(first, second));
+
+        CategoryAnalysisBatchRequest request = new CategoryAnalysisBatchRequest(
+                testProjectId,
+                "BMD Analysis 1",
+                CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(new CategoryAnalysisBatchRequest.Variant("p05", new CategoryAnalysisParametersDto()),
+                        new CategoryAnalysisBatchRequest.Variant("p10", new CategoryAnalysisParametersDto())));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.batchId").value("batch-1"))
+                .andExpect(jsonPath("$.projectId").value(testProjectId))
+                .andExpect(jsonPath("$.analyses", hasSize(2)))
+                .andExpect(jsonPath("$.analyses[1].resultLocation").value("/api/category-analysis/a-2"));
+
+        verify(analysisService, times(1)).submitBatch(eq(testProjectId), eq(mockBmdResult), eq(CategoryAnalysisEnum.GENE_LEVEL), any());
+    }
+
+    @Test
+    void testSubmitCategoryAnalysisBatch_UnsupportedType() throws Exception {
+        // Arrange
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(analysisService.submitBatch(any(), any(), eq(CategoryAnalysisEnum.GO), any()))
+                .thenThrow(new IllegalArgumentException("Batch category analysis supports GENE_LEVEL and DEFINED analyses only, not GO"));
+
+        CategoryAnalysisBatchRequest request = new CategoryAnalysisBatchRequest(
+                testProjectId, "BMD Analysis 1", CategoryAnalysisEnum.GO, List.of());
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetCategoryAnalysisBatch_NotFound() throws Exception {
+        // Arrange
+        when(analysisService.getBatch("missing")).thenThrow(new IllegalArgumentException("Batch not found: missing"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/category-analysis/batch/{batchId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testPreviewProbeFilter_Success() throws Exception {
+        // Arrange
+        when(projectService.projectExists(testProjectId)).thenReturn(true);
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1"))
+                .thenReturn(mockBmdResult);
+        when(probeFilterService.filterProbes(eq(mockBmdResult), any()))
+                .thenReturn(new ProbeFilterResponse("BMD Analysis 1", 1000, 250, 40));
+
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(0.1);
+        CategoryAnalysisRequest request = new CategoryAnalysisRequest(
+                testProjectId, "BMD Analysis 1", CategoryAnalysisEnum.GENE_LEVEL, parameters);
+
+        // Act & Assert
+        mockMvc.perform(post("/api/category-analysis/probe-filter")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.projectId").value(testProjectId))
+                .andExpect(jsonPath("$.probeCount").value(1000))
+                .andExpect(jsonPath("$.passedProbeCount").value(250));
+    }
+
+    @Test
+    void testUpdateParameters_MergesIntoCurrentParameters() throws Exception {
+        // Arrange
+        CategoryAnalysisParametersDto current = new CategoryAnalysisParametersDto();
+        current.setBmdPValueCutoff(0.1);
+        current.setMinGenesInSet(3);
+        CategoryAnalysisAsyncService.AnalysisJobResult job =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        job.setStatus("COMPLETED");
+        job.setParameters(current);
+        job.setTableView(new CategoryAnalysisTableView("variant", List.of("Category ID"), List.of()));
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(job);
+        when(analysisService.updateParameters(eq(testAnalysisId), any())).thenReturn(job);
+
+        // Act & Assert
+        mockMvc.perform(patch("/api/category-analysis/{analysisId}/parameters", testAnalysisId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bmdPValueCutoff\": 0.05}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("variant"));
+
+        ArgumentCaptor<CategoryAnalysisParametersDto> captor =
+                ArgumentCaptor.forClass(CategoryAnalysisParametersDto.class);
+        verify(analysisService).updateParameters(eq(testAnalysisId), captor.capture());
+        assertEquals(0.05, captor.getValue().getBmdPValueCutoff(), 1e-12);
+        assertEquals(3, (int) captor.getValue().getMinGenesInSet());
+        assertEquals(0.1, current.getBmdPValueCutoff(), 1e-12);
+    }
+
+    @Test
+    void testUpdateParameters_NotCompleted() throws Exception {
+        // Arrange
+        CategoryAnalysisAsyncService.AnalysisJobResult job =
+                new CategoryAnalysisAsyncService.AnalysisJobResult(testAnalysisId);
+        job.setStatus("RUNNING");
+        when(analysisService.getAnalysisResult(testAnalysisId)).thenReturn(job);
+
+        // Act & Assert
+        mockMvc.perform(patch("/api/category-analysis/{analysisId}/parameters", testAnalysisId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"bmdPValueCutoff\": 0.05}"))
+                .andExpect(status().isConflict());
+
+        verify(analysisService, never()).updateParameters(any(), any());
+    }
 }
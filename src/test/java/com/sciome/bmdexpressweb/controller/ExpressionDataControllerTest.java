@@ -0,0 +1,84 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
+import com.sciome.bmdexpressweb.service.ExpressionImportService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Controller tests for ExpressionDataController
+ */
+@WebMvcTest(ExpressionDataController.class)
+class ExpressionDataControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private ExpressionImportService importService;
+
+    @Test
+    void testImportExpressionData_Success() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+                "file", "liver.txt", "text/plain", "id\tS1\nDoses\t0\np1\t1\n".getBytes());
+        when(importService.importExpressionData(eq("project-1"), any(), eq("liver")))
+                .thenReturn(new ExpressionImportResponse("project-1", "liver", 1, 1, 1, 3));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/projects/{projectId}/expression-data", "project-1").file(file))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.experimentName").value("liver"))
+                .andExpect(jsonPath("$.probeCount").value(1));
+
+        verify(importService, times(1)).importExpressionData(eq("project-1"), any(), eq("liver"));
+    }
+
+    @Test
+    void testImportExpressionData_ProjectNotFound() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "liver.txt", "text/plain", new byte[0]);
+        when(importService.importExpressionData(any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Project not found: invalid-id"));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/projects/{projectId}/expression-data", "invalid-id").file(file))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testImportExpressionData_MalformedFile() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile("file", "bad.txt", "text/plain", "x".getBytes());
+        when(importService.importExpressionData(any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Missing dose row after header"));
+
+        // Act & Assert
+        mockMvc.perform(multipart("/api/projects/{projectId}/expression-data", "project-1").file(file))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetExpressionData_Success() throws Exception {
+        // Arrange
+        when(importService.getExperimentNames("project-1")).thenReturn(List.of("liver", "kidney"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/{projectId}/expression-data", "project-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)));
+    }
+}
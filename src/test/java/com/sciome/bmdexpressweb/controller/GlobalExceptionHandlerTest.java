@@ -2,7 +2,9 @@ package com.sciome.bmdexpressweb.controller;
 
 import com.sciome.bmdexpressweb.service.BmdResultsService;
 import com.sciome.bmdexpressweb.service.CategoryResultsService;
+import com.sciome.bmdexpressweb.service.GeneLevelService;
 import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -10,11 +12,15 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
 
 import static org.hamcrest.Matchers.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -41,6 +47,12 @@ class GlobalExceptionHandlerTest {
     @MockBean
     private CategoryResultsService categoryResultsService;
 
+    @MockBean
+    private GeneLevelService geneLevelService;
+
+    @MockBean
+    private ResponseCache responseCache;
+
     @Test
     void testHandleRuntimeException_ReturnsInternalServerError() throws Exception {
         // Arrange - Service throws RuntimeException
@@ -51,12 +63,15 @@ class GlobalExceptionHandlerTest {
                 new byte[]{1, 2, 3}
         );
 
-        when(projectService.loadProject(any(), anyString()))
-                .thenThrow(new RuntimeException("Failed to deserialize project"));
+        when(projectService.loadProjectAsync(any(), anyString(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new RuntimeException("Failed to deserialize project")));
 
         // Act & Assert - Should return 500 with error details
-        mockMvc.perform(multipart("/api/projects")
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
                         .file(file))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.status").value(500))
@@ -66,6 +81,29 @@ class GlobalExceptionHandlerTest {
                 .andExpect(jsonPath("$.path").value("/api/projects"));
     }
 
+    @Test
+    void testHandleRejectedExecutionException_ReturnsServiceUnavailable() throws Exception {
+        // Arrange - Loader pool and queue are full
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.bm2",
+                "application/octet-stream",
+                new byte[]{1, 2, 3}
+        );
+
+        when(projectService.loadProjectAsync(any(), anyString(), anyBoolean()))
+                .thenThrow(new RejectedExecutionException("queue full"));
+
+        // Act & Assert - Should return 503 with a retry hint
+        mockMvc.perform(multipart("/api/projects")
+                        .file(file))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.status").value(503))
+                .andExpect(jsonPath("$.error").value("Service Unavailable"))
+                .andExpect(jsonPath("$.path").value("/api/projects"));
+    }
+
     @Test
     void testHandleIllegalArgumentException_ReturnsBadRequest() throws Exception {
         // Arrange - Service throws IllegalArgumentException for invalid parameter
@@ -110,12 +148,15 @@ class GlobalExceptionHandlerTest {
                 new byte[]{1, 2, 3}
         );
 
-        when(projectService.loadProject(any(), anyString()))
-                .thenThrow(new IOException("Failed to read file"));
+        when(projectService.loadProjectAsync(any(), anyString(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Failed to read file")));
 
         // Act & Assert - Should return 500 with error details
-        mockMvc.perform(multipart("/api/projects")
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
                         .file(file))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.status").value(500))
@@ -134,12 +175,15 @@ class GlobalExceptionHandlerTest {
                 new byte[]{1, 2, 3}
         );
 
-        when(projectService.loadProject(any(), anyString()))
-                .thenThrow(new ClassNotFoundException("com.sciome.bmdexpress2.mvp.model.BMDProject"));
+        when(projectService.loadProjectAsync(any(), anyString(), anyBoolean()))
+                .thenReturn(CompletableFuture.failedFuture(new ClassNotFoundException("com.sciome.bmdexpress2.mvp.model.BMDProject")));
 
         // Act & Assert - Should return 500 with error details
-        mockMvc.perform(multipart("/api/projects")
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
                         .file(file))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$.status").value(500))
@@ -0,0 +1,130 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for JsonProjection
+ */
+class JsonProjectionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static class Probe {
+        private final String id;
+        private final double[] responses;
+
+        Probe(String id, double... responses) {
+            this.id = id;
+            this.responses = responses;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public double[] getResponses() {
+            return responses;
+        }
+    }
+
+    public static class Experiment {
+        private final String name;
+        private final List<Probe> probes;
+
+        Experiment(String name, List<Probe> probes) {
+            this.name = name;
+            this.probes = probes;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public List<Probe> getProbes() {
+            return probes;
+        }
+
+        public Map<String, Object> getInfo() {
+            return Map.of("platform", "RG230", "notes", "none");
+        }
+
+        @JsonIgnore
+        public String getInternal() {
+            throw new AssertionError("ignored properties are never read");
+        }
+    }
+
+    private String write(String fields, Object value) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            JsonProjection.compile(fields).write(generator, value, objectMapper.getSerializerProviderInstance());
+        }
+        return json.toString();
+    }
+
+    @Test
+    void testWrite_OnlySelectedFieldsOfEveryElement() throws IOException {
+        // Arrange
+        List<Experiment> experiments = List.of(
+                new Experiment("liver", List.of(new Probe("p1", 1.0, 2.0))),
+                new Experiment("kidney", null));
+
+        // Act & Assert
+        assertEquals("[{\"name\":\"liver\"},{\"name\":\"kidney\"}]", write("name", experiments));
+        assertEquals("[{\"probes\":[{\"id\":\"p1\"}]},{\"probes\":null}]", write("probes/id", experiments));
+        assertEquals("{\"name\":\"liver\",\"probes\":[{\"id\":\"p1\",\"responses\":[1.0,2.0]}]}",
+                write("name,probes", experiments.get(0)));
+    }
+
+    @Test
+    void testWrite_MapValuesSelectedByKey() throws IOException {
+        // Arrange
+        Experiment experiment = new Experiment("liver", List.of());
+
+        // Act & Assert
+        assertEquals("{\"info\":{\"platform\":\"RG230\"}}", write("info/platform", experiment));
+    }
+
+    @Test
+    void testWrite_UnknownAndIgnoredFieldsAreSkipped() throws IOException {
+        // Arrange
+        Experiment experiment = new Experiment("liver", List.of());
+
+        // Act & Assert
+        assertEquals("{\"name\":\"liver\"}", write("name,internal,missing", experiment));
+    }
+
+    @Test
+    void testCompile_CanonicalFormAndSharing() {
+        // Act
+        JsonProjection projection = JsonProjection.compile("probes/id, name, probes/responses");
+
+        // Assert
+        assertEquals("name,probes(id,responses)", projection.toString());
+        assertEquals(projection, JsonProjection.compile("name,probes(responses,id)"));
+        assertSame(projection, JsonProjection.compile("probes/id, name, probes/responses"));
+        assertEquals("probes", JsonProjection.compile("probes/id,probes").toString());
+        assertNull(JsonProjection.compile(" "));
+        assertNull(JsonProjection.compile(null));
+    }
+
+    @Test
+    void testCompile_MalformedProjection() {
+        // Act & Assert
+        for (String fields : List.of("probes(id", "name,,id", "probes/", "(name)", "name)")) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> JsonProjection.compile(fields), fields);
+            assertTrue(e.getMessage().startsWith("Invalid fields projection"), e.getMessage());
+        }
+    }
+}
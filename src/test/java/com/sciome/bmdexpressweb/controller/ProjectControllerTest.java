@@ -1,11 +1,18 @@
 package com.sciome.bmdexpressweb.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpressweb.dto.ProjectLoadResponse;
 import com.sciome.bmdexpressweb.dto.ProjectUploadResponse;
 import com.sciome.bmdexpressweb.service.BmdResultsService;
 import com.sciome.bmdexpressweb.service.CategoryResultsService;
+import com.sciome.bmdexpressweb.service.ColumnarTableCodec;
+import com.sciome.bmdexpressweb.service.GeneLevelService;
 import com.sciome.bmdexpressweb.service.ProjectService;
+import com.sciome.bmdexpressweb.service.ResponseCache;
 import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResult;
+import com.sciome.bmdexpress2.mvp.model.category.CategoryAnalysisResults;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,16 +22,27 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -50,6 +68,12 @@ class ProjectControllerTest {
     @MockBean
     private CategoryResultsService categoryResultsService;
 
+    @MockBean
+    private GeneLevelService geneLevelService;
+
+    @MockBean
+    private ResponseCache responseCache;
+
     private BMDProject mockProject;
     private ProjectService.ProjectHolder mockHolder;
     private String testProjectId;
@@ -108,12 +132,18 @@ class ProjectControllerTest {
                 fileContent
         );
 
-        when(projectService.loadProject(any(), anyString())).thenReturn(testProjectId);
+        when(projectService.loadProjectAsync(any(), eq("test.bm2"), eq(true)))
+                .thenReturn(CompletableFuture.completedFuture(testProjectId));
         when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
 
-        // Act & Assert
-        mockMvc.perform(multipart("/api/projects")
+        // Act - the request thread is released while the project loads
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
                         .file(file))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.projectId").value(testProjectId))
                 .andExpect(jsonPath("$.name").value("Test Project"))
@@ -122,10 +152,91 @@ class ProjectControllerTest {
                 .andExpect(jsonPath("$.bmdResultNames[1]").value("BMD Analysis 2"))
                 .andExpect(jsonPath("$.categoryResultNames", hasSize(0)));
 
-        verify(projectService, times(1)).loadProject(any(), eq("test.bm2"));
+        verify(projectService, times(1)).loadProjectAsync(any(), eq("test.bm2"), eq(true));
+        verify(projectService, never()).loadProject(any(), anyString());
         verify(projectService, times(1)).getProjectHolder(testProjectId);
     }
 
+    @Test
+    void testUploadProject_RespondAsyncReturnsAccepted() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.bm2",
+                "application/octet-stream",
+                serializeProject(mockProject)
+        );
+
+        ProjectLoadResponse load = new ProjectLoadResponse("load-1", "test.bm2", "PENDING");
+        when(projectService.submitLoad(any(), eq("test.bm2"), eq(true))).thenReturn(load);
+
+        // Act
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
+                        .file(file)
+                        .header("Prefer", "respond-async"))
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/projects/loads/load-1"))
+                .andExpect(jsonPath("$.loadId").value("load-1"))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+
+        verify(projectService, never()).loadProjectAsync(any(), anyString(), anyBoolean());
+    }
+
+    @Test
+    void testUploadProject_FailedLoadReturnsServerError() throws Exception {
+        // Arrange
+        MockMultipartFile file = new MockMultipartFile(
+                "file",
+                "test.bm2",
+                "application/octet-stream",
+                new byte[]{1, 2, 3}
+        );
+        when(projectService.loadProjectAsync(any(), eq("test.bm2"), eq(true)))
+                .thenReturn(CompletableFuture.failedFuture(new java.io.StreamCorruptedException("invalid stream header")));
+
+        // Act
+        MvcResult result = mockMvc.perform(multipart("/api/projects")
+                        .file(file))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.message").value("Failed to upload project: invalid stream header"));
+    }
+
+    @Test
+    void testGetLoad_Completed() throws Exception {
+        // Arrange
+        ProjectLoadResponse load = new ProjectLoadResponse("load-1", "test.bm2", "COMPLETED");
+        load.setProjectId(testProjectId);
+        load.setResultLocation("/api/projects/" + testProjectId);
+        when(projectService.getLoad("load-1")).thenReturn(load);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/loads/{loadId}", "load-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMPLETED"))
+                .andExpect(jsonPath("$.projectId").value(testProjectId))
+                .andExpect(jsonPath("$.resultLocation").value("/api/projects/" + testProjectId));
+    }
+
+    @Test
+    void testGetLoad_NotFound() throws Exception {
+        // Arrange
+        when(projectService.getLoad("missing"))
+                .thenThrow(new IllegalArgumentException("Load not found: missing"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/loads/{loadId}", "missing"))
+                .andExpect(status().isNotFound());
+    }
+
     // TODO: Add test for upload failure once GlobalExceptionHandler is implemented
     // Currently the controller throws RuntimeException which isn't caught without a global handler
 
@@ -189,8 +300,14 @@ class ProjectControllerTest {
         mockBmdResult.setName("BMD Analysis 1");
         when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1")).thenReturn(mockBmdResult);
 
-        // Act & Assert
-        mockMvc.perform(get("/api/projects/{projectId}/bmd-results/{resultName}", testProjectId, "BMD Analysis 1"))
+        // Act - the body is streamed asynchronously
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/bmd-results/{resultName}",
+                        testProjectId, "BMD Analysis 1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("BMD Analysis 1"));
 
@@ -208,6 +325,37 @@ class ProjectControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testGetGeneLevelSummary_Success() throws Exception {
+        // Arrange
+        BMDResult mockBmdResult = new BMDResult();
+        mockBmdResult.setName("BMD Analysis 1");
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Analysis 1")).thenReturn(mockBmdResult);
+        List<Map<String, Object>> rows = List.of(Map.of("row", List.of("1234", "Gene1", 2, 1.5)));
+        when(geneLevelService.getGeneLevelView(mockBmdResult)).thenReturn(new CategoryAnalysisTableView(
+                "BMD Analysis 1", List.of("Gene ID", "Gene Symbol", "Probe Count", "BMD Median"), rows));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/{projectId}/bmd-results/{resultName}/gene-level",
+                        testProjectId, "BMD Analysis 1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("BMD Analysis 1"))
+                .andExpect(jsonPath("$.categoryAnalsyisResults", hasSize(1)))
+                .andExpect(jsonPath("$.categoryAnalsyisResults[0].row[1]").value("Gene1"));
+    }
+
+    @Test
+    void testGetGeneLevelSummary_NotFound() throws Exception {
+        // Arrange
+        when(bmdResultsService.findBmdResult(anyString(), anyString()))
+                .thenThrow(new IllegalArgumentException("BMDResult not found"));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/{projectId}/bmd-results/{resultName}/gene-level", "test-id", "NonExistent"))
+                .andExpect(status().isNotFound());
+        verify(geneLevelService, never()).getGeneLevelView(any());
+    }
+
     @Test
     void testGetCategoryResults_Success() throws Exception {
         // Arrange
@@ -240,14 +388,51 @@ class ProjectControllerTest {
         // Arrange
         when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
 
-        // Act & Assert
-        mockMvc.perform(get("/api/projects/{projectId}/full", testProjectId))
+        // Act - the body is streamed asynchronously
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/full", testProjectId))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.name").value("Test Project"));
 
         verify(projectService, times(1)).getProjectHolder(testProjectId);
     }
 
+    @Test
+    void testGetFullProject_FieldsProjection() throws Exception {
+        // Arrange
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/full", testProjectId)
+                        .param("fields", "name,bMDResult/name"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert - only the selected subtree is written
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Test Project"))
+                .andExpect(jsonPath("$.bMDResult", hasSize(2)))
+                .andExpect(jsonPath("$.bMDResult[1].name").value("BMD Analysis 2"))
+                .andExpect(jsonPath("$.bMDResult[1].*", hasSize(1)))
+                .andExpect(jsonPath("$.doseResponseExperiments").doesNotExist())
+                .andExpect(jsonPath("$.categoryAnalysisResults").doesNotExist());
+    }
+
+    @Test
+    void testGetFullProject_InvalidFieldsReturnsBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/{projectId}/full", testProjectId)
+                        .param("fields", "bMDResult(name"))
+                .andExpect(status().isBadRequest());
+
+        verify(projectService, never()).getProjectHolder(anyString());
+    }
+
     @Test
     void testGetFullProject_NotFound() throws Exception {
         // Arrange
@@ -259,6 +444,195 @@ class ProjectControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void testGetCategoryResult_StreamsRows() throws Exception {
+        // Arrange
+        List<CategoryAnalysisResult> rows = new ArrayList<>();
+        for (int i = 0; i < StreamingJson.FLUSH_ROWS + 10; i++) {
+            CategoryAnalysisResult row = mock(CategoryAnalysisResult.class);
+            when(row.getRow()).thenReturn(List.<Object>of("GO:" + i, "Category " + i, i));
+            rows.add(row);
+        }
+        CategoryAnalysisResults categoryResult = mock(CategoryAnalysisResults.class);
+        when(categoryResult.getName()).thenReturn("GO Analysis 1");
+        when(categoryResult.getColumnHeader()).thenReturn(List.of("GO ID", "GO Term", "Genes"));
+        when(categoryResult.getCategoryAnalsyisResults()).thenReturn(rows);
+        mockProject.setCategoryAnalysisResults(new ArrayList<>(List.of(categoryResult)));
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}",
+                        testProjectId, "GO Analysis 1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert - same document as a CategoryAnalysisTableView
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("GO Analysis 1"))
+                .andExpect(jsonPath("$.columnHeader", hasSize(3)))
+                .andExpect(jsonPath("$.categoryAnalsyisResults", hasSize(StreamingJson.FLUSH_ROWS + 10)))
+                .andExpect(jsonPath("$.categoryAnalsyisResults[7].row[1]").value("Category 7"));
+        verify(categoryResult, times(1)).generateRowData();
+    }
+
+    @Test
+    void testGetCategoryResult_ColumnarWhenPreferred() throws Exception {
+        // Arrange
+        List<CategoryAnalysisResult> rows = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            CategoryAnalysisResult row = mock(CategoryAnalysisResult.class);
+            when(row.getRow()).thenReturn(List.<Object>of("GO:" + i, "Category " + i, i, 0.5 * i));
+            rows.add(row);
+        }
+        CategoryAnalysisResults categoryResult = mock(CategoryAnalysisResults.class);
+        when(categoryResult.getName()).thenReturn("GO Analysis 1");
+        when(categoryResult.getColumnHeader()).thenReturn(List.of("GO ID", "GO Term", "Genes", "BMD Mean"));
+        when(categoryResult.getCategoryAnalsyisResults()).thenReturn(rows);
+        mockProject.setCategoryAnalysisResults(new ArrayList<>(List.of(categoryResult)));
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}",
+                        testProjectId, "GO Analysis 1")
+                        .header("Accept", ColumnarTableCodec.MEDIA_TYPE_VALUE + ", application/json;q=0.5"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(ColumnarTableCodec.MEDIA_TYPE))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert - decodes to the JSON document's table
+        CategoryAnalysisTableView table = ColumnarTableCodec.read(new ByteArrayInputStream(body));
+        assertEquals("GO Analysis 1", table.getName());
+        assertEquals(List.of("GO ID", "GO Term", "Genes", "BMD Mean"), table.getColumnHeader());
+        assertEquals(List.of("GO:2", "Category 2", 2, 1.0), table.getCategoryAnalsyisResults().get(2).get("row"));
+    }
+
+    @Test
+    void testGetCategoryResult_ETagAndResponseCache() throws Exception {
+        // Arrange
+        CategoryAnalysisResult row = mock(CategoryAnalysisResult.class);
+        when(row.getRow()).thenReturn(List.<Object>of("GO:1", "Category 1", 1));
+        CategoryAnalysisResults categoryResult = mock(CategoryAnalysisResults.class);
+        when(categoryResult.getName()).thenReturn("GO Analysis 1");
+        when(categoryResult.getColumnHeader()).thenReturn(List.of("GO ID", "GO Term", "Genes"));
+        when(categoryResult.getCategoryAnalsyisResults()).thenReturn(List.of(row));
+        mockProject.setCategoryAnalysisResults(new ArrayList<>(List.of(categoryResult)));
+        ProjectService.ProjectHolder holder = new ProjectService.ProjectHolder(
+                testProjectId, mockProject, "test.bm2", LocalDateTime.now(), "content-hash");
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(holder);
+        when(responseCache.getMaxEntryBytes()).thenReturn(1 << 20);
+        String etag = ResponseCache.etag("content-hash", "category-results/GO Analysis 1", "json");
+
+        // Act - first view is produced, tagged and recorded
+        MvcResult first = mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}",
+                        testProjectId, "GO Analysis 1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        verify(responseCache).put(eq(etag), startsWith("application/json"), aryEq(body));
+
+        // Act & Assert - a revalidation costs nothing
+        mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}",
+                        testProjectId, "GO Analysis 1")
+                        .header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+
+        // Act & Assert - a cached body is sent compressed as stored
+        byte[] gzip = {31, -117, 8, 0};
+        when(responseCache.get(etag)).thenReturn(new ResponseCache.Body("application/json", body, gzip));
+        MvcResult cached = mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}",
+                        testProjectId, "GO Analysis 1")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(cached))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("ETag", ResponseCache.gzipEtag(etag)))
+                .andExpect(content().bytes(gzip));
+
+        // Rows were only generated for the first view
+        verify(categoryResult, times(1)).generateRowData();
+    }
+
+    @Test
+    void testExportCategoryResult_GzipCsvAttachment() throws Exception {
+        // Arrange
+        CategoryAnalysisResult row = mock(CategoryAnalysisResult.class);
+        when(row.getRow()).thenReturn(List.<Object>of("GO:1", "binding, protein", 3, 0.25));
+        CategoryAnalysisResults categoryResult = mock(CategoryAnalysisResults.class);
+        when(categoryResult.getName()).thenReturn("GO Analysis 1");
+        when(categoryResult.getColumnHeader()).thenReturn(List.of("GO ID", "GO Term", "Genes", "BMD Mean"));
+        when(categoryResult.getCategoryAnalsyisResults()).thenReturn(List.of(row));
+        mockProject.setCategoryAnalysisResults(new ArrayList<>(List.of(categoryResult)));
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}/export",
+                        testProjectId, "GO Analysis 1")
+                        .param("format", "csv")
+                        .param("gzip", "true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/gzip"))
+                .andExpect(header().string("Content-Disposition", containsString(".csv.gz")))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertEquals("GO ID,GO Term,Genes,BMD Mean\nGO:1,\"binding, protein\",3,0.25\n",
+                    new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testExportCategoryResult_UnsupportedFormat() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}/export",
+                        testProjectId, "GO Analysis 1")
+                        .param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testGetGeneLevelSummary_JsonByDefault() throws Exception {
+        // Arrange
+        BMDResult bmdResult = new BMDResult();
+        when(bmdResultsService.findBmdResult(testProjectId, "BMD Result 1")).thenReturn(bmdResult);
+        when(geneLevelService.getGeneLevelView(bmdResult)).thenReturn(new CategoryAnalysisTableView(
+                "BMD Result 1 (gene level)", List.of("Gene Symbol"), List.of(Map.of("row", List.of("Cyp1a1")))));
+
+        // Act & Assert - a wildcard never selects the columnar format
+        mockMvc.perform(get("/api/projects/{projectId}/bmd-results/{resultName}/gene-level",
+                        testProjectId, "BMD Result 1")
+                        .header("Accept", "*/*"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.categoryAnalsyisResults[0].row[0]").value("Cyp1a1"));
+    }
+
+    @Test
+    void testGetCategoryResult_NotFound() throws Exception {
+        // Arrange
+        when(projectService.getProjectHolder(testProjectId)).thenReturn(mockHolder);
+
+        // Act & Assert - no streaming for a missing result
+        mockMvc.perform(get("/api/projects/{projectId}/category-results/{resultName}", testProjectId, "Missing"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void testDeleteProject_Success() throws Exception {
         // Arrange
@@ -304,10 +678,14 @@ class ProjectControllerTest {
                 java.util.Map.of("filename", "../etc/passwd")
         );
 
-        // Act & Assert
-        mockMvc.perform(post("/api/projects/load-from-file")
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/projects/load-from-file")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isForbidden())
                 .andExpect(jsonPath("$.message").value("Invalid filename"));
     }
@@ -319,10 +697,14 @@ class ProjectControllerTest {
                 java.util.Map.of("filename", "")
         );
 
-        // Act & Assert
-        mockMvc.perform(post("/api/projects/load-from-file")
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/projects/load-from-file")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("No filename provided"));
     }
@@ -332,10 +714,14 @@ class ProjectControllerTest {
         // Arrange
         String requestBody = "{}";
 
-        // Act & Assert
-        mockMvc.perform(post("/api/projects/load-from-file")
+        // Act
+        MvcResult result = mockMvc.perform(post("/api/projects/load-from-file")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(requestBody))
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.message").value("No filename provided"));
     }
@@ -0,0 +1,48 @@
+package com.sciome.bmdexpressweb.controller;
+
+import com.sciome.bmdexpressweb.dto.SchedulerStatsResponse;
+import com.sciome.bmdexpressweb.service.AnalysisScheduler;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Controller tests for SchedulerController
+ */
+@WebMvcTest(SchedulerController.class)
+class SchedulerControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AnalysisScheduler scheduler;
+
+    @Test
+    void testGetStats_Success() throws Exception {
+        // Arrange
+        SchedulerStatsResponse stats = new SchedulerStatsResponse();
+        stats.setWorkerThreads(4);
+        stats.setQueueDepth(Map.of("INTERACTIVE", 0, "BATCH", 12));
+        stats.setWaitTimes(Map.of("INTERACTIVE",
+                new SchedulerStatsResponse.WaitTimePercentiles(10, 0.5, 1.0, 2.0, 2.5)));
+        when(scheduler.getStats()).thenReturn(stats);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/scheduler/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.workerThreads").value(4))
+                .andExpect(jsonPath("$.queueDepth.BATCH").value(12))
+                .andExpect(jsonPath("$.waitTimes.INTERACTIVE.p99Millis").value(2.0));
+
+        verify(scheduler, times(1)).getStats();
+    }
+}
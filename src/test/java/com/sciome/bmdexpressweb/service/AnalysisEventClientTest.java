@@ -0,0 +1,191 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnalysisEventClient
+ */
+class AnalysisEventClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService serverThreads = Executors.newCachedThreadPool();
+    private HttpServer server;
+
+    @AfterEach
+    void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+        serverThreads.shutdownNow();
+    }
+
+    private AnalysisEventClient start(HttpHandler handler) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/category-analysis/", handler);
+        server.setExecutor(serverThreads);
+        server.start();
+        return new AnalysisEventClient(HttpClient.newHttpClient(),
+                "http://127.0.0.1:" + server.getAddress().getPort(), objectMapper);
+    }
+
+    private static void send(HttpExchange exchange, String events) throws IOException {
+        OutputStream out = exchange.getResponseBody();
+        out.write(events.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private Map<String, Object> parse(String stream, AnalysisEventClient.EventStreamParser parser) throws IOException {
+        for (String line : stream.lines().toList()) {
+            Map<String, Object> complete = parser.accept(line);
+            if (complete != null) {
+                return complete;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testParser_ReturnsFinalEvent() throws Exception {
+        // Arrange - initial state, heartbeat, progress and the final event
+        String stream = """
+                id:1-0
+                event:progress
+                retry:2000
+                data:{"analysisId":"a-1","status":"PENDING"}
+
+                :heartbeat
+
+                id:2-40
+                event:progress
+                data:{"analysisId":"a-1","status":"RUNNING","progress":40.0}
+
+                id:3-100
+                event:complete
+                data:{"analysisId":"a-1","status":"COMPLETED",
+                data:"resultLocation":"/api/category-analysis/a-1"}
+
+                """;
+        AnalysisEventClient.EventStreamParser parser = new AnalysisEventClient.EventStreamParser(objectMapper);
+
+        // Act
+        Map<String, Object> complete = parse(stream, parser);
+
+        // Assert
+        assertNotNull(complete);
+        assertEquals("COMPLETED", complete.get("status"));
+        assertEquals("/api/category-analysis/a-1", complete.get("resultLocation"));
+        assertEquals("3-100", parser.getLastEventId());
+    }
+
+    @Test
+    void testParser_StreamClosedBeforeCompletion() throws Exception {
+        // Arrange - the server timed the stream out while the analysis was running
+        String stream = """
+                id: 2-40
+                event: progress
+                data: {"analysisId":"a-1","status":"RUNNING"}
+
+                """;
+        AnalysisEventClient.EventStreamParser parser = new AnalysisEventClient.EventStreamParser(objectMapper);
+
+        // Act
+        Map<String, Object> complete = parse(stream, parser);
+
+        // Assert - the client reconnects from the last event seen
+        assertNull(complete);
+        assertEquals("2-40", parser.getLastEventId());
+    }
+
+    @Test
+    void testFollow_ReconnectsFromLastEvent() throws Exception {
+        // Arrange - the first stream ends before the analysis completes
+        List<String> lastEventIds = new CopyOnWriteArrayList<>();
+        AnalysisEventClient client = start(exchange -> {
+            String lastEventId = exchange.getRequestHeaders().getFirst("Last-Event-ID");
+            lastEventIds.add(String.valueOf(lastEventId));
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            if (lastEventId == null) {
+                send(exchange, "id:2-40\nevent:progress\ndata:{\"status\":\"RUNNING\"}\n\n");
+            } else {
+                send(exchange, "id:3-100\nevent:complete\ndata:{\"status\":\"COMPLETED\"}\n\n");
+            }
+            exchange.close();
+        });
+
+        // Act
+        Map<String, Object> complete = client.follow("a-1").get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("COMPLETED", complete.get("status"));
+        assertEquals(List.of("null", "2-40"), lastEventIds);
+    }
+
+    @Test
+    void testFollow_AnalysisNotFound() throws Exception {
+        // Arrange
+        AnalysisEventClient client = start(exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+
+        // Act & Assert
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> client.follow("missing").get(5, TimeUnit.SECONDS));
+        assertEquals("Analysis not found: missing", e.getCause().getMessage());
+    }
+
+    @Test
+    void testFollow_CancelClosesStream() throws Exception {
+        // Arrange - a stream that stays open with heartbeats until the client goes away
+        CountDownLatch opened = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        AnalysisEventClient client = start(exchange -> {
+            exchange.sendResponseHeaders(200, 0);
+            try {
+                send(exchange, "id:1-0\nevent:progress\ndata:{\"status\":\"RUNNING\"}\n\n");
+                opened.countDown();
+                for (int i = 0; i < 500; i++) {
+                    Thread.sleep(20);
+                    send(exchange, ":heartbeat\n\n");
+                }
+            } catch (IOException e) {
+                closed.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        });
+        CompletableFuture<Map<String, Object>> follow = client.follow("a-1");
+        assertTrue(opened.await(5, TimeUnit.SECONDS));
+
+        // Act
+        follow.cancel(false);
+
+        // Assert
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,149 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.AnalysisProgressEvent;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnalysisEventService
+ */
+class AnalysisEventServiceTest {
+
+    private AnalysisScheduler scheduler;
+    private CategoryAnalysisAsyncService analysisService;
+    private AnalysisEventService eventService;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AnalysisScheduler(2, Map.of());
+        analysisService = new CategoryAnalysisAsyncService(
+                new ProbeFilterService(), new ExpressionMatrixService(), scheduler);
+        eventService = new AnalysisEventService(analysisService, Duration.ofMillis(20),
+                Duration.ofSeconds(15), Duration.ofMinutes(1), Duration.ofSeconds(2));
+    }
+
+    @AfterEach
+    void tearDown() {
+        eventService.shutdown();
+        scheduler.shutdown();
+    }
+
+    /**
+     * Emitter that records the events sent to it
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> eventNames = new ArrayList<>();
+        private final List<AnalysisProgressEvent> events = new ArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public synchronized void send(SseEventBuilder builder) {
+            for (ResponseBodyEmitter.DataWithMediaType part : builder.build()) {
+                Object data = part.getData();
+                if (data instanceof AnalysisProgressEvent event) {
+                    events.add(event);
+                } else if (data instanceof String text) {
+                    for (String line : text.split("\n")) {
+                        if (line.startsWith("event:")) {
+                            eventNames.add(line.substring("event:".length()));
+                        }
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            super.complete();
+            completed.countDown();
+        }
+    }
+
+    private String submitAnalysis() {
+        BMDResult bmdResult = new BMDResult();
+        bmdResult.setName("BMD Analysis 1");
+        return analysisService.runCategoryAnalysisAsync("project-1", bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, new CategoryAnalysisParametersDto()).join();
+    }
+
+    @Test
+    void testSubscribe_QueuedJobStreamsProgressThenComplete() throws Exception {
+        // Arrange - both workers busy, so the analysis stays queued
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit("blocker", "other", AnalysisScheduler.Priority.INTERACTIVE, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        String analysisId = submitAnalysis();
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        // Act
+        eventService.subscribe(analysisId, null, emitter);
+        Thread.sleep(50);
+        release.countDown();
+
+        // Assert
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        synchronized (emitter) {
+            assertEquals(AnalysisEventService.PROGRESS_EVENT, emitter.eventNames.get(0));
+            assertEquals("QUEUED", emitter.events.get(0).getStage());
+            assertEquals(AnalysisEventService.COMPLETE_EVENT, emitter.eventNames.get(emitter.eventNames.size() - 1));
+            AnalysisProgressEvent last = emitter.events.get(emitter.events.size() - 1);
+            assertEquals("COMPLETED", last.getStatus());
+            assertEquals(100.0, last.getProgress(), 1e-12);
+            assertEquals("/api/category-analysis/" + analysisId, last.getResultLocation());
+        }
+        assertEquals(0, eventService.getSubscriberCount());
+    }
+
+    @Test
+    void testSubscribe_ReconnectWithCurrentEventIdOnlyCloses() throws Exception {
+        // Arrange - wait for both changes (started, completed) to be reported
+        String analysisId = submitAnalysis();
+        CategoryAnalysisAsyncService.AnalysisJobResult job = analysisService.getAnalysisResult(analysisId);
+        for (int i = 0; i < 500 && job.getVersion() < 2; i++) {
+            Thread.sleep(10);
+        }
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        // Act
+        eventService.subscribe(analysisId, AnalysisEventService.eventId(job), emitter);
+
+        // Assert
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        synchronized (emitter) {
+            assertTrue(emitter.events.isEmpty());
+        }
+    }
+
+    @Test
+    void testSubscribe_NotFound() {
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> eventService.subscribe("missing", null));
+        assertTrue(e.getMessage().contains("not found"));
+    }
+}
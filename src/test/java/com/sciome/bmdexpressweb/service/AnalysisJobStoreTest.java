@@ -0,0 +1,156 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnalysisJobStore
+ */
+class AnalysisJobStoreTest {
+
+    @TempDir
+    Path jobDir;
+
+    /**
+     * Helper method to create a finished job with a one-row table view
+     */
+    private CategoryAnalysisAsyncService.AnalysisJobResult createJob(String analysisId, LocalDateTime completedAt) {
+        CategoryAnalysisAsyncService.AnalysisJobResult job = new CategoryAnalysisAsyncService.AnalysisJobResult(analysisId);
+        job.setAnalysisType(CategoryAnalysisEnum.GENE_LEVEL);
+        job.setSubmittedAt(completedAt.minusSeconds(5));
+        job.setCompletedAt(completedAt);
+        job.setStatus("COMPLETED");
+        Map<String, Object> row = new HashMap<>();
+        row.put("row", new ArrayList<>(List.of("gene-" + analysisId, 3, 1.5)));
+        job.setTableView(new CategoryAnalysisTableView(analysisId, List.of("ID", "Count", "BMD"),
+                new ArrayList<>(List.of(row))));
+        return job;
+    }
+
+    @Test
+    void testFinished_SpillsResultsAndReloadsAfterRestart() {
+        // Arrange
+        AnalysisJobStore store = new AnalysisJobStore(jobDir, Duration.ofHours(1), 0, 0, 1);
+        CategoryAnalysisAsyncService.AnalysisJobResult first = createJob("a-1", LocalDateTime.now());
+        CategoryAnalysisAsyncService.AnalysisJobResult second = createJob("a-2", LocalDateTime.now());
+        store.putBatch("batch-1", List.of(first, second));
+
+        // Act
+        store.finished(first);
+        store.finished(second);
+        AnalysisJobStore reloaded = new AnalysisJobStore(jobDir, Duration.ofHours(1), 0, 0, 1);
+
+        // Assert - results come back from disk, in batch order
+        assertTrue(Files.exists(jobDir.resolve("a-1.job.gz")));
+        assertTrue(store.getDiskBytes() > 0);
+        assertEquals("gene-a-1", ((List<?>) first.getTableView().getCategoryAnalsyisResults().get(0).get("row")).get(0));
+
+        assertEquals(2, reloaded.size());
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> batch = reloaded.getBatch("batch-1");
+        assertEquals(List.of("a-1", "a-2"), batch.stream().map(CategoryAnalysisAsyncService.AnalysisJobResult::getAnalysisId).toList());
+        CategoryAnalysisAsyncService.AnalysisJobResult job = reloaded.get("a-2");
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals(CategoryAnalysisEnum.GENE_LEVEL, job.getAnalysisType());
+        assertEquals("a-2", job.getTableView().getName());
+        assertEquals(store.getDiskBytes(), reloaded.getDiskBytes());
+    }
+
+    @Test
+    void testFinished_EvictsOldestBeyondJobLimit() {
+        // Arrange
+        AnalysisJobStore store = new AnalysisJobStore(jobDir, Duration.ZERO, 2, 0, 1);
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            jobs.add(createJob("a-" + i, LocalDateTime.now()));
+        }
+        store.putBatch("batch-1", jobs.subList(0, 1));
+        jobs.subList(1, 3).forEach(store::put);
+
+        // Act
+        jobs.forEach(store::finished);
+
+        // Assert - the oldest job, its file and its now-empty batch are gone
+        assertNull(store.get("a-0"));
+        assertNull(store.getBatch("batch-1"));
+        assertFalse(Files.exists(jobDir.resolve("a-0.job.gz")));
+        assertNotNull(store.get("a-1"));
+        assertNotNull(store.get("a-2").getTableView());
+    }
+
+    @Test
+    void testFinished_EvictedJobReleasedUnderItsLock() throws Exception {
+        // Arrange
+        AnalysisJobStore store = new AnalysisJobStore(jobDir, Duration.ZERO, 1, 0, 1);
+        CategoryAnalysisAsyncService.AnalysisJobResult oldest = createJob("a-0", LocalDateTime.now());
+        CategoryAnalysisAsyncService.AnalysisJobResult newest = createJob("a-1", LocalDateTime.now());
+        store.put(oldest);
+        store.put(newest);
+        store.finished(oldest);
+
+        // Act - evict the oldest job while a reader holds it
+        Thread finisher = new Thread(() -> store.finished(newest));
+        synchronized (oldest) {
+            finisher.start();
+            while (finisher.getState() != Thread.State.BLOCKED && finisher.isAlive()) {
+                Thread.sleep(1);
+            }
+
+            // Assert - the store has let go of the job, but waits to release it
+            assertEquals(Thread.State.BLOCKED, finisher.getState());
+            assertNull(store.get("a-0"));
+        }
+        finisher.join(5_000);
+        assertFalse(finisher.isAlive());
+        assertNull(oldest.getTableView());
+    }
+
+    @Test
+    void testGet_ExpiredJobIsRemoved() {
+        // Arrange
+        AnalysisJobStore store = new AnalysisJobStore(jobDir, Duration.ofHours(1), 0, 0, 1);
+        CategoryAnalysisAsyncService.AnalysisJobResult old = createJob("old", LocalDateTime.now().minusHours(2));
+        CategoryAnalysisAsyncService.AnalysisJobResult running = new CategoryAnalysisAsyncService.AnalysisJobResult("running");
+        store.put(old);
+        store.put(running);
+
+        // Act
+        store.finished(old);
+
+        // Assert - finished jobs expire, pending ones do not
+        assertNull(store.get("old"));
+        assertFalse(Files.exists(jobDir.resolve("old.job.gz")));
+        assertSame(running, store.get("running"));
+        assertEquals(0, store.getDiskBytes());
+    }
+
+    @Test
+    void testRemove_DeletesFile() {
+        // Arrange
+        AnalysisJobStore store = new AnalysisJobStore(jobDir, Duration.ZERO, 0, 0, 1);
+        CategoryAnalysisAsyncService.AnalysisJobResult job = createJob("a-1", LocalDateTime.now());
+        store.put(job);
+        store.finished(job);
+
+        // Act
+        store.remove("a-1");
+
+        // Assert
+        assertNull(store.get("a-1"));
+        assertFalse(Files.exists(jobDir.resolve("a-1.job.gz")));
+        assertEquals(0, store.getDiskBytes());
+        assertEquals(0, new AnalysisJobStore(jobDir, Duration.ZERO, 0, 0, 1).size());
+    }
+}
@@ -0,0 +1,128 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.SchedulerStatsResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AnalysisScheduler
+ */
+class AnalysisSchedulerTest {
+
+    private AnalysisScheduler scheduler;
+
+    @AfterEach
+    void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * Helper method to occupy a worker with a BATCH task until the latch is released
+     */
+    private CompletableFuture<Void> block(String owner, CountDownLatch release) {
+        return scheduler.submit("blocker", owner, AnalysisScheduler.Priority.BATCH, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    private void awaitRunning(int tasks) throws InterruptedException {
+        for (int i = 0; i < 500 && scheduler.getStats().getRunningTasks() < tasks; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(tasks, scheduler.getStats().getRunningTasks());
+    }
+
+    @Test
+    void testSubmit_InteractiveRunsWhileBatchSaturated() throws Exception {
+        // Arrange - 2 workers; batch work may only take one of them
+        scheduler = new AnalysisScheduler(2, Map.of());
+        CountDownLatch release = new CountDownLatch(1);
+        block("sweep", release);
+        CompletableFuture<Void> queuedBatch = block("sweep", release);
+        awaitRunning(1);
+
+        // Act
+        CompletableFuture<Void> interactive = scheduler.submit(AnalysisScheduler.CATEGORY_ANALYSIS, "other",
+                AnalysisScheduler.Priority.INTERACTIVE, () -> { });
+
+        // Assert
+        interactive.get(2, TimeUnit.SECONDS);
+        assertFalse(queuedBatch.isDone());
+        SchedulerStatsResponse stats = scheduler.getStats();
+        assertEquals(Integer.valueOf(1), stats.getQueueDepth().get("BATCH"));
+        assertEquals(1, stats.getWaitTimes().get("INTERACTIVE").getDispatched());
+        release.countDown();
+        queuedBatch.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testSubmit_OwnersServedRoundRobin() throws Exception {
+        // Arrange - one batch slot, held until every task is queued
+        scheduler = new AnalysisScheduler(2, Map.of());
+        CountDownLatch release = new CountDownLatch(1);
+        block("holder", release);
+        awaitRunning(1);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String name = "sweep-" + i;
+            tasks.add(scheduler.submit(AnalysisScheduler.CATEGORY_BATCH, "sweep",
+                    AnalysisScheduler.Priority.BATCH, () -> order.add(name)));
+        }
+        tasks.add(scheduler.submit(AnalysisScheduler.CATEGORY_BATCH, "single",
+                AnalysisScheduler.Priority.BATCH, () -> order.add("single")));
+
+        // Act
+        release.countDown();
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).get(2, TimeUnit.SECONDS);
+
+        // Assert - the single task does not wait behind the whole sweep
+        assertTrue(order.indexOf("single") <= 1, order.toString());
+    }
+
+    @Test
+    void testSubmit_TypeLimitIsRespected() throws Exception {
+        // Arrange
+        scheduler = new AnalysisScheduler(4, Map.of("blocker", 1));
+        CountDownLatch release = new CountDownLatch(1);
+        block("a", release);
+        CompletableFuture<Void> second = block("b", release);
+        awaitRunning(1);
+
+        // Act
+        CompletableFuture<Void> other = scheduler.submit(AnalysisScheduler.CATEGORY_ANALYSIS, "c",
+                AnalysisScheduler.Priority.BATCH, () -> { });
+
+        // Assert - other types still run while the limited type waits
+        other.get(2, TimeUnit.SECONDS);
+        assertFalse(second.isDone());
+        assertEquals(Integer.valueOf(1), scheduler.getStats().getRunningByType().get("blocker"));
+        release.countDown();
+        second.get(2, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testParseTypeLimits() {
+        // Act & Assert
+        assertEquals(Map.of("pipeline", 2, "category-batch", 3),
+                AnalysisScheduler.parseTypeLimits(" pipeline=2, category-batch = 3"));
+        assertTrue(AnalysisScheduler.parseTypeLimits("").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> AnalysisScheduler.parseTypeLimits("pipeline"));
+    }
+}
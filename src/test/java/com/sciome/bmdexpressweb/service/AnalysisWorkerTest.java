@@ -0,0 +1,180 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for running category analysis batches on a worker node, with an API
+ * node and a worker node sharing a queue directory in one JVM
+ */
+class AnalysisWorkerTest {
+
+    private static final String PROJECT_ID = "project-1";
+    private static final Duration POLL = Duration.ofMillis(20);
+
+    @TempDir
+    Path tempDir;
+
+    private AnalysisScheduler apiScheduler;
+    private AnalysisScheduler workerScheduler;
+    private AnalysisWorkQueue apiQueue;
+    private AnalysisWorkQueue workerQueue;
+    private CategoryAnalysisAsyncService apiService;
+    private AnalysisWorker worker;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        apiScheduler = new AnalysisScheduler(1, Map.of());
+        workerScheduler = new AnalysisScheduler(2, Map.of());
+        apiQueue = new AnalysisWorkQueue(AnalysisWorkQueue.Mode.API,
+                new FileLeaseQueue(tempDir, Duration.ofMillis(300), 3), POLL);
+        workerQueue = new AnalysisWorkQueue(AnalysisWorkQueue.Mode.WORKER,
+                new FileLeaseQueue(tempDir, Duration.ofMillis(300), 3), POLL);
+        apiService = new CategoryAnalysisAsyncService(new ProbeFilterService(), new ExpressionMatrixService(),
+                apiScheduler, new AnalysisJobStore(), apiQueue, Map.of());
+        CategoryAnalysisAsyncService workerService = new CategoryAnalysisAsyncService(new ProbeFilterService(),
+                new ExpressionMatrixService(), workerScheduler, new AnalysisJobStore(), workerQueue, Map.of());
+        worker = new AnalysisWorker(workerQueue, workerService, 1, POLL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.stop();
+        apiQueue.shutdown();
+        apiScheduler.shutdown();
+        workerScheduler.shutdown();
+    }
+
+    /**
+     * BMD result with 20 probes on 10 genes and fit p-values 0.00 .. 0.95;
+     * serializable, so it can be queued
+     */
+    private static BMDResult createBmdResult() {
+        BMDResult bmdResult = new TestBmdResult();
+        bmdResult.setName("BMD Analysis 1");
+        List<ProbeStatResult> results = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            results.add(new TestProbeStatResult(new Object[]{"probe_" + p, String.valueOf(p / 2), "Gene" + (p / 2),
+                    1.0 + p, p * 0.05}));
+        }
+        bmdResult.setProbeStatResults(results);
+        return bmdResult;
+    }
+
+    private static class TestBmdResult extends BMDResult {
+        @Override
+        public List<String> getColumnHeader() {
+            return List.of("Probe ID", "Entrez Gene IDs", "Genes Symbols", "Best BMD", "Best fitPValue");
+        }
+    }
+
+    private static class TestProbeStatResult extends ProbeStatResult {
+        private final Object[] cells;
+
+        TestProbeStatResult(Object[] cells) {
+            this.cells = cells;
+        }
+
+        @Override
+        public List<Object> getRow() {
+            return new ArrayList<>(Arrays.asList(cells));
+        }
+    }
+
+    private static CategoryAnalysisBatchRequest.Variant variant(String name, Double fitPValueCutoff) {
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(fitPValueCutoff);
+        return new CategoryAnalysisBatchRequest.Variant(name, parameters);
+    }
+
+    private List<CategoryAnalysisAsyncService.AnalysisJobResult> awaitBatch(String batchId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = apiService.getBatch(batchId);
+            if (jobs.stream().allMatch(job -> job.getCompletedAt() != null)) {
+                return jobs;
+            }
+            Thread.sleep(10);
+        }
+        fail("Batch did not complete");
+        return null;
+    }
+
+    @Test
+    void testSubmitBatch_ApiNodeQueuesBatchWithoutRunningIt() throws Exception {
+        // Act - no worker is running
+        String batchId = apiService.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null)));
+        Thread.sleep(100);
+
+        // Assert
+        assertEquals("PENDING", apiService.getBatch(batchId).get(0).getStatus());
+        assertEquals(FileLeaseQueue.State.PENDING, apiQueue.getQueue().state(batchId));
+    }
+
+    @Test
+    void testWorker_RunsQueuedBatchAndReportsResults() throws Exception {
+        // Arrange
+        worker.start();
+
+        // Act
+        String batchId = apiService.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null), variant("strict", 0.5)));
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = awaitBatch(batchId);
+
+        // Assert - same results as a local run
+        assertEquals("COMPLETED", jobs.get(0).getStatus());
+        assertEquals("all", jobs.get(0).getTableView().getName());
+        assertEquals(10, jobs.get(0).getTableView().getCategoryAnalsyisResults().size());
+        assertEquals(5, jobs.get(1).getTableView().getCategoryAnalsyisResults().size());
+        assertEquals(0.5, jobs.get(1).getParameters().getBmdPValueCutoff().doubleValue());
+        assertEquals(FileLeaseQueue.State.UNKNOWN, apiQueue.getQueue().state(batchId));
+    }
+
+    @Test
+    void testWorker_RetriesBatchOfDeadWorker() throws Exception {
+        // Arrange - a worker claims the batch and dies without renewing its lease
+        String batchId = apiService.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null)));
+        FileLeaseQueue.Lease dead = workerQueue.getQueue().claim();
+        assertEquals(batchId, dead.getTaskId());
+
+        // Act
+        worker.start();
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = awaitBatch(batchId);
+
+        // Assert
+        assertEquals("COMPLETED", jobs.get(0).getStatus());
+        assertEquals(10, jobs.get(0).getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testCancelAnalysis_RemovesQueuedBatch() throws Exception {
+        // Arrange
+        String batchId = apiService.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null)));
+        String analysisId = apiService.getBatch(batchId).get(0).getAnalysisId();
+
+        // Act
+        assertTrue(apiService.cancelAnalysis(analysisId));
+
+        // Assert
+        assertEquals("CANCELLED", apiService.getAnalysisResult(analysisId).getStatus());
+        assertEquals(FileLeaseQueue.State.UNKNOWN, apiQueue.getQueue().state(batchId));
+    }
+}
@@ -0,0 +1,495 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisBatchRequest;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisParametersDto;
+import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
+import com.sciome.bmdexpress2.mvp.model.stat.ProbeStatResult;
+import com.sciome.bmdexpress2.shared.CategoryAnalysisEnum;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CategoryAnalysisAsyncService batch analyses
+ */
+class CategoryAnalysisAsyncServiceTest {
+
+    private static final String PROJECT_ID = "project-1";
+
+    @TempDir
+    Path definitionsDir;
+
+    private AnalysisScheduler scheduler;
+    private CategoryDefinitionFiles definitionFiles;
+    private CategoryAnalysisAsyncService service;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new AnalysisScheduler(2, Map.of());
+        definitionFiles = new CategoryDefinitionFiles(definitionsDir);
+        service = new CategoryAnalysisAsyncService(new ProbeFilterService(), new ExpressionMatrixService(), scheduler,
+                new AnalysisJobStore(), new AnalysisWorkQueue(), Map.of(), definitionFiles);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    /**
+     * Helper method to create a BMD result with 20 probes on 10 genes and
+     * fit p-values 0.00 .. 0.95
+     */
+    private BMDResult createBmdResult() {
+        BMDResult bmdResult = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                return List.of("Probe ID", "Entrez Gene IDs", "Genes Symbols", "Best BMD", "Best fitPValue");
+            }
+        };
+        bmdResult.setName("BMD Analysis 1");
+        List<ProbeStatResult> results = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            Object[] cells = {"probe_" + p, String.valueOf(p / 2), "Gene" + (p / 2), 1.0 + p, p * 0.05};
+            results.add(new ProbeStatResult() {
+                @Override
+                public List<Object> getRow() {
+                    return new ArrayList<>(Arrays.asList(cells));
+                }
+            });
+        }
+        bmdResult.setProbeStatResults(results);
+        return bmdResult;
+    }
+
+    private static CategoryAnalysisBatchRequest.Variant variant(String name, Double fitPValueCutoff) {
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdPValueCutoff(fitPValueCutoff);
+        return new CategoryAnalysisBatchRequest.Variant(name, parameters);
+    }
+
+    private List<CategoryAnalysisAsyncService.AnalysisJobResult> awaitBatch(String batchId) throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = service.getBatch(batchId);
+            if (jobs.stream().allMatch(job -> job.getCompletedAt() != null)) {
+                return jobs;
+            }
+            Thread.sleep(10);
+        }
+        fail("Batch did not complete");
+        return null;
+    }
+
+    @Test
+    void testSubmitBatch_SeparateResultPerVariant() throws Exception {
+        // Act
+        String batchId = service.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null), variant("strict", 0.5)));
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = awaitBatch(batchId);
+
+        // Assert
+        assertEquals(2, jobs.size());
+        assertEquals("COMPLETED", jobs.get(0).getStatus());
+        assertEquals("all", jobs.get(0).getTableView().getName());
+        assertEquals(10, jobs.get(0).getTableView().getCategoryAnalsyisResults().size());
+        // Probes 10..19 pass a 0.5 cutoff => genes 5..9
+        assertEquals(5, jobs.get(1).getTableView().getCategoryAnalsyisResults().size());
+        assertSame(jobs.get(1), service.getAnalysisResult(jobs.get(1).getAnalysisId()));
+    }
+
+    @Test
+    void testSubmitBatch_DefaultVariantNames() throws Exception {
+        // Act
+        String batchId = service.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(new CategoryAnalysisBatchRequest.Variant()));
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = awaitBatch(batchId);
+
+        // Assert
+        assertEquals("BMD Analysis 1_GENE_LEVEL_1", jobs.get(0).getTableView().getName());
+    }
+
+    @Test
+    void testSubmitBatch_UnsupportedType() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.submitBatch(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.GO, List.of(variant("go", null))));
+    }
+
+    @Test
+    void testSubmitBatch_DefinedRequiresCategoryFile() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.submitBatch(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.DEFINED, List.of(variant("defined", null))));
+    }
+
+    @Test
+    void testGetBatch_NotFound() {
+        // Act & Assert
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> service.getBatch("missing"));
+        assertTrue(e.getMessage().contains("not found"));
+    }
+
+    @Test
+    void testUpdateParameters_RecomputesCompletedVariant() throws Exception {
+        // Arrange
+        String batchId = service.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("strict", 0.5)));
+        String analysisId = awaitBatch(batchId).get(0).getAnalysisId();
+        CategoryAnalysisParametersDto looser = new CategoryAnalysisParametersDto();
+        looser.setBmdPValueCutoff(0.3);
+
+        // Act
+        CategoryAnalysisAsyncService.AnalysisJobResult job = service.updateParameters(analysisId, looser);
+
+        // Assert - probes 6..19 pass a 0.3 cutoff => genes 3..9
+        assertEquals("strict", job.getTableView().getName());
+        assertEquals(7, job.getTableView().getCategoryAnalsyisResults().size());
+        assertEquals(0.3, job.getParameters().getBmdPValueCutoff(), 1e-12);
+    }
+
+    @Test
+    void testUpdateParameters_SingleAnalysisRecomputed() throws Exception {
+        // Arrange
+        String analysisId = service.runCategoryAnalysisAsync(PROJECT_ID, createBmdResult(),
+                CategoryAnalysisEnum.GENE_LEVEL, variant("strict", 0.5).getParameters()).join();
+        awaitAnalysis(analysisId);
+
+        // Act
+        CategoryAnalysisAsyncService.AnalysisJobResult job = service.updateParameters(analysisId,
+                variant("looser", 0.3).getParameters());
+
+        // Assert - probes 6..19 pass a 0.3 cutoff => genes 3..9
+        assertEquals(7, job.getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testUpdateParameters_OnlyRecentEnginesKept() throws Exception {
+        // Arrange - one more completed analysis than engines are kept for
+        List<String> analysisIds = new ArrayList<>();
+        for (int i = 0; i <= CategoryAnalysisAsyncService.MAX_ENGINES; i++) {
+            CategoryAnalysisParametersDto parameters = variant("v" + i, 0.01 * i).getParameters();
+            String analysisId = service.runCategoryAnalysisAsync(PROJECT_ID, createBmdResult(),
+                    CategoryAnalysisEnum.GENE_LEVEL, parameters).join();
+            assertEquals("COMPLETED", awaitAnalysis(analysisId).getStatus());
+            analysisIds.add(analysisId);
+        }
+        String oldest = analysisIds.get(0);
+        String newest = analysisIds.get(analysisIds.size() - 1);
+
+        // Act & Assert - the oldest analysis keeps its results but not its engine
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateParameters(oldest, variant("looser", 0.3).getParameters()));
+        assertNotNull(service.getAnalysisResult(oldest).getTableView());
+        assertNotNull(service.updateParameters(newest, variant("looser", 0.3).getParameters()).getTableView());
+    }
+
+    @Test
+    void testUpdateParameters_DeletedAnalysisRejected() throws Exception {
+        // Arrange
+        String analysisId = service.runCategoryAnalysisAsync(PROJECT_ID, createBmdResult(),
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        awaitAnalysis(analysisId);
+
+        // Act
+        assertFalse(service.cancelAnalysis(analysisId));
+
+        // Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateParameters(analysisId, new CategoryAnalysisParametersDto()));
+    }
+
+    @Test
+    void testUpdateParameters_CategoryFileChangeRejected() throws Exception {
+        // Arrange
+        String batchId = service.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null)));
+        String analysisId = awaitBatch(batchId).get(0).getAnalysisId();
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setCategoryFilePath("/tmp/other-categories.txt");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.updateParameters(analysisId, parameters));
+    }
+
+    @Test
+    void testCancelAnalysis_StopsPendingVariantAndFreesBatch() throws Exception {
+        // Arrange - the batch blocks while compiling probe filters until the variant is cancelled
+        CountDownLatch cancelled = new CountDownLatch(1);
+        BMDResult template = createBmdResult();
+        BMDResult blocking = new BMDResult() {
+            @Override
+            public List<String> getColumnHeader() {
+                try {
+                    cancelled.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return template.getColumnHeader();
+            }
+        };
+        blocking.setName("Blocking");
+        blocking.setProbeStatResults(template.getProbeStatResults());
+        String batchId = service.submitBatch(PROJECT_ID, blocking, CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("first", null), variant("second", null)));
+        String firstId = service.getBatch(batchId).get(0).getAnalysisId();
+
+        // Act
+        boolean wasRunning = service.cancelAnalysis(firstId);
+        cancelled.countDown();
+        List<CategoryAnalysisAsyncService.AnalysisJobResult> jobs = awaitBatch(batchId);
+
+        // Assert - the cancelled variant is skipped, the other one still runs
+        assertTrue(wasRunning);
+        assertEquals("CANCELLED", jobs.get(0).getStatus());
+        assertEquals("Cancelled by request", jobs.get(0).getErrorMessage());
+        assertNull(jobs.get(0).getTableView());
+        assertEquals("COMPLETED", jobs.get(1).getStatus());
+        assertEquals(10, jobs.get(1).getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testCancelAnalysis_DeletesFinishedAnalysis() throws Exception {
+        // Arrange
+        String batchId = service.submitBatch(PROJECT_ID, createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL,
+                List.of(variant("all", null)));
+        String analysisId = awaitBatch(batchId).get(0).getAnalysisId();
+
+        // Act
+        boolean wasRunning = service.cancelAnalysis(analysisId);
+
+        // Assert
+        assertFalse(wasRunning);
+        assertThrows(IllegalArgumentException.class, () -> service.getAnalysisResult(analysisId));
+        assertTrue(service.getBatch(batchId).isEmpty());
+    }
+
+    private CategoryAnalysisAsyncService.AnalysisJobResult awaitAnalysis(String analysisId) throws Exception {
+        return service.whenFinished(analysisId).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_GeneLevelComputedByEngine() throws Exception {
+        // Act
+        String analysisId = service.runCategoryAnalysisAsync(PROJECT_ID, createBmdResult(),
+                CategoryAnalysisEnum.GENE_LEVEL, variant("strict", 0.5).getParameters()).join();
+        CategoryAnalysisAsyncService.AnalysisJobResult job = awaitAnalysis(analysisId);
+
+        // Assert - probes 10..19 pass a 0.5 cutoff => genes 5..9
+        assertEquals("COMPLETED", job.getStatus());
+        assertEquals("BMD Analysis 1_GENE_LEVEL", job.getTableView().getName());
+        assertEquals(5, job.getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_GoAndPathwayNotAvailable() {
+        // Act & Assert - rejected before a job is created
+        assertThrows(AnalysisNotAvailableException.class, () -> service.runCategoryAnalysisAsync(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.GO, null));
+        assertThrows(AnalysisNotAvailableException.class, () -> service.runCategoryAnalysisAsync(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.PATHWAY, null));
+        assertThrows(IllegalArgumentException.class, () -> service.runCategoryAnalysisAsync(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.DEFINED, null));
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_IdenticalRequestReusesJob() {
+        // Arrange
+        BMDResult bmdResult = createBmdResult();
+        String key = AnalysisRequestKeys.of("content-hash", bmdResult.getName(), CategoryAnalysisEnum.GENE_LEVEL, null,
+                definitionFiles);
+        String otherKey = AnalysisRequestKeys.of("content-hash", bmdResult.getName(), CategoryAnalysisEnum.GENE_LEVEL,
+                variant("strict", 0.5).getParameters(), definitionFiles);
+
+        // Act
+        String first = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        String second = service.runCategoryAnalysisAsync("project-2", key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, new CategoryAnalysisParametersDto()).join();
+        String other = service.runCategoryAnalysisAsync(PROJECT_ID, otherKey, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, variant("strict", 0.5).getParameters()).join();
+
+        // Assert
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_CancelledRequestIsResubmitted() throws Exception {
+        // Arrange - both workers busy, so the first submission stays pending
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit("blocker", "other", AnalysisScheduler.Priority.INTERACTIVE, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        BMDResult bmdResult = createBmdResult();
+        String key = AnalysisRequestKeys.of("content-hash", bmdResult.getName(), CategoryAnalysisEnum.GENE_LEVEL, null,
+                definitionFiles);
+        String first = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+
+        // Act
+        service.cancelAnalysis(first);
+        String second = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        release.countDown();
+
+        // Assert
+        assertNotEquals(first, second);
+        assertEquals("CANCELLED", service.getAnalysisResult(first).getStatus());
+    }
+
+    @Test
+    void testCancelAnalysis_SharedJobOnlyStoppedByLastSubmitter() throws Exception {
+        // Arrange - both workers busy, so the shared submission stays pending
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.submit("blocker", "other", AnalysisScheduler.Priority.INTERACTIVE, () -> {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        BMDResult bmdResult = createBmdResult();
+        String key = AnalysisRequestKeys.of("content-hash", bmdResult.getName(), CategoryAnalysisEnum.GENE_LEVEL, null,
+                definitionFiles);
+        String first = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        String second = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        assertEquals(first, second);
+
+        // Act - the first submitter gives up, the second still waits for the result
+        boolean cancelled = service.cancelAnalysis(first);
+        release.countDown();
+        CategoryAnalysisAsyncService.AnalysisJobResult job = awaitAnalysis(second);
+
+        // Assert
+        assertFalse(cancelled);
+        assertEquals("COMPLETED", job.getStatus());
+
+        // The last submitter's delete removes it
+        assertFalse(service.cancelAnalysis(second));
+        assertThrows(IllegalArgumentException.class, () -> service.getAnalysisResult(second));
+    }
+
+    @Test
+    void testUpdateParameters_SharedAnalysisRejected() throws Exception {
+        // Arrange - a second identical request shares the completed analysis
+        BMDResult bmdResult = createBmdResult();
+        String key = AnalysisRequestKeys.of("content-hash", bmdResult.getName(), CategoryAnalysisEnum.GENE_LEVEL, null,
+                definitionFiles);
+        String first = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        awaitAnalysis(first);
+        String second = service.runCategoryAnalysisAsync(PROJECT_ID, key, bmdResult,
+                CategoryAnalysisEnum.GENE_LEVEL, null).join();
+        assertEquals(first, second);
+
+        // Act & Assert
+        assertTrue(service.getAnalysisResult(first).isShared());
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateParameters(first, variant("strict", 0.5).getParameters()));
+
+        // Once the other submitter has left, the analysis is theirs to update
+        assertFalse(service.cancelAnalysis(second));
+        assertFalse(service.getAnalysisResult(first).isShared());
+        assertEquals(5, service.updateParameters(first, variant("strict", 0.5).getParameters())
+                .getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_FilterWithoutColumnRejected() {
+        // Arrange - the BMD result has no R squared column
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setBmdRSquaredCutoff(0.5);
+
+        // Act & Assert - rejected before a job is created
+        assertThrows(IllegalArgumentException.class, () -> service.runCategoryAnalysisAsync(PROJECT_ID,
+                createBmdResult(), CategoryAnalysisEnum.GENE_LEVEL, parameters));
+        assertThrows(IllegalArgumentException.class, () -> service.submitBatch(PROJECT_ID, createBmdResult(),
+                CategoryAnalysisEnum.GENE_LEVEL, List.of(variant("all", null),
+                        new CategoryAnalysisBatchRequest.Variant("r2", parameters))));
+    }
+
+    private static CategoryAnalysisParametersDto definedParameters(String categoryFile) {
+        CategoryAnalysisParametersDto parameters = new CategoryAnalysisParametersDto();
+        parameters.setCategoryFilePath(categoryFile);
+        return parameters;
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_DefinedReadsFileFromDefinitionsDirectory() throws Exception {
+        // Arrange
+        Files.writeString(definitionsDir.resolve("categories.txt"), "C1\tFirst\t1;2\nC2\tSecond\t3\n");
+
+        // Act
+        String analysisId = service.runCategoryAnalysisAsync(PROJECT_ID, createBmdResult(),
+                CategoryAnalysisEnum.DEFINED, definedParameters("categories.txt")).join();
+        CategoryAnalysisAsyncService.AnalysisJobResult job = awaitAnalysis(analysisId);
+
+        // Assert
+        assertEquals("COMPLETED", job.getStatus(), job.getErrorMessage());
+        assertEquals(2, job.getTableView().getCategoryAnalsyisResults().size());
+    }
+
+    @Test
+    void testRunCategoryAnalysisAsync_DefinitionFileOutsideDirectoryRejected() throws Exception {
+        // Arrange - a readable file next to the definitions directory
+        Path outside = Files.writeString(definitionsDir.resolveSibling(definitionsDir.getFileName() + "-secret.txt"),
+                "C1\tFirst\t1\n");
+        try {
+            // Act & Assert - rejected before a job is created
+            for (String name : List.of(outside.toString(), "../" + outside.getFileName(), "..", "missing.txt")) {
+                assertThrows(IllegalArgumentException.class, () -> service.runCategoryAnalysisAsync(PROJECT_ID,
+                        createBmdResult(), CategoryAnalysisEnum.DEFINED, definedParameters(name)), name);
+                assertThrows(IllegalArgumentException.class, () -> service.submitBatch(PROJECT_ID,
+                        createBmdResult(), CategoryAnalysisEnum.DEFINED,
+                        List.of(new CategoryAnalysisBatchRequest.Variant("v", definedParameters(name)))), name);
+            }
+        } finally {
+            Files.delete(outside);
+        }
+    }
+
+    @Test
+    void testRequestKey_CoversDefinitionFileContent() throws Exception {
+        // Arrange
+        Path categoryFile = definitionsDir.resolve("categories.txt");
+        Files.writeString(categoryFile, "C1\tFirst\t1;2\n");
+        String before = AnalysisRequestKeys.of("content-hash", "BMD Analysis 1", CategoryAnalysisEnum.DEFINED,
+                definedParameters("categories.txt"), definitionFiles);
+
+        // Act - same size, same name
+        Files.writeString(categoryFile, "C1\tFirst\t3;4\n");
+        String after = AnalysisRequestKeys.of("content-hash", "BMD Analysis 1", CategoryAnalysisEnum.DEFINED,
+                definedParameters("categories.txt"), definitionFiles);
+
+        // Assert
+        assertNotEquals(before, after);
+    }
+}
@@ -0,0 +1,122 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sciome.bmdexpressweb.dto.CategoryAnalysisTableView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ColumnarTableCodec
+ */
+class ColumnarTableCodecTest {
+
+    private static List<Object> row(Object... cells) {
+        return Arrays.asList(cells);
+    }
+
+    private static List<Object> decodedRow(CategoryAnalysisTableView table, int index) {
+        @SuppressWarnings("unchecked")
+        List<Object> row = (List<Object>) table.getCategoryAnalsyisResults().get(index).get("row");
+        return row;
+    }
+
+    @Test
+    void testRoundTrip_KeepsValuesAndTypes() throws IOException {
+        // Arrange
+        List<String> header = List.of("GO ID", "Genes", "Probe Count", "BMD Mean", "Fisher's Exact", "Flags");
+        List<List<Object>> rows = List.of(
+                row("GO:0001", 12, 9_000_000_000L, 1.25, 0.01, "a"),
+                row("GO:0002", 3, 7L, null, 0.5f, 4),
+                row(null, -1, 0L, Double.NaN, 1, true));
+
+        // Act
+        CategoryAnalysisTableView table = ColumnarTableCodec.read(
+                new ByteArrayInputStream(ColumnarTableCodec.encode("GO Analysis", header, rows)));
+
+        // Assert
+        assertEquals("GO Analysis", table.getName());
+        assertEquals(header, table.getColumnHeader());
+        assertEquals(3, table.getCategoryAnalsyisResults().size());
+        assertEquals(row("GO:0001", 12, 9_000_000_000L, 1.25, 0.01, "a"), decodedRow(table, 0));
+        assertEquals(row("GO:0002", 3, 7L, null, 0.5, 4), decodedRow(table, 1));
+        // NaN stays a number, null stays null
+        List<Object> last = decodedRow(table, 2);
+        assertNull(last.get(0));
+        assertTrue(Double.isNaN((Double) last.get(3)));
+        assertEquals(1.0, last.get(4));
+        assertEquals(true, last.get(5));
+    }
+
+    @Test
+    void testRoundTrip_RaggedRowsPaddedWithNulls() throws IOException {
+        // Arrange
+        List<List<Object>> rows = new ArrayList<>();
+        rows.add(row("x", 1.5, "extra"));
+        rows.add(row("y"));
+        rows.add(null);
+
+        // Act
+        CategoryAnalysisTableView table = ColumnarTableCodec.read(
+                new ByteArrayInputStream(ColumnarTableCodec.encode("Ragged", List.of("A", "B"), rows)));
+
+        // Assert
+        assertEquals(Arrays.asList("A", "B", null), table.getColumnHeader());
+        assertEquals(row("x", 1.5, "extra"), decodedRow(table, 0));
+        assertEquals(row("y", null, null), decodedRow(table, 1));
+        assertEquals(row(null, null, null), decodedRow(table, 2));
+    }
+
+    @Test
+    void testEncode_TableViewSmallerThanJson() throws Exception {
+        // Arrange - a numeric heavy table like a BMD result
+        List<Map<String, Object>> rowData = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Map<String, Object> rowMap = new HashMap<>();
+            rowMap.put("row", row("probe_" + i, i, Math.PI * i, Math.E * i, 1.0 / (i + 1), Math.sqrt(i)));
+            rowData.add(rowMap);
+        }
+        CategoryAnalysisTableView view = new CategoryAnalysisTableView("BMD",
+                List.of("Probe ID", "Index", "BMD", "BMDL", "BMDU", "Fit P-Value"), rowData);
+
+        // Act
+        byte[] columnar = ColumnarTableCodec.encode(view);
+        byte[] json = new ObjectMapper().writeValueAsBytes(view);
+
+        // Assert
+        assertTrue(columnar.length < json.length * 2 / 3, columnar.length + " vs " + json.length);
+        assertEquals(rowData.get(1999).get("row"),
+                decodedRow(ColumnarTableCodec.read(new ByteArrayInputStream(columnar)), 1999));
+    }
+
+    @Test
+    void testRead_RejectsOtherCbor() {
+        // Arrange - an empty CBOR map
+        byte[] emptyMap = {(byte) 0xa0};
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> ColumnarTableCodec.read(new ByteArrayInputStream(emptyMap)));
+    }
+
+    @Test
+    void testIsRequested_OnlyWhenPreferredExplicitly() {
+        // Act & Assert
+        assertTrue(ColumnarTableCodec.isRequested(ColumnarTableCodec.MEDIA_TYPE_VALUE));
+        assertTrue(ColumnarTableCodec.isRequested(ColumnarTableCodec.MEDIA_TYPE_VALUE + ", application/json;q=0.5"));
+        assertFalse(ColumnarTableCodec.isRequested(null));
+        assertFalse(ColumnarTableCodec.isRequested("*/*"));
+        assertFalse(ColumnarTableCodec.isRequested("application/*"));
+        assertFalse(ColumnarTableCodec.isRequested("application/json"));
+        assertFalse(ColumnarTableCodec.isRequested("application/json, " + ColumnarTableCodec.MEDIA_TYPE_VALUE + ";q=0.5"));
+        assertFalse(ColumnarTableCodec.isRequested(ColumnarTableCodec.MEDIA_TYPE_VALUE + ";q=0"));
+        assertFalse(ColumnarTableCodec.isRequested("not a media type"));
+    }
+}
@@ -0,0 +1,155 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConsistentHashRing and ClusterMembership
+ */
+class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://node-a:8080", "http://node-b:8080", "http://node-c:8080");
+
+    private static List<String> keys(int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            keys.add(UUID.randomUUID().toString());
+        }
+        return keys;
+    }
+
+    @Test
+    void testOwnerOf_SameOwnerWhateverTheNodeOrder() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        ConsistentHashRing reordered = new ConsistentHashRing(List.of(NODES.get(2), NODES.get(0), NODES.get(1)), 128);
+
+        // Act & Assert
+        for (String key : keys(1000)) {
+            assertEquals(ring.ownerOf(key), reordered.ownerOf(key));
+        }
+    }
+
+    @Test
+    void testOwnerOf_KeysSpreadEvenly() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // Act
+        for (String key : keys(30000)) {
+            counts.merge(ring.ownerOf(key), 1, Integer::sum);
+        }
+
+        // Assert - each node gets its third within 25%
+        assertEquals(3, counts.size());
+        for (int count : counts.values()) {
+            assertTrue(count > 7500 && count < 12500, "Uneven spread: " + counts);
+        }
+    }
+
+    @Test
+    void testOwnerOf_AddingNodeMovesOnlyItsShare() {
+        // Arrange
+        ConsistentHashRing before = new ConsistentHashRing(NODES, 128);
+        List<String> grown = new ArrayList<>(NODES);
+        grown.add("http://node-d:8080");
+        ConsistentHashRing after = new ConsistentHashRing(grown, 128);
+        List<String> keys = keys(20000);
+
+        // Act
+        int moved = 0;
+        for (String key : keys) {
+            if (!before.ownerOf(key).equals(after.ownerOf(key))) {
+                // Keys only move to the new node
+                assertEquals("http://node-d:8080", after.ownerOf(key));
+                moved++;
+            }
+        }
+
+        // Assert - about a quarter of the keys move
+        assertTrue(moved > keys.size() / 8 && moved < keys.size() * 3 / 8, "Moved " + moved);
+    }
+
+    @Test
+    void testOthersFor_AllOtherNodesOnce() {
+        // Arrange
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+
+        // Act
+        List<String> others = ring.othersFor("some-project", NODES.get(0));
+
+        // Assert
+        assertEquals(2, others.size());
+        assertTrue(others.containsAll(NODES.subList(1, 3)));
+    }
+
+    @Test
+    void testNewLocalId_OwnedBySelf() {
+        // Arrange
+        ClusterMembership membership = new ClusterMembership(NODES, "http://node-c:8080/", "secret", 128);
+
+        // Act & Assert
+        assertTrue(membership.isEnabled());
+        for (int i = 0; i < 100; i++) {
+            String id = membership.newLocalId();
+            assertTrue(membership.isLocal(id));
+            assertEquals("http://node-c:8080", membership.ownerOf(id));
+        }
+        assertEquals(List.of("http://node-a:8080", "http://node-b:8080"),
+                membership.peersFor("x").stream().sorted().toList());
+    }
+
+    @Test
+    void testClusterMembership_SingleNodeOwnsEverything() {
+        // Arrange
+        ClusterMembership membership = new ClusterMembership();
+
+        // Act & Assert
+        assertFalse(membership.isEnabled());
+        assertTrue(membership.isLocal(UUID.randomUUID().toString()));
+        assertTrue(membership.peersFor("x").isEmpty());
+    }
+
+    @Test
+    void testClusterMembership_SelfNotAMember() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> new ClusterMembership(NODES, "http://node-z:8080", "secret", 128));
+    }
+
+    @Test
+    void testClusterMembership_TrustsOnlyTheSharedSecret() {
+        // Arrange
+        ClusterMembership membership = new ClusterMembership(NODES, NODES.get(0), "secret", 128);
+
+        // Act & Assert
+        assertTrue(membership.isTrusted("secret"));
+        assertFalse(membership.isTrusted("guess"));
+        assertFalse(membership.isTrusted(null));
+    }
+
+    @Test
+    void testClusterMembership_SecretRequiredForSeveralNodes() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ClusterMembership(NODES, NODES.get(0), "", 128));
+        assertThrows(IllegalArgumentException.class, () -> new ClusterMembership(NODES, NODES.get(0), "  ", 128));
+    }
+
+    @Test
+    void testClusterMembership_NothingTrustedWithoutSecret() {
+        // Arrange
+        ClusterMembership membership = new ClusterMembership();
+
+        // Act & Assert
+        assertFalse(membership.isTrusted(""));
+        assertFalse(membership.isTrusted(null));
+    }
+}
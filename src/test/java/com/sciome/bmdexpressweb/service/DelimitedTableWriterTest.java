@@ -0,0 +1,95 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DelimitedTableWriter
+ */
+class DelimitedTableWriterTest {
+
+    private static String write(DelimitedTableWriter.Format format, List<?>... rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DelimitedTableWriter writer = new DelimitedTableWriter(out, format);
+        for (List<?> row : rows) {
+            writer.writeRow(row);
+        }
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testWriteRow_TsvReplacesSeparatorsInCells() throws IOException {
+        // Act
+        String tsv = write(DelimitedTableWriter.Format.TSV,
+                List.of("Category ID", "Description"),
+                List.of("GO:0001", "a\tb\nc"),
+                Arrays.asList("GO:0002", null));
+
+        // Assert
+        assertEquals("Category ID\tDescription\nGO:0001\ta b c\nGO:0002\t\n", tsv);
+    }
+
+    @Test
+    void testWriteRow_CsvQuotesOnlyWhenNeeded() throws IOException {
+        // Act
+        String csv = write(DelimitedTableWriter.Format.CSV,
+                List.of("plain", "a,b", "say \"hi\"", "two\nlines"));
+
+        // Assert
+        assertEquals("plain,\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\"\n", csv);
+    }
+
+    @Test
+    void testWriteRow_NumbersFormattedLikeToString() throws IOException {
+        // Act
+        String tsv = write(DelimitedTableWriter.Format.TSV,
+                List.of(0.5, 1.0E-7, Double.NaN, 0.1f, 42, 9_000_000_000L));
+
+        // Assert
+        assertEquals("0.5\t1.0E-7\tNaN\t0.1\t42\t9000000000\n", tsv);
+    }
+
+    @Test
+    void testWriteRow_EncodesUtf8IncludingSurrogatePairs() throws IOException {
+        // Arrange
+        String text = "\u00e9 \u03b2 \u4e2d \uD83E\uDDEC";
+
+        // Act
+        String tsv = write(DelimitedTableWriter.Format.TSV, List.of(text, "\uD800x"));
+
+        // Assert
+        assertEquals(text + "\t?x\n", tsv);
+    }
+
+    @Test
+    void testWriteRow_OutputLargerThanBuffer() throws IOException {
+        // Arrange
+        String cell = "\u4e2d".repeat(1000);
+        List<?>[] rows = new List<?>[100];
+        Arrays.fill(rows, List.of(cell, 1.5));
+
+        // Act
+        String tsv = write(DelimitedTableWriter.Format.TSV, rows);
+
+        // Assert
+        assertEquals((cell + "\t1.5\n").repeat(100), tsv);
+    }
+
+    @Test
+    void testFormatOf() {
+        // Act & Assert
+        assertEquals(DelimitedTableWriter.Format.TSV, DelimitedTableWriter.Format.of("tsv"));
+        assertEquals(DelimitedTableWriter.Format.CSV, DelimitedTableWriter.Format.of("CSV"));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> DelimitedTableWriter.Format.of("xlsx"));
+        assertTrue(e.getMessage().contains("xlsx"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.sciome.bmdexpressweb.service;
+
+import com.sciome.bmdexpressweb.analysis.ExpressionMatrix;
+import com.sciome.bmdexpressweb.dto.ExpressionImportResponse;
+import com.sciome.bmdexpress2.mvp.model.BMDProject;
+import com.sciome.bmdexpress2.mvp.model.DoseResponseExperiment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ExpressionImportService
+ */
+class ExpressionImportServiceTest {
+
+    private ProjectService projectService;
+    private ExpressionMatrixService matrixService;
+    private ExpressionImportService service;
+    private String projectId;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        projectService = new ProjectService();
+        matrixService = new ExpressionMatrixService();
+        service = new ExpressionImportService(projectService, matrixService);
+
+        BMDProject project = new BMDProject();
+        project.setName("Test Project");
+        project.setbMDResult(new ArrayList<>());
+        project.setDoseResponseExperiments(new ArrayList<>());
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(project);
+        }
+        projectId = projectService.loadProject(new ByteArrayInputStream(baos.toByteArray()), "test.bm2");
+    }
+
+    private Path writeExpressionFile() throws Exception {
+        Path file = tempDir.resolve("expression.txt");
+        Files.writeString(file, "Probe ID\tC1\tC2\tT1\tT2\n"
+                + "Doses\t0\t0\t10\t10\n"
+                + "probe_1\t1.0\t1.1\t2.0\t2.1\n"
+                + "probe_2\t5.0\t5.1\t4.0\t4.1\n");
+        return file;
+    }
+
+    @Test
+    void testImportExpressionData_Success() throws Exception {
+        // Act
+        ExpressionImportResponse response = service.importExpressionData(projectId, writeExpressionFile(), "My Data");
+
+        // Assert
+        assertEquals("My Data", response.getExperimentName());
+        assertEquals(2, response.getProbeCount());
+        assertEquals(4, response.getSampleCount());
+        assertEquals(2, response.getDoseGroupCount());
+        assertEquals(List.of("My Data"), service.getExperimentNames(projectId));
+    }
+
+    @Test
+    void testImportExpressionData_BuildsProbeResponses() throws Exception {
+        // Act
+        service.importExpressionData(projectId, writeExpressionFile(), "My Data");
+
+        // Assert
+        DoseResponseExperiment experiment = projectService.getProject(projectId).getDoseResponseExperiments().get(0);
+        assertEquals(4, experiment.getTreatments().size());
+        assertEquals(Float.valueOf(10f), experiment.getTreatments().get(2).getDose());
+        assertEquals("probe_2", experiment.getProbeResponses().get(1).getProbe().getId());
+        assertEquals(List.of(5.0f, 5.1f, 4.0f, 4.1f), experiment.getProbeResponses().get(1).getResponses());
+    }
+
+    @Test
+    void testImportExpressionData_RegistersMatrix() throws Exception {
+        // Act
+        service.importExpressionData(projectId, writeExpressionFile(), "My Data");
+
+        // Assert - the cached matrix is the parsed one, with identical values
+        DoseResponseExperiment experiment = projectService.getProject(projectId).getDoseResponseExperiments().get(0);
+        ExpressionMatrix matrix = matrixService.getMatrix(experiment);
+        assertEquals(2.1f, matrix.get(0, 3));
+        assertSame(matrix, matrixService.getMatrix(experiment));
+    }
+
+    @Test
+    void testImportExpressionData_DuplicateName() throws Exception {
+        // Arrange
+        service.importExpressionData(projectId, writeExpressionFile(), "My Data");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () ->
+                service.importExpressionData(projectId, writeExpressionFile(), "my data"));
+    }
+
+    @Test
+    void testImportExpressionData_ProjectNotFound() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () ->
+                service.importExpressionData("invalid-id", writeExpressionFile(), "My Data"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FileLeaseQueue
+ */
+class FileLeaseQueueTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testClaim_TaskGoesToOneNodeOnly() throws Exception {
+        // Arrange - two nodes sharing the queue directory
+        FileLeaseQueue node1 = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        FileLeaseQueue node2 = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        node1.enqueue("task-1", "payload");
+
+        // Act
+        FileLeaseQueue.Lease lease = node2.claim();
+
+        // Assert
+        assertNotNull(lease);
+        assertEquals("task-1", lease.getTaskId());
+        assertEquals("payload", lease.getPayload());
+        assertEquals(1, lease.getAttempt());
+        assertNull(node1.claim());
+        assertEquals(FileLeaseQueue.State.LEASED, node1.state("task-1"));
+    }
+
+    @Test
+    void testClaim_OldestTaskFirst() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        queue.enqueue("first", "1");
+        Thread.sleep(20);
+        queue.enqueue("second", "2");
+
+        // Act & Assert
+        assertEquals("first", queue.claim().getTaskId());
+        assertEquals("second", queue.claim().getTaskId());
+        assertNull(queue.claim());
+    }
+
+    @Test
+    void testComplete_ResultTakenBySubmitter() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        queue.enqueue("task-1", "payload");
+        FileLeaseQueue.Lease lease = queue.claim();
+
+        // Act
+        assertTrue(queue.complete(lease, "result"));
+
+        // Assert
+        assertEquals(FileLeaseQueue.State.DONE, queue.state("task-1"));
+        assertEquals("result", queue.takeResult("task-1", String.class));
+        assertNull(queue.takeResult("task-1", String.class));
+        assertEquals(FileLeaseQueue.State.UNKNOWN, queue.state("task-1"));
+    }
+
+    @Test
+    void testState_NeverUnknownWhileClaimedAndCompleted() throws Exception {
+        // Arrange - a worker node claiming and completing tasks while the submitter polls
+        FileLeaseQueue submitter = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        FileLeaseQueue worker = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+
+        for (int i = 0; i < 200; i++) {
+            String taskId = "task-" + i;
+            submitter.enqueue(taskId, "payload");
+            Thread thread = new Thread(() -> {
+                try {
+                    worker.complete(worker.claim(), "result");
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            // Act
+            thread.start();
+            FileLeaseQueue.State state;
+            do {
+                state = submitter.state(taskId);
+
+                // Assert
+                assertNotEquals(FileLeaseQueue.State.UNKNOWN, state, taskId);
+            } while (state != FileLeaseQueue.State.DONE);
+            thread.join();
+            assertEquals("result", submitter.takeResult(taskId, String.class));
+        }
+    }
+
+    @Test
+    void testReapExpiredLeases_RequeuesWithNextAttempt() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMillis(500), 3);
+        queue.enqueue("task-1", "payload");
+        FileLeaseQueue.Lease lost = queue.claim();
+
+        // Act
+        assertEquals(0, queue.reapExpiredLeases());
+        Thread.sleep(1000);
+        int reaped = queue.reapExpiredLeases();
+
+        // Assert
+        assertEquals(1, reaped);
+        assertFalse(queue.renew(lost));
+        FileLeaseQueue.Lease retry = queue.claim();
+        assertEquals("task-1", retry.getTaskId());
+        assertEquals(2, retry.getAttempt());
+    }
+
+    @Test
+    void testRenew_KeepsLease() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMillis(300), 3);
+        queue.enqueue("task-1", "payload");
+        FileLeaseQueue.Lease lease = queue.claim();
+
+        // Act - renew well within the lease duration, past its first expiry
+        for (int i = 0; i < 5; i++) {
+            Thread.sleep(100);
+            assertTrue(queue.renew(lease));
+            queue.reapExpiredLeases();
+        }
+
+        // Assert
+        assertEquals(FileLeaseQueue.State.LEASED, queue.state("task-1"));
+    }
+
+    @Test
+    void testReapExpiredLeases_FailsAfterMaxAttempts() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMillis(50), 2);
+        queue.enqueue("task-1", "payload");
+
+        // Act - two workers die holding the task
+        for (int attempt = 1; attempt <= 2; attempt++) {
+            assertEquals(attempt, queue.claim().getAttempt());
+            Thread.sleep(150);
+            queue.reapExpiredLeases();
+        }
+
+        // Assert
+        assertNull(queue.claim());
+        assertEquals(FileLeaseQueue.State.FAILED, queue.state("task-1"));
+        queue.discard("task-1");
+        assertEquals(FileLeaseQueue.State.UNKNOWN, queue.state("task-1"));
+    }
+
+    @Test
+    void testCancel_RemovesPendingTaskAndMarksLeasedTask() throws Exception {
+        // Arrange
+        FileLeaseQueue queue = new FileLeaseQueue(tempDir, Duration.ofMinutes(1), 3);
+        queue.enqueue("leased", "1");
+        queue.claim();
+        queue.enqueue("pending", "2");
+
+        // Act
+        queue.cancel("pending");
+        queue.cancel("leased");
+
+        // Assert
+        assertEquals(FileLeaseQueue.State.UNKNOWN, queue.state("pending"));
+        assertTrue(queue.isCancelled("leased"));
+        assertEquals(FileLeaseQueue.State.LEASED, queue.state("leased"));
+    }
+}
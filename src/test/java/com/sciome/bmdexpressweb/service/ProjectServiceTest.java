@@ -1,5 +1,6 @@
 package com.sciome.bmdexpressweb.service;
 
+import com.sciome.bmdexpressweb.dto.ProjectLoadResponse;
 import com.sciome.bmdexpress2.mvp.model.BMDProject;
 import com.sciome.bmdexpress2.mvp.model.stat.BMDResult;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,9 +8,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -90,6 +97,201 @@ class ProjectServiceTest {
         assertNotEquals(projectId1, projectId2);
     }
 
+    @Test
+    void testLoadProject_ContentHashIdenticalForIdenticalFiles() throws Exception {
+        // Arrange
+        BMDProject project = createMockProject("Test Project");
+
+        // Act
+        String projectId1 = service.loadProject(serializeProject(project), "test1.bm2");
+        String projectId2 = service.loadProject(serializeProject(project), "test2.bm2");
+        String otherId = service.loadProject(serializeProject(createMockProject("Other")), "other.bm2");
+
+        // Assert
+        assertEquals(64, service.getContentHash(projectId1).length());
+        assertEquals(service.getContentHash(projectId1), service.getContentHash(projectId2));
+        assertNotEquals(service.getContentHash(projectId1), service.getContentHash(otherId));
+    }
+
+    @Test
+    void testSubmitLoad_CompletesAndDeletesTemporaryFile() throws Exception {
+        // Arrange
+        Path upload = tempDir.resolve("upload.bm2");
+        try (InputStream in = serializeProject(createMockProject("Test Project"))) {
+            Files.copy(in, upload);
+        }
+
+        // Act
+        ProjectLoadResponse submitted = service.submitLoad(upload, "test.bm2", true);
+        ProjectLoadResponse load = submitted;
+        for (int i = 0; i < 100 && !"COMPLETED".equals(load.getStatus()); i++) {
+            Thread.sleep(20);
+            load = service.getLoad(submitted.getLoadId());
+        }
+
+        // Assert
+        assertEquals("COMPLETED", load.getStatus());
+        assertEquals("Test Project", service.getProject(load.getProjectId()).getName());
+        assertEquals("/api/projects/" + load.getProjectId(), load.getResultLocation());
+        assertFalse(Files.exists(upload));
+    }
+
+    @Test
+    void testLoadProjectAsync_CompletesAndDeletesTemporaryFile() throws Exception {
+        // Arrange
+        Path upload = tempDir.resolve("upload.bm2");
+        try (InputStream in = serializeProject(createMockProject("Test Project"))) {
+            Files.copy(in, upload);
+        }
+
+        // Act
+        String projectId = service.loadProjectAsync(upload, "test.bm2", true).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals("Test Project", service.getProject(projectId).getName());
+        assertFalse(Files.exists(upload));
+    }
+
+    @Test
+    void testLoadProjectAsync_InvalidFileFailsWithCause() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("invalid.bm2");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        // Act
+        CompletableFuture<String> load = service.loadProjectAsync(file, "invalid.bm2", false);
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> load.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, e.getCause());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void testSubmitLoad_InvalidFileFails() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("invalid.bm2");
+        Files.write(file, new byte[]{1, 2, 3});
+
+        // Act
+        ProjectLoadResponse submitted = service.submitLoad(file, "invalid.bm2", false);
+        ProjectLoadResponse load = submitted;
+        for (int i = 0; i < 100 && !"FAILED".equals(load.getStatus()); i++) {
+            Thread.sleep(20);
+            load = service.getLoad(submitted.getLoadId());
+        }
+
+        // Assert
+        assertEquals("FAILED", load.getStatus());
+        assertNull(load.getProjectId());
+        assertNotNull(load.getErrorMessage());
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    void testSubmitLoad_ErrorWhileReadingFailsLoad() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("deep.bm2");
+        Files.write(file, serialize(new OverflowOnRead()));
+
+        // Act
+        ProjectLoadResponse submitted = service.submitLoad(file, "deep.bm2", false);
+        ProjectLoadResponse load = submitted;
+        for (int i = 0; i < 100 && load.getCompletedAt() == null; i++) {
+            Thread.sleep(20);
+            load = service.getLoad(submitted.getLoadId());
+        }
+
+        // Assert
+        assertEquals("FAILED", load.getStatus());
+        assertEquals("Invalid project file format", load.getErrorMessage());
+        assertNull(load.getProjectId());
+    }
+
+    @Test
+    void testLoadProjectAsync_ErrorWhileReadingFailsLoad() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("deep.bm2");
+        Files.write(file, serialize(new OverflowOnRead()));
+
+        // Act
+        CompletableFuture<String> load = service.loadProjectAsync(file, "deep.bm2", true);
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> load.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(StackOverflowError.class, e.getCause());
+        assertFalse(Files.exists(file));
+    }
+
+    /**
+     * Fails to deserialize like a project whose object graph is too deep
+     */
+    private static class OverflowOnRead implements Serializable {
+        private void readObject(ObjectInputStream in) {
+            throw new StackOverflowError();
+        }
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void testGetLoad_NotFound() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> service.getLoad("missing"));
+    }
+
+    @Test
+    void testLoadProject_RejectedWhenLoaderPoolIsFull() throws Exception {
+        // Arrange - one loader thread, one queued load; the running load blocks on its input
+        ProjectService limited = new ProjectService(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream blocking = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+                return -1;
+            }
+        };
+        Path file = tempDir.resolve("queued.bm2");
+        try (InputStream in = serializeProject(createMockProject("Queued"))) {
+            Files.copy(in, file);
+        }
+
+        try {
+            Thread running = new Thread(() -> {
+                try {
+                    limited.loadProject(blocking, "blocking.bm2");
+                } catch (Exception e) {
+                    // Empty stream: expected to fail once released
+                }
+            });
+            running.start();
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            limited.submitLoad(file, "queued.bm2", false);
+
+            // Act & Assert
+            assertThrows(RejectedExecutionException.class,
+                    () -> limited.loadProject(serializeProject(createMockProject("Rejected")), "rejected.bm2"));
+
+            release.countDown();
+            running.join(5000);
+        } finally {
+            limited.shutdown();
+        }
+    }
+
     @Test
     void testGetProject_Success() throws Exception {
         // Arrange
@@ -246,4 +448,41 @@ class ProjectServiceTest {
         BMDProject retrieved = service.getProject(id2);
         assertEquals("Project 2", retrieved.getName());
     }
+
+    @Test
+    void testLoadProject_IdOwnedByThisNode() throws Exception {
+        // Arrange
+        List<String> nodes = List.of("http://node-a:8080", "http://node-b:8080", "http://node-c:8080");
+        ClusterMembership membership = new ClusterMembership(nodes, "http://node-b:8080", "secret", 128);
+        ProjectService clustered = new ProjectService(2, 16, membership);
+
+        // Act
+        String projectId = clustered.loadProject(serializeProject(createMockProject("Test Project")), "test.bm2");
+
+        // Assert
+        assertEquals("http://node-b:8080", membership.ownerOf(projectId));
+        clustered.shutdown();
+    }
+
+    @Test
+    void testExportProject_AdoptedWithSameIdAndMetadata() throws Exception {
+        // Arrange
+        String projectId = service.loadProject(serializeProject(createMockProject("Test Project")), "test.bm2");
+        ProjectService.ProjectHolder original = service.getProjectHolder(projectId);
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        ProjectService newOwner = new ProjectService();
+
+        // Act
+        service.exportProject(projectId, exported);
+        newOwner.adoptProject(projectId, new ByteArrayInputStream(exported.toByteArray()), "test.bm2",
+                original.getUploadedAt(), original.getContentHash());
+
+        // Assert
+        ProjectService.ProjectHolder adopted = newOwner.getProjectHolder(projectId);
+        assertEquals("Test Project", adopted.getProject().getName());
+        assertEquals(2, adopted.getProject().getbMDResult().size());
+        assertEquals(original.getContentHash(), adopted.getContentHash());
+        assertEquals(original.getUploadedAt(), adopted.getUploadedAt());
+        newOwner.shutdown();
+    }
 }
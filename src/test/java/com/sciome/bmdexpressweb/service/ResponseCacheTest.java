@@ -0,0 +1,117 @@
+package com.sciome.bmdexpressweb.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ResponseCache
+ */
+class ResponseCacheTest {
+
+    private static byte[] json(int rows) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            json.append(i > 0 ? "," : "").append("{\"row\":[\"GO:").append(i).append("\",0.5]}");
+        }
+        return json.append("]").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testEtag_StrongAndSpecificToVersionResourceAndVariant() {
+        // Act
+        String etag = ResponseCache.etag("hash-1", "category-results/GO", "json");
+
+        // Assert
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        assertEquals(etag, ResponseCache.etag("hash-1", "category-results/GO", "json"));
+        assertNotEquals(etag, ResponseCache.etag("hash-2", "category-results/GO", "json"));
+        assertNotEquals(etag, ResponseCache.etag("hash-1", "category-results/KEGG", "json"));
+        assertNotEquals(etag, ResponseCache.etag("hash-1", "category-results/GO", "columnar"));
+        assertNull(ResponseCache.etag(null, "category-results/GO", "json"));
+    }
+
+    @Test
+    void testMatches_IfNoneMatchForms() {
+        // Arrange
+        String etag = ResponseCache.etag("hash-1", "full", "json");
+
+        // Act & Assert
+        assertTrue(ResponseCache.matches(etag, etag));
+        assertTrue(ResponseCache.matches("\"other\", " + etag, etag));
+        assertTrue(ResponseCache.matches("W/" + etag, etag));
+        assertTrue(ResponseCache.matches(ResponseCache.gzipEtag(etag), etag));
+        assertTrue(ResponseCache.matches("*", etag));
+        assertFalse(ResponseCache.matches("\"other\"", etag));
+        assertFalse(ResponseCache.matches(null, etag));
+        assertFalse(ResponseCache.matches(etag, null));
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        // Act & Assert
+        assertTrue(ResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(ResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(ResponseCache.acceptsGzip("*"));
+        assertFalse(ResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(ResponseCache.acceptsGzip("identity"));
+        assertFalse(ResponseCache.acceptsGzip(null));
+    }
+
+    @Test
+    void testPut_KeepsIdentityAndSmallerGzip() throws IOException {
+        // Arrange
+        ResponseCache cache = new ResponseCache(1 << 20, 1 << 16);
+        String etag = ResponseCache.etag("hash-1", "full", "json");
+        byte[] body = json(500);
+
+        // Act
+        cache.put(etag, "application/json", body);
+        ResponseCache.Body cached = cache.get(etag);
+
+        // Assert
+        assertNotNull(cached);
+        assertEquals("application/json", cached.getContentType());
+        assertArrayEquals(body, cached.getIdentity());
+        assertNotNull(cached.getGzip());
+        assertTrue(cached.getGzip().length < body.length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.getGzip()))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void testPut_NoGzipWhenNotSmaller() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(1 << 20, 1 << 16);
+        String etag = ResponseCache.etag("hash-1", "full", "json");
+
+        // Act
+        cache.put(etag, "application/json", "{}".getBytes(StandardCharsets.UTF_8));
+
+        // Assert
+        assertNull(cache.get(etag).getGzip());
+    }
+
+    @Test
+    void testPut_SkipsBodiesOverEntryLimit() {
+        // Arrange
+        ResponseCache cache = new ResponseCache(1 << 20, 1024);
+        ResponseCache disabled = new ResponseCache(0, 1024);
+        String etag = ResponseCache.etag("hash-1", "full", "json");
+
+        // Act
+        cache.put(etag, "application/json", json(500));
+        disabled.put(etag, "application/json", json(1));
+
+        // Assert
+        assertNull(cache.get(etag));
+        assertNull(disabled.get(etag));
+        assertEquals(0, disabled.getMaxEntryBytes());
+    }
+}
@@ -0,0 +1,98 @@
+package com.sciome.bmdexpressweb.views.dataview;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TypedTable
+ */
+class TypedTableTest {
+
+    private static Map<String, Object> row(Object... cells) {
+        return Map.of("row", Arrays.asList(cells));
+    }
+
+    private static TypedTable createTable(Locale locale) {
+        return TypedTable.of(List.of("GO ID", "Genes", "BMD Mean", "Note"), List.of(
+                row("GO:0002", 12, 2.5, "a"),
+                row("GO:0001", 3, 0.000012, null),
+                row("GO:0003", null, 10.0, 7),
+                row("GO:0004", 120, null)), locale);
+    }
+
+    private static List<String> sortedIds(TypedTable table, TypedTable.Column column) {
+        List<TypedTable.Row> rows = new ArrayList<>(table.getRows());
+        rows.sort(column.getComparator());
+        TypedTable.Column ids = table.getColumn("GO ID");
+        return rows.stream().map(ids::getDisplay).toList();
+    }
+
+    @Test
+    void testOf_ColumnTypesFromCells() {
+        // Act
+        TypedTable table = createTable(Locale.US);
+
+        // Assert
+        assertEquals(TypedTable.Type.TEXT, table.getColumn("GO ID").getType());
+        assertEquals(TypedTable.Type.INTEGER, table.getColumn("Genes").getType());
+        assertEquals(TypedTable.Type.DECIMAL, table.getColumn("BMD Mean").getType());
+        assertEquals(TypedTable.Type.TEXT, table.getColumn("Note").getType());
+        assertNull(table.getColumn("BMD Median"));
+        assertEquals(4, table.getRows().size());
+    }
+
+    @Test
+    void testOf_LocaleAwareDisplayStrings() {
+        // Act
+        TypedTable us = createTable(Locale.US);
+        TypedTable german = createTable(Locale.GERMANY);
+        TypedTable.Row first = us.getRows().get(0);
+        TypedTable.Row second = us.getRows().get(1);
+
+        // Assert
+        assertEquals("2.5", us.getColumn("BMD Mean").getDisplay(first));
+        assertEquals("2,5", german.getColumn("BMD Mean").getDisplay(german.getRows().get(0)));
+        assertEquals("1.2E-5", us.getColumn("BMD Mean").getDisplay(second));
+        assertEquals("12", us.getColumn("Genes").getDisplay(first));
+        assertEquals("", us.getColumn("Genes").getDisplay(us.getRows().get(2)));
+        assertEquals("7", us.getColumn("Note").getDisplay(us.getRows().get(2)));
+        assertEquals("", us.getColumn("Note").getDisplay(us.getRows().get(3)));
+    }
+
+    @Test
+    void testComparator_NumericWithMissingFirst() {
+        // Arrange
+        TypedTable table = createTable(Locale.US);
+
+        // Act & Assert - 120 after 12 and 3 (not "120" < "3" as text)
+        assertEquals(List.of("GO:0003", "GO:0001", "GO:0002", "GO:0004"), sortedIds(table, table.getColumn("Genes")));
+        assertEquals(List.of("GO:0004", "GO:0001", "GO:0002", "GO:0003"),
+                sortedIds(table, table.getColumn("BMD Mean")));
+        assertEquals(List.of("GO:0001", "GO:0002", "GO:0003", "GO:0004"), sortedIds(table, table.getColumn("GO ID")));
+    }
+
+    @Test
+    void testTypedAccessors() {
+        // Arrange
+        TypedTable table = createTable(Locale.US);
+        TypedTable.Row first = table.getRows().get(0);
+        TypedTable.Row last = table.getRows().get(3);
+
+        // Act & Assert
+        assertEquals(12L, table.getColumn("Genes").getLong(first));
+        assertEquals(2.5, table.getColumn("BMD Mean").getDouble(first), 1e-12);
+        assertTrue(Double.isNaN(table.getColumn("BMD Mean").getDouble(last)));
+        assertTrue(table.getColumn("BMD Mean").isMissing(last));
+        assertTrue(Double.isNaN(table.getColumn("GO ID").getDouble(first)));
+        assertArrayEquals(new double[] {2.5, 0.000012, 10.0}, table.getColumn("BMD Mean").getValues(), 1e-12);
+        assertArrayEquals(new double[] {12, 3, 120}, table.getColumn("Genes").getValues(), 1e-12);
+        assertEquals(0, table.getColumn("Note").getValues().length);
+    }
+}